@@ -0,0 +1,93 @@
+package bench; // Define the package containing the JMH benchmarks
+
+import app.ApiServer; // Import the API server started in-process when no -Durl is given
+import app.DBMigrator; // Import DBMigrator so the dataset has the version counters the ETags need
+import app.Db; // Import Db to close the pool after the run
+import util.Histogram; // Import Histogram to report latency percentiles
+
+import java.net.InetSocketAddress; // Import InetSocketAddress to bind the in-process server
+import java.net.URI; // Import URI to address requests
+import java.net.http.HttpClient; // Import the JDK HTTP client that drives the load
+import java.net.http.HttpRequest; // Import HttpRequest to build requests
+import java.net.http.HttpResponse; // Import HttpResponse to read status and ETag
+import java.time.Duration; // Import Duration for the request timeout
+import java.util.ArrayList; // Import ArrayList to hold the client threads
+import java.util.List; // Import List as the thread list type
+import java.util.Random; // Import Random to pick operations and ids
+import java.util.concurrent.Executors; // Import Executors for the client's virtual-thread executor
+import java.util.concurrent.atomic.LongAdder; // Import LongAdder to count outcomes from every client
+
+public final class ApiLoad { // Closed-loop load test of the HTTP API: N clients, each sending its next request when the last one answered
+
+    private static final String[] OPS = {"GET item", "GET low-stock", "PUT item"}; // Operation names, in report order
+    private static final int[] MIX = {60, 25, 15}; // Percent of requests per operation
+    private static final Histogram[] LATENCY = {new Histogram(), new Histogram(), new Histogram()}; // Latency per operation, in nanoseconds
+    private static final LongAdder OK = new LongAdder(); // 200, 201 and 204 answers
+    private static final LongAdder NOT_MODIFIED = new LongAdder(); // 304 answers, the revalidations that skipped the body
+    private static final LongAdder FAILED = new LongAdder(); // Other statuses and transport failures
+
+    private ApiLoad() {} // Private constructor prevents instantiation because all members are static
+
+    public static void main(String[] args) throws Exception { // ApiLoad [clients] [seconds] [rows]; -Durl=http://host:port targets a running server
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 32; // Concurrent clients
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10; // Length of the measured run
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : 50_000; // Dataset size, which is also the id range updated
+        String url = System.getProperty("url"); // External server, if any
+        ApiServer server = null; // In-process server, if started
+        if (url == null) { // Start one over a private copy of the dataset
+            BenchData.use(rows, true); // Writes must not change the cached dataset
+            DBMigrator.migrate(); // Add the version counters to datasets generated before they existed
+            server = new ApiServer(new InetSocketAddress("127.0.0.1", 0)); // Any free port
+            server.start(); // Begin accepting requests
+            url = "http://127.0.0.1:" + server.address().getPort(); // Where the clients connect
+        } // End in-process server
+        System.out.println("[API] " + clients + " clients for " + seconds + " s against " + url + ", " + rows + " rows"); // Describe the run
+
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(Executors.newVirtualThreadPerTaskExecutor()).build(); // Keep-alive HTTP/1.1, like a browser
+        long end = System.nanoTime() + seconds * 1_000_000_000L; // When the clients stop
+        List<Thread> threads = new ArrayList<>(); // The client loops
+        for (int c = 0; c < clients; c++) { // Start every client
+            Random rnd = new Random(c); // Each client has its own reproducible sequence
+            String base = url; // Effectively final copy for the lambda
+            threads.add(Thread.ofVirtual().name("api-load-" + c).start(() -> clientLoop(http, base, rows, rnd, end))); // One virtual thread per client
+        } // End client start
+        for (Thread t : threads) t.join(); // Wait for the run to finish
+
+        long total = OK.sum() + NOT_MODIFIED.sum() + FAILED.sum(); // Requests answered
+        System.out.printf("[API] %d requests, %.0f req/s, %d ok, %d not modified, %d failed%n", total, total / (double) seconds, OK.sum(), NOT_MODIFIED.sum(), FAILED.sum()); // Throughput and outcomes
+        for (int i = 0; i < OPS.length; i++) { // Latency per operation
+            Histogram.Snapshot s = LATENCY[i].snapshot(); // Copy the histogram
+            System.out.printf("[API] %-14s n=%-7d p50=%6.2f ms  p90=%6.2f ms  p99=%6.2f ms  max=%7.2f ms%n", OPS[i], s.count, s.percentile(50) / 1e6, s.percentile(90) / 1e6, s.percentile(99) / 1e6, s.max / 1e6); // One line per operation
+        } // End report loop
+        if (server != null) { server.stop(); Db.shutdown(); } // Release the port and the pool
+        System.exit(FAILED.sum() == 0 ? 0 : 1); // Fail the ant target if any request failed
+    } // End main method
+
+    private static void clientLoop(HttpClient http, String url, int rows, Random rnd, long end) { // Send requests until the deadline, revalidating what this client has seen before
+        String[] itemTags = new String[rows + 1]; // Last ETag seen per item id
+        String listTag = null; // Last ETag seen for the low-stock listing
+        while (System.nanoTime() < end) { // Until the run ends
+            int roll = rnd.nextInt(100); // Pick an operation by the mix
+            int op = roll < MIX[0] ? 0 : roll < MIX[0] + MIX[1] ? 1 : 2; // Operation index
+            int id = 1 + rnd.nextInt(rows); // Item to read or update
+            HttpRequest.Builder rq = HttpRequest.newBuilder().timeout(Duration.ofSeconds(30)); // Common settings
+            if (op == 0) { rq.uri(URI.create(url + "/api/pantry/" + id)); if (itemTags[id] != null) rq.header("If-None-Match", itemTags[id]); } // Conditional item read
+            else if (op == 1) { rq.uri(URI.create(url + "/api/pantry?view=low-stock")); if (listTag != null) rq.header("If-None-Match", listTag); } // Conditional listing read
+            else rq.uri(URI.create(url + "/api/pantry/" + id)).PUT(HttpRequest.BodyPublishers.ofString("{\"onHandQty\":" + rnd.nextInt(20) + "}")); // Quantity update
+            long t0 = System.nanoTime(); // Start timing
+            try { // Count transport failures
+                HttpResponse<byte[]> r = http.send(rq.build(), HttpResponse.BodyHandlers.ofByteArray()); // Send and read the whole body
+                LATENCY[op].record(System.nanoTime() - t0); // Time until the last byte arrived
+                int status = r.statusCode(); // Outcome
+                if (status == 304) NOT_MODIFIED.increment(); // Revalidated without a body
+                else if (status / 100 == 2 || status == 404) OK.increment(); // 404 is a deleted id, a valid answer
+                else FAILED.increment(); // Anything else is a server problem
+                String tag = r.headers().firstValue("ETag").orElse(null); // Tag to revalidate with next time
+                if (op == 0) itemTags[id] = tag; else if (op == 1) listTag = tag; // Remember it
+            } catch (Exception e) { // Handle timeouts and refused connections
+                FAILED.increment(); // Count the failure
+                if (e instanceof InterruptedException) return; // Stop when interrupted
+            } // End request
+        } // End client loop
+    } // End clientLoop method
+} // End ApiLoad class
@@ -0,0 +1,121 @@
+package bench; // Define the package containing the JMH benchmarks
+
+import app.Db; // Import Db to point the pool at a dataset and release it afterwards
+import app.UnitOfWork; // Import UnitOfWork to load each generated chunk in one transaction
+import model.PantryItem; // Import PantryItem to build generated pantry rows
+import model.Trip; // Import Trip to hold the generated trips
+import model.TripItem; // Import TripItem to build generated trip rows
+import service.SqlitePantryService; // Import the pantry service used to load the dataset
+import service.SqliteTripService; // Import the trip service used to load the dataset
+
+import java.io.IOException; // Import IOException for dataset file handling
+import java.nio.file.Files; // Import Files to copy, delete and mark dataset files
+import java.nio.file.Path; // Import Path to address dataset files
+import java.nio.file.StandardCopyOption; // Import copy options for the per-fork working copy
+import java.time.LocalDate; // Import LocalDate to spread expiry dates around today
+import java.util.ArrayList; // Import ArrayList to build generated chunks
+import java.util.List; // Import List as the chunk type
+import java.util.Random; // Import Random with a fixed seed so every dataset is identical
+
+public final class BenchData { // Generate and cache the SQLite datasets the benchmarks run against
+
+    static final int ITEMS_PER_TRIP = 50; // Trip items per generated trip, so per-trip queries read a realistic slice of a large table
+    private static final int CHUNK = 10_000; // Rows loaded per transaction while generating
+    private static final String[] CATEGORIES = {"Dairy", "Produce", "Bakery", "Meat", "Frozen", "Pantry", "Drinks", "Household"}; // Categories assigned round-robin
+    private static final String[] UNITS = {null, "kg", "box", "bottle", "pack", "dozen"}; // Units assigned at random, including none
+
+    private BenchData() {} // Private constructor prevents instantiation because all members are static
+
+    public static Path use(int rows, boolean writable) { // Point Db at the dataset of the given size; writable benchmarks get a private copy
+        Path data = ensure(rows); // Generate the dataset on first use
+        Path target = data; // Read-only benchmarks use the cached file directly
+        try { // Handle copy failures
+            if (writable) { // Writes must not grow the shared dataset between runs
+                target = Files.createTempFile("grocerease-bench-", ".db"); // Reserve a private working file
+                Files.copy(data, target, StandardCopyOption.REPLACE_EXISTING); // Start from the generated rows
+                target.toFile().deleteOnExit(); // Clean up when the fork exits
+            } // End writable copy
+        } catch (IOException e) { // Report copy failures
+            throw new RuntimeException("could not copy dataset: " + e.getMessage()); // Convert the failure to an unchecked exception with context
+        } // End catch block for copy errors
+        System.setProperty("dbPath", target.toString()); // The pool is created lazily, so the next Db.open() uses this file
+        return target; // Return the file the benchmark runs against
+    } // End use method
+
+    public static int hotTripId(int rows) { return Math.max(1, rows / ITEMS_PER_TRIP / 2); } // A trip in the middle of the id range, so index lookups are not at the edge
+
+    static synchronized Path ensure(int rows) { // Return the cached dataset file, generating it if it does not exist yet
+        Path dir = Path.of(System.getProperty("benchDataDir", "build/bench/data")); // Read where datasets are cached
+        Path db = dir.resolve("grocerease-" + rows + ".db"); // One file per dataset size
+        Path done = dir.resolve("grocerease-" + rows + ".ok"); // Marker written only after generation finished
+        if (Files.exists(done)) return db; // Reuse a complete dataset
+        try { // Handle file system failures
+            Files.createDirectories(dir); // Create the cache directory
+            for (String suffix : new String[]{"", "-wal", "-shm"}) Files.deleteIfExists(Path.of(db + suffix)); // Remove any half-written dataset
+            generate(db, rows); // Fill a fresh database
+            Files.writeString(done, rows + " rows\n"); // Mark the dataset as complete
+        } catch (IOException e) { // Report file system failures
+            throw new RuntimeException("could not generate dataset: " + e.getMessage()); // Convert the failure to an unchecked exception with context
+        } // End catch block for generation errors
+        return db; // Return the complete dataset
+    } // End ensure method
+
+    private static void generate(Path db, int rows) { // Load the given number of pantry rows and trip item rows
+        String oldPath = System.getProperty("dbPath"); // Remember the caller's settings to restore them afterwards
+        String oldProfile = System.getProperty("dbProfile"); // Remember the caller's storage profile
+        System.setProperty("dbPath", db.toString()); // Point a fresh pool at the new file
+        System.setProperty("dbProfile", "bulk"); // Skip fsyncs while generating; a crash just means generating again
+        long start = System.nanoTime(); // Time the generation for the log
+        try { // Restore the settings even if generation fails
+            Random rnd = new Random(rows); // Seed by size so every machine generates the same data
+            SqlitePantryService pantry = new SqlitePantryService(); // Create the schema and the pantry loader
+            SqliteTripService trips = new SqliteTripService(); // Create the trip loader
+            LocalDate today = LocalDate.now(); // Spread expiry dates around the generation date
+
+            for (int from = 0; from < rows; from += CHUNK) { // Load pantry rows chunk by chunk
+                List<PantryItem> chunk = new ArrayList<>(); // Rows of this chunk
+                for (int i = from; i < Math.min(rows, from + CHUNK); i++) { // Build each row
+                    PantryItem p = new PantryItem(); // Create the row
+                    p.name = "item-" + Integer.toString(rnd.nextInt(Integer.MAX_VALUE), 36); // Random names so the name index is not loaded in order
+                    p.category = CATEGORIES[i % CATEGORIES.length]; // Cycle through the categories
+                    p.onHandQty = rnd.nextInt(20); // Quantities between 0 and 19
+                    p.unit = UNITS[rnd.nextInt(UNITS.length)]; // Random unit or none
+                    p.minQty = rnd.nextInt(4); // Minimums between 0 and 3, so roughly a tenth of rows are low
+                    p.setExpiry(rnd.nextInt(10) < 3 ? null : today.plusDays(rnd.nextInt(400) - 30)); // 30% without expiry, the rest from a month ago to a year ahead
+                    chunk.add(p); // Queue the row
+                } // End loop over chunk rows
+                pantry.addAll(chunk); // Insert the chunk in one transaction
+            } // End pantry loading
+
+            int tripCount = Math.max(1, rows / ITEMS_PER_TRIP); // Enough trips to hold one item per pantry row
+            int tripsPerTx = CHUNK / ITEMS_PER_TRIP; // Trips per transaction, so each commit holds about CHUNK items
+            for (int from = 0; from < tripCount; from += tripsPerTx) { // Load the trips transaction by transaction
+                int count = Math.min(tripsPerTx, tripCount - from); // Trips in this transaction
+                UnitOfWork.run(() -> { // Insert the trips and their items together
+                    for (int t = 0; t < count; t++) { // Build each trip
+                        Trip trip = trips.create(today.minusDays(rnd.nextInt(720)), null, 50_000 + rnd.nextInt(200_000), null); // A trip from the last two years
+                        List<TripItem> items = new ArrayList<>(); // Items of this trip
+                        for (int i = 0; i < ITEMS_PER_TRIP; i++) { // Build each item
+                            TripItem it = new TripItem(); // Create the item
+                            it.itemName = "item-" + Integer.toString(rnd.nextInt(Integer.MAX_VALUE), 36); // Random product name
+                            it.unit = UNITS[rnd.nextInt(UNITS.length)]; // Random unit or none
+                            it.plannedQty = 1 + rnd.nextInt(5); // Quantities between 1 and 5
+                            it.expectedPriceCents = rnd.nextInt(10) == 0 ? null : 500 + rnd.nextInt(50_000); // 10% without a known price
+                            items.add(it); // Queue the item
+                        } // End loop over items
+                        trips.addItems(trip.id, items); // Insert the items in one batch
+                    } // End loop over trips
+                }); // End unit of work
+            } // End trip loading
+        } finally { // Release the generation pool and restore the caller's settings
+            Db.shutdown(); // Checkpoint and close the generation pool so the benchmark gets a fresh one
+            restore("dbPath", oldPath); // Restore the database path
+            restore("dbProfile", oldProfile); // Restore the storage profile
+        } // End settings restore
+        System.out.println("[BENCH] generated " + rows + " rows in " + (System.nanoTime() - start) / 1_000_000 + " ms: " + db); // Log the generation time
+    } // End generate method
+
+    private static void restore(String key, String value) { // Put a system property back to its previous value
+        if (value == null) System.clearProperty(key); else System.setProperty(key, value); // Clear properties that were not set before
+    } // End restore method
+} // End BenchData class
@@ -0,0 +1,60 @@
+package bench; // Define the package containing the JMH benchmarks
+
+import model.TripItem; // Import TripItem as the optimizer input
+import org.openjdk.jmh.annotations.Benchmark; // Import the JMH benchmark marker
+import org.openjdk.jmh.annotations.BenchmarkMode; // Import BenchmarkMode to report time per operation
+import org.openjdk.jmh.annotations.Fork; // Import Fork to run in a fresh JVM
+import org.openjdk.jmh.annotations.Measurement; // Import Measurement to size the measured iterations
+import org.openjdk.jmh.annotations.Mode; // Import Mode to select average time
+import org.openjdk.jmh.annotations.OutputTimeUnit; // Import OutputTimeUnit to choose the reported unit
+import org.openjdk.jmh.annotations.Param; // Import Param to run against several inputs
+import org.openjdk.jmh.annotations.Scope; // Import Scope for shared inputs
+import org.openjdk.jmh.annotations.Setup; // Import Setup to build the items once
+import org.openjdk.jmh.annotations.State; // Import State to hold the inputs
+import org.openjdk.jmh.annotations.Warmup; // Import Warmup to size the warmup iterations
+import service.BudgetOptimizer; // Import the optimizer under test
+
+import java.util.ArrayList; // Import ArrayList to build the item list
+import java.util.List; // Import List as the item list type
+import java.util.Random; // Import Random for reproducible prices and quantities
+import java.util.concurrent.TimeUnit; // Import TimeUnit for the reported unit
+
+@BenchmarkMode(Mode.AverageTime) // Report the average time per solve
+@OutputTimeUnit(TimeUnit.MICROSECONDS) // Small trips solve in microseconds, large ones in milliseconds
+@Warmup(iterations = 3, time = 1) // Warm the JIT
+@Measurement(iterations = 5, time = 1) // Measure five one-second iterations
+@Fork(1) // Fresh JVM so earlier benchmarks do not skew inlining
+@State(Scope.Benchmark) // One item list shared by every iteration; solve() does not modify it
+public class BudgetBench { // Measure the budget optimizer on trips of growing size, with whole-dollar and odd-cent prices
+
+    @Param({"10", "100", "1000", "10000"}) // A normal trip up to a bulk-imported one
+    public int items; // Lines on the trip
+
+    @Param({"100", "1"}) // Whole dollars shrink the DP a hundredfold; odd cents push large trips onto the greedy path
+    public int priceStep; // Every price is a multiple of this many cents
+
+    final BudgetOptimizer optimizer = new BudgetOptimizer(); // solve() never touches the database
+    List<TripItem> trip; // The generated lines
+    long budget; // Budget set to 60% of the planned cost, so about half the value must be dropped
+
+    @Setup // Build the trip once per trial
+    public void setUp() { // Generate reproducible lines
+        Random r = new Random(17); // Fixed seed so every run solves the same problem
+        trip = new ArrayList<>(items); // Size the list up front
+        long full = 0; // Planned cost
+        for (int i = 0; i < items; i++) { // One line per item
+            TripItem t = new TripItem(); // Build the line
+            t.id = i + 1; // Stable id
+            t.itemName = "item-" + i; // Distinct name
+            t.plannedQty = 1 + r.nextInt(6); // One to six units
+            t.expectedPriceCents = (1 + r.nextInt(30_000 / priceStep)) * priceStep; // Up to NT$300 in multiples of the step
+            t.priority = 1 + r.nextInt(5); // Any priority
+            trip.add(t); // Keep the line
+            full += (long) t.expectedPriceCents * t.plannedQty; // Add to the planned cost
+        } // End loop over lines
+        budget = full * 6 / 10; // Force the optimizer to cut
+    } // End setUp method
+
+    @Benchmark // Solve exactly when the table fits, greedily otherwise
+    public BudgetOptimizer.Solution solve() { return optimizer.solve(trip, budget); } // Return the solution so JMH keeps the work alive
+} // End BudgetBench class
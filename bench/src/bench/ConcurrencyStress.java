@@ -0,0 +1,128 @@
+package bench; // Define the package containing the JMH benchmarks
+
+import app.DBMigrator; // Import DBMigrator so older cached datasets get the row version columns
+import app.Db; // Import Db to close the pool after the run
+import model.PantryItem; // Import PantryItem for the hot rows
+import model.Trip; // Import Trip for the hot trip
+import model.TripItem; // Import TripItem for the hot trip line
+import service.ConflictException; // Import ConflictException to count reported conflicts
+import service.SqlitePantryService; // Import the pantry service under test
+import service.SqliteTripService; // Import the trip service under test
+import util.Metrics; // Import Metrics to report the conflict and retry counters
+
+import java.time.LocalDate; // Import LocalDate to date the hot trip
+import java.util.ArrayList; // Import ArrayList to hold the worker threads
+import java.util.List; // Import List as the thread list type
+import java.util.Random; // Import Random to pick deltas
+import java.util.concurrent.CountDownLatch; // Import CountDownLatch to release every worker at once
+import java.util.concurrent.atomic.LongAdder; // Import LongAdder to sum what the workers applied
+
+public final class ConcurrencyStress { // Many threads, each on its own pooled connection like separate app instances, hammer one row; the stored value must account for every write that reported success
+
+    private static final int START_QTY = 1_000_000; // Starting quantity, high enough that random decrements never hit zero
+    private static int failures = 0; // Checks that found lost updates
+
+    private interface Op { int run(Random rnd) throws Exception; } // One write; returns the delta it applied, or 0 when it applied nothing
+
+    private ConcurrencyStress() {} // Private constructor prevents instantiation because all members are static
+
+    public static void main(String[] args) throws Exception { // ConcurrencyStress [threads] [ops per thread]
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8; // Concurrent writers
+        int ops = args.length > 1 ? Integer.parseInt(args[1]) : 500; // Writes per thread and phase
+        System.setProperty("dbPoolSize", Integer.toString(threads)); // One connection per thread, so SQLite sees concurrent writers as it would from several processes
+        BenchData.use(1_000, true); // A private copy of the small dataset
+        DBMigrator.migrate(); // Add the row version columns if the dataset predates them
+        SqlitePantryService pantry = new SqlitePantryService(); // Uncached: every call goes to SQLite
+        SqliteTripService trips = new SqliteTripService(); // Trip writes
+        System.out.println("[CAS] " + threads + " threads x " + ops + " writes per phase, one connection each"); // Describe the run
+
+        int adjusted = hotItem(pantry); // Relative updates
+        phase("adjustQty", threads, ops, rnd -> { // One UPDATE ... SET qty = qty + ? per write
+            int d = rnd.nextInt(9) - 3; // -3 .. +5
+            return pantry.adjustQty(adjusted, d) == null ? 0 : d; // Applied unless the row vanished
+        }, () -> pantry.getById(adjusted).onHandQty - START_QTY, true); // Stored change must equal the sum applied
+
+        int modified = hotItem(pantry); // Compare-and-set with retry
+        LongAdder refused = new LongAdder(); // Writes that gave up after CAS_ATTEMPTS conflicts
+        phase("modify", threads, ops, rnd -> { // Read, change, compare and set; retried against the winning row
+            int d = rnd.nextInt(9) - 3; // -3 .. +5
+            try { // Count conflicts that outlasted the retries
+                pantry.modify(modified, p -> { p.onHandQty += d; return p; }); // May run several times; only the last one is stored
+                return d; // Applied exactly once
+            } catch (ConflictException e) { // Every attempt lost
+                refused.increment(); // Reported to the caller, so it is not a lost update
+                return 0; // Nothing applied
+            } // End conflict handling
+        }, () -> pantry.getById(modified).onHandQty - START_QTY, true); // Stored change must equal the sum applied
+        System.out.println("[CAS]   " + Metrics.counter("pantry.conflicts").get() + " conflicts, " + Metrics.counter("pantry.retries").get() + " retries, " + refused.sum() + " reported to callers after every retry lost"); // Visible, never silent
+
+        int blind = hotItem(pantry); // The old update(): read, change, write whatever version is stored now
+        phase("blind read-modify-write (control)", threads, ops, rnd -> { // Shows what the harness catches when versions are ignored
+            int d = rnd.nextInt(9) - 3; // -3 .. +5
+            PantryItem p = pantry.getById(blind); // Read
+            p.onHandQty += d; // Change
+            for (int attempt = 0; ; attempt++) { // Write, adopting whatever version is stored
+                p.version = pantry.getById(blind).version; // Ignore changes made since the read, like the update() this replaced
+                try { pantry.update(p); return d; } // Store it, overwriting other writers
+                catch (ConflictException e) { if (attempt > 100) throw e; } // Raced again between the two reads; try once more
+            } // End write loop
+        }, () -> pantry.getById(blind).onHandQty - START_QTY, false); // Expected to lose updates
+
+        Trip trip = trips.create(LocalDate.now(), null, 0, "stress"); // Trip for the line under test
+        TripItem line = trips.addItem(trip.id, "stress line", null, START_QTY, 7); // 7 cents a unit, so the subtotal is checked too
+        phase("adjustItemQty + updateItemQty(version)", threads, ops, rnd -> { // Mix relative and compare-and-set trip writes
+            int d = rnd.nextInt(9) - 3; // -3 .. +5
+            if (rnd.nextBoolean()) return trips.adjustItemQty(line.id, d) == null ? 0 : d; // Relative update
+            for (TripItem cur = trips.listItems(trip.id).get(0); ; ) { // Read the line, then compare and set
+                try { trips.updateItemQty(line.id, cur.plannedQty + d, cur.version); return d; } // Stored only if nobody wrote in between
+                catch (ConflictException e) { cur = (TripItem) e.current; } // Retry from the row that won
+            } // End retry loop
+        }, () -> { // Check the line and the totals kept by triggers
+            TripItem t = trips.listItems(trip.id).get(0); // The stored line
+            int subtotal = trips.totals(trip.id).subtotalCents; // Stored trip subtotal
+            if (subtotal != t.lineTotalCents || t.lineTotalCents != 7 * t.plannedQty) { // Triggers and line total must agree with the quantity
+                System.out.println("[CAS]   FAIL subtotal " + subtotal + ", line total " + t.lineTotalCents + ", qty " + t.plannedQty); // Report the mismatch
+                failures++; // Count it
+            } // End totals check
+            return t.plannedQty - START_QTY; // Stored change
+        }, true); // Stored change must equal the sum applied
+
+        Db.shutdown(); // Close the pool
+        System.out.println(failures == 0 ? "[CAS] no lost updates" : "[CAS] " + failures + " checks FAILED"); // Summarize
+        System.exit(failures == 0 ? 0 : 1); // Fail the ant target on lost updates
+    } // End main method
+
+    private static int hotItem(SqlitePantryService pantry) { // Insert a fresh row for one phase
+        PantryItem p = new PantryItem(); // The row every thread writes
+        p.name = "stress " + System.nanoTime(); // Unique name
+        p.onHandQty = START_QTY; // Known starting point
+        return pantry.add(p).id; // Its id
+    } // End hotItem method
+
+    private interface Stored { int delta() throws Exception; } // Reads the change actually stored
+
+    private static void phase(String name, int threads, int ops, Op op, Stored stored, boolean mustHold) throws Exception { // Run op on every thread at once, then compare the stored change with the sum applied
+        LongAdder applied = new LongAdder(); // Sum of deltas the callers were told succeeded
+        LongAdder errors = new LongAdder(); // Writes that failed outright
+        CountDownLatch go = new CountDownLatch(1); // Start gate
+        List<Thread> workers = new ArrayList<>(); // The writer threads
+        for (int t = 0; t < threads; t++) { // Start every writer
+            Random rnd = new Random(t); // Reproducible deltas per thread
+            workers.add(Thread.ofPlatform().name("stress-" + t).start(() -> { // Platform threads, so each JDBC call really runs in parallel
+                try { go.await(); } catch (InterruptedException e) { return; } // Wait for the others
+                for (int i = 0; i < ops; i++) { // Write ops times
+                    try { applied.add(op.run(rnd)); } // Apply one write
+                    catch (Exception e) { errors.increment(); System.out.println("[CAS]   " + e); } // A failure the caller saw is not a lost update, but report it
+                } // End write loop
+            })); // End worker
+        } // End thread start
+        long t0 = System.nanoTime(); // Start timing
+        go.countDown(); // Release every writer at once
+        for (Thread w : workers) w.join(); // Wait for them
+        long ms = (System.nanoTime() - t0) / 1_000_000; // Elapsed time
+        long got = stored.delta(); // Change actually stored
+        long lost = applied.sum() - got; // Successful writes that left no trace
+        System.out.printf("[CAS] %-40s %6d ms, applied %+d, stored %+d, lost %d, errors %d%n", name, ms, applied.sum(), got, lost, errors.sum()); // One line per phase
+        if (mustHold && (lost != 0 || errors.sum() != 0)) { System.out.println("[CAS]   FAIL " + name); failures++; } // Every successful write must be stored
+    } // End phase method
+} // End ConcurrencyStress class
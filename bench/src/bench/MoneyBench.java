@@ -0,0 +1,51 @@
+package bench; // Define the package containing the JMH benchmarks
+
+import org.openjdk.jmh.annotations.Benchmark; // Import the JMH benchmark marker
+import org.openjdk.jmh.annotations.BenchmarkMode; // Import BenchmarkMode to report time per operation
+import org.openjdk.jmh.annotations.Fork; // Import Fork to run in a fresh JVM
+import org.openjdk.jmh.annotations.Measurement; // Import Measurement to size the measured iterations
+import org.openjdk.jmh.annotations.Mode; // Import Mode to select average time
+import org.openjdk.jmh.annotations.OutputTimeUnit; // Import OutputTimeUnit to choose the reported unit
+import org.openjdk.jmh.annotations.Param; // Import Param to run against several inputs
+import org.openjdk.jmh.annotations.Scope; // Import Scope for per-thread inputs
+import org.openjdk.jmh.annotations.State; // Import State to hold the inputs
+import org.openjdk.jmh.annotations.Warmup; // Import Warmup to size the warmup iterations
+import util.Money; // Import the money helpers under test
+
+import java.util.concurrent.TimeUnit; // Import TimeUnit for the reported unit
+
+@BenchmarkMode(Mode.AverageTime) // Report the average time per call
+@OutputTimeUnit(TimeUnit.NANOSECONDS) // Parsing and formatting take nanoseconds
+@Warmup(iterations = 3, time = 1) // Warm the JIT
+@Measurement(iterations = 5, time = 1) // Measure five one-second iterations
+@Fork(1) // Fresh JVM so earlier benchmarks do not skew inlining
+public class MoneyBench { // Measure the money parsing and formatting helpers used on every table render and form submit
+
+    @State(Scope.Thread) // Inputs for parseCents only, so its runs are not multiplied by the formatting inputs
+    public static class ParseInput { // Text typed into a price field
+        @Param({"12.5", "NT$1,234.56", "  987654.3 "}) // Typical, decorated and padded user input
+        public String text; // Text passed to parseCents
+    } // End ParseInput class
+
+    @State(Scope.Thread) // Inputs for formatNTD only
+    public static class FormatInput { // Amount rendered in a table cell or total label
+        @Param({"0", "1999", "123456789"}) // Zero, a typical price and a large total
+        public int cents; // Amount passed to formatNTD
+        final StringBuilder sb = new StringBuilder(24); // Builder reused by appendNTD
+    } // End FormatInput class
+
+    @Benchmark // Parse a typed amount into cents
+    public int parseCents(ParseInput in) { return Money.parseCents(in.text); } // Return the value so JMH keeps the work alive
+
+    @Benchmark // Format cents for display
+    public String formatNTD(FormatInput in) { return Money.formatNTD(in.cents); } // Return the string so JMH keeps the work alive
+
+    @Benchmark // Append cents to a reused builder, as the trip table does
+    public StringBuilder appendNTD(FormatInput in) { in.sb.setLength(0); return Money.appendNTD(in.sb, in.cents); } // Return the builder so JMH keeps the work alive
+
+    @Benchmark // Baseline: the original regex and double parser
+    public int legacyParseCents(ParseInput in) { return LegacyMoney.parseCents(in.text); } // Return the value so JMH keeps the work alive
+
+    @Benchmark // Baseline: the original String.format formatter
+    public String legacyFormatNTD(FormatInput in) { return LegacyMoney.formatNTD(in.cents); } // Return the string so JMH keeps the work alive
+} // End MoneyBench class
@@ -0,0 +1,79 @@
+package bench; // Define the package containing the JMH benchmarks
+
+import util.Money; // Import the money helpers under test
+
+import java.math.BigDecimal; // Import BigDecimal as the exact rounding oracle
+import java.math.RoundingMode; // Import RoundingMode for half-up rounding
+import java.util.Random; // Import Random to generate inputs
+
+public final class MoneyProperties { // Randomized checks that the scanning Money code agrees with the original implementation
+
+    private static final String[] DECORATIONS = {"", "NT$", "$", " ", "  ", "NT$ ", ","}; // Text users type around amounts
+    private static int failures = 0; // Number of failed checks
+
+    private MoneyProperties() {} // Private constructor prevents instantiation because all members are static
+
+    public static void main(String[] args) { // Run every property, exit non-zero on failure
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : System.nanoTime(); // Take the seed from the command line to reproduce a failure
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000; // Number of random cases per property
+        Random rnd = new Random(seed); // Seeded generator
+        System.out.println("[MONEY] seed " + seed + ", " + runs + " cases per property"); // Log the seed for reproduction
+
+        for (int i = 0; i < runs; i++) { // Two-decimal amounts, where the original is exact: both implementations must agree
+            String text = decorate(rnd, (rnd.nextInt(3) == 0 ? rnd.nextInt(100) : rnd.nextInt(21_474_836)) + "." + twoDigits(rnd)); // Build a decorated amount that fits an int
+            check(Money.parseCents(text) == LegacyMoney.parseCents(text), "parse two decimals", text); // Compare with the original parser
+        } // End two-decimal property
+        for (int i = 0; i < runs; i++) { // Whole amounts and short fractions
+            String text = decorate(rnd, rnd.nextInt(1_000_000) + (rnd.nextBoolean() ? "" : rnd.nextBoolean() ? "." : "." + rnd.nextInt(10))); // Build "12", "12." or "12.3"
+            check(Money.parseCents(text) == LegacyMoney.parseCents(text), "parse short fractions", text); // Compare with the original parser
+        } // End short-fraction property
+        for (int i = 0; i < runs; i++) { // Long fractions: exact half-up rounding of the decimal value
+            String text = rnd.nextInt(1_000_000) + "." + Long.toString(Math.abs(rnd.nextLong())).substring(0, 1 + rnd.nextInt(8)); // Up to eight fractional digits
+            long expected = new BigDecimal(text).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact(); // Round the exact decimal value
+            check(Money.parseCentsLong(text) == expected, "parse rounding", text); // The original may differ here because of binary floating point
+        } // End rounding property
+        for (int i = 0; i < runs; i++) { // Large amounts beyond the reach of double
+            long cents = Math.abs(rnd.nextLong() / 2); // Up to about 4.6e18 cents
+            check(Money.parseCentsLong(cents / 100 + "." + twoDigits((int) (cents % 100))) == cents, "parse long range", Long.toString(cents)); // Round-trip exactly
+        } // End long-range property
+        for (int i = 0; i < runs; i++) { // Formatting must match String.format for every int amount
+            int cents = rnd.nextInt(5) == 0 ? rnd.nextInt(2_000) - 1_000 : rnd.nextInt(); // Mix small amounts around zero with the full int range
+            check(Money.formatNTD(cents).equals(LegacyMoney.formatNTD(cents)), "format", Integer.toString(cents)); // Compare with the original formatter
+        } // End formatting property
+        for (int i = 0; i < runs; i++) { // Formatting then parsing returns the amount for non-negative values
+            int cents = rnd.nextInt(Integer.MAX_VALUE); // Any non-negative int
+            check(Money.parseCents(Money.formatNTD(cents)) == cents, "round trip", Integer.toString(cents)); // Parse the formatted text back
+        } // End round-trip property
+
+        String[] fixed = {null, "", "   ", "NT$", "abc", "0", "0.0", ".5", "5.", "1,234.56", "-12.34", "NT$ 0.01"}; // Edge cases the UI can produce
+        for (String text : fixed) check(Money.parseCents(text) == LegacyMoney.parseCents(text), "edge case", String.valueOf(text)); // Compare with the original parser
+        expectFailure(".", "lone decimal point"); // The original threw NumberFormatException here too
+        expectFailure("1.2.3", "two decimal points"); // The original threw NumberFormatException here too
+        expectFailure("21474836.48", "int overflow"); // The original wrapped around to a negative value
+        expectFailure("99999999999999999999", "long overflow"); // The original lost precision and then wrapped
+        check(Money.appendNTD(new StringBuilder(), Long.MIN_VALUE).toString().equals("NT$-92233720368547758.08"), "format Long.MIN_VALUE", "Long.MIN_VALUE"); // The sign handling must not overflow
+
+        if (failures > 0) { System.out.println("[MONEY] " + failures + " failures"); System.exit(1); } // Fail the build on any mismatch
+        System.out.println("[MONEY] all properties hold"); // Confirm success
+    } // End main method
+
+    private static String decorate(Random rnd, String amount) { // Surround an amount with typical currency text
+        String lead = DECORATIONS[rnd.nextInt(DECORATIONS.length)]; // Pick a prefix
+        String tail = rnd.nextInt(4) == 0 ? " " : ""; // Sometimes a trailing space
+        if (rnd.nextInt(4) == 0 && amount.indexOf('.') > 3) amount = amount.charAt(0) + "," + amount.substring(1); // Sometimes a grouping comma
+        return lead + amount + tail; // Return the decorated text
+    } // End decorate method
+
+    private static String twoDigits(Random rnd) { return twoDigits(rnd.nextInt(100)); } // Random two-digit fraction
+
+    private static String twoDigits(int n) { return n < 10 ? "0" + n : Integer.toString(n); } // Zero-padded two-digit fraction
+
+    private static void expectFailure(String text, String what) { // Check that an input is rejected with NumberFormatException
+        try { Money.parseCents(text); check(false, what, text); } catch (NumberFormatException expected) { } // Anything but NumberFormatException is a failure
+    } // End expectFailure method
+
+    private static void check(boolean ok, String property, String input) { // Record a failed property with its input
+        if (ok) return; // Nothing to report
+        if (++failures <= 20) System.out.println("[MONEY] " + property + " failed for: " + input); // Print the first failures only
+    } // End check method
+} // End MoneyProperties class
@@ -0,0 +1,48 @@
+package bench; // Define the package containing the JMH benchmarks
+
+import model.PantryItem; // Import PantryItem as the benchmark result type
+import org.openjdk.jmh.annotations.Benchmark; // Import the JMH benchmark marker
+import org.openjdk.jmh.annotations.BenchmarkMode; // Import BenchmarkMode to report time per operation
+import org.openjdk.jmh.annotations.Fork; // Import Fork to run each configuration in a fresh JVM
+import org.openjdk.jmh.annotations.Level; // Import Level to run setup once per trial
+import org.openjdk.jmh.annotations.Measurement; // Import Measurement to size the measured iterations
+import org.openjdk.jmh.annotations.Mode; // Import Mode to select average time
+import org.openjdk.jmh.annotations.OutputTimeUnit; // Import OutputTimeUnit to choose the reported unit
+import org.openjdk.jmh.annotations.Param; // Import Param to run against each dataset size
+import org.openjdk.jmh.annotations.Scope; // Import Scope to share state across benchmark threads
+import org.openjdk.jmh.annotations.Setup; // Import Setup to prepare the dataset before measuring
+import org.openjdk.jmh.annotations.State; // Import State to hold the dataset and service
+import org.openjdk.jmh.annotations.Warmup; // Import Warmup to size the warmup iterations
+import service.SqlitePantryService; // Import the pantry service under test
+
+import java.util.List; // Import List as the query result type
+import java.util.concurrent.TimeUnit; // Import TimeUnit for the reported unit
+
+@State(Scope.Benchmark) // One dataset and service per trial
+@BenchmarkMode(Mode.AverageTime) // Report the average time per query
+@OutputTimeUnit(TimeUnit.MICROSECONDS) // Queries take microseconds to seconds
+@Warmup(iterations = 3, time = 2) // Warm the JIT, page cache and connection pool
+@Measurement(iterations = 5, time = 2) // Measure five two-second iterations
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g") // Fresh JVM per dataset size, with room for a million-row listing
+public class PantryReadBench { // Measure the pantry read queries against generated datasets
+
+    @Param({"1000", "100000", "1000000"}) // Dataset sizes in pantry rows
+    public int rows; // Size of the dataset used by this trial
+
+    private SqlitePantryService service; // Uncached service, so every call measures SQLite
+
+    @Setup(Level.Trial) // Prepare once before warmup
+    public void setup() { // Point Db at the dataset and create the service
+        BenchData.use(rows, false); // Read-only benchmarks share the cached dataset
+        service = new SqlitePantryService(); // Create the service, which also opens the pool
+    } // End setup method
+
+    @Benchmark // Full listing ordered by name
+    public List<PantryItem> listAll() { return service.listAll(); } // Return the rows so JMH keeps the work alive
+
+    @Benchmark // Low-stock listing through the partial index
+    public List<PantryItem> lowStock() { return service.lowStock(); } // Return the rows so JMH keeps the work alive
+
+    @Benchmark // Expiry range query through the expiry index
+    public List<PantryItem> expiringSoon() { return service.expiringSoon(7); } // Return the rows so JMH keeps the work alive
+} // End PantryReadBench class
@@ -0,0 +1,59 @@
+package bench; // Define the package containing the JMH benchmarks
+
+import model.PantryItem; // Import PantryItem as the benchmark result type
+import org.openjdk.jmh.annotations.Benchmark; // Import the JMH benchmark marker
+import org.openjdk.jmh.annotations.BenchmarkMode; // Import BenchmarkMode to report time per operation
+import org.openjdk.jmh.annotations.Fork; // Import Fork to run each configuration in a fresh JVM
+import org.openjdk.jmh.annotations.Level; // Import Level to run setup once per trial
+import org.openjdk.jmh.annotations.Measurement; // Import Measurement to size the measured iterations
+import org.openjdk.jmh.annotations.Mode; // Import Mode to select average time
+import org.openjdk.jmh.annotations.OutputTimeUnit; // Import OutputTimeUnit to choose the reported unit
+import org.openjdk.jmh.annotations.Param; // Import Param to run against each dataset size and query
+import org.openjdk.jmh.annotations.Scope; // Import Scope to share state across benchmark threads
+import org.openjdk.jmh.annotations.Setup; // Import Setup to prepare the dataset before measuring
+import org.openjdk.jmh.annotations.State; // Import State to hold the dataset and index
+import org.openjdk.jmh.annotations.TearDown; // Import TearDown to stop the index after the trial
+import org.openjdk.jmh.annotations.Warmup; // Import Warmup to size the warmup iterations
+import service.PantrySearch; // Import the in-memory index under test
+import service.SqlitePantryService; // Import the pantry service that loads the index and runs the FTS5 fallback
+
+import java.util.List; // Import List as the query result type
+import java.util.concurrent.TimeUnit; // Import TimeUnit for the reported unit
+
+@State(Scope.Benchmark) // One dataset and index per trial
+@BenchmarkMode(Mode.AverageTime) // Report the average time per query
+@OutputTimeUnit(TimeUnit.MICROSECONDS) // Index queries take microseconds, FTS5 queries milliseconds
+@Warmup(iterations = 3, time = 2) // Warm the JIT and the page cache
+@Measurement(iterations = 5, time = 2) // Measure five two-second iterations
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g") // Fresh JVM per dataset size, with room for a million-row index
+public class PantrySearchBench { // Compare type-ahead queries on the in-memory index with the FTS5 fallback
+
+    private static final int LIMIT = 20; // Rows a search field shows
+
+    @Param({"1000", "100000", "1000000"}) // Dataset sizes in pantry rows
+    public int rows; // Size of the dataset used by this trial
+
+    @Param({"item-a", "a", "dairy", "itme", "dairy a"}) // Name prefix, word prefix, category, typo, and two words
+    public String query; // Text typed into the search field
+
+    private SqlitePantryService service; // Uncached service, so the fallback measures SQLite
+    private PantrySearch index; // The index under test
+
+    @Setup(Level.Trial) // Prepare once before warmup
+    public void setup() throws InterruptedException { // Point Db at the dataset and wait for the index to load
+        BenchData.use(rows, false); // Read-only benchmarks share the cached dataset
+        service = new SqlitePantryService(); // Create the service, which also opens the pool
+        index = new PantrySearch(service); // Build an index over the uncached service
+        index.start(); // Load it in the background
+        while (!index.isLoaded()) Thread.sleep(50); // Measure only the loaded index
+    } // End setup method
+
+    @TearDown(Level.Trial) // Clean up after the trial
+    public void tearDown() { index.stop(); } // Stop listening for writes and drop the index
+
+    @Benchmark // Query answered from memory
+    public List<PantryItem> index() { return index.search(query, LIMIT); } // Return the rows so JMH keeps the work alive
+
+    @Benchmark // Same query through the FTS5 table used before the index has loaded; exact prefixes only, no typos
+    public List<PantryItem> fts() { return service.search(query, LIMIT); } // Return the rows so JMH keeps the work alive
+} // End PantrySearchBench class
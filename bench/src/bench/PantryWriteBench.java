@@ -0,0 +1,53 @@
+package bench; // Define the package containing the JMH benchmarks
+
+import model.PantryItem; // Import PantryItem to build inserted rows
+import org.openjdk.jmh.annotations.Benchmark; // Import the JMH benchmark marker
+import org.openjdk.jmh.annotations.BenchmarkMode; // Import BenchmarkMode to report time per operation
+import org.openjdk.jmh.annotations.Fork; // Import Fork to run each configuration in a fresh JVM
+import org.openjdk.jmh.annotations.Level; // Import Level to run setup once per trial
+import org.openjdk.jmh.annotations.Measurement; // Import Measurement to size the measured iterations
+import org.openjdk.jmh.annotations.Mode; // Import Mode to select average time
+import org.openjdk.jmh.annotations.OutputTimeUnit; // Import OutputTimeUnit to choose the reported unit
+import org.openjdk.jmh.annotations.Param; // Import Param to run against each dataset size
+import org.openjdk.jmh.annotations.Scope; // Import Scope to share state across benchmark threads
+import org.openjdk.jmh.annotations.Setup; // Import Setup to prepare the dataset before measuring
+import org.openjdk.jmh.annotations.State; // Import State to hold the dataset and service
+import org.openjdk.jmh.annotations.Warmup; // Import Warmup to size the warmup iterations
+import service.SqlitePantryService; // Import the pantry service under test
+
+import java.time.LocalDate; // Import LocalDate to compute the expiry day
+import java.util.concurrent.TimeUnit; // Import TimeUnit for the reported unit
+
+@State(Scope.Benchmark) // One working copy and service per trial
+@BenchmarkMode(Mode.AverageTime) // Report the average time per insert
+@OutputTimeUnit(TimeUnit.MICROSECONDS) // Inserts take tens to hundreds of microseconds
+@Warmup(iterations = 3, time = 2) // Warm the JIT, page cache and connection pool
+@Measurement(iterations = 5, time = 2) // Measure five two-second iterations
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g") // Fresh JVM per dataset size
+public class PantryWriteBench { // Measure single-row pantry inserts against generated datasets
+
+    @Param({"1000", "100000", "1000000"}) // Dataset sizes in pantry rows
+    public int rows; // Size of the dataset used by this trial
+
+    private static final Integer EXPIRY_DAY = (int) LocalDate.of(2030, 1, 1).toEpochDay(); // Expiry given to half the inserted rows
+
+    private SqlitePantryService service; // Uncached service, so every call measures SQLite
+    private int seq; // Counter that makes every inserted name distinct
+
+    @Setup(Level.Trial) // Prepare once before warmup
+    public void setup() { // Point Db at a private copy of the dataset and create the service
+        BenchData.use(rows, true); // Inserts go to a copy so the cached dataset never grows
+        service = new SqlitePantryService(); // Create the service, which also opens the pool
+    } // End setup method
+
+    @Benchmark // One autocommit insert, including index maintenance
+    public PantryItem add() { // Insert one row
+        PantryItem p = new PantryItem(); // Build the row
+        p.name = "bench-" + seq++; // Distinct name so inserts land all over the name index
+        p.category = "Bench"; // Fixed category
+        p.onHandQty = seq % 7; // Vary the quantity so some rows enter the low-stock index
+        p.minQty = 2; // Fixed minimum
+        p.expiryDay = (seq & 1) == 0 ? null : EXPIRY_DAY; // Half the rows enter the expiry index
+        return service.add(p); // Return the row so JMH keeps the work alive
+    } // End add method
+} // End PantryWriteBench class
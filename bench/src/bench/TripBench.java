@@ -0,0 +1,53 @@
+package bench; // Define the package containing the JMH benchmarks
+
+import model.TripItem; // Import TripItem as the benchmark result type
+import org.openjdk.jmh.annotations.Benchmark; // Import the JMH benchmark marker
+import org.openjdk.jmh.annotations.BenchmarkMode; // Import BenchmarkMode to report time per operation
+import org.openjdk.jmh.annotations.Fork; // Import Fork to run each configuration in a fresh JVM
+import org.openjdk.jmh.annotations.Level; // Import Level to run setup once per trial
+import org.openjdk.jmh.annotations.Measurement; // Import Measurement to size the measured iterations
+import org.openjdk.jmh.annotations.Mode; // Import Mode to select average time
+import org.openjdk.jmh.annotations.OutputTimeUnit; // Import OutputTimeUnit to choose the reported unit
+import org.openjdk.jmh.annotations.Param; // Import Param to run against each dataset size
+import org.openjdk.jmh.annotations.Scope; // Import Scope to share state across benchmark threads
+import org.openjdk.jmh.annotations.Setup; // Import Setup to prepare the dataset before measuring
+import org.openjdk.jmh.annotations.State; // Import State to hold the dataset and service
+import org.openjdk.jmh.annotations.Warmup; // Import Warmup to size the warmup iterations
+import service.SqliteTripService; // Import the trip service under test
+
+import java.time.LocalDate; // Import LocalDate for the benchmark trip date
+import java.util.List; // Import List as the query result type
+import java.util.concurrent.TimeUnit; // Import TimeUnit for the reported unit
+
+@State(Scope.Benchmark) // One working copy and service per trial
+@BenchmarkMode(Mode.AverageTime) // Report the average time per call
+@OutputTimeUnit(TimeUnit.MICROSECONDS) // Per-trip calls take microseconds
+@Warmup(iterations = 3, time = 2) // Warm the JIT, page cache and connection pool
+@Measurement(iterations = 5, time = 2) // Measure five two-second iterations
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g") // Fresh JVM per dataset size
+public class TripBench { // Measure the trip item calls against generated datasets
+
+    @Param({"1000", "100000", "1000000"}) // Dataset sizes in trip item rows
+    public int rows; // Size of the dataset used by this trial
+
+    private SqliteTripService service; // The trip service under test
+    private int tripId; // Trip whose items are listed and summed
+    private int writeTripId; // Separate trip that receives inserts, so reads always see the same items
+
+    @Setup(Level.Trial) // Prepare once before warmup
+    public void setup() { // Point Db at a private copy of the dataset and create the service
+        BenchData.use(rows, true); // addItem writes, so work on a copy
+        service = new SqliteTripService(); // Create the service, which also opens the pool
+        tripId = BenchData.hotTripId(rows); // Read a generated trip of ITEMS_PER_TRIP items
+        writeTripId = service.create(LocalDate.of(2030, 1, 1), null, 0, "bench").id; // Insert into a trip of its own
+    } // End setup method
+
+    @Benchmark // Items of one trip through the trip_id index
+    public List<TripItem> listItems() { return service.listItems(tripId); } // Return the rows so JMH keeps the work alive
+
+    @Benchmark // Aggregate over one trip's items
+    public int computeSubtotalCents() { return service.computeSubtotalCents(tripId); } // Return the sum so JMH keeps the work alive
+
+    @Benchmark // One autocommit insert into trip_items
+    public TripItem addItem() { return service.addItem(writeTripId, "bench", "box", 2, 1250); } // Return the row so JMH keeps the work alive
+} // End TripBench class
@@ -0,0 +1,439 @@
+package app; // Define the package namespace for the application entry points
+
+import com.sun.net.httpserver.HttpExchange; // Import HttpExchange as one request and its response
+import com.sun.net.httpserver.HttpServer; // Import the JDK's embedded HTTP server
+import model.PantryItem; // Import the pantry row read and written by the pantry endpoints
+import model.Trip; // Import the trip created by POST /api/trips
+import model.TripItem; // Import the trip item read and written by the trip item endpoints
+import service.ConflictException; // Import ConflictException to answer refused edits with 409 or 412
+import service.DbExecutors; // Import DbExecutors so every write goes through the single writer thread
+import service.PantryView; // Import PantryView to page through the pantry listings in index order
+import service.SqlitePantryService; // Import the pantry service behind the pantry endpoints
+import service.SqliteTripService; // Import the trip service behind the trip endpoints
+import util.Json; // Import Json to parse request bodies and quote strings
+import util.Log; // Import the asynchronous logger for start-up and failures
+import util.Metrics; // Import the metrics registry for per-route timers and GET /metrics
+
+import java.io.IOException; // Import IOException for socket failures
+import java.io.InputStream; // Import InputStream to read request bodies
+import java.io.OutputStream; // Import OutputStream to write response bodies
+import java.io.OutputStreamWriter; // Import OutputStreamWriter to encode streamed JSON as UTF-8
+import java.io.Writer; // Import Writer as the streamed body type
+import java.io.BufferedWriter; // Import BufferedWriter so streamed rows leave in large chunks
+import java.net.InetSocketAddress; // Import InetSocketAddress to name the listening address
+import java.net.URLDecoder; // Import URLDecoder to read query parameters
+import java.nio.charset.StandardCharsets; // Import UTF-8 for bodies and query strings
+import java.time.LocalDate; // Import LocalDate to read and write dates
+import java.util.HashMap; // Import HashMap to hold query parameters
+import java.util.List; // Import List as the page and result type
+import java.util.Map; // Import Map as the parsed body and parameter type
+import java.util.concurrent.CompletionException; // Import CompletionException to unwrap failures of queued writes
+import java.util.concurrent.CountDownLatch; // Import CountDownLatch so serve can wait until the server stops
+import java.util.concurrent.ExecutorService; // Import ExecutorService as the request executor type
+import java.util.concurrent.Executors; // Import Executors for the virtual-thread-per-request executor
+import java.util.function.Supplier; // Import Supplier to describe a queued write
+
+public final class ApiServer { // Local HTTP/JSON API over the pantry and trip services; every request runs on its own virtual thread
+
+    static final int PAGE = 500; // Rows read per keyset page while streaming a listing; the connection goes back to the pool between pages
+    static final int MAX_BODY = 1 << 20; // Largest request body accepted, in bytes
+    static final int SEARCH_LIMIT = 20; // Default number of search results
+    private static final String JSON = "application/json; charset=utf-8"; // Content type of every response
+
+    private final HttpServer server; // The JDK server doing the socket work
+    private final ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor(); // One virtual thread per request, so a blocked JDBC call never holds a platform thread
+    private final CountDownLatch stopped = new CountDownLatch(1); // Released by stop()
+    private final SqlitePantryService pantry = new SqlitePantryService(); // Uncached, so writes by other processes are seen at once
+    private final SqliteTripService trips = new SqliteTripService(); // Trip reads and writes
+
+    private static final class Status extends RuntimeException { // A failure that maps to an HTTP status other than 500
+        final int code; // HTTP status to send
+
+        Status(int code, String message) { super(message); this.code = code; } // Build the failure
+    } // End Status class
+
+    public ApiServer(InetSocketAddress address) { // Bind the server; call start() to begin accepting requests
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true"); // Headers and body leave in separate writes; with Nagle on, each small response waited ~40 ms for a delayed ACK
+        try { // Handle failures to bind
+            server = HttpServer.create(address, 0); // Bind with the system default backlog
+        } catch (IOException e) { // Handle ports in use and bad addresses
+            throw new RuntimeException("cannot listen on " + address + ": " + e.getMessage()); // Report the failure
+        } // End bind
+        server.createContext("/api/", this::handle); // Every REST endpoint
+        server.createContext("/metrics", ex -> respond(ex, "metrics", () -> send(ex, 200, Metrics.toJson()))); // Counters, gauges and latency percentiles
+        server.setExecutor(requests); // Dispatch each exchange to a fresh virtual thread
+    } // End constructor
+
+    public void start() { // Begin accepting requests
+        server.start(); // Start the dispatcher thread
+        Log.info("API", "listening on http://" + address().getHostString() + ":" + address().getPort()); // Say where
+    } // End start method
+
+    public InetSocketAddress address() { return server.getAddress(); } // Bound address; the port is real even when 0 was asked for
+
+    public void stop() { // Stop accepting requests, let running ones finish for up to a second, and release the threads
+        server.stop(1); // Close the listener and wait briefly for exchanges in flight
+        requests.close(); // Wait for the request threads to end
+        stopped.countDown(); // Wake awaitStop()
+    } // End stop method
+
+    public void awaitStop() throws InterruptedException { stopped.await(); } // Block until stop() has run
+
+    private void handle(HttpExchange ex) { // Route /api/... by method and path
+        String[] path = ex.getRequestURI().getPath().split("/"); // "", "api", resource, id, sub-resource
+        String method = ex.getRequestMethod(); // GET, POST, PUT or DELETE
+        String resource = path.length > 2 ? path[2] : ""; // pantry or trips
+        if (resource.equals("pantry")) { // Pantry endpoints
+            if (path.length == 3) { // /api/pantry
+                if (method.equals("GET")) respond(ex, "pantry.list", () -> listPantry(ex)); // Stream a listing
+                else if (method.equals("POST")) respond(ex, "pantry.add", () -> addPantry(ex)); // Insert an item
+                else notAllowed(ex, "GET, POST"); // Anything else
+                return; // Done
+            } // End collection
+            if (path.length == 4 && path[3].equals("search")) { // /api/pantry/search
+                if (method.equals("GET")) respond(ex, "pantry.search", () -> searchPantry(ex)); // Ranked search
+                else notAllowed(ex, "GET"); // Anything else
+                return; // Done
+            } // End search
+            if (path.length == 4) { // /api/pantry/{id}
+                if (method.equals("GET")) respond(ex, "pantry.get", () -> getPantry(ex, id(path[3]))); // One item
+                else if (method.equals("PUT")) respond(ex, "pantry.update", () -> updatePantry(ex, id(path[3]))); // Replace an item
+                else if (method.equals("DELETE")) respond(ex, "pantry.delete", () -> deletePantry(ex, id(path[3]))); // Remove an item
+                else notAllowed(ex, "GET, PUT, DELETE"); // Anything else
+                return; // Done
+            } // End item
+            if (path.length == 5 && path[4].equals("adjust")) { // /api/pantry/{id}/adjust
+                if (method.equals("POST")) respond(ex, "pantry.adjust", () -> adjustPantry(ex, id(path[3]))); // Relative quantity change
+                else notAllowed(ex, "POST"); // Anything else
+                return; // Done
+            } // End adjust
+        } else if (resource.equals("trips")) { // Trip endpoints
+            if (path.length == 3) { // /api/trips
+                if (method.equals("POST")) respond(ex, "trips.create", () -> createTrip(ex)); // New trip
+                else notAllowed(ex, "POST"); // Anything else
+                return; // Done
+            } // End collection
+            if (path.length == 4) { // /api/trips/{id}
+                if (method.equals("GET")) respond(ex, "trips.totals", () -> tripTotals(ex, id(path[3]))); // Stored totals
+                else notAllowed(ex, "GET"); // Anything else
+                return; // Done
+            } // End trip
+            if (path.length == 5 && path[4].equals("items")) { // /api/trips/{id}/items
+                if (method.equals("GET")) respond(ex, "trips.items", () -> listTripItems(ex, id(path[3]))); // The trip's items
+                else if (method.equals("POST")) respond(ex, "trips.addItem", () -> addTripItem(ex, id(path[3]))); // New item
+                else notAllowed(ex, "GET, POST"); // Anything else
+                return; // Done
+            } // End items
+        } // End resource routing
+        respond(ex, "notFound", () -> { throw new Status(404, "no such endpoint: " + method + " " + ex.getRequestURI().getPath()); }); // Unknown path
+    } // End handle method
+
+    private void respond(HttpExchange ex, String route, Runnable work) { // Run one endpoint, time it, and turn failures into JSON errors
+        Metrics.Timer timer = Metrics.timer("api." + route); // One timer per route
+        long t0 = timer.start(); // Start timing the request
+        try { // Always close the exchange
+            work.run(); // Produce the response
+        } catch (Status s) { // Handle expected failures
+            send(ex, s.code, error(s.getMessage())); // Report them with their status
+        } catch (ConflictException e) { // Handle edits that kept losing to other writers
+            send(ex, 409, conflict(e)); // Report them with the stored row
+        } catch (IllegalArgumentException e) { // Handle validation failures from the services
+            send(ex, 400, error(e.getMessage())); // Report them as bad requests
+        } catch (RuntimeException e) { // Handle database failures
+            Log.error("API", route + " failed: " + e); // Log them for the operator
+            send(ex, 500, error(e.getMessage())); // Report them as server errors
+        } finally { // Release the exchange
+            ex.close(); // Finish the response and free the connection for keep-alive
+            timer.stop(t0); // Add the request to the route's timer
+        } // End request handling
+    } // End respond method
+
+    private void listPantry(HttpExchange ex) { // GET /api/pantry?view=all|low-stock|expiring&days=N
+        Map<String, String> q = query(ex); // Query parameters
+        String name = q.getOrDefault("view", "all"); // Which listing
+        PantryView view; // The listing to stream
+        switch (name) { // Map the parameter to a view
+            case "all": view = PantryView.all(); break; // Every item by name
+            case "low-stock": view = PantryView.lowStock(); break; // Items at or below their minimum
+            case "expiring": view = PantryView.expiringSoon(intParam(q, "days", Cli.EXPIRING_DAYS)); break; // Items expiring soon, soonest first
+            default: throw new Status(400, "unknown view: " + name); // Anything else
+        } // End view switch
+        String tag = "\"pantry-" + pantry.version() + "-" + name + (name.equals("expiring") ? "-" + LocalDate.now() + "-" + q.getOrDefault("days", "") : "") + "\""; // Read the counter before the rows, so a write in between only makes the tag older
+        if (notModified(ex, tag)) return; // The client's copy is current
+        ex.getResponseHeaders().set("ETag", tag); // Let the client revalidate next time
+        streamArray(ex, out -> { // Write the rows as they are read
+            List<PantryItem> page = pantry.page(view, null, 0, PAGE); // First page
+            String sep = ""; // No comma before the first row
+            StringBuilder sb = new StringBuilder(256); // Reused row buffer
+            while (!page.isEmpty()) { // Until the listing ends
+                for (PantryItem p : page) { sb.setLength(0); out.write(appendItem(sb.append(sep), p).toString()); sep = ","; } // One object per row
+                if (page.size() < PAGE) break; // A short page is the last one
+                PantryItem last = page.get(page.size() - 1); // Resume after the last row sent
+                page = pantry.page(view, view.keyOf(last), last.id, PAGE); // Next page, seeking past the last key
+            } // End page loop
+        }); // End stream
+    } // End listPantry method
+
+    private void searchPantry(HttpExchange ex) { // GET /api/pantry/search?q=text&limit=N
+        Map<String, String> q = query(ex); // Query parameters
+        String text = q.get("q"); // Search text
+        if (text == null || text.isBlank()) throw new Status(400, "q is required"); // Nothing to search for
+        List<PantryItem> hits = pantry.search(text, intParam(q, "limit", SEARCH_LIMIT)); // Best matches first
+        StringBuilder sb = new StringBuilder("["); // Results as one array
+        for (int i = 0; i < hits.size(); i++) appendItem(i == 0 ? sb : sb.append(','), hits.get(i)); // One object per hit
+        send(ex, 200, sb.append(']').toString()); // Send the results
+    } // End searchPantry method
+
+    private void getPantry(HttpExchange ex, int id) { // GET /api/pantry/{id}
+        PantryItem p = pantry.getById(id); // One primary-key read
+        if (p == null) throw new Status(404, "no pantry item with id " + id); // Nothing there
+        String tag = itemTag(p); // Changes whenever the row is written
+        if (notModified(ex, tag)) return; // The client's copy is current
+        ex.getResponseHeaders().set("ETag", tag); // Let the client revalidate next time
+        send(ex, 200, appendItem(new StringBuilder(), p).toString()); // Send the item
+    } // End getPantry method
+
+    private void addPantry(HttpExchange ex) { // POST /api/pantry with an item object
+        PantryItem p = readItem(body(ex), new PantryItem()); // Build the row from the body
+        PantryItem saved = write(() -> pantry.add(p)); // Insert it on the writer thread
+        ex.getResponseHeaders().set("Location", "/api/pantry/" + saved.id); // Where the new item lives
+        send(ex, 201, appendItem(new StringBuilder(), saved).toString()); // Send it back with its id
+    } // End addPantry method
+
+    private void updatePantry(HttpExchange ex, int id) { // PUT /api/pantry/{id} with the members to change; If-Match makes it a compare-and-set against the tag the client read
+        Map<String, Object> body = body(ex); // The new values
+        String match = ex.getRequestHeaders().getFirst("If-Match"); // Tag of the copy the client edited, if any
+        PantryItem saved; // The stored row
+        if (match == null) { // Apply the members to whatever is stored now, retrying if another process wins the race
+            saved = write(() -> pantry.modify(id, p -> readItem(body, p))); // Read, merge and compare-and-set
+        } else { // Only overwrite the version the client saw
+            long version = versionOf(match, id); // Version named by the tag
+            try { // Compare and set once; the client decides how to merge
+                saved = write(() -> { // Read and write on the writer thread
+                    PantryItem p = pantry.getById(id); // Current row
+                    if (p == null) return null; // Nothing to update
+                    p = readItem(body, p); // Apply the body over it
+                    p.version = version; // Against the client's version, not the one just read
+                    return pantry.update(p); // Store it, or refuse if the version moved on
+                }); // End write
+            } catch (ConflictException e) { // The client's copy is stale
+                ex.getResponseHeaders().set("ETag", itemTag((PantryItem) e.current)); // Tag of the stored row, for the client's next attempt
+                send(ex, 412, conflict(e)); // Precondition failed, with the stored row to merge against
+                return; // Done
+            } // End compare and set
+        } // End update
+        if (saved == null) throw new Status(404, "no pantry item with id " + id); // Nothing to update
+        ex.getResponseHeaders().set("ETag", itemTag(saved)); // Tag of the stored row
+        send(ex, 200, appendItem(new StringBuilder(), saved).toString()); // Send the stored row
+    } // End updatePantry method
+
+    private void adjustPantry(HttpExchange ex, int id) { // POST /api/pantry/{id}/adjust with {"delta": n}; concurrent adjustments all count
+        Object delta = body(ex).get("delta"); // Amount to add, negative to use up
+        if (delta == null) throw new Status(400, "delta is required"); // Nothing to add
+        int d = intValue(delta, "delta"); // Whole number
+        PantryItem saved = write(() -> pantry.adjustQty(id, d)); // One relative UPDATE
+        if (saved == null) throw new Status(404, "no pantry item with id " + id); // Nothing to change
+        ex.getResponseHeaders().set("ETag", itemTag(saved)); // Tag of the stored row
+        send(ex, 200, appendItem(new StringBuilder(), saved).toString()); // Send the stored row
+    } // End adjustPantry method
+
+    private void deletePantry(HttpExchange ex, int id) { // DELETE /api/pantry/{id}
+        if (!write(() -> pantry.delete(id))) throw new Status(404, "no pantry item with id " + id); // Nothing to delete
+        send(ex, 204, null); // Deleted
+    } // End deletePantry method
+
+    private void createTrip(HttpExchange ex) { // POST /api/trips with {"date", "budgetCents", "storeId", "note"}
+        Map<String, Object> body = body(ex); // The trip's values
+        LocalDate day = body.get("date") == null ? LocalDate.now() : date(body.get("date"), "date"); // Today unless given
+        Integer store = body.get("storeId") == null ? null : intValue(body.get("storeId"), "storeId"); // Optional store
+        int budget = body.get("budgetCents") == null ? 0 : intValue(body.get("budgetCents"), "budgetCents"); // No budget unless given
+        String note = body.get("note") == null ? null : body.get("note").toString(); // Optional note
+        Trip t = write(() -> trips.create(day, store, budget, note)); // Insert it on the writer thread
+        ex.getResponseHeaders().set("Location", "/api/trips/" + t.id); // Where the new trip lives
+        StringBuilder sb = new StringBuilder("{\"id\":").append(t.id).append(",\"date\":\"").append(t.tripDate()).append('"'); // Id and date
+        sb.append(",\"storeId\":").append(t.storeId).append(",\"budgetCents\":").append(t.budgetCents).append(",\"note\":"); // Store and budget
+        send(ex, 201, Json.appendString(sb, t.note).append('}').toString()); // Note, then send
+    } // End createTrip method
+
+    private void tripTotals(HttpExchange ex, int tripId) { // GET /api/trips/{id}
+        SqliteTripService.Totals t = trips.totals(tripId); // One primary-key read
+        if (t == null) throw new Status(404, "no trip with id " + tripId); // Nothing there
+        send(ex, 200, "{\"id\":" + t.tripId + ",\"subtotalCents\":" + t.subtotalCents + ",\"itemCount\":" + t.itemCount + "}"); // Send the totals
+    } // End tripTotals method
+
+    private void listTripItems(HttpExchange ex, int tripId) { // GET /api/trips/{id}/items
+        String tag = "\"items-" + trips.itemsVersion() + "-" + tripId + "\""; // Read the counter before the rows
+        if (notModified(ex, tag)) return; // The client's copy is current
+        if (!trips.exists(tripId)) throw new Status(404, "no trip with id " + tripId); // Nothing there
+        List<TripItem> items = trips.listItems(tripId); // The trip's items in insertion order
+        ex.getResponseHeaders().set("ETag", tag); // Let the client revalidate next time
+        streamArray(ex, out -> { // A trip has tens of items, but keep one response shape for lists
+            StringBuilder sb = new StringBuilder(256); // Reused row buffer
+            for (int i = 0; i < items.size(); i++) { sb.setLength(0); out.write(appendTripItem(i == 0 ? sb : sb.append(','), items.get(i)).toString()); } // One object per item
+        }); // End stream
+    } // End listTripItems method
+
+    private void addTripItem(HttpExchange ex, int tripId) { // POST /api/trips/{id}/items with {"itemName", "plannedQty", "unit", "expectedPriceCents"}
+        Map<String, Object> body = body(ex); // The item's values
+        Object name = body.get("itemName"); // Required name
+        if (name == null) throw new Status(400, "itemName is required"); // Nothing to add
+        int qty = body.get("plannedQty") == null ? 1 : intValue(body.get("plannedQty"), "plannedQty"); // One unless given
+        Integer price = body.get("expectedPriceCents") == null ? null : intValue(body.get("expectedPriceCents"), "expectedPriceCents"); // Null to use the price history
+        String unit = body.get("unit") == null ? null : body.get("unit").toString(); // Optional unit
+        TripItem ti = write(() -> { // Check and insert on the writer thread
+            if (!trips.exists(tripId)) throw new Status(404, "no trip with id " + tripId); // Report it plainly instead of as a foreign key failure
+            return trips.addItem(tripId, name.toString(), unit, qty, price); // Insert the item
+        }); // End write
+        ex.getResponseHeaders().set("Location", "/api/trips/" + tripId + "/items"); // The list the item joined
+        send(ex, 201, appendTripItem(new StringBuilder(), ti).toString()); // Send it back with its id
+    } // End addTripItem method
+
+    private static <T> T write(Supplier<T> work) { // Run a write on the single writer thread and wait for it; this request's virtual thread unmounts meanwhile
+        try { // Unwrap the failure of the queued work
+            return DbExecutors.write(work).join(); // Writes from every request queue in arrival order, as SQLite would serialize them anyway
+        } catch (CompletionException e) { // Handle failures of the write
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause(); // Rethrow validation, status and database failures as they were
+            throw e; // Anything else as it is
+        } // End unwrap
+    } // End write method
+
+    static StringBuilder appendItem(StringBuilder sb, PantryItem p) { // Append a pantry item as a JSON object
+        sb.append("{\"id\":").append(p.id).append(",\"name\":"); // Id
+        Json.appendString(sb, p.name).append(",\"category\":"); // Name
+        if (p.category == null) sb.append("null"); else Json.appendString(sb, p.category); // Category or null
+        sb.append(",\"onHandQty\":").append(p.onHandQty).append(",\"unit\":"); // Quantity
+        if (p.unit == null) sb.append("null"); else Json.appendString(sb, p.unit); // Unit or null
+        sb.append(",\"minQty\":").append(p.minQty).append(",\"expiry\":"); // Minimum
+        if (p.expiryDay == null) sb.append("null"); else sb.append('"').append(p.expiry()).append('"'); // ISO date or null
+        if (p.expiryText != null) Json.appendString(sb.append(",\"expiryText\":"), p.expiryText); // Unreadable old expiry text, only when present
+        sb.append(",\"updatedAt\":").append(p.updatedAtMillis); // Last write, epoch millis
+        return sb.append(",\"version\":").append(p.version).append('}'); // Row version, bumped by every update
+    } // End appendItem method
+
+    static StringBuilder appendTripItem(StringBuilder sb, TripItem t) { // Append a trip item as a JSON object
+        sb.append("{\"id\":").append(t.id).append(",\"tripId\":").append(t.tripId).append(",\"itemName\":"); // Ids
+        Json.appendString(sb, t.itemName).append(",\"unit\":"); // Name
+        if (t.unit == null) sb.append("null"); else Json.appendString(sb, t.unit); // Unit or null
+        sb.append(",\"plannedQty\":").append(t.plannedQty).append(",\"expectedPriceCents\":").append(t.expectedPriceCents); // Quantity and price, null when unknown
+        sb.append(",\"lineTotalCents\":").append(t.lineTotalCents).append(",\"priority\":").append(t.priority).append(",\"category\":"); // Total and priority
+        if (t.category == null) sb.append("null"); else Json.appendString(sb, t.category); // Category or null
+        return sb.append('}'); // Close the object
+    } // End appendTripItem method
+
+    private static PantryItem readItem(Map<String, Object> body, PantryItem p) { // Copy the members present in a body onto an item
+        if (body.containsKey("name")) p.name = body.get("name") == null ? null : body.get("name").toString(); // Name
+        if (body.containsKey("category")) p.category = body.get("category") == null ? null : body.get("category").toString(); // Category
+        if (body.containsKey("unit")) p.unit = body.get("unit") == null ? null : body.get("unit").toString(); // Unit
+        if (body.containsKey("onHandQty")) p.onHandQty = intValue(body.get("onHandQty"), "onHandQty"); // Quantity
+        if (body.containsKey("minQty")) p.minQty = intValue(body.get("minQty"), "minQty"); // Minimum
+        if (body.containsKey("expiry")) p.setExpiry(body.get("expiry") == null ? null : date(body.get("expiry"), "expiry")); // Expiry date or none
+        return p; // The updated item
+    } // End readItem method
+
+    private interface Body { void write(Writer out) throws IOException; } // Writes the members of a streamed array
+
+    private static void streamArray(HttpExchange ex, Body body) { // Send a JSON array with chunked encoding, so the first rows leave before the last are read
+        ex.getResponseHeaders().set("Content-Type", JSON); // JSON body
+        try { // Handle clients that hang up
+            ex.sendResponseHeaders(200, 0); // Length unknown: chunked
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8), 1 << 16)) { // Rows leave in 64 KB chunks
+                out.write('['); // Open the array
+                body.write(out); // Write the members
+                out.write(']'); // Close the array
+            } // End body
+        } catch (IOException e) { // Handle a client that went away mid-stream
+            throw new RuntimeException("response aborted: " + e.getMessage()); // Headers are gone, so this only ends the exchange
+        } // End streaming
+    } // End streamArray method
+
+    private static void send(HttpExchange ex, int status, String json) { // Send a complete JSON response, or an empty one when json is null
+        try { // Handle clients that hang up
+            if (json == null) { ex.sendResponseHeaders(status, -1); return; } // No body
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8); // Encode once to know the length
+            ex.getResponseHeaders().set("Content-Type", JSON); // JSON body
+            ex.sendResponseHeaders(status, bytes.length); // Fixed length, so keep-alive needs no chunking
+            try (OutputStream out = ex.getResponseBody()) { out.write(bytes); } // Write the body
+        } catch (IOException e) { // Handle a client that went away
+            Log.debug("API", () -> "client went away: " + e.getMessage()); // Nothing left to tell it
+        } // End sending
+    } // End send method
+
+    private static boolean notModified(HttpExchange ex, String tag) { // Answer 304 when If-None-Match already names the current tag
+        String match = ex.getRequestHeaders().getFirst("If-None-Match"); // Tags the client holds
+        if (match == null || !(match.trim().equals("*") || match.contains(tag))) return false; // Different or no tag: send the body
+        ex.getResponseHeaders().set("ETag", tag); // Repeat the tag, as RFC 9110 asks
+        send(ex, 304, null); // No body
+        return true; // Done
+    } // End notModified method
+
+    private static void notAllowed(HttpExchange ex, String allow) { // 405 with the methods the path accepts
+        ex.getResponseHeaders().set("Allow", allow); // Methods accepted here
+        send(ex, 405, error(ex.getRequestMethod() + " not allowed")); // Explain
+        ex.close(); // Finish the exchange
+    } // End notAllowed method
+
+    private static Map<String, Object> body(HttpExchange ex) { // Parse the request body as one JSON object
+        try (InputStream in = ex.getRequestBody()) { // Read the whole body
+            byte[] bytes = in.readNBytes(MAX_BODY + 1); // Stop reading past the limit
+            if (bytes.length > MAX_BODY) throw new Status(413, "body larger than " + MAX_BODY + " bytes"); // Refuse oversized bodies
+            return Json.parseObject(new String(bytes, StandardCharsets.UTF_8)); // Parse it
+        } catch (IOException e) { // Handle a client that went away
+            throw new RuntimeException("cannot read request body: " + e.getMessage()); // Report the failure
+        } // End body reading
+    } // End body method
+
+    private static Map<String, String> query(HttpExchange ex) { // Decode the query string into name/value pairs
+        Map<String, String> out = new HashMap<>(); // Parameters by name
+        String raw = ex.getRequestURI().getRawQuery(); // Still percent-encoded
+        if (raw == null) return out; // No parameters
+        for (String pair : raw.split("&")) { // Each name=value
+            int eq = pair.indexOf('='); // Split point
+            if (eq > 0) out.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8)); // Decode both halves
+        } // End parameter loop
+        return out; // Parameters
+    } // End query method
+
+    private static String itemTag(PantryItem p) { return "\"item-" + p.id + "-" + p.version + "\""; } // Entity tag of one item: its row version
+
+    private static long versionOf(String tag, int id) { // Read the row version out of an If-Match tag made by itemTag
+        String prefix = "\"item-" + id + "-"; // Tags of this item
+        String t = tag.trim(); // As sent
+        if (t.startsWith("W/")) t = t.substring(2); // A weak tag names the same version
+        try { // Parse the version
+            if (t.startsWith(prefix) && t.endsWith("\"")) return Long.parseLong(t.substring(prefix.length(), t.length() - 1)); // Version between the prefix and the closing quote
+        } catch (NumberFormatException ignored) { } // Fall through to the error
+        throw new Status(412, "If-Match does not name a version of item " + id + ": " + tag); // Not a tag this server gave out for the item
+    } // End versionOf method
+
+    private static String conflict(ConflictException e) { // JSON error body carrying the stored row
+        StringBuilder sb = Json.appendString(new StringBuilder("{\"error\":"), e.getMessage()).append(",\"current\":"); // Explain
+        if (e.current instanceof PantryItem) appendItem(sb, (PantryItem) e.current); // The item as stored now
+        else if (e.current instanceof TripItem) appendTripItem(sb, (TripItem) e.current); // The trip item as stored now
+        else sb.append("null"); // Nothing to show
+        return sb.append('}').toString(); // Close the object
+    } // End conflict method
+
+    private static String error(String message) { return Json.appendString(new StringBuilder("{\"error\":"), String.valueOf(message)).append('}').toString(); } // JSON error body
+
+    private static int id(String s) { // Parse an id path segment
+        try { return Integer.parseInt(s); } // Numeric id
+        catch (NumberFormatException e) { throw new Status(404, "no such id: " + s); } // Not a resource that can exist
+    } // End id method
+
+    private static int intParam(Map<String, String> q, String name, int fallback) { // Read an integer query parameter
+        String v = q.get(name); // Raw value
+        if (v == null) return fallback; // Not given
+        try { return Integer.parseInt(v); } // Parse it
+        catch (NumberFormatException e) { throw new Status(400, "bad value for " + name + ": " + v); } // Report it as a bad request
+    } // End intParam method
+
+    private static int intValue(Object v, String name) { // Read an integer body member
+        if (v instanceof Long && (Long) v == ((Long) v).intValue()) return ((Long) v).intValue(); // Json parses whole numbers as Long
+        throw new Status(400, "bad value for " + name + ": " + v); // Fractions, strings and out-of-range values
+    } // End intValue method
+
+    private static LocalDate date(Object v, String name) { // Read an ISO date body member
+        try { return LocalDate.parse(v.toString()); } // yyyy-mm-dd
+        catch (RuntimeException e) { throw new Status(400, "bad date for " + name + ": " + v); } // Report it as a bad request
+    } // End date method
+} // End ApiServer class
@@ -3,27 +3,41 @@ package app; // Define the package namespace for the application entry point
 import javax.swing.SwingUtilities; // Import SwingUtilities so UI operations occur on the Event Dispatch Thread (EDT)
 import javax.swing.UIManager; // Import UIManager to control the Swing look and feel at runtime
 
+import service.ConsistencyChecker; // Import the totals checker used by the optional consistency test mode
+import service.ExpiryEngine; // Import the expiry engine started once the main window can show its warnings
+import service.PantrySearch; // Import the pantry search index built in the background at startup
+import service.QueryPlanVerifier; // Import the plan checker used by the optional query-plan test mode
+import ui.EdtMonitor; // Import the event queue that times every EDT dispatch
 import ui.MainWindow; // Import the main application window that hosts the primary UI
+import util.Log; // Import the asynchronous logger for startup reports
 
 public class App { // Declare the App class that contains the main method
 
     public static void main(String[] args) { // JVM entry point that bootstraps the GrocerEase UI
 
-        System.out.println("== GrocerEase starting =="); // Print a banner to confirm that the application has started
+        Log.info("App", "GrocerEase starting"); // Log a banner to confirm that the application has started
+
+        DBMigrator.migrate(); // Bring the schema up to date once, before any window opens, so window opens are pure reads
+        Log.info("DB", "storage profile " + Db.profile() + ": " + Db.settings()); // Report the effective journal, sync and cache settings so a misconfigured drive is visible in the log
+        if (Boolean.getBoolean("verifyQueryPlans")) QueryPlanVerifier.verifyOrThrow(); // In test mode, refuse to start if a service query would scan a large table
+        if (Boolean.getBoolean("verifyTotals")) ConsistencyChecker.verifyOrThrow(); // In test mode, refuse to start if a stored total disagrees with the trip items
 
         try { // Attempt to configure the Swing look and feel to Nimbus for a modern appearance
             UIManager.setLookAndFeel("javax.swing.plaf.nimbus.NimbusLookAndFeel"); // Request Nimbus by its fully qualified class name
         } catch (Exception e) { // Handle any failures when applying the Nimbus look and feel
-            System.out.println("nimbus failed -> using default"); // Log that the default Swing theme will be used as a fallback
+            Log.warn("App", "nimbus failed -> using default"); // Log that the default Swing theme will be used as a fallback
         }
 
+        EdtMonitor.install(); // Time every event handler from the first window on
         SwingUtilities.invokeLater(new Runnable() { // Schedule UI construction on the EDT as recommended by Swing
             @Override // Annotate that we are overriding the run method from Runnable
             public void run() { // Provide the code that will execute on the EDT to create the UI
                 MainWindow w = new MainWindow(); // Instantiate the main application window that provides navigation
 
                 w.setVisible(true); // Display the window so the user can interact with the application
-                System.out.println("main window visible"); // Log that the main window has been made visible
+                Log.info("App", "main window visible"); // Log that the main window has been made visible
+                ExpiryEngine.shared().start(); // Index dated pantry items in the background; the window is already listening for warnings
+                PantrySearch.shared().start(); // Index pantry names in the background; searches use the full-text table until it is ready
             } // End of the run method implementation
         }); // Submit the Runnable to be executed asynchronously on the EDT
     } // End of the main method
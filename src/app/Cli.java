@@ -0,0 +1,392 @@
+package app; // Define the package namespace for the application entry points
+
+import model.PantryItem; // Import the pantry row printed and written by the pantry subcommands
+import model.Trip; // Import the trip created by trip create
+import model.TripItem; // Import the trip item added by trip add-item
+import service.BulkImporter; // Import the bulk importer driven by the import subcommand
+import service.Exporter; // Import the exporter driven by the export and snapshot subcommands
+import service.PantryView; // Import PantryView to stream the listing subcommands in index order
+import service.SqlitePantryService; // Import the pantry service behind the pantry subcommands
+import service.SqliteTripService; // Import the trip service behind the trip subcommands
+import util.Csv; // Import Csv to write the rejected-rows report
+import util.Money; // Import Money to parse prices and budgets and format subtotals
+
+import java.io.BufferedOutputStream; // Import BufferedOutputStream so long listings are written in large chunks
+import java.io.BufferedReader; // Import BufferedReader to read batch commands line by line
+import java.io.ByteArrayOutputStream; // Import ByteArrayOutputStream to hold batch output until the commit
+import java.io.FileDescriptor; // Import FileDescriptor to reopen standard output without autoflush
+import java.io.FileOutputStream; // Import FileOutputStream as the raw standard output
+import java.io.IOException; // Import IOException for report and stdin failures
+import java.io.InputStreamReader; // Import InputStreamReader to import from standard input
+import java.io.PrintStream; // Import PrintStream as the buffered standard output
+import java.io.Reader; // Import Reader as the import input type
+import java.io.Writer; // Import Writer for the rejected-rows report
+import java.net.InetSocketAddress; // Import InetSocketAddress to name the serve address
+import java.nio.charset.StandardCharsets; // Import UTF-8 for files and standard input
+import java.nio.file.Files; // Import Files to open input and report files
+import java.nio.file.Path; // Import Path to name files
+import java.time.LocalDate; // Import LocalDate to parse expiry and trip dates
+import java.time.format.DateTimeParseException; // Import DateTimeParseException to report bad dates as usage errors
+import java.util.ArrayList; // Import ArrayList to collect rejections for the report
+import java.util.HashMap; // Import HashMap to hold parsed options
+import java.util.List; // Import List as the rejection list type
+import java.util.Locale; // Import Locale for case-insensitive format names
+import java.util.Map; // Import Map as the parsed option type
+import java.util.stream.Stream; // Import Stream as the listing cursor type
+
+public class Cli { // Headless entry point for batch jobs that should not open a window
+
+    static final int OK = 0; // Exit status when everything succeeded
+    static final int FAILED = 1; // Exit status for usage errors and failed jobs
+    static final int REJECTS = 2; // Exit status when an import finished but skipped rows
+    static final int EXPIRING_DAYS = 3; // Default window of the expiring command, as in the pantry window
+
+    static final class UsageException extends IllegalArgumentException { // Arguments the command line could not parse; the only failures that print the usage text
+        UsageException(String message) { super(message); } // Describe what was wrong with the arguments
+    } // End UsageException class
+
+    private static final String USAGE = String.join("\n", // Usage text printed for bad arguments
+            "usage: java -cp GrocerEase.jar app.Cli <command> [args]", // General form
+            "  import pantry <file|-> [--format csv|jsonl] [--rejects <out.csv>]", // Pantry import
+            "  import trip-items <file|-> [--trip <id>] [--format csv|jsonl] [--rejects <out.csv>]", // Trip item import
+            "  export pantry|trips|trip-items <file> [--format csv|jsonl|bin]", // Single-table export
+            "  export all <dir> [--format csv|jsonl|bin]", // Consistent export of every table
+            "  snapshot <file.db>", // Online backup
+            "  list | low-stock | expiring [days]", // Pantry listings, one tab-separated row per item
+            "  add <name> <qty> [--unit u] [--category c] [--min n] [--expiry yyyy-mm-dd]", // New pantry item
+            "  set-qty <id> <qty>", // Change an item's on-hand quantity
+            "  adjust <id> <delta>   add to (or, negative, take from) an item's quantity; prints the new quantity", // Relative quantity change
+            "  trip create <yyyy-mm-dd|today> [--budget amount] [--store id] [--note text]", // New trip
+            "  trip add-item <trip> <name> <qty> [--unit u] [--price amount]", // New trip item
+            "  subtotal <trip>", // Stored trip totals
+            "  batch [file|-]     one command per line, all committed in one transaction", // Scripted changes
+            "  serve [--port n] [--bind address]   HTTP/JSON API on 127.0.0.1:8080 until interrupted", // Embedded API server
+            "Large imports run fastest with -DdbProfile=bulk.", // Point at the bulk storage profile
+            "Short commands start fastest with -XX:+AutoCreateSharedArchive -XX:SharedArchiveFile=cli.jsa -XX:TieredStopAtLevel=1."); // Class data sharing skips most class loading after the first run
+
+    public static void main(String[] args) { // JVM entry point for headless jobs; touches no AWT or Swing class
+        if (System.getProperty("logLevel") == null) System.setProperty("logLevel", "WARN"); // Keep start-up chatter out of scripts unless asked for
+        System.setProperty("logStderr", "true"); // Diagnostics go to stderr; stdout carries only command output
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false, StandardCharsets.UTF_8); // The default stdout flushes every line
+        System.setOut(out); // Long listings are written in 64 KB chunks
+        int status; // Exit status of the command
+        try { // Turn failures into an exit status instead of a stack trace
+            status = run(args); // Execute the command
+        } catch (UsageException e) { // Handle arguments the command line could not parse
+            System.err.println(e.getMessage()); // Explain the problem
+            System.err.println(USAGE); // Show the accepted forms
+            status = FAILED; // Report failure
+        } catch (RuntimeException e) { // Handle job failures, including values the services refused
+            System.err.println("error: " + e.getMessage()); // Explain the failure
+            status = FAILED; // Report failure
+        } // End error handling
+        out.flush(); // Write whatever output is still buffered
+        Db.shutdown(); // Checkpoint the WAL and close pooled connections before exiting
+        System.exit(status); // Report the outcome to the calling script
+    } // End main method
+
+    static int run(String[] args) { // Dispatch a command and return its exit status
+        if (args.length == 0) throw new UsageException("missing command"); // A command is required
+        DBMigrator.migrate(); // Bring the schema up to date before any job runs
+        switch (args[0]) { // Select the command
+            case "import": return importCommand(args); // Bulk import
+            case "export": return exportCommand(args); // Streaming export
+            case "snapshot": return snapshotCommand(args); // Online backup
+            case "batch": return batchCommand(args); // Many commands in one transaction
+            case "serve": return serveCommand(args); // HTTP API until the process is stopped
+            default: return command(args); // A single pantry or trip command
+        } // End command switch
+    } // End run method
+
+    static int command(String[] args) { // Run one pantry or trip command; also what each batch line runs
+        switch (args[0]) { // Select the command
+            case "list": return listCommand(args, PantryView.all(), 1); // Every item by name
+            case "low-stock": return listCommand(args, PantryView.lowStock(), 1); // Items at or below their minimum
+            case "expiring": return listCommand(args, PantryView.expiringSoon(args.length > 1 ? parseInt(args[1], "days") : EXPIRING_DAYS), 2); // Items expiring soon, soonest first
+            case "add": return addCommand(args); // New pantry item
+            case "set-qty": return setQtyCommand(args); // Quantity change
+            case "adjust": return adjustCommand(args); // Relative quantity change
+            case "trip": return tripCommand(args); // trip create or trip add-item
+            case "subtotal": return subtotalCommand(args); // Trip totals
+            default: throw new UsageException("unknown command: " + args[0]); // Anything else is a usage error
+        } // End command switch
+    } // End command method
+
+    private static int importCommand(String[] args) { // import pantry|trip-items <file|-> [options]
+        if (args.length < 3) throw new UsageException("import needs a target and a file"); // Target and file are required
+        String target = args[1]; // pantry or trip-items
+        String file = args[2]; // Input file, or - for standard input
+        Integer trip = null; // Default trip for rows without a trip_id column
+        BulkImporter.Format format = file.equals("-") ? BulkImporter.Format.CSV : BulkImporter.Format.of(file); // Format from the extension, CSV for stdin
+        Path rejects = null; // Where to write rejected rows, if requested
+        for (int i = 3; i < args.length; i++) { // Read options
+            String opt = args[i]; // Option name
+            if (i + 1 >= args.length) throw new UsageException("missing value for " + opt); // Every option takes a value
+            String val = args[++i]; // Option value
+            switch (opt) { // Apply the option
+                case "--trip": trip = parseInt(val, opt); break; // Default trip id
+                case "--format": format = BulkImporter.Format.valueOf(val.toUpperCase(Locale.ROOT)); break; // Override the detected format
+                case "--rejects": rejects = Path.of(val); break; // Rejected-rows report file
+                default: throw new UsageException("unknown option: " + opt); // Anything else is a usage error
+            } // End option switch
+        } // End option loop
+
+        boolean keepRejects = rejects != null; // Whether every rejection must be kept for the report file
+        List<BulkImporter.Rejection> rejected = new ArrayList<>(); // Every rejection, for the report file
+        long[] lastPrint = {0}; // When progress was last printed
+        BulkImporter.Listener l = new BulkImporter.Listener() { // Print progress at most once a second
+            @Override // Implement Listener.progress
+            public void progress(BulkImporter.Report r) { // Show running totals
+                long now = System.nanoTime(); // Current time
+                if (now - lastPrint[0] < 1_000_000_000L) return; // Throttle the output
+                lastPrint[0] = now; // Remember when we printed
+                System.err.println("[import] " + r); // Print to stderr so stdout stays clean for scripts
+            } // End progress method
+
+            @Override // Implement Listener.rejected
+            public void rejected(BulkImporter.Rejection r) { if (keepRejects) rejected.add(r); } // Keep rejections only when a report was requested
+        }; // End listener
+
+        BulkImporter importer = new BulkImporter(); // Import through the shared services
+        BulkImporter.Report r; // Final totals
+        try (Reader in = file.equals("-") ? new InputStreamReader(System.in, StandardCharsets.UTF_8) : Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) { // Open the input
+            switch (target) { // Select the target table
+                case "pantry": r = importer.importPantry(in, format, l); break; // Pantry items
+                case "trip-items": r = importer.importTripItems(in, format, trip, l); break; // Trip items
+                default: throw new UsageException("unknown import target: " + target); // Anything else is a usage error
+            } // End target switch
+        } catch (IOException e) { // Handle failures to open the input
+            throw new RuntimeException("cannot read " + file + ": " + e.getMessage()); // Report the failure
+        } // End input handling
+
+        System.out.println("imported " + r.written + " of " + r.read + " rows, rejected " + r.rejected + " (" + (r.elapsedNanos / 1_000_000) + " ms, " + Math.round(r.rowsPerSecond()) + " rows/s)"); // Print the summary
+        for (int i = 0; i < Math.min(20, r.sample.size()); i++) System.out.println("  " + r.sample.get(i)); // Show the first few rejections
+        if (r.rejected > 20) System.out.println("  ... " + (r.rejected - 20) + " more"); // Say how many were not shown
+        if (rejects != null) writeRejects(rejects, rejected); // Write the full report when requested
+        return r.rejected == 0 ? OK : REJECTS; // Let scripts tell clean imports from partial ones
+    } // End importCommand method
+
+    private static int exportCommand(String[] args) { // export <table|all> <out> [--format csv|jsonl|bin]
+        if (args.length < 3) throw new UsageException("export needs a table and an output"); // Table and output are required
+        Path out = Path.of(args[2]); // Output file, or directory for all
+        Exporter.Format format = null; // Output format, from the option or the extension
+        for (int i = 3; i < args.length; i++) { // Read options
+            if (!args[i].equals("--format") || i + 1 >= args.length) throw new UsageException("unknown option: " + args[i]); // Only --format is accepted
+            format = Exporter.Format.of(args[++i]); // Parse the format
+        } // End option loop
+
+        Exporter ex = new Exporter(); // Export through the shared pool
+        if (args[1].equals("all")) { // Every table into a directory
+            for (Exporter.Result r : ex.exportAll(format == null ? Exporter.Format.CSV : format, out)) System.out.println(r); // Print each table's throughput
+            return OK; // Done
+        } // End export all
+        Exporter.Table table; // Table to export
+        switch (args[1]) { // Map the CLI name to the table
+            case "pantry": table = Exporter.Table.PANTRY_ITEMS; break; // pantry_items
+            case "trips": table = Exporter.Table.TRIPS; break; // trips
+            case "trip-items": table = Exporter.Table.TRIP_ITEMS; break; // trip_items
+            default: throw new UsageException("unknown table: " + args[1]); // Anything else is a usage error
+        } // End table switch
+        if (format == null) { // Derive the format from the file extension
+            String name = out.getFileName().toString(); // File name
+            int dot = name.lastIndexOf('.'); // Start of the extension
+            format = dot < 0 ? Exporter.Format.CSV : Exporter.Format.of(name.substring(dot + 1)); // CSV when there is no extension
+        } // End format detection
+        System.out.println(ex.export(table, format, out)); // Export and print the throughput
+        return OK; // Done
+    } // End exportCommand method
+
+    private static int snapshotCommand(String[] args) { // snapshot <file.db>
+        if (args.length != 2) throw new UsageException("snapshot needs an output file"); // Output is required
+        System.out.println(new Exporter().snapshot(Path.of(args[1]))); // Copy and print size and time
+        return OK; // Done
+    } // End snapshotCommand method
+
+    private static int serveCommand(String[] args) { // serve [--port n] [--bind address]
+        Map<String, String> o = options(args, 1, "--port", "--bind"); // Listening address
+        int port = o.containsKey("--port") ? parseInt(o.get("--port"), "--port") : 8080; // Default port
+        ApiServer api = new ApiServer(new InetSocketAddress(o.getOrDefault("--bind", "127.0.0.1"), port)); // Loopback only unless asked otherwise
+        Runtime.getRuntime().addShutdownHook(new Thread(api::stop, "grocerease-api-stop")); // Ctrl-C stops accepting requests and gives those in flight a second to finish
+        api.start(); // Begin accepting requests
+        System.out.println("listening on http://" + api.address().getHostString() + ":" + api.address().getPort()); // Say where, even at the default WARN level
+        System.out.flush(); // Standard output is buffered
+        try { // Wait for the shutdown hook
+            api.awaitStop(); // Block the main thread; requests run on virtual threads
+        } catch (InterruptedException e) { // Handle interruption of the main thread
+            Thread.currentThread().interrupt(); // Keep the flag
+            api.stop(); // Stop serving
+        } // End wait
+        return OK; // Done
+    } // End serveCommand method
+
+    private static int listCommand(String[] args, PantryView view, int maxArgs) { // Print a view as tab-separated rows: id, name, qty, unit, min, expiry, category
+        if (args.length > maxArgs) throw new UsageException("unexpected argument: " + args[maxArgs]); // Listings take no options
+        StringBuilder sb = new StringBuilder(128); // Reused line buffer
+        try (Stream<PantryItem> rows = new SqlitePantryService().stream(view)) { // Walk the view's index instead of loading the table
+            rows.forEach(p -> { // Print each row as it is read
+                sb.setLength(0); // Start a new line
+                sb.append(p.id).append('\t').append(p.name).append('\t').append(p.onHandQty); // Id, name and quantity
+                sb.append('\t').append(p.unit == null ? "" : p.unit).append('\t').append(p.minQty); // Unit and minimum
+                sb.append('\t').append(p.expiry() == null ? "" : p.expiry().toString()); // Expiry date, blank when none
+                sb.append('\t').append(p.category == null ? "" : p.category); // Category, blank when none
+                System.out.println(sb); // Buffered by main()
+            }); // End row loop
+        } // End try-with-resources for the cursor
+        return OK; // Done
+    } // End listCommand method
+
+    private static int addCommand(String[] args) { // add <name> <qty> [--unit u] [--category c] [--min n] [--expiry yyyy-mm-dd]
+        if (args.length < 3) throw new UsageException("add needs a name and a quantity"); // Name and quantity are required
+        Map<String, String> opt = options(args, 3, "--unit", "--category", "--min", "--expiry"); // Optional columns
+        PantryItem p = new PantryItem(); // The new row
+        p.name = args[1]; // Item name
+        p.onHandQty = parseInt(args[2], "qty"); // Quantity on hand
+        p.unit = opt.get("--unit"); // Unit, or null
+        p.category = opt.get("--category"); // Category, or null
+        p.minQty = opt.containsKey("--min") ? parseInt(opt.get("--min"), "--min") : 0; // Minimum, none by default
+        if (opt.containsKey("--expiry")) p.setExpiry(parseDate(opt.get("--expiry"), "--expiry")); // Expiry date, none by default
+        System.out.println(new SqlitePantryService().add(p).id); // Print the new id for the calling script
+        return OK; // Done
+    } // End addCommand method
+
+    private static int setQtyCommand(String[] args) { // set-qty <id> <qty>
+        if (args.length != 3) throw new UsageException("set-qty needs an id and a quantity"); // Both are required
+        int qty = parseInt(args[2], "qty"); // New quantity
+        if (qty < 0) throw new IllegalArgumentException("qty cannot be negative"); // Same rule as add
+        PantryItem p = new SqlitePantryService().modify(parseInt(args[1], "id"), x -> { x.onHandQty = qty; return x; }); // Compare and set, so an edit made elsewhere in between is kept
+        if (p == null) throw new RuntimeException("no pantry item with id " + args[1]); // Nothing to change
+        return OK; // Done
+    } // End setQtyCommand method
+
+    private static int adjustCommand(String[] args) { // adjust <id> <delta>
+        if (args.length != 3) throw new UsageException("adjust needs an id and an amount such as 2 or -1"); // Both are required
+        PantryItem p = new SqlitePantryService().adjustQty(parseInt(args[1], "id"), parseInt(args[2], "delta")); // One relative update; concurrent adjustments all count
+        if (p == null) throw new RuntimeException("no pantry item with id " + args[1]); // Nothing to change
+        System.out.println(p.onHandQty); // Print the new quantity for the calling script
+        return OK; // Done
+    } // End adjustCommand method
+
+    private static int tripCommand(String[] args) { // trip create ... | trip add-item ...
+        if (args.length < 2) throw new UsageException("trip needs create or add-item"); // A subcommand is required
+        SqliteTripService trips = new SqliteTripService(); // Trip service for both subcommands
+        switch (args[1]) { // Select the subcommand
+            case "create": { // trip create <date|today> [--budget amount] [--store id] [--note text]
+                if (args.length < 3) throw new UsageException("trip create needs a date"); // The date is required
+                Map<String, String> opt = options(args, 3, "--budget", "--store", "--note"); // Optional columns
+                LocalDate day = args[2].equals("today") ? LocalDate.now() : parseDate(args[2], "date"); // Trip date
+                int budget = opt.containsKey("--budget") ? parseMoney(opt.get("--budget"), "--budget") : 0; // Budget in cents, none by default
+                Integer store = opt.containsKey("--store") ? parseInt(opt.get("--store"), "--store") : null; // Store, or none
+                Trip t = trips.create(day, store, budget, opt.get("--note")); // Insert the trip
+                System.out.println(t.id); // Print the new id for the calling script
+                return OK; // Done
+            } // End create
+            case "add-item": { // trip add-item <trip> <name> <qty> [--unit u] [--price amount]
+                if (args.length < 5) throw new UsageException("trip add-item needs a trip, a name and a quantity"); // All three are required
+                Map<String, String> opt = options(args, 5, "--unit", "--price"); // Optional columns
+                int trip = parseInt(args[2], "trip"); // Owning trip
+                if (!trips.exists(trip)) throw new RuntimeException("no trip with id " + trip); // Report it plainly instead of as a foreign key failure
+                Integer price = opt.containsKey("--price") ? parseMoney(opt.get("--price"), "--price") : null; // Unit price, or null to use the price history
+                TripItem ti = trips.addItem(trip, args[3], opt.get("--unit"), parseInt(args[4], "qty"), price); // Insert the item
+                System.out.println(ti.id + "\t" + Money.formatNTD(ti.lineTotalCents)); // Print the new id and its line total
+                return OK; // Done
+            } // End add-item
+            default: throw new UsageException("unknown trip command: " + args[1]); // Anything else is a usage error
+        } // End subcommand switch
+    } // End tripCommand method
+
+    private static int subtotalCommand(String[] args) { // subtotal <trip>
+        if (args.length != 2) throw new UsageException("subtotal needs a trip id"); // The trip is required
+        SqliteTripService.Totals t = new SqliteTripService().totals(parseInt(args[1], "trip")); // Stored totals, one primary-key read
+        if (t == null) throw new RuntimeException("no trip with id " + args[1]); // Nothing to report
+        System.out.println(Money.formatNTD(t.subtotalCents) + "\t" + t.itemCount + " items"); // Subtotal and item count
+        return OK; // Done
+    } // End subtotalCommand method
+
+    private static int batchCommand(String[] args) { // batch [file|-]: run one command per line in a single transaction
+        if (args.length > 2) throw new UsageException("batch takes at most one input file"); // Standard input by default
+        String file = args.length == 2 ? args[1] : "-"; // Input file, or - for standard input
+        int[] done = {0}; // Commands run so far
+        PrintStream out = System.out; // Real output, written only once the batch commits
+        ByteArrayOutputStream held = new ByteArrayOutputStream(); // Output of the commands while the transaction is open
+        System.setOut(new PrintStream(held, false, StandardCharsets.UTF_8)); // A rolled-back batch must not print ids that were never committed
+        try (BufferedReader in = file.equals("-") ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)) : Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) { // Open the input
+            UnitOfWork.run(() -> { // One BEGIN and one COMMIT for the whole batch; any failure rolls every line back
+                int lineNo = 0; // Current line, for error messages
+                try { // Read until the end of the input
+                    for (String line; (line = in.readLine()) != null; ) { // One command per line
+                        lineNo++; // Count it
+                        List<String> words = words(line); // Split into arguments
+                        if (words.isEmpty() || words.get(0).startsWith("#")) continue; // Skip blank lines and comments
+                        try { // Tie failures to their line
+                            command(words.toArray(new String[0])); // Run it inside the transaction
+                        } catch (RuntimeException e) { // Handle usage errors and failed commands alike
+                            throw new RuntimeException("line " + lineNo + ": " + e.getMessage() + " (nothing was committed)"); // Roll back and say where it stopped
+                        } // End per-line error handling
+                        done[0]++; // Count the command
+                    } // End line loop
+                } catch (IOException e) { // Handle failures reading the input
+                    throw new RuntimeException("cannot read " + file + ": " + e.getMessage()); // Roll back and report the failure
+                } // End input handling
+            }); // End unit of work
+        } catch (IOException e) { // Handle failures to open or close the input
+            throw new RuntimeException("cannot read " + file + ": " + e.getMessage()); // Report the failure
+        } finally { // Restore the real output whatever happened
+            System.setOut(out); // Later output goes straight out again
+        } // End input handling
+        out.write(held.toByteArray(), 0, held.size()); // Committed: print what the commands printed
+        System.err.println("[batch] " + done[0] + " commands committed"); // Summary on stderr so stdout holds only command output
+        return OK; // Done
+    } // End batchCommand method
+
+    static List<String> words(String line) { // Split a batch line on blanks, keeping "double quoted" text together
+        List<String> out = new ArrayList<>(); // Arguments of the line
+        StringBuilder w = new StringBuilder(); // Current argument
+        boolean quoted = false; // Inside double quotes
+        boolean any = false; // Whether the current argument was started, so "" yields an empty argument
+        for (int i = 0; i < line.length(); i++) { // Scan every character once
+            char ch = line.charAt(i); // Current character
+            if (ch == '"') { quoted = !quoted; any = true; } // Quotes group blanks and are dropped
+            else if (!quoted && Character.isWhitespace(ch)) { if (any) { out.add(w.toString()); w.setLength(0); any = false; } } // A blank ends the argument
+            else { w.append(ch); any = true; } // Part of the argument
+        } // End character loop
+        if (quoted) throw new UsageException("unterminated quote"); // Reject a half-quoted line
+        if (any) out.add(w.toString()); // The last argument
+        return out; // Arguments in order
+    } // End words method
+
+    private static Map<String, String> options(String[] args, int from, String... names) { // Parse --name value pairs, accepting only the given names
+        Map<String, String> out = new HashMap<>(); // Options by name
+        for (int i = from; i < args.length; i++) { // Read options
+            String opt = args[i]; // Option name
+            if (!List.of(names).contains(opt)) throw new UsageException("unknown option: " + opt); // Reject anything else
+            if (i + 1 >= args.length) throw new UsageException("missing value for " + opt); // Every option takes a value
+            out.put(opt, args[++i]); // Remember the value
+        } // End option loop
+        return out; // Parsed options
+    } // End options method
+
+    private static LocalDate parseDate(String v, String what) { // Parse an ISO date argument
+        try { return LocalDate.parse(v); } // yyyy-mm-dd
+        catch (DateTimeParseException e) { throw new UsageException("bad date for " + what + ": " + v); } // Report it as a usage error
+    } // End parseDate method
+
+    private static int parseMoney(String v, String what) { // Parse an amount such as 12.50 into cents
+        try { return Money.parseCents(v); } // Same parser as the trip window
+        catch (NumberFormatException e) { throw new UsageException("bad amount for " + what + ": " + v); } // Report it as a usage error
+    } // End parseMoney method
+
+    private static void writeRejects(Path out, List<BulkImporter.Rejection> rejected) { // Write every rejected row as CSV
+        try (Writer w = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) { // Create or replace the report
+            Csv.writeRow(w, "line", "reason", "record"); // Header row
+            for (BulkImporter.Rejection x : rejected) Csv.writeRow(w, Long.toString(x.line), x.reason, x.record); // One row per rejection
+        } catch (IOException e) { // Handle write failures
+            throw new RuntimeException("cannot write " + out + ": " + e.getMessage()); // Report the failure
+        } // End report writing
+        System.out.println("rejected rows written to " + out); // Tell the user where the report is
+    } // End writeRejects method
+
+    private static int parseInt(String v, String opt) { // Parse a numeric option value
+        try { return Integer.parseInt(v); } // Parse it
+        catch (NumberFormatException e) { throw new UsageException("bad value for " + opt + ": " + v); } // Report it as a usage error
+    } // End parseInt method
+} // End Cli class
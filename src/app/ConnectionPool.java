@@ -0,0 +1,271 @@
+package app; // Define the package that contains database utility classes
+
+import java.lang.reflect.InvocationHandler; // Import InvocationHandler to intercept calls on pooled connection proxies
+import java.lang.reflect.InvocationTargetException; // Import InvocationTargetException to unwrap errors thrown by the real connection
+import java.lang.reflect.Method; // Import Method to inspect which Connection method is being invoked
+import java.lang.reflect.Proxy; // Import Proxy to hand out Connection views whose close() returns them to the pool
+import java.sql.Connection; // Import JDBC Connection as the pooled resource type
+import java.sql.DriverManager; // Import DriverManager to create the physical SQLite connections
+import java.sql.SQLException; // Import SQLException to report pool exhaustion and connection failures
+import java.sql.Statement; // Import Statement to run the per-connection setup PRAGMAs
+import java.util.ArrayDeque; // Import ArrayDeque as the LIFO stack of idle connections
+import java.util.Iterator; // Import Iterator to remove expired idle connections while scanning
+import java.util.List; // Import List for the per-connection setup statements
+import java.util.concurrent.Executors; // Import Executors to create the background eviction thread
+import java.util.concurrent.ScheduledExecutorService; // Import ScheduledExecutorService to run idle eviction periodically
+import java.util.concurrent.TimeUnit; // Import TimeUnit to express timeouts and schedule periods
+import java.util.concurrent.atomic.AtomicLong; // Import AtomicLong for lock-free usage counters
+import java.util.concurrent.locks.Condition; // Import Condition so borrowers can wait for a connection to be released
+import java.util.concurrent.locks.ReentrantLock; // Import ReentrantLock to guard the pool state
+
+public final class ConnectionPool { // Keep a bounded set of long-lived SQLite connections that callers borrow and return
+
+    private final String url; // JDBC URL used to open physical connections
+    private final int maxSize; // Maximum number of physical connections the pool may hold at once
+    private final long idleTimeoutMs; // How long an idle connection may sit unused before it is closed
+    private final long validateAfterMs; // Idle time after which a connection is health-checked before being handed out
+    private final long borrowTimeoutMs; // Maximum time a borrower waits for a free connection before failing
+    private final List<String> setupSql; // Statements (usually PRAGMAs) executed once on every new physical connection
+
+    private final ReentrantLock lock = new ReentrantLock(); // Lock protecting the idle stack and the open counter
+    private final Condition released = lock.newCondition(); // Condition signalled whenever a connection becomes available
+    private final ArrayDeque<Pooled> idle = new ArrayDeque<>(); // Stack of idle connections, most recently used on top
+    private int open = 0; // Number of physical connections currently open (idle plus borrowed)
+    private boolean closed = false; // Flag set once the pool has been shut down
+
+    private final AtomicLong borrows = new AtomicLong(); // Total number of successful borrows
+    private final AtomicLong waits = new AtomicLong(); // Number of borrows that had to wait for a release
+    private final AtomicLong waitNanos = new AtomicLong(); // Accumulated time spent waiting for a connection
+    private final AtomicLong created = new AtomicLong(); // Number of physical connections opened over the pool lifetime
+    private final AtomicLong evicted = new AtomicLong(); // Number of connections closed by idle eviction or failed health checks
+
+    private final ScheduledExecutorService evictor; // Background thread closing connections that stayed idle too long
+
+    public ConnectionPool(String url, int maxSize, long idleTimeoutMs, long validateAfterMs, long borrowTimeoutMs, List<String> setupSql) { // Build a pool with explicit sizing and timing settings
+        if (maxSize <= 0) throw new IllegalArgumentException("pool size must be > 0"); // Reject pools that could never hand out a connection
+        this.url = url; // Remember the JDBC URL for creating connections
+        this.maxSize = maxSize; // Remember the upper bound on open connections
+        this.idleTimeoutMs = idleTimeoutMs; // Remember the idle eviction threshold
+        this.validateAfterMs = validateAfterMs; // Remember when idle connections need a health check
+        this.borrowTimeoutMs = borrowTimeoutMs; // Remember how long borrowers may wait
+        this.setupSql = List.copyOf(setupSql); // Keep an immutable copy of the per-connection setup statements
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> { // Create a single background thread for eviction work
+            Thread t = new Thread(r, "grocerease-db-evictor"); // Give the thread a recognizable name for thread dumps
+            t.setDaemon(true); // Mark it as a daemon so it never keeps the JVM alive
+            return t; // Hand the configured thread back to the executor
+        }); // End thread factory definition
+        if (idleTimeoutMs > 0) { // Only schedule eviction when an idle timeout is configured
+            long period = Math.max(1000, idleTimeoutMs / 2); // Scan at half the timeout, but no more often than once per second
+            evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS); // Run idle eviction periodically in the background
+        } // End eviction scheduling check
+    } // End constructor
+
+    public Connection borrow() throws SQLException { // Hand out a connection, reusing an idle one when possible
+        long waitedNanos = 0; // Track how long this borrow spent blocked
+        Pooled p = null; // The pooled connection that will be handed out
+        boolean mustCreate = false; // Whether a new physical connection has to be opened outside the lock
+
+        lock.lock(); // Enter the critical section guarding pool state
+        try { // Ensure the lock is always released
+            long remaining = TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMs); // Remaining time budget for waiting
+            while (p == null && !mustCreate) { // Keep trying until we have a connection or permission to create one
+                if (closed) throw new SQLException("connection pool is closed"); // Refuse borrows after shutdown
+                p = idle.pollFirst(); // Try to take the most recently used idle connection
+                if (p != null) break; // Stop looking once an idle connection is found
+                if (open < maxSize) { open++; mustCreate = true; break; } // Reserve a slot for a new connection while under the limit
+                if (remaining <= 0) throw new SQLException("timed out waiting for a database connection"); // Give up once the wait budget is spent
+                long before = System.nanoTime(); // Remember when waiting started
+                remaining = released.awaitNanos(remaining); // Wait for another thread to return a connection
+                waitedNanos += System.nanoTime() - before; // Accumulate the time spent blocked
+            } // End acquisition loop
+        } catch (InterruptedException e) { // Handle interruption while waiting for a release
+            Thread.currentThread().interrupt(); // Preserve the interrupt status for the caller
+            throw new SQLException("interrupted waiting for a database connection"); // Report the aborted borrow
+        } finally { // Always release the lock
+            lock.unlock(); // Leave the critical section
+        } // End locked section
+
+        if (waitedNanos > 0) { waits.incrementAndGet(); waitNanos.addAndGet(waitedNanos); } // Record contention statistics when this borrow had to wait
+
+        if (mustCreate) { // Open a new physical connection for the reserved slot
+            try { // Undo the reservation if opening fails
+                p = new Pooled(createPhysical()); // Open and configure a fresh physical connection
+            } catch (SQLException | RuntimeException e) { // Handle failures opening the database file
+                releaseSlot(); // Give the reserved slot back so other borrowers are not starved
+                throw e; // Propagate the original failure
+            } // End creation error handling
+        } else if (System.currentTimeMillis() - p.lastUsed > validateAfterMs && !isHealthy(p.real)) { // Health-check connections that have been idle for a while
+            evicted.incrementAndGet(); // Count the broken connection as evicted
+            closeQuietly(p.real); // Close the broken physical connection
+            try { // Replace it with a fresh connection in the same slot
+                p = new Pooled(createPhysical()); // Open and configure a replacement connection
+            } catch (SQLException | RuntimeException e) { // Handle failures opening the replacement
+                releaseSlot(); // Free the slot held by the broken connection
+                throw e; // Propagate the original failure
+            } // End replacement error handling
+        } // End health check branch
+
+        borrows.incrementAndGet(); // Count the successful borrow
+        return p.lease(); // Wrap the connection in a proxy that returns it to the pool on close()
+    } // End borrow method
+
+    private void giveBack(Pooled p) { // Return a borrowed connection to the idle stack
+        try { // Reset any transaction state the borrower left behind
+            if (!p.real.getAutoCommit()) { // A borrower left a transaction open or disabled autocommit
+                p.real.rollback(); // Discard any uncommitted work so the next borrower starts clean
+                p.real.setAutoCommit(true); // Restore the default autocommit mode
+            } // End transaction reset check
+        } catch (SQLException e) { // The connection is unusable if it cannot be reset
+            closeQuietly(p.real); // Close the broken connection
+            releaseSlot(); // Free its slot for a new connection
+            return; // Do not put a broken connection back on the stack
+        } // End reset error handling
+
+        lock.lock(); // Enter the critical section guarding pool state
+        try { // Ensure the lock is always released
+            if (closed) { open--; closeQuietly(p.real); return; } // Close connections returned after shutdown
+            p.lastUsed = System.currentTimeMillis(); // Stamp the release time for eviction and health checks
+            idle.offerFirst(p); // Push the connection on top so hot connections are reused first
+            released.signal(); // Wake one waiting borrower
+        } finally { // Always release the lock
+            lock.unlock(); // Leave the critical section
+        } // End locked section
+    } // End giveBack method
+
+    public void scheduleMaintenance(Runnable task, long periodMs) { // Run a periodic maintenance task (for example a WAL checkpoint) on the pool's background thread
+        evictor.scheduleWithFixedDelay(() -> { // Schedule the task with a fixed delay between runs
+            try { task.run(); } catch (RuntimeException e) { e.printStackTrace(); } // Keep the schedule alive even if one run fails
+        }, periodMs, periodMs, TimeUnit.MILLISECONDS); // Start after one period and repeat at the same interval
+    } // End scheduleMaintenance method
+
+    public void evictIdle() { // Close idle connections that exceeded the idle timeout, keeping at least one warm
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs; // Connections last used before this moment are expired
+        lock.lock(); // Enter the critical section guarding pool state
+        try { // Ensure the lock is always released
+            Iterator<Pooled> it = idle.descendingIterator(); // Walk from the least recently used end of the stack
+            while (it.hasNext() && idle.size() > 1) { // Keep one idle connection so the next call stays fast
+                Pooled p = it.next(); // Inspect the next least recently used connection
+                if (p.lastUsed >= cutoff) break; // Stop at the first connection that is still fresh
+                it.remove(); // Drop the expired connection from the idle stack
+                open--; // Release its slot
+                evicted.incrementAndGet(); // Count the eviction
+                closeQuietly(p.real); // Close the physical connection
+            } // End eviction loop
+        } finally { // Always release the lock
+            lock.unlock(); // Leave the critical section
+        } // End locked section
+    } // End evictIdle method
+
+    public void close() { // Shut the pool down and close every idle connection
+        lock.lock(); // Enter the critical section guarding pool state
+        try { // Ensure the lock is always released
+            closed = true; // Refuse new borrows from now on
+            for (Pooled p : idle) { closeQuietly(p.real); open--; } // Close all idle physical connections
+            idle.clear(); // Forget the closed connections
+            released.signalAll(); // Wake any waiting borrowers so they can fail fast
+        } finally { // Always release the lock
+            lock.unlock(); // Leave the critical section
+        } // End locked section
+        evictor.shutdownNow(); // Stop the background eviction thread
+    } // End close method
+
+    public long borrowCount() { return borrows.get(); } // Expose the total number of borrows
+    public long waitCount() { return waits.get(); } // Expose how many borrows had to wait for a release
+    public long waitTimeMillis() { return TimeUnit.NANOSECONDS.toMillis(waitNanos.get()); } // Expose the accumulated wait time in milliseconds
+    public long createdCount() { return created.get(); } // Expose how many physical connections were opened
+    public long evictedCount() { return evicted.get(); } // Expose how many connections were closed by eviction or health checks
+    public int maxSize() { return maxSize; } // Expose the configured pool size
+
+    public int openCount() { // Report the number of open physical connections
+        lock.lock(); // Read the counter under the pool lock
+        try { return open; } finally { lock.unlock(); } // Return the value and release the lock
+    } // End openCount method
+
+    public int idleCount() { // Report the number of idle connections ready to be borrowed
+        lock.lock(); // Read the stack size under the pool lock
+        try { return idle.size(); } finally { lock.unlock(); } // Return the value and release the lock
+    } // End idleCount method
+
+    @Override // Indicate that we are overriding Object.toString
+    public String toString() { // Summarize pool usage for logging
+        return "ConnectionPool{size=" + maxSize + ", open=" + openCount() + ", idle=" + idleCount() + // Describe the current pool occupancy
+                ", borrows=" + borrowCount() + ", waits=" + waitCount() + ", waitMs=" + waitTimeMillis() + // Include contention counters
+                ", created=" + createdCount() + ", evicted=" + evictedCount() + "}"; // Include lifecycle counters
+    } // End toString override
+
+    private Connection createPhysical() throws SQLException { // Open a physical SQLite connection and apply the setup statements
+        Connection c = DriverManager.getConnection(url); // Open the database file through the JDBC driver
+        try (Statement st = c.createStatement()) { // Create a statement for the setup PRAGMAs
+            for (String sql : setupSql) st.execute(sql); // Apply each per-connection setting
+        } catch (SQLException e) { // Handle invalid or unsupported setup statements
+            closeQuietly(c); // Do not leak the half-configured connection
+            throw e; // Propagate the setup failure
+        } // End setup error handling
+        created.incrementAndGet(); // Count the new physical connection
+        return c; // Return the ready-to-use connection
+    } // End createPhysical method
+
+    private boolean isHealthy(Connection c) { // Check whether a physical connection still works
+        try { // isValid may throw on a broken connection
+            return !c.isClosed() && c.isValid(2); // Require the connection to be open and answer a probe within two seconds
+        } catch (SQLException e) { // Treat probe failures as unhealthy
+            return false; // Report the connection as broken
+        } // End probe error handling
+    } // End isHealthy method
+
+    private void releaseSlot() { // Free a reserved or broken connection slot
+        lock.lock(); // Enter the critical section guarding pool state
+        try { // Ensure the lock is always released
+            open--; // Decrement the number of open connections
+            released.signal(); // Let a waiting borrower try to create a connection instead
+        } finally { // Always release the lock
+            lock.unlock(); // Leave the critical section
+        } // End locked section
+    } // End releaseSlot method
+
+    private static void closeQuietly(Connection c) { // Close a physical connection, ignoring failures
+        try { c.close(); } catch (SQLException ignored) { } // Closing is best effort during eviction and shutdown
+    } // End closeQuietly helper
+
+    private final class Pooled { // Track one physical connection and its last release time
+        final Connection real; // The physical SQLite connection
+        long lastUsed = System.currentTimeMillis(); // When the connection was last returned to the pool
+
+        Pooled(Connection real) { this.real = real; } // Wrap a freshly opened physical connection
+
+        Connection lease() { // Create a single-use proxy handed to one borrower
+            Lease handler = new Lease(this); // Create the handler that tracks this particular borrow
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), // Build a dynamic Connection proxy
+                    new Class<?>[]{Connection.class}, handler); // Expose only the Connection interface
+        } // End lease method
+    } // End Pooled class
+
+    private final class Lease implements InvocationHandler { // Route proxy calls to the physical connection until the borrower closes it
+        private Pooled pooled; // The pooled connection, cleared once returned so stale proxies cannot touch it
+
+        Lease(Pooled pooled) { this.pooled = pooled; } // Bind the handler to the borrowed connection
+
+        @Override // Implement InvocationHandler.invoke
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable { // Intercept every Connection call made by the borrower
+            String name = m.getName(); // Look at which method is being invoked
+            if (name.equals("close")) { // Closing a lease returns the connection instead of closing the file
+                Pooled p = pooled; // Capture the connection being returned
+                pooled = null; // Detach the proxy so a second close() is a no-op
+                if (p != null) giveBack(p); // Return the connection to the pool exactly once
+                return null; // close() returns void
+            } // End close handling
+            if (name.equals("isClosed")) return pooled == null; // Report the lease as closed once it has been returned
+            if (name.equals("equals")) return proxy == args[0]; // Compare proxies by identity
+            if (name.equals("hashCode")) return System.identityHashCode(proxy); // Hash proxies by identity
+            if (name.equals("toString")) return "PooledConnection[" + pooled + "]"; // Describe the proxy for logs
+            Pooled p = pooled; // Read the current binding once
+            if (p == null) throw new SQLException("connection already returned to the pool"); // Reject use after close()
+            try { // Delegate the call to the physical connection
+                return m.invoke(p.real, args); // Forward the call with the original arguments
+            } catch (InvocationTargetException e) { // Unwrap errors raised by the driver
+                throw e.getCause(); // Rethrow the driver's own exception
+            } // End delegation error handling
+        } // End invoke method
+    } // End Lease class
+} // End ConnectionPool class
@@ -1,50 +1,253 @@
 package app; // Define the package containing database migration utilities
 
+import util.Log; // Import the asynchronous logger for migration and pool reports
+
 import java.sql.Connection; // Import JDBC Connection so we can interact with the database
+import java.sql.ResultSet; // Import ResultSet to read the stored schema version
 import java.sql.Statement; // Import Statement to execute SQL commands that create tables
 
 public class DBMigrator { // Declare a helper class responsible for preparing database schema
 
-    public static void migrate() { // Provide a static method to run all required schema migrations
-        try (Connection c = Db.open(); Statement st = c.createStatement()) { // Open a connection and create a statement using try-with-resources for automatic cleanup
-
-            String pantrySql = "CREATE TABLE IF NOT EXISTS pantry_items (" + // Begin SQL for creating the pantry items table if it is missing
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," + // Define the primary key column that auto-increments
-                    "name TEXT NOT NULL," + // Store the item name as required text
-                    "category TEXT," + // Optionally record a category for grouping pantry items
-                    "on_hand_qty INTEGER NOT NULL," + // Track the quantity currently on hand as a required integer
-                    "unit TEXT," + // Optionally note the measurement unit for the quantity
-                    "expiry TEXT," + // Optionally store expiration information as text
-                    "min_qty INTEGER NOT NULL DEFAULT 0," + // Maintain a minimum desired quantity with a default of zero
-                    "updated_at TEXT" + // Record the last update timestamp as text for simplicity
-                    ")"; // Close the CREATE TABLE statement definition
-            st.executeUpdate(pantrySql); // Execute the pantry table creation SQL statement
-
-            String tripsSql = "CREATE TABLE IF NOT EXISTS trips (" + // Begin SQL for creating the trips table if it does not exist
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," + // Define the primary key for individual trips
-                    "trip_date TEXT NOT NULL," + // Store the trip date as required text
-                    "store_id INTEGER," + // Optionally reference a store identifier for the trip
-                    "budget_cents INTEGER NOT NULL," + // Persist the planned budget in cents as a required integer
-                    "note TEXT" + // Allow storing an optional note about the trip
-                    ")"; // Terminate the CREATE TABLE definition
-            st.executeUpdate(tripsSql); // Execute the trips table creation SQL command
-
-            String tripItemsSql = "CREATE TABLE IF NOT EXISTS trip_items (" + // Begin SQL for creating the trip items table if it is absent
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," + // Provide an auto-incrementing identifier for each trip item
-                    "trip_id INTEGER NOT NULL," + // Reference the parent trip that owns this item
-                    "item_name TEXT NOT NULL," + // Store the name of the item to purchase
-                    "unit TEXT," + // Optionally store the measurement unit for the planned quantity
-                    "planned_qty INTEGER NOT NULL," + // Record the planned quantity as a required integer
-                    "expected_price_cents INTEGER," + // Optionally track the expected unit price in cents
-                    "line_total_cents INTEGER NOT NULL" + // Require a total planned cost for the line item in cents
-                    ")"; // Finish the CREATE TABLE statement
-            st.executeUpdate(tripItemsSql); // Execute the trip items table creation SQL command
-
-            System.out.println("[DB] migration ok"); // Log that all migration steps completed successfully
+    private static final String GRAINS = "(SELECT 'W' AS grain UNION ALL SELECT 'M') g"; // Both rollup grains, joined so one statement updates the two
+
+    private static final String UPSERT = " ON CONFLICT (grain, bucket, store_key, category) DO UPDATE SET cents = cents + excluded.cents, lines = lines + excluded.lines;"; // Add to an existing rollup row
+
+    public static final String SEED_ROLLUP = "INSERT INTO spend_rollup SELECT g.grain, " + bucket("g.grain", "t.trip_day") + ", COALESCE(t.store_id, 0), COALESCE(i.category, ''), " + // Build the rollups from every line; also used to rebuild them
+            "SUM(i.line_total_cents), COUNT(*) FROM trip_items i JOIN trips t ON t.id = i.trip_id, " + GRAINS + " GROUP BY 1, 2, 3, 4"; // One row per period, store and category
+
+    public static final String SEED_TOTALS = "UPDATE trips SET " + // Recompute every trip's totals from its lines; also used to repair them
+            "subtotal_cents = (SELECT COALESCE(SUM(i.line_total_cents), 0) FROM trip_items i WHERE i.trip_id = trips.id), " + // Sum through idx_trip_items_trip
+            "item_count = (SELECT COUNT(*) FROM trip_items i WHERE i.trip_id = trips.id)"; // Count through the same index
+
+    private static final String[][] STEPS = { // Ordered schema steps; step N brings the database to PRAGMA user_version N
+            { // Version 1: the original tables, written with IF NOT EXISTS so databases created before versioning upgrade cleanly
+                    "CREATE TABLE IF NOT EXISTS pantry_items (" + // Begin SQL for creating the pantry items table if it is missing
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," + // Define the primary key column that auto-increments
+                            "name TEXT NOT NULL," + // Store the item name as required text
+                            "category TEXT," + // Optionally record a category for grouping pantry items
+                            "on_hand_qty INTEGER NOT NULL," + // Track the quantity currently on hand as a required integer
+                            "unit TEXT," + // Optionally note the measurement unit for the quantity
+                            "expiry TEXT," + // Optionally store expiration information as text
+                            "min_qty INTEGER NOT NULL DEFAULT 0," + // Maintain a minimum desired quantity with a default of zero
+                            "updated_at TEXT" + // Record the last update timestamp as text for simplicity
+                            ")", // Close the CREATE TABLE statement definition
+                    "CREATE TABLE IF NOT EXISTS trips (" + // Begin SQL for creating the trips table if it does not exist
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," + // Define the primary key for individual trips
+                            "trip_date TEXT NOT NULL," + // Store the trip date as required text
+                            "store_id INTEGER," + // Optionally reference a store identifier for the trip
+                            "budget_cents INTEGER NOT NULL," + // Persist the planned budget in cents as a required integer
+                            "note TEXT" + // Allow storing an optional note about the trip
+                            ")", // Terminate the CREATE TABLE definition
+                    "CREATE TABLE IF NOT EXISTS trip_items (" + // Begin SQL for creating the trip items table if it is absent
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," + // Provide an auto-incrementing identifier for each trip item
+                            "trip_id INTEGER NOT NULL," + // Reference the parent trip that owns this item
+                            "item_name TEXT NOT NULL," + // Store the name of the item to purchase
+                            "unit TEXT," + // Optionally store the measurement unit for the planned quantity
+                            "planned_qty INTEGER NOT NULL," + // Record the planned quantity as a required integer
+                            "expected_price_cents INTEGER," + // Optionally track the expected unit price in cents
+                            "line_total_cents INTEGER NOT NULL" + // Require a total planned cost for the line item in cents
+                            ")" // Finish the CREATE TABLE statement
+            }, // End version 1
+            { // Version 2: secondary indexes for the pantry and trip hot queries
+                    "CREATE INDEX IF NOT EXISTS idx_pantry_name ON pantry_items(name)", // Lets listAll() walk rows in name order without a sort
+                    "CREATE INDEX IF NOT EXISTS idx_pantry_low_stock ON pantry_items(name) WHERE on_hand_qty <= min_qty", // Partial index holding only low-stock rows, already in name order
+                    "CREATE INDEX IF NOT EXISTS idx_pantry_expiry ON pantry_items(expiry) WHERE expiry IS NOT NULL", // Range seek and ordering for expiringSoon()
+                    "CREATE INDEX IF NOT EXISTS idx_trip_items_trip ON trip_items(trip_id)", // Seek a trip's items (rowid order) for listItems() and computeSubtotalCents()
+            }, // End version 2
+            { // Version 3: integer dates; SQLite cannot change a column type, so each table is rebuilt and its rows converted in place
+                    "CREATE TABLE pantry_items_v3 (" + // New pantry table with typed date columns
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," + // Same primary key
+                            "name TEXT NOT NULL," + // Same required name
+                            "category TEXT," + // Same optional category
+                            "on_hand_qty INTEGER NOT NULL," + // Same quantity on hand
+                            "unit TEXT," + // Same optional unit
+                            "expiry_day INTEGER," + // Expiry as days since 1970-01-01; compares numerically and indexes in a few bytes
+                            "expiry_text TEXT," + // The old expiry text when SQLite could not read it as a date, kept so the user can re-enter it
+                            "min_qty INTEGER NOT NULL DEFAULT 0," + // Same minimum quantity
+                            "updated_at_ms INTEGER" + // Last update as milliseconds since the epoch
+                            ")", // Close the CREATE TABLE statement
+                    "INSERT INTO pantry_items_v3(id, name, category, on_hand_qty, unit, expiry_day, expiry_text, min_qty, updated_at_ms) " + // Copy every row, keeping ids
+                            "SELECT id, name, category, on_hand_qty, unit, unixepoch(expiry) / 86400, " + // ISO dates become day numbers; unparseable text becomes NULL...
+                            "CASE WHEN unixepoch(expiry) IS NULL AND trim(COALESCE(expiry, '')) <> '' THEN expiry END, min_qty, " + // ...and is kept as typed, like trip dates below
+                            "CAST(round(unixepoch(updated_at, 'subsec') * 1000) AS INTEGER) FROM pantry_items", // ISO instants become milliseconds
+                    "DELETE FROM sqlite_sequence WHERE name = 'pantry_items_v3'", // Carry the AUTOINCREMENT high-water mark over, so ids of deleted rows are never reused
+                    "INSERT INTO sqlite_sequence(name, seq) SELECT 'pantry_items_v3', seq FROM sqlite_sequence WHERE name = 'pantry_items'", // Copy the old table's counter
+                    "DROP TABLE pantry_items", // Drop the text-dated table and its indexes
+                    "ALTER TABLE pantry_items_v3 RENAME TO pantry_items", // Take over the original name
+                    "CREATE INDEX idx_pantry_name ON pantry_items(name)", // Recreate the name index
+                    "CREATE INDEX idx_pantry_low_stock ON pantry_items(name) WHERE on_hand_qty <= min_qty", // Recreate the partial low-stock index
+                    "CREATE INDEX idx_pantry_expiry ON pantry_items(expiry_day) WHERE expiry_day IS NOT NULL", // Recreate the expiry index over integers
+                    "CREATE TABLE trips_v3 (" + // New trips table with a typed date column
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," + // Same primary key
+                            "trip_day INTEGER NOT NULL," + // Trip date as days since 1970-01-01
+                            "store_id INTEGER," + // Same optional store reference
+                            "budget_cents INTEGER NOT NULL," + // Same budget
+                            "note TEXT" + // Same optional note
+                            ")", // Close the CREATE TABLE statement
+                    "INSERT INTO trips_v3(id, trip_day, store_id, budget_cents, note) " + // Copy every trip, keeping ids
+                            "SELECT id, COALESCE(unixepoch(trip_date) / 86400, 0), store_id, budget_cents, " + // Dates the old UI accepted but SQLite cannot read fall back to 1970-01-01
+                            "CASE WHEN unixepoch(trip_date) IS NULL THEN trim(COALESCE(note, '') || ' [date: ' || trip_date || ']') ELSE note END FROM trips", // ...and keep the original text in the note
+                    "DELETE FROM sqlite_sequence WHERE name = 'trips_v3'", // Carry the AUTOINCREMENT high-water mark over
+                    "INSERT INTO sqlite_sequence(name, seq) SELECT 'trips_v3', seq FROM sqlite_sequence WHERE name = 'trips'", // Copy the old table's counter
+                    "DROP TABLE trips", // Drop the text-dated table
+                    "ALTER TABLE trips_v3 RENAME TO trips", // Take over the original name
+            }, // End version 3
+            { // Version 4: look up trip items by name, for prices remembered from earlier trips
+                    "CREATE INDEX IF NOT EXISTS idx_trip_items_name ON trip_items(item_name COLLATE NOCASE)", // Case-insensitive name seek; rowid order within a name gives the latest row last
+            }, // End version 4
+            { // Version 5: per-item priority, used by the budget optimizer
+                    "ALTER TABLE trip_items ADD COLUMN priority INTEGER NOT NULL DEFAULT 3", // 1 (nice to have) to 5 (essential); existing rows become normal priority
+            }, // End version 5
+            { // Version 6: every price ever planned, replayed into the in-memory price statistics
+                    "CREATE TABLE price_history (" + // One row per priced trip item
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," + // Increasing ids let the index skip rows it already read
+                            "item_name TEXT NOT NULL," + // Item as named on the trip
+                            "unit TEXT," + // Unit the price applies to
+                            "store_id INTEGER," + // Store of the trip, when known
+                            "day INTEGER NOT NULL," + // Trip date as days since 1970-01-01
+                            "price_cents INTEGER NOT NULL" + // Unit price in cents
+                            ")", // Close the CREATE TABLE statement
+                    "INSERT INTO price_history(item_name, unit, store_id, day, price_cents) " + // Seed the history from the trips already planned
+                            "SELECT i.item_name, i.unit, t.store_id, t.trip_day, i.expected_price_cents FROM trip_items i JOIN trips t ON t.id = i.trip_id " + // Date each price by its trip
+                            "WHERE i.expected_price_cents > 0 ORDER BY i.id", // Priced lines only, in the order they were added
+                    "CREATE INDEX idx_price_history_day ON price_history(day)", // Replay the history oldest day first without a sort
+            }, // End version 6
+            { // Version 7: trip history; spend per week and month, by store and category, kept current by triggers
+                    "ALTER TABLE trip_items ADD COLUMN category TEXT", // Category of the bought item, copied from the pantry when the line is added
+                    "UPDATE trip_items SET category = (SELECT p.category FROM pantry_items p WHERE p.name = trip_items.item_name LIMIT 1)", // Give existing lines their pantry category
+                    "CREATE INDEX idx_trips_day ON trips(trip_day)", // List trips by date range, newest first
+                    "CREATE TABLE spend_rollup (" + // Line totals summed per period, store and category
+                            "grain TEXT NOT NULL," + // W for ISO weeks, M for calendar months
+                            "bucket INTEGER NOT NULL," + // First day of the period, as days since 1970-01-01
+                            "store_key INTEGER NOT NULL," + // Store id, 0 for trips without a store, so the key never holds NULL
+                            "category TEXT NOT NULL," + // Category, '' when unknown
+                            "cents INTEGER NOT NULL," + // Sum of line totals
+                            "lines INTEGER NOT NULL," + // Number of trip items
+                            "PRIMARY KEY (grain, bucket, store_key, category)" + // A date range of one grain is one key range
+                            ") WITHOUT ROWID", // Cluster on the key; the table is only ever read by range
+                    SEED_ROLLUP, // Seed the rollups from every existing line
+                    "CREATE TRIGGER trg_trip_items_rollup_insert AFTER INSERT ON trip_items BEGIN " + bump("+", "NEW") + " END", // Add new lines
+                    "CREATE TRIGGER trg_trip_items_rollup_delete AFTER DELETE ON trip_items BEGIN " + bump("-", "OLD") + " END", // Subtract removed lines
+                    "CREATE TRIGGER trg_trip_items_rollup_update AFTER UPDATE OF trip_id, line_total_cents, category ON trip_items BEGIN " + // Move changed lines
+                            bump("-", "OLD") + " " + bump("+", "NEW") + " END", // Subtract the old values, add the new ones
+                    "CREATE TRIGGER trg_trips_rollup_update AFTER UPDATE OF trip_day, store_id ON trips BEGIN " + // Move every line of a trip that changed date or store
+                            move("-", "OLD") + " " + move("+", "NEW") + " END", // Subtract from the old period and store, add to the new ones
+            }, // End version 7
+            { // Version 8: each trip's subtotal and item count stored on the trip, kept exact by triggers
+                    "ALTER TABLE trips ADD COLUMN subtotal_cents INTEGER NOT NULL DEFAULT 0", // Sum of the trip's line totals
+                    "ALTER TABLE trips ADD COLUMN item_count INTEGER NOT NULL DEFAULT 0", // Number of the trip's items
+                    SEED_TOTALS, // Fill both from the existing lines
+                    "CREATE TRIGGER trg_trip_items_totals_insert AFTER INSERT ON trip_items BEGIN " + // Add a new line to its trip
+                            "UPDATE trips SET subtotal_cents = subtotal_cents + NEW.line_total_cents, item_count = item_count + 1 WHERE id = NEW.trip_id; END", // One primary-key update
+                    "CREATE TRIGGER trg_trip_items_totals_delete AFTER DELETE ON trip_items BEGIN " + // Take a removed line off its trip
+                            "UPDATE trips SET subtotal_cents = subtotal_cents - OLD.line_total_cents, item_count = item_count - 1 WHERE id = OLD.trip_id; END", // One primary-key update
+                    "CREATE TRIGGER trg_trip_items_totals_update AFTER UPDATE OF trip_id, line_total_cents ON trip_items BEGIN " + // Move a changed line
+                            "UPDATE trips SET subtotal_cents = subtotal_cents - OLD.line_total_cents, item_count = item_count - 1 WHERE id = OLD.trip_id; " + // Off the old values
+                            "UPDATE trips SET subtotal_cents = subtotal_cents + NEW.line_total_cents, item_count = item_count + 1 WHERE id = NEW.trip_id; END", // Onto the new ones
+            }, // End version 8
+            { // Version 9: full-text index over pantry names and categories, for searching before the in-memory index is built
+                    "CREATE VIRTUAL TABLE pantry_fts USING fts5(name, category, content='pantry_items', content_rowid='id', " + // Index the two columns of pantry_items without copying them
+                            "prefix='2 3', tokenize='unicode61 remove_diacritics 2')", // Prefix tables make two- and three-letter type-ahead queries cheap; "creme" finds "Crème"
+                    "INSERT INTO pantry_fts(pantry_fts) VALUES ('rebuild')", // Index every existing item
+                    "CREATE TRIGGER trg_pantry_fts_insert AFTER INSERT ON pantry_items BEGIN " + // Index new items
+                            "INSERT INTO pantry_fts(rowid, name, category) VALUES (NEW.id, NEW.name, NEW.category); END", // Same rowid as the item
+                    "CREATE TRIGGER trg_pantry_fts_delete AFTER DELETE ON pantry_items BEGIN " + // Unindex removed items
+                            "INSERT INTO pantry_fts(pantry_fts, rowid, name, category) VALUES ('delete', OLD.id, OLD.name, OLD.category); END", // External content needs the old values to find the entries
+                    "CREATE TRIGGER trg_pantry_fts_update AFTER UPDATE OF name, category ON pantry_items BEGIN " + // Reindex renamed items; quantity edits leave the index alone
+                            "INSERT INTO pantry_fts(pantry_fts, rowid, name, category) VALUES ('delete', OLD.id, OLD.name, OLD.category); " + // Remove the old text
+                            "INSERT INTO pantry_fts(rowid, name, category) VALUES (NEW.id, NEW.name, NEW.category); END", // Add the new text
+            }, // End version 9
+            { // Version 10: a change counter per table, so API clients can revalidate a cached listing without reading it again
+                    "CREATE TABLE table_versions (name TEXT PRIMARY KEY, version INTEGER NOT NULL) WITHOUT ROWID", // One counter per watched table
+                    "INSERT INTO table_versions(name, version) VALUES ('pantry_items', 0), ('trips', 0), ('trip_items', 0)", // Start every counter at zero
+                    bumpVersion("pantry_items", "INSERT"), bumpVersion("pantry_items", "UPDATE"), bumpVersion("pantry_items", "DELETE"), // Any pantry write
+                    bumpVersion("trips", "INSERT"), bumpVersion("trips", "UPDATE"), bumpVersion("trips", "DELETE"), // Any trip write, including the totals triggers
+                    bumpVersion("trip_items", "INSERT"), bumpVersion("trip_items", "UPDATE"), bumpVersion("trip_items", "DELETE"), // Any trip item write
+            }, // End version 10
+            { // Version 11: a version per row, so an edit made from a stale copy is refused instead of overwriting someone else's change
+                    "ALTER TABLE pantry_items ADD COLUMN row_version INTEGER NOT NULL DEFAULT 0", // Bumped by every service UPDATE of the row
+                    "ALTER TABLE trip_items ADD COLUMN row_version INTEGER NOT NULL DEFAULT 0", // Same for trip items
+            }, // End version 11
+    };// End of the migration step list; append new versions here and never edit released ones
+
+    private static String bucket(String grain, String day) { // SQL for the first day of the week (Monday) or month containing a day number
+        return "CASE " + grain + " WHEN 'W' THEN " + day + " - (" + day + " + 3) % 7 " + // 1970-01-01 was a Thursday, so Mondays have (day + 3) % 7 = 0
+                "ELSE unixepoch(" + day + " * 86400, 'unixepoch', 'start of month') / 86400 END"; // Let SQLite find the month start
+    } // End bucket method
+
+    private static String bump(String sign, String row) { // Trigger statement adding or subtracting one trip item in both grains
+        return "INSERT INTO spend_rollup SELECT g.grain, " + bucket("g.grain", "t.trip_day") + ", COALESCE(t.store_id, 0), COALESCE(" + row + ".category, ''), " + // Period, store and category of the line
+                sign + row + ".line_total_cents, " + sign + "1 FROM trips t, " + GRAINS + " WHERE t.id = " + row + ".trip_id" + UPSERT; // Seek the trip by primary key
+    } // End bump method
+
+    private static String move(String sign, String trip) { // Trigger statement adding or subtracting every line of one trip, per category
+        return "INSERT INTO spend_rollup SELECT g.grain, " + bucket("g.grain", trip + ".trip_day") + ", COALESCE(" + trip + ".store_id, 0), COALESCE(i.category, ''), " + // Period and store of the trip
+                sign + "SUM(i.line_total_cents), " + sign + "COUNT(*) FROM trip_items i, " + GRAINS + " WHERE i.trip_id = " + trip + ".id GROUP BY 1, 2, 3, 4" + UPSERT; // Seek the trip's lines with idx_trip_items_trip
+    } // End move method
+
+    private static String bumpVersion(String table, String event) { // Trigger adding one to a table's change counter after every row written
+        return "CREATE TRIGGER trg_" + table + "_version_" + event.toLowerCase() + " AFTER " + event + " ON " + table + " BEGIN " + // One trigger per event
+                "UPDATE table_versions SET version = version + 1 WHERE name = '" + table + "'; END"; // A primary-key update on a one-page table
+    } // End bumpVersion method
+
+    private static final int DATES_STEP = 3; // The step that converted text dates to day numbers
+
+    private static volatile boolean done = false; // Set once the schema is known to be current in this process
+
+    public static int latestVersion() { return STEPS.length; } // Report the schema version this build expects
+
+    public static void migrate() { // Bring the schema up to date once per process; later calls return immediately
+        if (done) return; // Fast path: nothing to do after the first successful run
+        synchronized (DBMigrator.class) { // Serialize the first run so concurrent callers cannot migrate twice
+            if (done) return; // Another thread finished migrating while we waited
+            runPending(); // Apply every step newer than the stored user_version
+            done = true; // Remember that the schema is current for the rest of the process
+        } // End synchronized block
+    } // End migrate method
+
+    private static void runPending() { // Apply pending steps, each in its own transaction together with its version bump
+        try (Connection c = Db.open(); Statement st = c.createStatement()) { // Borrow a connection and create a statement using try-with-resources for automatic cleanup
+
+            int current = readVersion(st); // Read the version recorded in the database file
+            if (current > STEPS.length) { // The file was written by a newer build of the application
+                throw new IllegalStateException("database schema v" + current + " is newer than this app (v" + STEPS.length + ")"); // Refuse to run against an unknown schema
+            } // End newer-schema check
+
+            for (int v = current + 1; v <= STEPS.length; v++) { // Walk through every missing version in order
+                st.executeUpdate("BEGIN IMMEDIATE"); // Take the write lock so another process cannot apply the same step concurrently
+                try { // Roll back the step if any statement fails
+                    if (readVersion(st) >= v) { st.executeUpdate("COMMIT"); continue; } // Another process applied this step while we waited for the lock
+                    for (String sql : STEPS[v - 1]) st.executeUpdate(sql); // Execute every statement belonging to this version
+                    if (v == DATES_STEP) reportUnreadDates(st); // Tell the user which expiry dates need re-entering
+                    st.executeUpdate("PRAGMA user_version = " + v); // Record the new version inside the same transaction
+                    st.executeUpdate("COMMIT"); // Make the step and its version bump durable together
+                } catch (Exception stepError) { // Handle a failing step
+                    st.executeUpdate("ROLLBACK"); // Leave the database at the previous version
+                    throw stepError; // Propagate the failure to the outer handler
+                } // End step error handling
+                Log.info("DB", "migrated schema to v" + v); // Log each applied step
+            } // End loop over pending versions
+
+            Log.info("DB", "migration ok (schema v" + STEPS.length + ")"); // Log that all migration steps completed successfully
 
         } catch (Exception e) { // Handle any SQL or connection issues encountered during migration
             e.printStackTrace(); // Print the stack trace to make debugging easier
             throw new RuntimeException("db migration failed: " + e.getMessage()); // Propagate an unchecked exception with context about the failure
         } // End catch block for migration errors
-    } // End migrate method
+    } // End runPending method
+
+    private static void reportUnreadDates(Statement st) throws Exception { // Warn about pantry expiry text the date conversion could not read
+        StringBuilder ids = new StringBuilder(); // Ids of the affected items
+        int n = 0; // How many there are
+        try (ResultSet rs = st.executeQuery("SELECT id FROM pantry_items WHERE expiry_text IS NOT NULL ORDER BY id")) { // Rows the conversion left without a date
+            while (rs.next()) { ids.append(n++ == 0 ? "" : ", ").append(rs.getInt(1)); } // Collect every id
+        } // End try-with-resources for the ResultSet
+        if (n > 0) Log.warn("DB", n + " pantry item(s) had an expiry SQLite could not read as a date and now have none; the original text is kept in expiry_text (ids " + ids + ")"); // Never drop a date silently
+    } // End reportUnreadDates method
+
+    private static int readVersion(Statement st) throws Exception { // Read PRAGMA user_version from the database header
+        try (ResultSet rs = st.executeQuery("PRAGMA user_version")) { // Query the version stored in the file header
+            return rs.next() ? rs.getInt(1) : 0; // Return the stored version, treating a missing row as version zero
+        } // End try-with-resources for the ResultSet
+    } // End readVersion method
 } // End DBMigrator class definition
@@ -1,23 +1,98 @@
 package app; // Define the package that contains database utility classes
 
+import util.Log; // Import the asynchronous logger for migration and pool reports
+import util.Metrics; // Import the metrics registry to publish pool statistics
+
 import java.sql.Connection; // Import JDBC Connection so we can return active database connections
-import java.sql.DriverManager; // Import DriverManager to establish new JDBC connections
+import java.sql.ResultSet; // Import ResultSet to read PRAGMA values and checkpoint results
+import java.sql.Statement; // Import Statement to run PRAGMA queries
+import java.util.LinkedHashMap; // Import LinkedHashMap to report settings in a stable order
+import java.util.Map; // Import Map as the settings report type
 
-public class Db { // Declare a utility class responsible for opening database connections
+public class Db { // Declare a utility class responsible for handing out database connections
 
     private static final String DEFAULT_PATH = "GrocerEase.db"; // Define the default SQLite database file path
 
-    public static Connection open() { // Provide a helper method to obtain a connection to the SQLite database
-        try { // Attempt to compute the target database path and open a connection
-            String path = System.getProperty("dbPath", DEFAULT_PATH); // Read an optional JVM property for overriding the database location
-
-            System.out.println("[DB] opening sqlite at: " + path); // Log the database path being used for easier troubleshooting
-
-            return DriverManager.getConnection("jdbc:sqlite:" + path); // Create and return a JDBC connection to the SQLite database file
+    private static volatile ConnectionPool pool; // Lazily created process-wide connection pool
+    private static volatile StorageProfile profile; // Storage profile applied to every pooled connection
 
+    public static Connection open() { // Borrow a pooled connection; closing it returns it to the pool
+        Connection joined = UnitOfWork.current(); // Check whether this thread is inside a unit of work
+        if (joined != null) return joined; // Share the transaction connection so every call joins the same transaction
+        try { // Attempt to borrow a connection from the pool
+            return pool().borrow(); // Reuse an idle connection or open a new one within the size limit
         } catch (Exception e) { // Capture any checked or runtime exception during connection creation
             e.printStackTrace(); // Print the stack trace to aid debugging of the failure
             throw new RuntimeException("could not open DB: " + e.getMessage()); // Convert the failure to an unchecked exception with context
         } // End catch block handling connection failures
     } // End open method definition
+
+    public static ConnectionPool pool() { // Return the shared pool, creating it on first use
+        ConnectionPool p = pool; // Read the volatile field once on the fast path
+        if (p != null) return p; // Return the existing pool without locking
+        synchronized (Db.class) { // Serialize pool creation so only one pool is ever built
+            if (pool == null) pool = createPool(); // Build the pool if no other thread did it first
+            return pool; // Return the shared pool
+        } // End synchronized block
+    } // End pool method
+
+    public static StorageProfile profile() { pool(); return profile; } // Return the active storage profile, creating the pool if needed
+
+    public static Map<String, String> settings() { // Read the effective value of every reported PRAGMA from a live connection
+        Map<String, String> out = new LinkedHashMap<>(); // Keep the settings in the reported order
+        try (Connection c = open(); Statement st = c.createStatement()) { // Borrow a pooled connection that returns to the pool when the block ends
+            for (String key : StorageProfile.REPORTED) { // Query each setting of interest
+                try (ResultSet rs = st.executeQuery("PRAGMA " + key)) { // Read the current value
+                    out.put(key, rs.next() ? rs.getString(1) : "?"); // Record the value, or a placeholder if SQLite returned nothing
+                } // End try-with-resources for the ResultSet
+            } // End loop over settings
+        } catch (Exception e) { // Handle failures reading the settings
+            e.printStackTrace(); // Print the stack trace for debugging
+            throw new RuntimeException("could not read DB settings: " + e.getMessage()); // Convert the failure to an unchecked exception with context
+        } // End catch block for settings errors
+        return out; // Return the effective settings
+    } // End settings method
+
+    public static int[] checkpoint(String mode) { // Run PRAGMA wal_checkpoint in the given mode and return {busy, logFrames, checkpointedFrames}
+        try (Connection c = open(); Statement st = c.createStatement(); // Borrow a pooled connection that returns to the pool when the block ends
+             ResultSet rs = st.executeQuery("PRAGMA wal_checkpoint(" + mode + ")")) { // Copy committed WAL frames back into the database file
+            return rs.next() ? new int[]{rs.getInt(1), rs.getInt(2), rs.getInt(3)} : new int[3]; // Return SQLite's three checkpoint counters
+        } catch (Exception e) { // Handle checkpoint failures
+            e.printStackTrace(); // Print the stack trace for debugging
+            throw new RuntimeException("checkpoint failed: " + e.getMessage()); // Convert the failure to an unchecked exception with context
+        } // End catch block for checkpoint errors
+    } // End checkpoint method
+
+    public static synchronized void shutdown() { // Close every pooled connection, for example at application exit
+        if (pool == null) return; // Nothing to do if the pool was never created
+        if (profile.wal) { // Fold the WAL back into the main file so the next start has nothing to replay
+            try { checkpoint("TRUNCATE"); } catch (RuntimeException ignored) { } // Best effort: another process may still be using the database
+        } // End final checkpoint
+        Log.info("DB", pool.toString()); // Log final pool statistics for troubleshooting
+        pool.close(); // Close idle connections and stop the evictor
+        pool = null; // Allow a later open() to build a fresh pool
+    } // End shutdown method
+
+    private static ConnectionPool createPool() { // Build the pool from JVM system properties
+        String path = System.getProperty("dbPath", DEFAULT_PATH); // Read an optional JVM property for overriding the database location
+        int size = Integer.getInteger("dbPoolSize", 4); // Read the maximum number of pooled connections
+        long idleMs = Long.getLong("dbPoolIdleMs", 60_000L); // Read how long idle connections are kept open
+        long validateMs = Long.getLong("dbPoolValidateMs", 30_000L); // Read how long a connection may idle before it is health-checked
+        long timeoutMs = Long.getLong("dbPoolTimeoutMs", 10_000L); // Read how long borrowers wait when every connection is busy
+        StorageProfile sp = StorageProfile.fromSystemProperties(); // Select the PRAGMA profile named by -DdbProfile
+
+        Log.info("DB", "opening sqlite at: " + path + " (pool size " + size + ", profile " + sp + ")"); // Log the database path, pool size and profile once per process
+        ConnectionPool p = new ConnectionPool("jdbc:sqlite:" + path, size, idleMs, validateMs, timeoutMs, sp.pragmas); // Create the pool with the configured settings
+        profile = sp; // Publish the profile before the pool becomes visible to other threads
+        if (sp.checkpointMs > 0) { // Only WAL databases need checkpoints
+            p.scheduleMaintenance(() -> checkpoint("PASSIVE"), sp.checkpointMs); // Copy WAL frames back in the background so commits never pay for a large automatic checkpoint
+        } // End checkpoint scheduling
+        Metrics.gauge("db.pool.borrows", p::borrowCount); // Connections handed out
+        Metrics.gauge("db.pool.waits", p::waitCount); // Borrows that found every connection busy
+        Metrics.gauge("db.pool.waitMs", p::waitTimeMillis); // Time borrowers spent waiting
+        Metrics.gauge("db.pool.open", p::openCount); // Physical connections open now
+        Metrics.gauge("db.pool.idle", p::idleCount); // Of those, idle ones
+        Runtime.getRuntime().addShutdownHook(new Thread(Db::shutdown, "grocerease-db-shutdown")); // Close pooled connections cleanly when the JVM exits
+        return p; // Return the configured pool
+    } // End createPool method
 } // End Db class
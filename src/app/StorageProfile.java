@@ -0,0 +1,54 @@
+package app; // Define the package that contains database utility classes
+
+import java.util.ArrayList; // Import ArrayList to build the PRAGMA statement list
+import java.util.LinkedHashMap; // Import LinkedHashMap to keep profile definitions in a stable order
+import java.util.List; // Import List as the PRAGMA collection type
+import java.util.Map; // Import Map for the profile registry
+
+public final class StorageProfile { // Named set of SQLite PRAGMAs applied to every pooled connection
+
+    public static final String[] REPORTED = {"journal_mode", "synchronous", "cache_size", "mmap_size", "temp_store", "busy_timeout"}; // Settings printed at startup
+
+    private static final Map<String, String> PROFILES = new LinkedHashMap<>(); // Known profiles keyed by the -DdbProfile value
+    static { // Register the built-in profiles
+        PROFILES.put("wal", "journal_mode=WAL;synchronous=NORMAL;cache_size=-16000;mmap_size=268435456;temp_store=MEMORY;busy_timeout=5000"); // Default: readers never block on the writer, commits skip the per-transaction fsync
+        PROFILES.put("durable", "journal_mode=WAL;synchronous=FULL;cache_size=-16000;mmap_size=268435456;temp_store=MEMORY;busy_timeout=5000"); // WAL concurrency but every commit is synced, for machines that lose power
+        PROFILES.put("bulk", "journal_mode=WAL;synchronous=OFF;cache_size=-65536;mmap_size=1073741824;temp_store=MEMORY;busy_timeout=10000"); // Large imports where a crash can simply be re-run
+        PROFILES.put("compat", "journal_mode=DELETE;synchronous=FULL;busy_timeout=5000"); // The original rollback journal, for shared or network drives where WAL does not work
+    } // End profile registration
+
+    public final String name; // Profile name as selected on the command line
+    public final List<String> pragmas; // Full PRAGMA statements run on every new connection
+    public final boolean wal; // Whether the profile uses write-ahead logging and therefore needs checkpoints
+    public final long checkpointMs; // How often a passive WAL checkpoint runs, or zero to leave it to SQLite
+
+    private StorageProfile(String name, List<String> pragmas, boolean wal, long checkpointMs) { // Build an immutable profile
+        this.name = name; // Remember the profile name
+        this.pragmas = List.copyOf(pragmas); // Keep an immutable copy of the PRAGMA statements
+        this.wal = wal; // Remember whether WAL is in use
+        this.checkpointMs = checkpointMs; // Remember the checkpoint period
+    } // End constructor
+
+    public static StorageProfile fromSystemProperties() { // Select the profile named by -DdbProfile, with optional -DdbPragmas overrides appended
+        String name = System.getProperty("dbProfile", "wal"); // Read the profile name, defaulting to WAL
+        String base = PROFILES.get(name); // Look up the profile definition
+        if (base == null) throw new IllegalArgumentException("unknown dbProfile '" + name + "', expected one of " + PROFILES.keySet()); // Reject typos instead of silently using defaults
+
+        List<String> pragmas = new ArrayList<>(); // Collect the PRAGMA statements in application order
+        String extra = System.getProperty("dbPragmas", ""); // Read optional overrides; later settings win because they run last
+        for (String pragma : (base + ";" + extra).split(";")) { // Split the semicolon-separated PRAGMA list
+            if (!pragma.isBlank()) pragmas.add("PRAGMA " + pragma.trim()); // Turn each non-empty entry into a PRAGMA statement
+        } // End loop over PRAGMAs
+
+        boolean wal = false; // Work out which journal mode ends up active
+        for (String pragma : pragmas) { // Walk the statements in the order they will run
+            String k = pragma.toLowerCase().replace(" ", ""); // Normalize case and spacing for comparison
+            if (k.startsWith("pragmajournal_mode=")) wal = k.endsWith("=wal"); // The last journal_mode setting wins
+        } // End loop over statements
+        long checkpointMs = Long.getLong("dbCheckpointMs", 30_000L); // Read the checkpoint period
+        return new StorageProfile(name, pragmas, wal, wal ? checkpointMs : 0); // Build the selected profile
+    } // End fromSystemProperties method
+
+    @Override // Indicate that we are overriding Object.toString
+    public String toString() { return name; } // Describe the profile by its name
+} // End StorageProfile class
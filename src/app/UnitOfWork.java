@@ -0,0 +1,91 @@
+package app; // Define the package that contains database utility classes
+
+import java.lang.reflect.InvocationTargetException; // Import InvocationTargetException to unwrap errors thrown by the real connection
+import java.lang.reflect.Proxy; // Import Proxy to hand out a view of the transaction connection that ignores close()
+import java.sql.Connection; // Import JDBC Connection as the transactional resource
+import java.sql.SQLException; // Import SQLException for commit and rollback failures
+import java.sql.Statement; // Import Statement to issue BEGIN, COMMIT and ROLLBACK
+import java.util.ArrayList; // Import ArrayList to queue after-commit callbacks
+import java.util.List; // Import List as the callback queue type
+import java.util.function.Supplier; // Import Supplier to describe work that returns a value
+
+import util.Metrics; // Import the metrics registry for lock-wait and commit timers
+
+public final class UnitOfWork { // Group several service calls into one SQLite transaction on the calling thread
+
+    private static final ThreadLocal<Connection> CURRENT = new ThreadLocal<>(); // Connection view joined by Db.open() while a unit of work is active
+    private static final ThreadLocal<List<Runnable>> AFTER_COMMIT = new ThreadLocal<>(); // Callbacks waiting for the active unit of work to commit
+    private static final Metrics.Timer BEGIN = Metrics.timer("db.begin"); // Time spent waiting for the write lock
+    private static final Metrics.Timer COMMIT = Metrics.timer("db.commit"); // Time spent committing, mostly the WAL sync
+
+    private UnitOfWork() {} // Private constructor prevents instantiation because all members are static
+
+    public static void run(Runnable work) { // Run work atomically when it has no result
+        call(() -> { work.run(); return null; }); // Reuse the value-returning variant
+    } // End run method
+
+    public static <T> T call(Metrics.Timer timer, Supplier<T> work) { // Same as call(work), recording its duration, joined or not, in timer
+        long t0 = timer.start(); // Start timing the unit of work
+        try { // Record the duration however the work ends
+            return call(work); // Run it
+        } finally { // Record it
+            timer.stop(t0); // Add it to the caller's timer
+        } // End timing
+    } // End timed call method
+
+    public static <T> T call(Supplier<T> work) { // Run work atomically; every Db.open() inside it shares one connection and one transaction
+        if (CURRENT.get() != null) return work.get(); // Nested units of work simply join the outer transaction
+
+        try (Connection c = Db.pool().borrow(); Statement st = c.createStatement()) { // Borrow one pooled connection for the whole unit of work
+            long t0 = BEGIN.start(); // Time the wait for the write lock
+            st.executeUpdate("BEGIN IMMEDIATE"); // Take the write lock up front so the commit cannot fail with a lock upgrade conflict
+            BEGIN.stop(t0); // Long waits here mean writers queue behind each other
+            CURRENT.set(joinedView(c)); // Make Db.open() on this thread return the transaction connection
+            List<Runnable> callbacks = new ArrayList<>(); // Collect callbacks registered by the work
+            AFTER_COMMIT.set(callbacks); // Let afterCommit() on this thread queue into this unit of work
+            boolean ok = false; // Track whether the work completed normally
+            try { // Roll back unless the work and the commit both succeed
+                T result = work.get(); // Execute the grouped service calls
+                long t1 = COMMIT.start(); // Time the commit
+                st.executeUpdate("COMMIT"); // Make every change durable with a single sync
+                COMMIT.stop(t1); // Record the sync cost
+                ok = true; // Remember that the transaction committed
+                for (Runnable r : callbacks) r.run(); // Tell listeners about changes only once they are visible to other connections
+                return result; // Hand the work's result back to the caller
+            } finally { // Always detach the connection from the thread
+                CURRENT.remove(); // Later Db.open() calls borrow normally again
+                AFTER_COMMIT.remove(); // Drop the callback queue; a rolled-back unit of work never runs them
+                if (!ok) rollbackQuietly(st); // Undo every change made by the failed unit of work
+            } // End transaction body
+        } catch (SQLException e) { // Handle failures to begin, commit or roll back
+            e.printStackTrace(); // Print the stack trace to aid debugging
+            throw new RuntimeException("transaction failed: " + e.getMessage()); // Convert the failure to an unchecked exception with context
+        } // End catch block for transaction errors
+    } // End call method
+
+    private static void rollbackQuietly(Statement st) { // Roll back without hiding the exception that caused the rollback
+        try { st.executeUpdate("ROLLBACK"); } catch (SQLException ignored) { } // The original failure is the one worth reporting
+    } // End rollbackQuietly method
+
+    public static void afterCommit(Runnable callback) { // Run a callback once the current unit of work commits, or right away outside one
+        List<Runnable> callbacks = AFTER_COMMIT.get(); // Look up the queue of the active unit of work
+        if (callbacks == null) callback.run(); // Autocommit writes are already visible
+        else callbacks.add(callback); // Defer until COMMIT; a rollback discards it
+    } // End afterCommit method
+
+    public static boolean active() { return CURRENT.get() != null; } // Report whether the calling thread is inside a unit of work
+
+    static Connection current() { return CURRENT.get(); } // Return the joined connection view for Db.open(), or null outside a unit of work
+
+    private static Connection joinedView(Connection c) { // Wrap the transaction connection so service try-with-resources blocks do not release it early
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, // Build a dynamic Connection proxy
+                (proxy, m, args) -> { // Intercept every call made by the services
+                    if (m.getName().equals("close")) return null; // The unit of work closes the connection itself
+                    try { // Delegate everything else to the transaction connection
+                        return m.invoke(c, args); // Forward the call with the original arguments
+                    } catch (InvocationTargetException e) { // Unwrap errors raised by the driver
+                        throw e.getCause(); // Rethrow the driver's own exception
+                    } // End delegation error handling
+                }); // End proxy handler
+    } // End joinedView method
+} // End UnitOfWork class
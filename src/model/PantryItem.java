@@ -1,14 +1,40 @@
 package model; // Define the package containing pantry data models
 
+import java.time.Instant; // Import Instant for the last-modified accessor
+import java.time.LocalDate; // Import LocalDate for the expiry accessors
+
 public class PantryItem { // Represent a single pantry item row persisted in SQLite
     public Integer id; // Primary key assigned by the database or null before insertion
     public String name; // Human-readable item name such as "Eggs"
     public String category; // Optional grouping category like "Dairy"
     public int onHandQty; // Quantity currently available in inventory
     public String unit; // Optional unit description such as "dozen"
-    public String expiry; // Optional ISO-8601 date string tracking expiry (YYYY-MM-DD)
+    public Integer expiryDay; // Optional expiry as days since 1970-01-01 (LocalDate.toEpochDay), or null when the item does not expire
+    public String expiryText; // Expiry text from before version 3 that SQLite could not read as a date, or null; cleared once an expiry is saved
     public int minQty; // Minimum quantity threshold before the item is considered low stock
-    public String updatedAt; // Timestamp string recording the last modification moment
+    public long updatedAtMillis; // Last modification as milliseconds since the epoch, or 0 when unknown
+    public long version; // Row version this copy was read at; update() only succeeds while the stored row still has it
+
+    public LocalDate expiry() { return expiryDay == null ? null : LocalDate.ofEpochDay(expiryDay); } // Return the expiry date, or null when none is set
+
+    public void setExpiry(LocalDate d) { expiryDay = d == null ? null : (int) d.toEpochDay(); } // Set or clear the expiry date
+
+    public Instant updatedAt() { return updatedAtMillis == 0 ? null : Instant.ofEpochMilli(updatedAtMillis); } // Return the last modification time, or null when unknown
+
+    public PantryItem copy() { // Return an independent copy so cached rows cannot be changed through a caller's reference
+        PantryItem c = new PantryItem(); // Create the copy
+        c.id = id; // Copy the identifier
+        c.name = name; // Copy the name
+        c.category = category; // Copy the category
+        c.onHandQty = onHandQty; // Copy the on-hand quantity
+        c.unit = unit; // Copy the unit
+        c.expiryDay = expiryDay; // Copy the expiry day
+        c.expiryText = expiryText; // Copy the unreadable expiry text
+        c.minQty = minQty; // Copy the minimum quantity
+        c.updatedAtMillis = updatedAtMillis; // Copy the last-modified timestamp
+        c.version = version; // Copy the row version
+        return c; // Return the independent copy
+    } // End copy method
 
     @Override // Indicate that we are overriding Object.toString
     public String toString() { // Provide a human-friendly representation useful for debugging
@@ -1,14 +1,22 @@
 package model; // Define the package containing trip data models
 
+import java.time.LocalDate; // Import LocalDate for the trip date accessors
+
 public class Trip { // Represent a shopping trip persisted in the database
     public Integer id; // Primary key assigned by the database or null until inserted
-    public String tripDateText; // Trip date stored as a simple text string for easier binding in the UI
+    public int tripDay; // Trip date as days since 1970-01-01 (LocalDate.toEpochDay)
     public Integer storeId; // Optional foreign key referencing a store (unused in current UI but available for extensions)
     public int budgetCents; // Planned budget for the trip stored in cents to avoid floating point issues
     public String note; // Optional free-form note about the trip
+    public int subtotalCents; // Sum of the items' line totals, maintained by the database
+    public int itemCount; // Number of items, maintained by the database
+
+    public LocalDate tripDate() { return LocalDate.ofEpochDay(tripDay); } // Return the trip date
+
+    public void setTripDate(LocalDate d) { tripDay = (int) d.toEpochDay(); } // Set the trip date
 
     @Override // Indicate we are overriding the default toString implementation
     public String toString() { // Return a readable representation summarizing key trip details
-        return "Trip{id=" + id + ", date=" + tripDateText + ", budgetCents=" + budgetCents + "}"; // Compose a concise description using ID, date, and budget
+        return "Trip{id=" + id + ", date=" + tripDate() + ", budgetCents=" + budgetCents + "}"; // Compose a concise description using ID, date, and budget
     } // End toString override
 } // End Trip class definition
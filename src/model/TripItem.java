@@ -8,6 +8,24 @@ public class TripItem { // Represent a single item planned for purchase within a
     public int plannedQty; // Quantity planned for purchase
     public Integer expectedPriceCents; // Optional expected unit price in cents (null when unknown)
     public int lineTotalCents; // Total planned cost for the item, typically quantity multiplied by expected price
+    public int priority = 3; // How much the item matters, from 1 (nice to have) to 5 (essential); 3 when not set
+    public String category; // Spending category; when null on insert, the pantry item of the same name supplies it
+    public long version; // Row version this copy was read at, checked by the compare-and-set quantity update
+
+    public TripItem copy() { // Return an independent copy, for example to hand rows shown on the EDT to a background job
+        TripItem c = new TripItem(); // Create the copy
+        c.id = id; // Copy the identifier
+        c.tripId = tripId; // Copy the parent trip
+        c.itemName = itemName; // Copy the name
+        c.unit = unit; // Copy the unit
+        c.plannedQty = plannedQty; // Copy the quantity
+        c.expectedPriceCents = expectedPriceCents; // Copy the price
+        c.lineTotalCents = lineTotalCents; // Copy the line total
+        c.priority = priority; // Copy the priority
+        c.category = category; // Copy the category
+        c.version = version; // Copy the row version
+        return c; // Return the independent copy
+    } // End copy method
 
     @Override // Indicate that we are overriding Object.toString
     public String toString() { // Provide a readable representation of the trip item for debugging
@@ -0,0 +1,48 @@
+package service; // Define the package for pantry-related data access services
+
+import model.PantryItem; // Import the data model representing pantry items
+
+import java.util.List; // Import List as the result type of the listing queries
+import java.util.concurrent.CompletableFuture; // Import CompletableFuture as the async result type
+import java.util.function.UnaryOperator; // Import UnaryOperator as the change applied by modify()
+
+public class AsyncPantryService { // Expose SqlitePantryService as non-blocking calls for the Swing UI
+
+    private final SqlitePantryService sync; // The blocking service that does the actual JDBC work
+
+    public AsyncPantryService() { this(CachedPantryService.shared()); } // Wrap the shared caching pantry service so every window sees one coherent cache
+
+    public AsyncPantryService(SqlitePantryService sync) { this.sync = sync; } // Wrap a caller-supplied pantry service
+
+    public SqlitePantryService blocking() { return sync; } // Give access to the blocking service for callers already off the EDT
+
+    public CompletableFuture<List<PantryItem>> listAll() { return DbExecutors.read(sync::listAll); } // Load every pantry item in the background
+
+    public CompletableFuture<PantryItem> getById(int id) { return DbExecutors.read(() -> sync.getById(id)); } // Look up one item in the background
+
+    public CompletableFuture<List<PantryItem>> lowStock() { return DbExecutors.read(sync::lowStock); } // Load low-stock items in the background
+
+    public CompletableFuture<List<PantryItem>> expiringSoon(int days) { return DbExecutors.read(() -> sync.expiringSoon(days)); } // Load soon-expiring items in the background
+
+    public CompletableFuture<List<PantryItem>> search(String query, int limit) { return DbExecutors.read(() -> sync.search(query, limit)); } // Search names and categories in the background
+
+    public CompletableFuture<Integer> count(PantryView v) { return DbExecutors.read(() -> sync.count(v)); } // Count a view's rows in the background
+
+    public CompletableFuture<List<PantryItem>> page(PantryView v, Object afterKey, int afterId, int limit) { return DbExecutors.read(() -> sync.page(v, afterKey, afterId, limit)); } // Load the page after a key in the background
+
+    public CompletableFuture<List<PantryItem>> pageAt(PantryView v, int offset, int limit) { return DbExecutors.read(() -> sync.pageAt(v, offset, limit)); } // Load the page at a position in the background
+
+    public CompletableFuture<PantryItem> add(PantryItem p) { return DbExecutors.write(() -> sync.add(p)); } // Insert an item on the writer thread
+
+    public CompletableFuture<PantryItem> update(PantryItem p) { return DbExecutors.write(() -> sync.update(p)); } // Update an item on the writer thread
+
+    public CompletableFuture<PantryItem> modify(int id, UnaryOperator<PantryItem> change) { return DbExecutors.write(() -> sync.modify(id, change)); } // Read, change and compare-and-set an item on the writer thread
+
+    public CompletableFuture<PantryItem> adjustQty(int id, int delta) { return DbExecutors.write(() -> sync.adjustQty(id, delta)); } // Add to an item's quantity on the writer thread
+
+    public CompletableFuture<List<PantryItem>> addAll(List<PantryItem> items) { return DbExecutors.write(() -> sync.addAll(items)); } // Insert many items in one transaction on the writer thread
+
+    public CompletableFuture<List<PantryItem>> updateAll(List<PantryItem> items) { return DbExecutors.write(() -> sync.updateAll(items)); } // Update many items in one transaction on the writer thread
+
+    public CompletableFuture<Boolean> delete(int id) { return DbExecutors.write(() -> sync.delete(id)); } // Delete an item on the writer thread
+} // End AsyncPantryService class
@@ -0,0 +1,59 @@
+package service; // Define the package for trip-related data access services
+
+import model.Trip; // Import the Trip data model representing shopping trips
+import model.TripItem; // Import the TripItem model representing individual planned purchases
+
+import java.time.LocalDate; // Import LocalDate as the trip date type
+import java.util.List; // Import List as the result type of item listings
+import java.util.concurrent.CompletableFuture; // Import CompletableFuture as the async result type
+
+public class AsyncTripService { // Expose SqliteTripService as non-blocking calls for the Swing UI
+
+    private final SqliteTripService sync; // The blocking service that does the actual JDBC work
+
+    public AsyncTripService() { this(new SqliteTripService()); } // Wrap a default SQLite trip service
+
+    public AsyncTripService(SqliteTripService sync) { this.sync = sync; } // Wrap a caller-supplied trip service
+
+    public SqliteTripService blocking() { return sync; } // Give access to the blocking service for callers already off the EDT
+
+    public CompletableFuture<Trip> create(LocalDate date, Integer storeId, int budgetCents, String note) { // Create a trip on the writer thread
+        return DbExecutors.write(() -> sync.create(date, storeId, budgetCents, note)); // Delegate to the blocking service
+    } // End create method
+
+    public CompletableFuture<List<TripItem>> listItems(int tripId) { return DbExecutors.read(() -> sync.listItems(tripId)); } // Load a trip's items in the background
+
+    public CompletableFuture<SqliteTripService.Added> addItem(int tripId, String itemName, String unit, int qty, Integer expectedPriceCents) { // Add a trip item on the writer thread
+        return DbExecutors.write(() -> sync.addItemWithTotals(tripId, itemName, unit, qty, expectedPriceCents)); // Delegate and complete with the row and the trip's new totals
+    } // End addItem method
+
+    public CompletableFuture<SqliteTripService.Added> addItems(int tripId, List<TripItem> items) { return DbExecutors.write(() -> sync.addItemsWithTotals(tripId, items)); } // Insert many trip items in one transaction on the writer thread, completing with the trip's new totals
+
+    public CompletableFuture<SqliteTripService.Totals> updateItemQty(int tripItemId, int newQty) { // Change an item quantity on the writer thread
+        return DbExecutors.write(() -> sync.updateItemQty(tripItemId, newQty)); // Delegate and complete with the trip's new totals
+    } // End updateItemQty method
+
+    public CompletableFuture<SqliteTripService.Totals> updateItemQty(int tripItemId, int newQty, long expectedVersion) { // Change an item quantity on the writer thread unless it changed since it was read
+        return DbExecutors.write(() -> sync.updateItemQty(tripItemId, newQty, expectedVersion)); // Delegate; fails with ConflictException when the version moved on
+    } // End updateItemQty method
+
+    public CompletableFuture<SqliteTripService.Totals> adjustItemQty(int tripItemId, int delta) { // Add to an item quantity on the writer thread
+        return DbExecutors.write(() -> sync.adjustItemQty(tripItemId, delta)); // Delegate and complete with the trip's new totals
+    } // End adjustItemQty method
+
+    public CompletableFuture<Void> updateItemPriority(int tripItemId, int priority) { // Change an item priority on the writer thread
+        return DbExecutors.write(() -> { sync.updateItemPriority(tripItemId, priority); return null; }); // Delegate and complete with no value
+    } // End updateItemPriority method
+
+    public CompletableFuture<SqliteTripService.Totals> removeItem(int tripItemId) { // Remove a trip item on the writer thread
+        return DbExecutors.write(() -> sync.removeItem(tripItemId)); // Delegate and complete with the trip's new totals
+    } // End removeItem method
+
+    public CompletableFuture<SqliteTripService.Totals> removeItem(int tripItemId, long expectedVersion) { // Remove a trip item on the writer thread unless it changed since it was read
+        return DbExecutors.write(() -> sync.removeItem(tripItemId, expectedVersion)); // Delegate; fails with ConflictException when the version moved on
+    } // End removeItem method
+
+    public CompletableFuture<Integer> computeSubtotalCents(int tripId) { return DbExecutors.read(() -> sync.computeSubtotalCents(tripId)); } // Read a trip subtotal in the background
+
+    public CompletableFuture<SqliteTripService.Totals> totals(int tripId) { return DbExecutors.read(() -> sync.totals(tripId)); } // Read a trip's stored totals in the background
+} // End AsyncTripService class
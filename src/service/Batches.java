@@ -0,0 +1,19 @@
+package service; // Define the package for data access services
+
+import java.sql.ResultSet; // Import ResultSet to read last_insert_rowid()
+import java.sql.SQLException; // Import SQLException for JDBC failures
+import java.sql.Statement; // Import Statement to query the last inserted rowid
+
+final class Batches { // Shared helpers for the batched write APIs
+
+    static final int SIZE = 500; // Rows sent per executeBatch() call, keeping memory flat for very large inputs
+
+    private Batches() {} // Private constructor prevents instantiation because all members are static
+
+    static long firstId(Statement st, int inserted) throws SQLException { // Return the rowid of the first row of a batch that was just inserted
+        try (ResultSet rs = st.executeQuery("SELECT last_insert_rowid()")) { // Ask SQLite for the rowid of the last insert on this connection
+            rs.next(); // Move to the single result row
+            return rs.getLong(1) - inserted + 1; // AUTOINCREMENT hands out consecutive ids while this transaction holds the write lock
+        } // End try-with-resources for the ResultSet
+    } // End firstId method
+} // End Batches class
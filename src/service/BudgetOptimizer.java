@@ -0,0 +1,167 @@
+package service; // Define the package for trip-related data access services
+
+import app.UnitOfWork; // Import UnitOfWork so every quantity change commits together
+import model.TripItem; // Import TripItem as the optimizer input
+
+import java.util.ArrayList; // Import ArrayList to collect the pieces of each item
+import java.util.Arrays; // Import Arrays to sort items by value density
+import java.util.List; // Import List as the item list type
+
+public class BudgetOptimizer { // Pick how many units of each trip item to buy so the most valuable basket fits the budget
+
+    static final long DP_CELLS = Long.getLong("budgetDpCells", 50_000_000L); // Largest DP table (pieces × budget steps) solved exactly; beyond it the greedy answer is used
+    static final int DP_BUDGET_STEPS = Integer.getInteger("budgetDpSteps", 2_000_000); // Largest budget, in price steps, the DP array may cover
+
+    private static final long[] WEIGHTS = {0, 1, 2, 4, 8, 16}; // Value of one unit by priority: each level is worth twice the one below
+
+    public static final class Solution { // Quantities chosen for each input item
+        public final int[] qty; // Units to buy, by input position; zero means drop the item
+        public final long value; // Total value of the chosen units
+        public final long costCents; // Total priced cost of the chosen units
+        public final long fullValue; // Value of the basket as planned, for comparison
+        public final boolean exact; // True when the DP proved the basket optimal, false for the greedy answer
+        public final long nanos; // Time spent solving
+
+        Solution(int[] qty, long value, long costCents, long fullValue, boolean exact, long nanos) { // Build an immutable solution
+            this.qty = qty; // Remember the quantities
+            this.value = value; // Remember the value
+            this.costCents = costCents; // Remember the cost
+            this.fullValue = fullValue; // Remember the planned value
+            this.exact = exact; // Remember how it was solved
+            this.nanos = nanos; // Remember the timing
+        } // End constructor
+
+        public int unitsDropped(List<TripItem> items) { // Count the units the solution removes from the planned basket
+            int n = 0; // Running count
+            for (int i = 0; i < qty.length; i++) n += items.get(i).plannedQty - qty[i]; // Planned minus chosen
+            return n; // Units dropped
+        } // End unitsDropped method
+
+        @Override // Indicate that we are overriding Object.toString
+        public String toString() { return "value " + value + "/" + fullValue + ", cost " + costCents + " cents, " + (exact ? "exact" : "greedy") + " (" + nanos / 1000 + " µs)"; } // Summarize the solution
+    } // End Solution class
+
+    private final SqliteTripService trips; // Target of apply()
+
+    public BudgetOptimizer() { this(new SqliteTripService()); } // Apply through a default trip service
+
+    public BudgetOptimizer(SqliteTripService trips) { this.trips = trips; } // Apply through a caller-supplied trip service
+
+    public static long valueOf(TripItem t) { return WEIGHTS[Math.max(SqliteTripService.MIN_PRIORITY, Math.min(SqliteTripService.MAX_PRIORITY, t.priority))]; } // Value of one unit of an item
+
+    public Solution solve(List<TripItem> items, long budgetCents) { // Choose quantities up to each plannedQty that maximize value without exceeding the budget
+        long start = System.nanoTime(); // Time the whole solve
+        int n = items.size(); // Number of items
+        int[] qty = new int[n]; // Chosen quantities
+        long fullValue = 0, fullCost = 0; // Totals of the planned basket
+        List<Integer> priced = new ArrayList<>(); // Items that compete for the budget
+        for (int i = 0; i < n; i++) { // Classify each item
+            TripItem t = items.get(i); // The item
+            fullValue += valueOf(t) * t.plannedQty; // Planned value
+            Integer px = t.expectedPriceCents; // Unit price, or null when unknown
+            if (px == null || px <= 0) { qty[i] = t.plannedQty; continue; } // Unpriced items cost nothing the budget can see, so keep them
+            fullCost += (long) px * t.plannedQty; // Planned cost
+            priced.add(i); // Let the optimizer decide
+        } // End classification
+        long budget = Math.max(0, budgetCents); // A negative budget buys nothing
+        if (fullCost <= budget) { // Everything fits, including the case where nothing is priced
+            for (int i : priced) qty[i] = items.get(i).plannedQty; // Keep the whole basket
+            return new Solution(qty, fullValue, fullCost, fullValue, true, System.nanoTime() - start); // Nothing to optimize
+        } // End fits check
+
+        long step = 0; // Common divisor of every price, so the DP walks whole price steps instead of single cents
+        for (int i : priced) step = gcd(step, items.get(i).expectedPriceCents); // Prices in whole dollars shrink the table a hundredfold
+        long steps = budget / step; // Budget measured in price steps
+        List<long[]> pieces = split(items, priced, step, steps); // Each item as 0/1 pieces of 1, 2, 4, … units
+        boolean exact = steps <= DP_BUDGET_STEPS && pieces.size() * (steps + 1) <= DP_CELLS; // Solve exactly when the table is small enough
+        if (exact) dp(pieces, (int) steps, qty); else greedy(items, priced, budget, qty); // Fill in the priced quantities
+
+        long value = 0, cost = 0; // Totals of the chosen basket
+        for (int i = 0; i < n; i++) { // Add up the answer
+            TripItem t = items.get(i); // The item
+            value += valueOf(t) * qty[i]; // Chosen value
+            if (t.expectedPriceCents != null && t.expectedPriceCents > 0) cost += (long) t.expectedPriceCents * qty[i]; // Chosen priced cost
+        } // End totals
+        return new Solution(qty, value, cost, fullValue, exact, System.nanoTime() - start); // Hand back the answer
+    } // End solve method
+
+    public int apply(List<TripItem> items, Solution s) { // Write the chosen quantities in one transaction: lower quantities, drop items set to zero; returns rows changed
+        return UnitOfWork.call(() -> { // Commit every change together
+            int changed = 0; // Rows written
+            for (int i = 0; i < items.size(); i++) { // Compare each item with its chosen quantity
+                TripItem t = items.get(i); // The item as shown
+                if (s.qty[i] == t.plannedQty) continue; // Unchanged
+                SqliteTripService.Totals done = s.qty[i] == 0 ? trips.removeItem(t.id, t.version) : trips.updateItemQty(t.id, s.qty[i], t.version); // Drop or shrink the line; a line changed since it was read aborts the whole fit
+                if (done == null) throw new ConflictException("trip item", t.id, t.version, null, 0); // Deleted elsewhere since it was read; abort too
+                changed++; // Count the write
+            } // End loop over items
+            return changed; // Report how many rows changed
+        }); // End unit of work
+    } // End apply method
+
+    private static List<long[]> split(List<TripItem> items, List<Integer> priced, long step, long steps) { // Binary-split each bounded item into 0/1 pieces {item, units, cost in steps, value}
+        List<long[]> pieces = new ArrayList<>(); // Pieces in item order
+        for (int i : priced) { // Split each priced item
+            TripItem t = items.get(i); // The item
+            long unitCost = t.expectedPriceCents / step; // Cost of one unit in price steps
+            int left = (int) Math.min(t.plannedQty, steps / unitCost); // Units that could ever fit; more would only grow the table
+            for (int k = 1; left > 0; k <<= 1) { // Pieces of 1, 2, 4, … units, then the remainder
+                int units = Math.min(k, left); // Size of this piece
+                pieces.add(new long[]{i, units, unitCost * units, valueOf(t) * units}); // Record it
+                left -= units; // Units still to split
+            } // End loop over pieces
+        } // End loop over items
+        return pieces; // Any quantity 0..plannedQty is a sum of a subset of an item's pieces
+    } // End split method
+
+    private static void dp(List<long[]> pieces, int steps, int[] qty) { // Exact 0/1 knapsack over the pieces, then add up the units taken per item
+        long[] best = new long[steps + 1]; // best[b] = highest value with cost at most b steps
+        int words = (steps >>> 6) + 1; // Longs per row of the choice table
+        long[][] took = new long[pieces.size()][]; // took[k] has bit b set when piece k improved best[b]
+        for (int k = 0; k < pieces.size(); k++) { // Add one piece at a time
+            long[] p = pieces.get(k); // {item, units, cost, value}
+            int cost = (int) p[2]; // Piece cost in steps
+            long value = p[3]; // Piece value
+            if (cost > steps) continue; // Can never fit
+            long[] bits = new long[words]; // Choices for this piece
+            for (int b = steps; b >= cost; b--) { // Walk down so each piece is used at most once
+                long v = best[b - cost] + value; // Value if the piece is taken
+                if (v > best[b]) { best[b] = v; bits[b >>> 6] |= 1L << b; } // Take it when it improves the cell
+            } // End loop over budgets
+            took[k] = bits; // Keep the row for reconstruction
+        } // End loop over pieces
+        int b = steps; // Reconstruct from the full budget
+        for (int k = pieces.size() - 1; k >= 0; k--) { // Undo the pieces in reverse order
+            long[] bits = took[k]; // Choices of this piece
+            if (bits == null || (bits[b >>> 6] & 1L << b) == 0) continue; // Not taken at this budget
+            long[] p = pieces.get(k); // The taken piece
+            qty[(int) p[0]] += (int) p[1]; // Add its units to the item
+            b -= (int) p[2]; // Continue with the budget that was left before it
+        } // End reconstruction
+    } // End dp method
+
+    private static void greedy(List<TripItem> items, List<Integer> priced, long budget, int[] qty) { // Fast answer for large tables: best value per cent first, then compare with the best single item
+        Integer[] order = priced.toArray(new Integer[0]); // Items to rank
+        Arrays.sort(order, (a, b) -> Long.compare( // Highest value per cent first, compared without division
+                valueOf(items.get(b)) * items.get(a).expectedPriceCents, valueOf(items.get(a)) * items.get(b).expectedPriceCents)); // a before b when v_a/c_a > v_b/c_b
+        long left = budget, value = 0; // Budget remaining and value collected
+        for (int i : order) { // Take as many units of each item as still fit
+            TripItem t = items.get(i); // The item
+            int take = (int) Math.min(t.plannedQty, left / t.expectedPriceCents); // Units that fit
+            qty[i] = take; // Record them
+            left -= (long) take * t.expectedPriceCents; // Spend the budget
+            value += valueOf(t) * take; // Collect the value
+        } // End loop over ranked items
+        int bestItem = -1; long bestValue = value; // The greedy basket can be beaten by filling up on one valuable item
+        for (int i : priced) { // Try each item alone
+            TripItem t = items.get(i); // The item
+            long v = valueOf(t) * Math.min(t.plannedQty, budget / t.expectedPriceCents); // Value of as many units as fit
+            if (v > bestValue) { bestValue = v; bestItem = i; } // Keep the best single-item basket
+        } // End loop over items
+        if (bestItem < 0) return; // The greedy basket wins
+        for (int i : priced) qty[i] = 0; // Replace it with the single-item basket
+        qty[bestItem] = (int) Math.min(items.get(bestItem).plannedQty, budget / items.get(bestItem).expectedPriceCents); // As many units as fit
+    } // End greedy method
+
+    private static long gcd(long a, long b) { while (b != 0) { long t = a % b; a = b; b = t; } return a; } // Greatest common divisor by Euclid's algorithm
+} // End BudgetOptimizer class
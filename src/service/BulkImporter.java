@@ -0,0 +1,331 @@
+package service; // Define the package for data access services
+
+import app.UnitOfWork; // Import UnitOfWork so each trip batch commits once across its trips
+import model.PantryItem; // Import the pantry data model built from imported rows
+import model.TripItem; // Import the trip item data model built from imported rows
+import util.Csv; // Import the streaming CSV reader
+import util.Json; // Import the JSON Lines object parser
+import util.Log; // Import the asynchronous logger for failed imports
+import util.Money; // Import Money to parse price columns written as amounts
+
+import java.io.BufferedReader; // Import BufferedReader to read JSON Lines one line at a time
+import java.io.Closeable; // Import Closeable for the record sources
+import java.io.IOException; // Import IOException for read failures
+import java.io.Reader; // Import Reader as the generic input type
+import java.nio.charset.StandardCharsets; // Import UTF-8 as the file encoding
+import java.nio.file.Files; // Import Files to open input files
+import java.nio.file.Path; // Import Path to name input files
+import java.time.LocalDate; // Import LocalDate to parse expiry dates
+import java.time.format.DateTimeParseException; // Import DateTimeParseException to reject malformed dates
+import java.util.ArrayDeque; // Import ArrayDeque as the queue of batches being written
+import java.util.ArrayList; // Import ArrayList to collect rows, batches and rejections
+import java.util.HashMap; // Import HashMap to hold a record's fields
+import java.util.HashSet; // Import HashSet to remember trips already checked
+import java.util.LinkedHashMap; // Import LinkedHashMap to group a batch by trip in input order
+import java.util.List; // Import List as the batch type
+import java.util.Locale; // Import Locale for locale-neutral header normalization
+import java.util.Map; // Import Map as the record type
+import java.util.Set; // Import Set as the checked-trip type
+import java.util.concurrent.CompletableFuture; // Import CompletableFuture as the pending batch type
+import java.util.concurrent.CompletionException; // Import CompletionException to unwrap batch failures
+import java.util.function.Function; // Import Function for row mappers and batch writers
+
+public class BulkImporter { // Stream CSV or JSON Lines files into the pantry or a trip, validating each row and committing in batches
+
+    public static final int BATCH_ROWS = 1000; // Rows committed per transaction; large enough to amortize the commit, small enough to keep memory flat
+    static final int MAX_IN_FLIGHT = 4; // Batches parsed ahead of the writer before parsing waits, which bounds memory on huge files
+    static final int MAX_SAMPLE = 1000; // Rejections kept in the report; the listener still sees every one
+
+    public enum Format { // Supported input formats
+        CSV, JSONL; // Comma-separated values with a header row, or one JSON object per line
+
+        public static Format of(String fileName) { // Pick the format from a file name extension; anything unknown is read as CSV
+            String n = fileName.toLowerCase(Locale.ROOT); // Compare extensions case-insensitively
+            return n.endsWith(".jsonl") || n.endsWith(".ndjson") || n.endsWith(".json") ? JSONL : CSV; // JSON extensions mean one object per line
+        } // End Format.of method
+    } // End Format enum
+
+    public interface Listener { // Receives progress while an import runs, on the importing thread
+        void progress(Report r); // Called after each batch commits and once at the end
+        default void rejected(Rejection r) {} // Called for every rejected row
+    } // End Listener interface
+
+    public static final class Rejection { // A row that failed parsing or validation and was skipped
+        public final long line; // Line of the input on which the row starts
+        public final String reason; // Why the row was rejected
+        public final String record; // The row's fields as read, for the rejects report
+
+        Rejection(long line, String reason, String record) { // Build a rejection
+            this.line = line; // Remember the line
+            this.reason = reason; // Remember the reason
+            this.record = record; // Remember the raw fields
+        } // End constructor
+
+        @Override // Indicate that we are overriding Object.toString
+        public String toString() { return "line " + line + ": " + reason; } // Describe the rejection for dialogs and logs
+    } // End Rejection class
+
+    public static final class Report { // Running totals of an import
+        public long read; // Data rows read from the input
+        public long written; // Rows committed to the database
+        public long rejected; // Rows skipped because they failed parsing or validation
+        public final List<Rejection> sample = new ArrayList<>(); // The first MAX_SAMPLE rejections
+        private final long start = System.nanoTime(); // When the import started
+        public long elapsedNanos; // Time since the import started, as of the last progress report
+
+        public double rowsPerSecond() { return elapsedNanos == 0 ? 0 : written * 1e9 / elapsedNanos; } // Committed rows per second
+
+        @Override // Indicate that we are overriding Object.toString
+        public String toString() { // Summarize the totals for progress displays
+            return "read " + read + ", imported " + written + ", rejected " + rejected + " in " + (elapsedNanos / 1_000_000) + " ms (" + Math.round(rowsPerSecond()) + " rows/s)"; // One-line summary
+        } // End toString method
+    } // End Report class
+
+    private final SqlitePantryService pantry; // Service that inserts pantry rows
+    private final SqliteTripService trips; // Service that inserts trip items
+    private final Set<Integer> knownTrips = new HashSet<>(); // Trips confirmed to exist during this importer's lifetime
+
+    public BulkImporter() { this(CachedPantryService.shared(), new SqliteTripService()); } // Write pantry rows through the shared cache so open windows stay coherent
+
+    public BulkImporter(SqlitePantryService pantry, SqliteTripService trips) { // Use caller-supplied services
+        this.pantry = pantry; // Remember the pantry service
+        this.trips = trips; // Remember the trip service
+    } // End constructor
+
+    public Report importPantry(Path file, Listener l) { // Import pantry items from a CSV or JSON Lines file
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) { // Open the file as UTF-8 text
+            return importPantry(in, Format.of(file.toString()), l); // Pick the format from the extension
+        } catch (IOException e) { // Handle failures to open or close the file
+            Log.error("Import", "cannot read " + file, e); // Log the stack trace to aid debugging
+            throw new RuntimeException("import failed: " + e.getMessage()); // Signal the failure with context
+        } // End catch block for file errors
+    } // End importPantry method
+
+    public Report importPantry(Reader in, Format f, Listener l) { // Import pantry items from a character stream
+        return run(in, f, l, BulkImporter::toPantryItem, batch -> pantry.addAll(batch).size()); // Each batch is one addAll transaction
+    } // End importPantry method
+
+    public Report importTripItems(Path file, Integer tripId, Listener l) { // Import trip items from a file; rows without a trip_id column go to tripId
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) { // Open the file as UTF-8 text
+            return importTripItems(in, Format.of(file.toString()), tripId, l); // Pick the format from the extension
+        } catch (IOException e) { // Handle failures to open or close the file
+            Log.error("Import", "cannot read " + file, e); // Log the stack trace to aid debugging
+            throw new RuntimeException("import failed: " + e.getMessage()); // Signal the failure with context
+        } // End catch block for file errors
+    } // End importTripItems method
+
+    public Report importTripItems(Reader in, Format f, Integer tripId, Listener l) { // Import trip items from a character stream
+        return run(in, f, l, m -> toTripItem(m, tripId), batch -> UnitOfWork.call(() -> { // Commit each batch once, whichever trips it touches
+            Map<Integer, List<TripItem>> byTrip = new LinkedHashMap<>(); // Group rows by trip, keeping input order within each trip
+            for (TripItem t : batch) byTrip.computeIfAbsent(t.tripId, k -> new ArrayList<>()).add(t); // Place each row in its trip's group
+            for (Map.Entry<Integer, List<TripItem>> e : byTrip.entrySet()) trips.addItems(e.getKey(), e.getValue()); // Insert each group with JDBC batches
+            return batch.size(); // Report how many rows were written
+        })); // End unit of work
+    } // End importTripItems method
+
+    private <T> Report run(Reader in, Format f, Listener l, Function<Map<String, String>, T> mapper, Function<List<T>, Integer> writer) { // Parse on this thread while the writer thread commits earlier batches
+        Report r = new Report(); // Start the totals
+        ArrayDeque<CompletableFuture<Integer>> inFlight = new ArrayDeque<>(); // Batches handed to the writer, oldest first
+        List<T> batch = new ArrayList<>(BATCH_ROWS); // Rows of the batch being filled
+
+        try (Records src = f == Format.JSONL ? new JsonRecords(in) : new CsvRecords(in)) { // Read records in the requested format
+            while (true) { // Read every record
+                Map<String, String> m; // Fields of the next record
+                try { // A malformed record is rejected, not fatal
+                    m = src.next(); // Read it
+                } catch (IllegalArgumentException e) { // Handle syntax errors in the input
+                    r.read++; // The broken record still counts as read
+                    reject(r, l, new Rejection(src.line(), e.getMessage(), "")); // Report it
+                    continue; // Move on to the next record
+                } // End record read
+                if (m == null) break; // End of input
+                r.read++; // Count the record
+                try { // Map and validate the row
+                    batch.add(mapper.apply(m)); // Keep it for the current batch
+                } catch (IllegalArgumentException e) { // Handle rows that break the service's rules
+                    reject(r, l, new Rejection(src.line(), e.getMessage(), src.raw())); // Skip and report it
+                    continue; // Move on to the next record
+                } // End row mapping
+                if (batch.size() == BATCH_ROWS) { // A full batch is ready
+                    submit(batch, writer, inFlight, r, l); // Hand it to the writer
+                    batch = new ArrayList<>(BATCH_ROWS); // Start filling the next one
+                } // End full batch
+            } // End record loop
+            if (!batch.isEmpty()) submit(batch, writer, inFlight, r, l); // Write the final partial batch
+            while (!inFlight.isEmpty()) settle(inFlight, r, l); // Wait for every batch to commit
+        } catch (IOException e) { // Handle read failures
+            drain(inFlight, r); // Let batches already handed over finish, so the report counts them
+            Log.error("Import", "read failed after " + r.written + " rows", e); // Log the stack trace to aid debugging
+            throw new RuntimeException("import failed after " + r.written + " rows: " + e.getMessage()); // Signal the failure with the committed count
+        } // End catch block for read errors
+
+        r.elapsedNanos = System.nanoTime() - r.start; // Final timing
+        l.progress(r); // Final progress report
+        return r; // Hand the totals back
+    } // End run method
+
+    private static <T> void submit(List<T> batch, Function<List<T>, Integer> writer, ArrayDeque<CompletableFuture<Integer>> inFlight, Report r, Listener l) { // Queue a batch on the writer thread, waiting for the oldest when too many are pending
+        inFlight.add(DbExecutors.write(() -> writer.apply(batch))); // Commit the batch after earlier writes
+        if (inFlight.size() >= MAX_IN_FLIGHT) settle(inFlight, r, l); // Apply backpressure so parsing cannot outrun the database without bound
+    } // End submit method
+
+    private static void settle(ArrayDeque<CompletableFuture<Integer>> inFlight, Report r, Listener l) { // Wait for the oldest batch and record its result
+        try { // A failed batch aborts the import
+            r.written += inFlight.poll().join(); // Count the committed rows
+        } catch (CompletionException e) { // Handle a batch the database refused
+            drain(inFlight, r); // Let later batches finish, so the report counts them
+            throw new RuntimeException("import failed after " + r.written + " rows: " + e.getCause().getMessage()); // Signal the failure with the committed count
+        } // End batch wait
+        r.elapsedNanos = System.nanoTime() - r.start; // Update timing
+        l.progress(r); // Report progress
+    } // End settle method
+
+    private static void drain(ArrayDeque<CompletableFuture<Integer>> inFlight, Report r) { // Wait for every queued batch, counting those that commit
+        for (CompletableFuture<Integer> f : inFlight) { // Visit every queued batch
+            try { r.written += f.join(); } catch (CompletionException ignored) { } // The first failure is the one reported
+        } // End loop over batches
+        inFlight.clear(); // Nothing is pending any more
+    } // End drain method
+
+    private static void reject(Report r, Listener l, Rejection x) { // Record a rejected row
+        r.rejected++; // Count it
+        if (r.sample.size() < MAX_SAMPLE) r.sample.add(x); // Keep the first ones for the report
+        l.rejected(x); // Tell the listener
+    } // End reject method
+
+    static PantryItem toPantryItem(Map<String, String> m) { // Build a pantry item from a record and apply add()'s rules
+        PantryItem p = new PantryItem(); // Create the item
+        p.name = m.get("name"); // Required name
+        p.category = m.get("category"); // Optional category
+        p.onHandQty = intField(m, 0, "onhandqty", "qty", "quantity"); // Quantity on hand, zero when absent
+        p.unit = m.get("unit"); // Optional unit
+        String expiry = m.get("expiry"); // Optional expiry date
+        if (expiry != null && !expiry.isBlank()) { // Blank dates are stored as NULL
+            try { p.setExpiry(LocalDate.parse(expiry.trim())); } // Accept ISO dates only, so every stored day compares correctly
+            catch (DateTimeParseException e) { throw new IllegalArgumentException("bad expiry: " + expiry); } // Report the bad date
+        } else if (!blank(m, "expiryday")) { // Binary-style day numbers, as older text exports wrote them
+            p.expiryDay = intField(m, 0, "expiryday"); // Days since 1970-01-01, as stored
+        } // End expiry parsing
+        p.minQty = intField(m, 0, "minqty", "min"); // Minimum quantity, zero when absent
+        SqlitePantryService.validateNew(p); // Apply the same rules as add()
+        return p; // Hand the valid item back
+    } // End toPantryItem method
+
+    private TripItem toTripItem(Map<String, String> m, Integer defaultTrip) { // Build a trip item from a record and apply addItems()'s rules
+        TripItem t = new TripItem(); // Create the item
+        Integer trip = defaultTrip; // Rows without a trip column go to the caller's trip
+        if (!blank(m, "tripid")) trip = intField(m, 0, "tripid"); // A row's own trip takes precedence
+        if (trip == null) throw new IllegalArgumentException("trip_id required"); // Every item needs a trip
+        if (!knownTrips.contains(trip)) { // Check each trip once rather than once per row
+            if (!trips.exists(trip)) throw new IllegalArgumentException("no trip with id " + trip); // Refuse items for trips that do not exist
+            knownTrips.add(trip); // Remember the trip
+        } // End trip check
+        t.tripId = trip; // Attach the item to its trip
+        t.itemName = m.containsKey("itemname") ? m.get("itemname") : m.get("name"); // Item name, under either header
+        t.unit = m.get("unit"); // Optional unit
+        t.plannedQty = intField(m, 0, "qty", "plannedqty", "quantity"); // Planned quantity
+        if (m.containsKey("expectedpricecents") || m.containsKey("pricecents")) { // Prices given in cents
+            t.expectedPriceCents = blank(m, "expectedpricecents", "pricecents") ? null : intField(m, 0, "expectedpricecents", "pricecents"); // Blank means unknown
+        } else if (!blank(m, "expectedprice", "price")) { // Prices given as amounts such as "NT$12.50"
+            String amount = m.containsKey("expectedprice") ? m.get("expectedprice") : m.get("price"); // Read whichever header is present
+            try { t.expectedPriceCents = Money.parseCents(amount); } // Parse exactly, as the trip window does
+            catch (NumberFormatException e) { throw new IllegalArgumentException("bad price: " + amount); } // Report the bad amount
+        } // End price parsing
+        t.priority = intField(m, SqliteTripService.DEFAULT_PRIORITY, "priority"); // Optional priority, normal when absent
+        if (!blank(m, "category")) t.category = m.get("category").trim(); // Optional category; absent means the pantry's
+        if (t.itemName != null) t.itemName = t.itemName.trim(); // Store names trimmed
+        SqliteTripService.validateItem(t.itemName, t.plannedQty); // Apply the same rules as addItems()
+        SqliteTripService.validatePriority(t.priority); // Keep priorities on the optimizer's scale
+        return t; // Hand the valid item back
+    } // End toTripItem method
+
+    private static int intField(Map<String, String> m, int fallback, String... keys) { // Read the first present integer column, or the fallback
+        for (String k : keys) { // Try each accepted header
+            String v = m.get(k); // Read the value
+            if (v == null || v.isBlank()) continue; // Absent or blank
+            try { return Integer.parseInt(v.trim()); } // Parse it
+            catch (NumberFormatException e) { throw new IllegalArgumentException("bad " + k + ": " + v); } // Report the bad number
+        } // End loop over headers
+        return fallback; // No header had a value
+    } // End intField method
+
+    private static boolean blank(Map<String, String> m, String... keys) { // Report whether every listed column is absent or blank
+        for (String k : keys) if (m.get(k) != null && !m.get(k).isBlank()) return false; // A value is present
+        return true; // None had a value
+    } // End blank method
+
+    static String normalizeKey(String header) { // Reduce a header to lower-case letters and digits, so "On Hand Qty", "on_hand_qty" and "onHandQty" match
+        StringBuilder sb = new StringBuilder(header.length()); // Collect the kept characters
+        for (int i = 0; i < header.length(); i++) { // Scan the header
+            char c = header.charAt(i); // Read a character
+            if (Character.isLetterOrDigit(c)) sb.append(Character.toLowerCase(c)); // Keep letters and digits
+        } // End scan
+        return sb.toString(); // Return the normalized key
+    } // End normalizeKey method
+
+    private interface Records extends Closeable { // A source of records as normalized-key maps
+        Map<String, String> next() throws IOException; // Next record, or null at end of input; IllegalArgumentException for a malformed record
+        long line(); // Line on which the last record started
+        String raw(); // Text of the last record as it appeared in the input
+    } // End Records interface
+
+    private static final class CsvRecords implements Records { // Records from CSV with a header row
+        private final Csv.Reader csv; // Underlying CSV reader
+        private String[] header; // Normalized header keys
+        private String[] row; // Fields of the last record
+
+        CsvRecords(Reader in) { csv = new Csv.Reader(in); } // Wrap the input
+
+        @Override // Implement Records.next
+        public Map<String, String> next() throws IOException { // Read a data row and key it by the header
+            if (header == null) { // The first record names the columns
+                String[] h = csv.next(); // Read the header
+                if (h == null) return null; // Empty input
+                header = new String[h.length]; // Prepare the keys
+                for (int i = 0; i < h.length; i++) header[i] = normalizeKey(h[i]); // Normalize each header
+            } // End header
+            row = csv.next(); // Read the data row
+            if (row == null) return null; // End of input
+            if (row.length > header.length) throw new IllegalArgumentException("expected " + header.length + " fields, found " + row.length); // Extra fields mean the row is misaligned
+            Map<String, String> m = new HashMap<>(); // Key the fields
+            for (int i = 0; i < row.length; i++) m.put(header[i], row[i]); // Missing trailing fields stay absent
+            return m; // Hand back the record
+        } // End next method
+
+        @Override public long line() { return csv.line(); } // Line of the last record
+        @Override // Implement Records.raw
+        public String raw() { // Re-encode the last record's fields as one CSV line
+            StringBuilder sb = new StringBuilder(); // Collect the text
+            try { Csv.writeRow(sb, row); } catch (IOException e) { throw new IllegalStateException(e); } // StringBuilder never throws
+            sb.setLength(sb.length() - 1); // Drop the record terminator
+            return sb.toString(); // Return the line
+        } // End raw method
+        @Override public void close() throws IOException { csv.close(); } // Close the input
+    } // End CsvRecords class
+
+    private static final class JsonRecords implements Records { // Records from JSON Lines
+        private final BufferedReader in; // Underlying line reader
+        private long line = 0; // Current line number
+        private String last; // Text of the last line read
+
+        JsonRecords(Reader in) { this.in = in instanceof BufferedReader b ? b : new BufferedReader(in); } // Wrap the input for line reads
+
+        @Override // Implement Records.next
+        public Map<String, String> next() throws IOException { // Parse the next non-blank line as one object
+            String s; // Text of the line
+            do { s = in.readLine(); line++; } while (s != null && s.isBlank()); // Skip blank lines
+            if (s == null) return null; // End of input
+            last = s; // Keep the line for the rejects report
+            Map<String, String> m = new HashMap<>(); // Key the values
+            for (Map.Entry<String, Object> e : Json.parseObject(s).entrySet()) { // Visit every member
+                Object v = e.getValue(); // Read the value
+                m.put(normalizeKey(e.getKey()), v == null ? null : v.toString()); // Store it as text, like a CSV field
+            } // End loop over members
+            return m; // Hand back the record
+        } // End next method
+
+        @Override public long line() { return line; } // Line of the last record
+        @Override public String raw() { return last; } // The last line as read
+        @Override public void close() throws IOException { in.close(); } // Close the input
+    } // End JsonRecords class
+} // End BulkImporter class
@@ -0,0 +1,382 @@
+package service; // Define the package for pantry-related data access services
+
+import app.UnitOfWork; // Import UnitOfWork so cache updates wait for the surrounding transaction to commit
+import model.PantryItem; // Import the data model representing pantry items
+import util.Metrics; // Import the metrics registry to publish the hit and miss counts
+
+import java.time.LocalDate; // Import LocalDate to compute the expiring-soon cutoff
+import java.util.ArrayList; // Import ArrayList to hold the cached views
+import java.util.Collections; // Import Collections for binary search over the sorted views
+import java.util.Comparator; // Import Comparator to define the cached sort orders
+import java.util.LinkedHashMap; // Import LinkedHashMap as the access-ordered id index
+import java.util.List; // Import List as the view and result type
+import java.util.Map; // Import Map as the id index type
+import java.util.concurrent.atomic.AtomicLong; // Import AtomicLong for the hit and miss counters
+
+public class CachedPantryService extends SqlitePantryService { // Serve pantry reads from memory, kept coherent by this service's own writes and dropped when anyone else writes
+
+    private static final Comparator<PantryItem> BY_NAME = PantryView.BY_NAME; // Same order as SQL_LIST_ALL; ties follow rowid like the name index
+    private static final Comparator<PantryItem> BY_EXPIRY = PantryView.BY_EXPIRY; // Same order as SQL_EXPIRING; ties follow rowid like the expiry index
+    private static final int BULK_INVALIDATE = 64; // Batch writes larger than this drop the snapshot instead of patching it row by row
+
+    private static volatile CachedPantryService shared; // Process-wide instance so every window sees the same cache
+
+    private final int maxEntries; // Upper bound on cached rows
+    private final Map<Integer, PantryItem> byId; // Cached rows by id, least recently used first
+    private List<PantryItem> byName; // Every row sorted by name, or null when no complete snapshot is cached
+    private List<PantryItem> lowView; // Low-stock rows derived from the snapshot, or null until first needed
+    private List<PantryItem> expiryView; // Rows with an expiry sorted by expiry, or null until first needed
+    private boolean oversized; // Set when the table has more rows than the cache may hold
+    private long generation; // Incremented by every write so a load that raced with it is not installed
+
+    private final AtomicLong applied = new AtomicLong(); // Rows this cache wrote and patched in once committed
+    private final PantryWatch watch = new PantryWatch(this, applied::get); // Spots writes the cache never saw: other processes, or other service instances
+
+    private final AtomicLong hits = new AtomicLong(); // Reads answered from memory
+    private final AtomicLong misses = new AtomicLong(); // Reads that had to query SQLite
+    private final AtomicLong loads = new AtomicLong(); // Full-table loads performed
+    private final AtomicLong evictions = new AtomicLong(); // Rows dropped from the id index to stay within the bound
+
+    public CachedPantryService() { this(Integer.getInteger("pantryCacheMax", 10_000)); } // Build a cache bounded by -DpantryCacheMax rows
+
+    public CachedPantryService(int maxEntries) { // Build a cache holding at most the given number of rows
+        if (maxEntries <= 0) throw new IllegalArgumentException("cache size must be > 0"); // Reject caches that could never hold a row
+        this.maxEntries = maxEntries; // Remember the bound
+        this.byId = new LinkedHashMap<>(16, 0.75f, true) { // Access-ordered map so the least recently used row is evicted first
+            @Override // Indicate that we are overriding LinkedHashMap.removeEldestEntry
+            protected boolean removeEldestEntry(Map.Entry<Integer, PantryItem> eldest) { // Decide after each insert whether to evict
+                if (size() <= CachedPantryService.this.maxEntries) return false; // Keep everything while under the bound
+                evictions.incrementAndGet(); // Count the eviction
+                return true; // Drop the least recently used row
+            } // End removeEldestEntry override
+        }; // End id index definition
+    } // End constructor
+
+    public static CachedPantryService shared() { // Return the process-wide cache, creating it on first use
+        CachedPantryService s = shared; // Read the volatile field once on the fast path
+        if (s != null) return s; // Return the existing cache without locking
+        synchronized (CachedPantryService.class) { // Serialize creation so only one cache is ever built
+            if (shared == null) { // Build the cache if no other thread did it first
+                CachedPantryService c = new CachedPantryService(); // The process-wide cache
+                Metrics.gauge("pantry.cache.hits", c::hitCount); // Reads answered from memory
+                Metrics.gauge("pantry.cache.misses", c::missCount); // Reads that queried SQLite
+                shared = c; // Publish it
+            } // End creation
+            return shared; // Return the shared cache
+        } // End synchronized block
+    } // End shared method
+
+    @Override // Serve the name-ordered listing from the snapshot
+    public List<PantryItem> listAll() { // Retrieve all pantry items ordered by name
+        if (UnitOfWork.active()) return super.listAll(); // Inside a transaction the caller must see its own uncommitted writes
+        dropIfChangedElsewhere(); // Never answer from rows changed behind the cache's back
+        synchronized (this) { // Read the snapshot under the cache lock
+            if (byName != null) { hits.incrementAndGet(); return copies(byName); } // Answer from memory
+        } // End synchronized block
+        misses.incrementAndGet(); // Count the database round trip
+        return load(); // Query SQLite and keep the rows for later reads
+    } // End listAll method
+
+    @Override // Derive low-stock rows from the snapshot
+    public List<PantryItem> lowStock() { // Retrieve items at or below their minimum quantity, ordered by name
+        if (UnitOfWork.active()) return super.lowStock(); // Inside a transaction the caller must see its own uncommitted writes
+        dropIfChangedElsewhere(); // Never answer from rows changed behind the cache's back
+        synchronized (this) { // Read the snapshot under the cache lock
+            if (byName != null) { hits.incrementAndGet(); return copies(lowView()); } // Answer from memory
+        } // End synchronized block
+        misses.incrementAndGet(); // Count the database round trip
+        if (isOversized()) return super.lowStock(); // The table is too large to cache; let the partial index answer
+        List<PantryItem> out = new ArrayList<>(); // Collect the low-stock rows of the fresh load
+        for (PantryItem p : load()) if (p.onHandQty <= p.minQty) out.add(p); // Apply the same rule as SQL_LOW_STOCK
+        return out; // Return the rows already in name order
+    } // End lowStock method
+
+    @Override // Derive expiring rows from the snapshot
+    public List<PantryItem> expiringSoon(int days) { // Retrieve items expiring within the given number of days, soonest first
+        if (UnitOfWork.active()) return super.expiringSoon(days); // Inside a transaction the caller must see its own uncommitted writes
+        dropIfChangedElsewhere(); // Never answer from rows changed behind the cache's back
+        int cutoff = (int) LocalDate.now().plusDays(days).toEpochDay(); // Compute the same cutoff day as the SQL query
+        synchronized (this) { // Read the snapshot under the cache lock
+            if (byName != null) { hits.incrementAndGet(); return copies(expiryView().subList(0, expiryEnd(cutoff))); } // Answer from memory with one binary search
+        } // End synchronized block
+        misses.incrementAndGet(); // Count the snapshot miss
+        ExpiryEngine engine = ExpiryEngine.running(); // Use the expiry engine's time index when it is loaded
+        if (engine != null) return engine.expiringSoon(days); // Walk only the k expiring rows instead of loading the table
+        if (isOversized()) return super.expiringSoon(days); // The table is too large to cache; let the expiry index answer
+        List<PantryItem> out = new ArrayList<>(); // Collect the expiring rows of the fresh load
+        for (PantryItem p : load()) if (p.expiryDay != null && p.expiryDay <= cutoff) out.add(p); // Apply the same rule as SQL_EXPIRING
+        out.sort(BY_EXPIRY); // Order soonest first like the SQL query
+        return out; // Return the expiring rows
+    } // End expiringSoon method
+
+    @Override // Search the in-memory trigram index when it is loaded
+    public List<PantryItem> search(String query, int limit) { // Items matching typed text, best first
+        if (UnitOfWork.active()) return super.search(query, limit); // Inside a transaction the caller must see its own uncommitted writes
+        PantrySearch index = PantrySearch.running(); // Use the search index when it is loaded
+        if (index != null) return index.search(query, limit); // Answer from memory, forgiving typos
+        return super.search(query, limit); // Cold start: let the FTS5 table answer
+    } // End search method
+
+    @Override // Count a view from the snapshot when the table fits in memory
+    public int count(PantryView v) { // Count the rows of a view
+        if (UnitOfWork.active()) return super.count(v); // Inside a transaction the caller must see its own uncommitted writes
+        dropIfChangedElsewhere(); // Never answer from rows changed behind the cache's back
+        synchronized (this) { // Read the snapshot under the cache lock
+            if (byName != null) { hits.incrementAndGet(); return viewRows(v).size(); } // Answer from memory
+        } // End synchronized block
+        misses.incrementAndGet(); // Count the database round trip
+        if (warm()) { // Load the snapshot when the whole table fits, so the pages that follow are served from memory
+            synchronized (this) { if (byName != null) return viewRows(v).size(); } // Answer from the fresh snapshot unless a write already dropped it
+        } // End warm-up
+        return super.count(v); // Too large to cache, or raced with a write; let the index answer
+    } // End count method
+
+    @Override // Serve keyset pages from the snapshot
+    public List<PantryItem> page(PantryView v, Object afterKey, int afterId, int limit) { // Read the rows after (afterKey, afterId) in the view's order
+        if (UnitOfWork.active()) return super.page(v, afterKey, afterId, limit); // Inside a transaction the caller must see its own uncommitted writes
+        dropIfChangedElsewhere(); // Never answer from rows changed behind the cache's back
+        synchronized (this) { // Read the snapshot under the cache lock
+            if (byName != null) { // Answer from memory with one binary search
+                hits.incrementAndGet(); // Count the hit
+                List<PantryItem> rows = viewRows(v); // The view's rows in order
+                int from = afterKey == null ? 0 : after(rows, v, afterKey, afterId); // First row past the key
+                return copies(rows.subList(from, Math.min(rows.size(), from + limit))); // Copy out the page
+            } // End snapshot answer
+        } // End synchronized block
+        misses.incrementAndGet(); // Count the database round trip
+        return super.page(v, afterKey, afterId, limit); // Seek in the index
+    } // End page method
+
+    @Override // Serve offset pages from the snapshot
+    public List<PantryItem> pageAt(PantryView v, int offset, int limit) { // Read the rows starting at a position in the view
+        if (UnitOfWork.active()) return super.pageAt(v, offset, limit); // Inside a transaction the caller must see its own uncommitted writes
+        dropIfChangedElsewhere(); // Never answer from rows changed behind the cache's back
+        synchronized (this) { // Read the snapshot under the cache lock
+            if (byName != null) { // Answer from memory without walking anything
+                hits.incrementAndGet(); // Count the hit
+                List<PantryItem> rows = viewRows(v); // The view's rows in order
+                int from = Math.min(rows.size(), offset); // Clamp past-the-end offsets like SQL does
+                return copies(rows.subList(from, Math.min(rows.size(), from + limit))); // Copy out the page
+            } // End snapshot answer
+        } // End synchronized block
+        misses.incrementAndGet(); // Count the database round trip
+        return super.pageAt(v, offset, limit); // Walk the index to the offset
+    } // End pageAt method
+
+    @Override // Answer id lookups from the id index
+    public PantryItem getById(int id) { // Retrieve one pantry item by its identifier, or null when no such row exists
+        if (UnitOfWork.active()) return super.getById(id); // Inside a transaction the caller must see its own uncommitted writes
+        dropIfChangedElsewhere(); // Never answer from rows changed behind the cache's back
+        long gen; // Generation observed before querying SQLite
+        synchronized (this) { // Look the row up under the cache lock
+            PantryItem p = byId.get(id); // Check the id index
+            if (p != null) { hits.incrementAndGet(); return p.copy(); } // Answer from memory
+            if (byName != null) { hits.incrementAndGet(); return null; } // A complete snapshot proves the row does not exist
+            gen = generation; // Remember the generation so a racing write is not overwritten
+        } // End synchronized block
+        misses.incrementAndGet(); // Count the database round trip
+        PantryItem p = super.getById(id); // Query SQLite by primary key
+        synchronized (this) { // Install the row under the cache lock
+            if (p != null && gen == generation && byName == null) byId.put(p.id, p.copy()); // Keep it unless a write happened meanwhile
+        } // End synchronized block
+        return p; // Return the freshly loaded row
+    } // End getById method
+
+    @Override // Insert, then patch the cache once the row is committed
+    public PantryItem add(PantryItem p) { // Insert a new pantry item record
+        PantryItem saved = super.add(p); // Write the row to SQLite
+        PantryItem c = saved.copy(); // Snapshot the stored values before the caller can change them
+        UnitOfWork.afterCommit(() -> applyWritten(List.of(c))); // Patch the cache once the row is visible to other connections
+        return saved; // Return the inserted item
+    } // End add method
+
+    @Override // Update, then patch the cache once the row is committed
+    public PantryItem update(PantryItem p) { // Update an existing pantry item
+        PantryItem saved; // The stored row
+        try { // Compare and set against SQLite, not against the cache
+            saved = super.update(p); // Write the row to SQLite
+        } catch (ConflictException e) { // Another process changed the row, so the cached copy is stale too
+            if (!UnitOfWork.active()) applySaved(List.of(((PantryItem) e.current).copy())); // Install the stored row, so modify()'s retry and later reads see it
+            throw e; // Report the conflict
+        } // End compare and set
+        PantryItem c = saved.copy(); // Snapshot the stored values before the caller can change them
+        UnitOfWork.afterCommit(() -> applyWritten(List.of(c))); // Patch the cache once the row is visible to other connections
+        return saved; // Return the updated item
+    } // End update method
+
+    @Override // Adjust, then patch the cache once the change is committed
+    public PantryItem adjustQty(int id, int delta) { // Add to an item's quantity in one statement
+        PantryItem saved = super.adjustQty(id, delta); // Write the change to SQLite
+        if (saved == null) return null; // No such item
+        PantryItem c = saved.copy(); // Snapshot the stored values before the caller can change them
+        UnitOfWork.afterCommit(() -> applyWritten(List.of(c))); // Patch the cache once the row is visible to other connections
+        return saved; // Return the stored row
+    } // End adjustQty method
+
+    @Override // Insert the batch, then patch the cache once it is committed
+    public List<PantryItem> addAll(List<PantryItem> items) { // Insert many items in one transaction
+        List<PantryItem> saved = super.addAll(items); // Write the rows to SQLite
+        List<PantryItem> c = copies(saved); // Snapshot the stored values before the caller can change them
+        UnitOfWork.afterCommit(() -> applyWritten(c)); // Patch the cache once the rows are visible to other connections
+        return saved; // Return the inserted items
+    } // End addAll method
+
+    @Override // Update the batch, then patch the cache once it is committed
+    public List<PantryItem> updateAll(List<PantryItem> items) { // Update many items in one transaction
+        List<PantryItem> saved = super.updateAll(items); // Write the rows to SQLite
+        List<PantryItem> c = copies(saved); // Snapshot the stored values before the caller can change them
+        UnitOfWork.afterCommit(() -> applyWritten(c)); // Patch the cache once the rows are visible to other connections
+        return saved; // Return the updated items
+    } // End updateAll method
+
+    @Override // Delete, then patch the cache once the delete is committed
+    public boolean delete(int id) { // Delete a pantry item row by its identifier
+        boolean deleted = super.delete(id); // Remove the row from SQLite
+        if (deleted) UnitOfWork.afterCommit(() -> { applied.incrementAndGet(); applyDeleted(id); }); // Drop the cached row once the delete is visible to other connections
+        return deleted; // Report whether a row was removed
+    } // End delete method
+
+    private void dropIfChangedElsewhere() { // Forget every cached row when the pantry counter shows a write the cache did not make
+        if (watch.changedElsewhere()) invalidate(); // The next read loads the table again
+    } // End dropIfChangedElsewhere method
+
+    public synchronized void invalidate() { // Forget every cached row, for example after another process changed the database
+        generation++; // Stop any load in flight from installing stale rows
+        byName = null; // Drop the snapshot
+        byId.clear(); // Drop the id index
+        lowView = null; // Drop the derived low-stock view
+        expiryView = null; // Drop the derived expiry view
+        oversized = false; // Let the next read measure the table again
+    } // End invalidate method
+
+    public long hitCount() { return hits.get(); } // Number of reads answered from memory
+    public long missCount() { return misses.get(); } // Number of reads that queried SQLite
+    public long loadCount() { return loads.get(); } // Number of full-table loads
+    public long evictionCount() { return evictions.get(); } // Number of rows evicted to stay within the bound
+    public synchronized int size() { return byId.size(); } // Number of rows currently cached
+
+    public double hitRate() { // Fraction of reads answered from memory
+        long h = hits.get(), m = misses.get(); // Read both counters
+        return h + m == 0 ? 0 : (double) h / (h + m); // Avoid dividing by zero before the first read
+    } // End hitRate method
+
+    @Override // Indicate that we are overriding Object.toString
+    public synchronized String toString() { // Summarize cache state for logs
+        return "PantryCache{rows=" + byId.size() + ", max=" + maxEntries + ", snapshot=" + (byName != null) + ", hits=" + hits.get() + ", misses=" + misses.get() + // Report contents and counters
+                ", loads=" + loads.get() + ", evictions=" + evictions.get() + "}"; // Report load and eviction counters
+    } // End toString method
+
+    private List<PantryItem> load() { // Query every row and keep them as the snapshot when they fit; returns rows the caller owns
+        long gen; // Generation observed before querying SQLite
+        synchronized (this) { gen = generation; } // Remember it so a racing write is not overwritten
+        List<PantryItem> rows = super.listAll(); // Query SQLite in name order
+        loads.incrementAndGet(); // Count the full load
+        synchronized (this) { // Install the snapshot under the cache lock
+            if (rows.size() > maxEntries) { oversized = true; return rows; } // Too many rows to cache; serve reads from SQLite instead
+            if (gen != generation) return rows; // A write committed meanwhile; the next read loads again
+            byName = copies(rows); // Keep private copies of every row
+            byName.sort(BY_NAME); // Guarantee the comparator order that binary searches rely on
+            byId.clear(); // Rebuild the id index from the snapshot
+            for (PantryItem p : byName) byId.put(p.id, p); // Index every row by id
+            lowView = null; // Derived views are rebuilt on demand
+            expiryView = null; // Derived views are rebuilt on demand
+        } // End synchronized block
+        return rows; // Hand the freshly loaded rows to the caller
+    } // End load method
+
+    private synchronized boolean isOversized() { return oversized; } // Report whether the last load found too many rows to cache
+
+    private boolean warm() { // Load the snapshot if the table fits, checking its size first so a huge table is never read whole
+        if (isOversized()) return false; // Already known to be too large
+        if (super.count(PantryView.all()) > maxEntries) { synchronized (this) { oversized = true; } return false; } // Count from the name index before loading anything
+        load(); // Read every row into the snapshot
+        return true; // The snapshot is installed unless a write raced with the load
+    } // End warm method
+
+    private List<PantryItem> viewRows(PantryView v) { // Return the snapshot rows of a view in its order; call with the lock held
+        switch (v.kind) { // Pick the matching cached view
+            case LOW_STOCK: return lowView(); // Derived low-stock rows
+            case EXPIRING: return expiryView().subList(0, expiryEnd(v.cutoff)); // Rows up to the view's cutoff
+            default: return byName; // Every row by name
+        } // End view switch
+    } // End viewRows method
+
+    private static int after(List<PantryItem> rows, PantryView v, Object afterKey, int afterId) { // Find the first row that sorts after (afterKey, afterId)
+        PantryItem probe = new PantryItem(); // Build a row carrying only the key
+        if (v.kind == PantryView.Kind.EXPIRING) probe.expiryDay = (Integer) afterKey; else probe.name = (String) afterKey; // Set the view's sort column
+        probe.id = afterId; // Set the tie-breaking id
+        int i = Collections.binarySearch(rows, probe, v.order); // Locate the key
+        return i >= 0 ? i + 1 : -i - 1; // Start after an exact match, or at the insertion point
+    } // End after method
+
+    private void applyWritten(List<PantryItem> items) { // Patch in rows this cache wrote, counting them so the watch does not mistake them for outside writes
+        applied.addAndGet(items.size()); // One counter step per row, like the triggers
+        applySaved(items); // Patch the cache
+    } // End applyWritten method
+
+    private synchronized void applySaved(List<PantryItem> items) { // Bring the cache in line with committed inserts or updates
+        generation++; // Stop any load in flight from installing rows read before this write
+        if (items.size() > BULK_INVALIDATE && byName != null) { invalidate(); return; } // Reloading once is cheaper than many sorted inserts
+        for (PantryItem p : items) { // Apply each saved row
+            PantryItem old = byId.get(p.id); // Find the cached version, if any
+            if (byName != null) { // Keep the complete snapshot sorted
+                if (old == null && byId.size() >= maxEntries) { dropSnapshot(); } // The new row would exceed the bound; fall back to the id index only
+                else { // Move the row to its new sorted position
+                    if (old != null) byName.remove(Collections.binarySearch(byName, old, BY_NAME)); // Remove the old version
+                    byName.add(-Collections.binarySearch(byName, p, BY_NAME) - 1, p); // Insert the new version in name order
+                } // End sorted update
+            } // End snapshot update
+            byId.put(p.id, p); // Refresh the id index
+        } // End loop over saved rows
+        lowView = null; // Low-stock membership may have changed
+        expiryView = null; // Expiry order may have changed
+    } // End applySaved method
+
+    private synchronized void applyDeleted(int id) { // Bring the cache in line with a committed delete
+        generation++; // Stop any load in flight from installing rows read before this write
+        PantryItem old = byId.remove(id); // Drop the row from the id index
+        if (old != null && byName != null) byName.remove(Collections.binarySearch(byName, old, BY_NAME)); // Drop it from the snapshot too
+        lowView = null; // Low-stock membership may have changed
+        expiryView = null; // Expiry membership may have changed
+        oversized = false; // The table shrank, so it may fit again
+    } // End applyDeleted method
+
+    private void dropSnapshot() { // Stop treating the cache as a complete copy of the table
+        byName = null; // Drop the snapshot
+        lowView = null; // Drop the derived low-stock view
+        expiryView = null; // Drop the derived expiry view
+    } // End dropSnapshot method
+
+    private List<PantryItem> lowView() { // Return the low-stock rows of the snapshot, deriving them on first use
+        if (lowView == null) { // Build the view lazily after a change
+            lowView = new ArrayList<>(); // Collect the matching rows
+            for (PantryItem p : byName) if (p.onHandQty <= p.minQty) lowView.add(p); // Apply the same rule as SQL_LOW_STOCK, keeping name order
+        } // End lazy build
+        return lowView; // Return the derived view
+    } // End lowView method
+
+    private List<PantryItem> expiryView() { // Return the snapshot rows that have an expiry, sorted soonest first
+        if (expiryView == null) { // Build the view lazily after a change
+            expiryView = new ArrayList<>(); // Collect the rows with an expiry date
+            for (PantryItem p : byName) if (p.expiryDay != null) expiryView.add(p); // Skip rows without an expiry like the SQL query
+            expiryView.sort(BY_EXPIRY); // Order soonest first
+        } // End lazy build
+        return expiryView; // Return the derived view
+    } // End expiryView method
+
+    private int expiryEnd(int cutoff) { // Find the number of rows in the expiry view whose expiry is on or before the cutoff
+        List<PantryItem> view = expiryView(); // The rows sorted by expiry
+        int lo = 0, hi = view.size(); // Search the whole view
+        while (lo < hi) { // Binary search for the first row after the cutoff
+            int mid = (lo + hi) >>> 1; // Midpoint without overflow
+            if (view.get(mid).expiryDay <= cutoff) lo = mid + 1; else hi = mid; // Narrow to the half containing the boundary
+        } // End binary search
+        return lo; // Rows before this index expire on or before the cutoff
+    } // End expiryEnd method
+
+    private static List<PantryItem> copies(List<PantryItem> rows) { // Copy rows so callers can never change cached objects
+        List<PantryItem> out = new ArrayList<>(rows.size()); // Size the result up front
+        for (PantryItem p : rows) out.add(p.copy()); // Copy each row
+        return out; // Return the independent copies
+    } // End copies method
+} // End CachedPantryService class
@@ -0,0 +1,16 @@
+package service; // Define the package for data access services
+
+public class ConflictException extends RuntimeException { // Thrown when a compare-and-set update finds the row changed since the caller read it
+
+    public final Object current; // The row as it is stored now, a PantryItem or a TripItem, or null when it was deleted; lets the caller merge and retry or show it
+    public final long expectedVersion; // Version the caller's copy was read at
+    public final long actualVersion; // Version stored now
+
+    public ConflictException(String what, int id, long expectedVersion, Object current, long actualVersion) { // Describe a refused update
+        super(what + " " + id + (current == null ? " was deleted elsewhere (edited from version " + expectedVersion + ")" // Nothing left to merge with
+                : " was changed elsewhere (version " + actualVersion + ", edited from version " + expectedVersion + ")")); // Message shown to users and API clients
+        this.current = current; // Keep the stored row
+        this.expectedVersion = expectedVersion; // Keep the stale version
+        this.actualVersion = actualVersion; // Keep the stored version
+    } // End constructor
+} // End ConflictException class
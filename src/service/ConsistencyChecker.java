@@ -0,0 +1,97 @@
+package service; // Define the package for data access services
+
+import app.DBMigrator; // Import the migrator for the schema and the rebuild statements
+import app.Db; // Import the database helper used to borrow connections
+import app.UnitOfWork; // Import UnitOfWork so a repair commits as a whole
+import util.Log; // Import the asynchronous logger for repair and verification results
+
+import java.sql.Connection; // Import Connection for running the checks
+import java.sql.ResultSet; // Import ResultSet to read the mismatches
+import java.sql.Statement; // Import Statement for the fixed check queries
+import java.util.ArrayList; // Import ArrayList to collect problems
+import java.util.List; // Import List as the problem collection type
+
+public final class ConsistencyChecker { // Recompute the values the triggers maintain and compare them with what is stored
+
+    private static final int SHOWN = 20; // Mismatching rows described per check; the rest are only counted
+
+    static final String SQL_LINE_TOTALS = "SELECT id, line_total_cents, COALESCE(expected_price_cents, 0) * planned_qty FROM trip_items " + // Lines whose total disagrees with price × quantity
+            "WHERE line_total_cents <> COALESCE(expected_price_cents, 0) * planned_qty"; // One pass over trip_items
+    static final String SQL_TRIP_TOTALS = "SELECT t.id, t.subtotal_cents, t.item_count, COALESCE(s.cents, 0), COALESCE(s.n, 0) FROM trips t " + // Trips whose stored totals disagree with their lines
+            "LEFT JOIN (SELECT trip_id, SUM(line_total_cents) AS cents, COUNT(*) AS n FROM trip_items GROUP BY trip_id) s ON s.trip_id = t.id " + // Sum every trip in one pass along idx_trip_items_trip
+            "WHERE t.subtotal_cents <> COALESCE(s.cents, 0) OR t.item_count <> COALESCE(s.n, 0)"; // Keep only the mismatches
+    static final String SQL_ORPHANS = "SELECT COUNT(*) FROM trip_items i WHERE NOT EXISTS (SELECT 1 FROM trips t WHERE t.id = i.trip_id)"; // Lines whose trip is gone; no total or rollup counts them
+    static final String SQL_ROLLUP = "SELECT 'expected', * FROM (" + rollupExpected() + " EXCEPT " + rollupStored() + ") " + // Rollup rows missing or wrong
+            "UNION ALL SELECT 'stored', * FROM (" + rollupStored() + " EXCEPT " + rollupExpected() + ")"; // ...and rows that should not be there
+
+    private ConsistencyChecker() {} // Private constructor prevents instantiation because all members are static
+
+    private static String rollupStored() { return "SELECT grain, bucket, store_key, category, cents, lines FROM spend_rollup WHERE lines <> 0"; } // Stored rows, ignoring those emptied by deletes
+
+    private static String rollupExpected() { // Rollup rows as DBMigrator.SEED_ROLLUP would build them now
+        return DBMigrator.SEED_ROLLUP.substring("INSERT INTO spend_rollup ".length()); // Same SELECT, so the checker and the seed cannot drift apart
+    } // End rollupExpected method
+
+    public static List<String> check() { // Run every check and return a description of each problem; empty when everything agrees
+        DBMigrator.migrate(); // Make sure the checked columns exist
+        List<String> problems = new ArrayList<>(); // Collect the problems
+        try (Connection c = Db.open(); Statement st = c.createStatement()) { // Borrow a pooled connection for the checks
+            collect(st, SQL_LINE_TOTALS, "line total", problems, rs -> "trip item " + rs.getInt(1) + ": line total " + rs.getLong(2) + ", price × qty " + rs.getLong(3)); // Lines first, since trip totals and rollups add them up
+            collect(st, SQL_TRIP_TOTALS, "trip totals", problems, rs -> "trip " + rs.getInt(1) + ": stored " + rs.getLong(2) + " cents / " + rs.getInt(3) + " items, lines add up to " + rs.getLong(4) + " / " + rs.getInt(5)); // Stored trip totals
+            collect(st, SQL_ROLLUP, "spend rollup", problems, rs -> rs.getString(1) + " " + rs.getString(2) + " bucket " + rs.getLong(3) + " store " + rs.getInt(4) + " '" + rs.getString(5) + "': " + rs.getLong(6) + " cents / " + rs.getInt(7) + " items"); // Period rollups
+            try (ResultSet rs = st.executeQuery(SQL_ORPHANS)) { // Count lines without a trip
+                rs.next(); // Move to the single row
+                if (rs.getInt(1) > 0) problems.add("orphans: " + rs.getInt(1) + " trip items belong to no trip"); // Report them
+            } // End try-with-resources for the orphan count
+        } catch (Exception e) { // Handle SQL errors while checking
+            e.printStackTrace(); // Print the stack trace for debugging
+            throw new RuntimeException("consistency check failed: " + e.getMessage()); // Signal the failure to the caller
+        } // End catch block for check errors
+        return problems; // Return the problems
+    } // End check method
+
+    public static void repair() { // Recompute line totals, trip totals and rollups from the lines in one transaction
+        UnitOfWork.run(() -> { // Commit every fix together
+            try (Connection c = Db.open(); Statement st = c.createStatement()) { // Borrow the transaction connection
+                st.executeUpdate("UPDATE trip_items SET line_total_cents = COALESCE(expected_price_cents, 0) * planned_qty, row_version = row_version + 1 " + // Fix line totals first; the version bump makes open edits of these lines re-read them
+                        "WHERE line_total_cents <> COALESCE(expected_price_cents, 0) * planned_qty"); // Only the wrong ones
+                int lines; // Lines fixed; the driver's update count would include the rows the triggers touched
+                try (ResultSet rs = st.executeQuery("SELECT changes()")) { rs.next(); lines = rs.getInt(1); } // Direct changes of the last statement only
+                int trips = st.executeUpdate(DBMigrator.SEED_TOTALS); // Recompute every trip's totals
+                st.executeUpdate("DELETE FROM spend_rollup"); // Drop the rollups
+                int rollup = st.executeUpdate(DBMigrator.SEED_ROLLUP); // Rebuild them
+                Log.info("Check", "repaired " + lines + " line totals, recomputed " + trips + " trips and " + rollup + " rollup rows"); // Log the repair
+            } catch (Exception e) { // Handle SQL errors while repairing
+                e.printStackTrace(); // Print the stack trace for debugging
+                throw new RuntimeException("repair failed"); // Signal failure; the unit of work rolls everything back
+            } // End catch block for repair errors
+        }); // End unit of work
+    } // End repair method
+
+    public static void verifyOrThrow() { // Fail fast when any stored total disagrees with the lines
+        List<String> problems = check(); // Collect the problems
+        if (!problems.isEmpty()) throw new IllegalStateException("stored totals disagree with trip items:\n  " + String.join("\n  ", problems)); // Report every problem at once
+        Log.info("Check", "stored totals consistent"); // Log a successful verification
+    } // End verifyOrThrow method
+
+    private interface Row { String describe(ResultSet rs) throws Exception; } // Turns one mismatching row into text
+
+    private static void collect(Statement st, String sql, String label, List<String> problems, Row row) throws Exception { // Run one check and describe its first few mismatches
+        int n = 0; // Mismatches found
+        try (ResultSet rs = st.executeQuery(sql)) { // Run the check
+            while (rs.next()) { // Walk the mismatches
+                if (n++ < SHOWN) problems.add(label + ": " + row.describe(rs)); // Describe the first few
+            } // End loop over mismatches
+        } // End try-with-resources for the check
+        if (n > SHOWN) problems.add(label + ": … " + (n - SHOWN) + " more"); // Count the rest
+    } // End collect method
+
+    public static void main(String[] args) { // Command-line mode: print problems, repair with --repair, exit non-zero when problems remain
+        List<String> problems = check(); // Inspect the stored values
+        for (String p : problems) System.out.println("[Check] " + p); // Print each problem
+        if (!problems.isEmpty() && args.length > 0 && args[0].equals("--repair")) { repair(); problems = check(); } // Repair and check again when asked
+        Db.shutdown(); // Checkpoint the WAL and close pooled connections before exiting
+        if (!problems.isEmpty()) System.exit(1); // Fail the script when anything disagrees
+        System.out.println("[Check] line totals, trip totals and rollups are consistent"); // Confirm that every check passed
+    } // End main method
+} // End ConsistencyChecker class
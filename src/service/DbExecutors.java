@@ -0,0 +1,43 @@
+package service; // Define the package for data access services
+
+import java.util.concurrent.CompletableFuture; // Import CompletableFuture as the async result type
+import java.util.concurrent.ExecutorService; // Import ExecutorService for the read and write executors
+import java.util.concurrent.Executors; // Import Executors to build the executors
+import java.util.concurrent.Future; // Import Future to cancel the underlying task when a read is abandoned
+import java.util.function.Supplier; // Import Supplier to describe a unit of blocking database work
+
+public final class DbExecutors { // Own the threads that run blocking JDBC work away from the Swing EDT
+
+    private static final ExecutorService READS = Executors.newThreadPerTaskExecutor( // Run each read on its own cheap virtual thread
+            Thread.ofVirtual().name("grocerease-db-read-", 0).factory()); // Name the threads so they are easy to spot in thread dumps
+
+    private static final ExecutorService WRITES = Executors.newSingleThreadExecutor(r -> { // Run writes one at a time, in submission order, like SQLite itself
+        Thread t = new Thread(r, "grocerease-db-writer"); // Give the writer thread a recognizable name
+        t.setDaemon(true); // Never keep the JVM alive just for the writer
+        return t; // Hand the configured thread back to the executor
+    }); // End writer thread factory
+
+    private DbExecutors() {} // Private constructor prevents instantiation because all members are static
+
+    public static <T> CompletableFuture<T> read(Supplier<T> work) { // Run a query on a virtual thread; cancelling the future interrupts it
+        CompletableFuture<T> cf = new CompletableFuture<>(); // Create the future handed back to the caller
+        Future<?> task = READS.submit(() -> run(cf, work)); // Start the query on a virtual thread
+        cf.whenComplete((v, t) -> { if (cf.isCancelled()) task.cancel(true); }); // Interrupt the query thread when the caller cancels
+        return cf; // Return the pending result
+    } // End read method
+
+    public static <T> CompletableFuture<T> write(Supplier<T> work) { // Queue a write on the single writer thread; writes are never interrupted
+        CompletableFuture<T> cf = new CompletableFuture<>(); // Create the future handed back to the caller
+        WRITES.execute(() -> run(cf, work)); // Queue the write behind any earlier writes
+        return cf; // Return the pending result
+    } // End write method
+
+    private static <T> void run(CompletableFuture<T> cf, Supplier<T> work) { // Execute work and complete the future with its outcome
+        if (cf.isDone()) return; // Skip work the caller already cancelled while it was queued
+        try { // Capture any failure from the service
+            cf.complete(work.get()); // Publish the result
+        } catch (Throwable t) { // Handle validation and SQL failures alike
+            cf.completeExceptionally(t); // Publish the failure to the caller
+        } // End work error handling
+    } // End run method
+} // End DbExecutors class
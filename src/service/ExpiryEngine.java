@@ -0,0 +1,292 @@
+package service; // Define the package for pantry-related data access services
+
+import model.PantryItem; // Import the data model representing pantry items
+import util.Log; // Import the asynchronous logger for the load report
+
+import java.time.Clock; // Import Clock so the current day can be controlled
+import java.time.LocalDate; // Import LocalDate to turn the clock into a day number
+import java.util.ArrayList; // Import ArrayList to collect results and events
+import java.util.Arrays; // Import Arrays to sort and print the thresholds
+import java.util.HashMap; // Import HashMap for the id index and the writes seen while loading
+import java.util.List; // Import List as the result and event batch type
+import java.util.Map; // Import Map as the index types
+import java.util.TreeMap; // Import TreeMap as the time index ordered by expiry day
+import java.util.concurrent.CopyOnWriteArrayList; // Import CopyOnWriteArrayList so listeners can register while events are delivered
+import java.util.concurrent.Executors; // Import Executors to build the tick thread
+import java.util.concurrent.ScheduledExecutorService; // Import ScheduledExecutorService to check for a new day periodically
+import java.util.concurrent.TimeUnit; // Import TimeUnit for the tick period
+import java.util.stream.Stream; // Import Stream to read the dated rows from an open cursor
+
+public class ExpiryEngine implements SqlitePantryService.ChangeListener { // Keep every dated pantry item in a time index, answer expiringSoon() from memory and raise events as items cross warning thresholds
+
+    public static final class Event { // One item crossing one warning threshold
+        public final PantryItem item; // The item, as stored when the event fired
+        public final int daysLeft; // Days until it expires; negative once it has expired
+        public final int threshold; // The most urgent threshold it has now crossed
+
+        Event(PantryItem item, int daysLeft, int threshold) { // Build an immutable event
+            this.item = item; // Remember the item
+            this.daysLeft = daysLeft; // Remember the days left
+            this.threshold = threshold; // Remember the threshold
+        } // End constructor
+
+        @Override // Indicate that we are overriding Object.toString
+        public String toString() { return item.name + " " + describe(daysLeft); } // Describe the event for logs and the status line
+    } // End Event class
+
+    public interface Listener { // Receives threshold crossings
+        void crossed(List<Event> events); // One batch per write, tick or load, soonest first; called off the EDT
+    } // End Listener interface
+
+    private static final class Tracked { // An indexed item and how far its warnings have gone
+        final PantryItem item; // Private copy of the stored row
+        int level; // Number of thresholds already reported for this item
+
+        Tracked(PantryItem item) { this.item = item; } // Wrap a row that has not been reported yet
+    } // End Tracked class
+
+    private static volatile ExpiryEngine shared; // Process-wide instance started by the app
+
+    private final SqlitePantryService source; // Where the initial rows are read from
+    private final int[] thresholds; // Warning thresholds in days left, most distant first
+    private final Clock clock; // Source of the current day
+    private final long tickSeconds; // How often to check whether the day has changed
+    private final TreeMap<Long, Tracked> byDay = new TreeMap<>(); // Items ordered by (expiry day, id), the same order as idx_pantry_expiry
+    private final Map<Integer, Tracked> byId = new HashMap<>(); // The same items by id, to find their index entry on update and delete
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>(); // Who to tell about crossings
+    private Map<Integer, PantryItem> pending; // Writes committed while a load is reading; a null value marks a delete
+    private boolean loaded; // Set once the index holds every dated row
+    private long today; // Day number the levels were last computed for
+    private ScheduledExecutorService ticker; // Thread that loads the index and advances the day, or null when stopped
+    private final PantryWatch watch; // Spots pantry writes made by other processes, which no change listener reports
+
+    public ExpiryEngine() { // Build an engine over the shared cache, configured by system properties
+        this(CachedPantryService.shared(), parseThresholds(System.getProperty("expiryThresholds", "3,1,0,-1")), Clock.systemDefaultZone(), // Warn at 3 days, 1 day, on the day and once expired
+                Long.getLong("expiryTickSeconds", 60)); // Check for a new day every minute
+    } // End default constructor
+
+    public ExpiryEngine(SqlitePantryService source, int[] thresholds, Clock clock, long tickSeconds) { // Build an engine with explicit settings
+        if (thresholds.length == 0) throw new IllegalArgumentException("at least one threshold required"); // An engine without thresholds would never warn
+        if (tickSeconds <= 0) throw new IllegalArgumentException("tick must be > 0 seconds"); // The day must be checked periodically
+        this.source = source; // Remember the row source
+        this.thresholds = sortDescending(thresholds); // Most distant threshold first, so levels only grow as days pass
+        this.clock = clock; // Remember the clock
+        this.tickSeconds = tickSeconds; // Remember the tick period
+        this.watch = new PantryWatch(source, SqlitePantryService::committedRows); // Every write in this process reaches saved() or deleted()
+    } // End constructor
+
+    public static ExpiryEngine shared() { // Return the process-wide engine, creating it on first use
+        ExpiryEngine e = shared; // Read the volatile field once on the fast path
+        if (e != null) return e; // Return the existing engine without locking
+        synchronized (ExpiryEngine.class) { // Serialize creation so only one engine is ever built
+            if (shared == null) shared = new ExpiryEngine(); // Build the engine if no other thread did it first
+            return shared; // Return the shared engine
+        } // End synchronized block
+    } // End shared method
+
+    static ExpiryEngine running() { // Return the shared engine when its index is complete, or null
+        ExpiryEngine e = shared; // Never create the engine just to ask
+        return e != null && e.isLoaded() ? e : null; // Only a loaded index can answer queries
+    } // End running method
+
+    public void addListener(Listener l) { listeners.add(l); } // Start receiving threshold crossings
+
+    public void removeListener(Listener l) { listeners.remove(l); } // Stop receiving threshold crossings
+
+    public synchronized void start() { // Load the index in the background and keep it current; returns immediately
+        if (ticker != null) return; // Already running
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> { // One thread for loading and day changes
+            Thread t = new Thread(r, "grocerease-expiry"); // Give the thread a recognizable name
+            t.setDaemon(true); // Never keep the JVM alive just for the engine
+            return t; // Hand the configured thread back to the executor
+        }); // End thread factory
+        SqlitePantryService.addChangeListener(this); // Listen before loading so no committed write is missed
+        ticker.execute(this::reload); // Build the index off the caller's thread
+        ticker.scheduleAtFixedRate(this::tick, tickSeconds, tickSeconds, TimeUnit.SECONDS); // Check for a new day and for other processes' writes from then on
+    } // End start method
+
+    public synchronized void stop() { // Stop listening and drop the index
+        if (ticker == null) return; // Not running
+        SqlitePantryService.removeChangeListener(this); // Stop receiving writes
+        ticker.shutdownNow(); // Stop the tick thread
+        ticker = null; // Allow a later start()
+        byDay.clear(); // Drop the time index
+        byId.clear(); // Drop the id index
+        pending = null; // Forget a load in progress
+        loaded = false; // Queries fall back to SQLite
+    } // End stop method
+
+    public void reload() { // Rebuild the index from the database, for example after another process changed it
+        synchronized (this) { // Prepare to record writes that commit while the rows are read
+            if (ticker == null) return; // Without start() no writes are seen, so the index would go stale
+            pending = new HashMap<>(); // Collect them from now on
+        } // End synchronized block
+        watch.baseline(); // Rows written elsewhere after this point make the next check reload again
+        List<PantryItem> rows = new ArrayList<>(); // Dated rows read from the expiry index
+        try (Stream<PantryItem> s = source.stream(PantryView.withExpiry())) { // Walk the expiry index from an open cursor
+            s.forEach(rows::add); // Keep every row
+        } catch (RuntimeException e) { // Handle database failures
+            Log.error("Expiry", "load failed", e); // Log the stack trace to aid debugging
+            synchronized (this) { pending = null; } // Give up this load; the next tick tries again
+            return; // Leave the engine unloaded
+        } // End load error handling
+        List<Event> events = new ArrayList<>(); // Crossings found by the first scan
+        synchronized (this) { // Install the index under the engine lock
+            if (pending == null) return; // stop() ran while the rows were read
+            Map<Integer, Tracked> before = new HashMap<>(byId); // Items as indexed before, so a reload does not repeat warnings already given
+            byDay.clear(); // Start from an empty time index
+            byId.clear(); // Start from an empty id index
+            for (PantryItem p : rows) index(new Tracked(p)); // Index every row
+            for (Map.Entry<Integer, PantryItem> w : pending.entrySet()) { // Apply writes that raced with the read on top
+                unindex(w.getKey()); // Drop the row as read
+                if (w.getValue() != null && w.getValue().expiryDay != null) index(new Tracked(w.getValue())); // Index the row as written
+            } // End loop over pending writes
+            for (Tracked t : byId.values()) { // Carry reported levels over
+                Tracked old = before.get(t.item.id); // The item as indexed before
+                if (old != null && old.item.expiryDay.equals(t.item.expiryDay)) t.level = old.level; // Same date: its warnings were already given
+            } // End loop over indexed items
+            pending = null; // Later writes go straight to the index
+            today = today(); // Compute levels for the current day
+            loaded = true; // Queries may use the index now
+            scan(events); // Report every item already past a threshold
+        } // End synchronized block
+        Log.info("Expiry", "indexed " + rows.size() + " dated items, " + events.size() + " need attention"); // Log the load
+        deliver(events); // Tell listeners outside the lock
+    } // End reload method
+
+    public List<PantryItem> expiringSoon(int days) { // Items expiring within the given number of days, soonest first, like the SQL query; O(log n + k)
+        if (!isLoaded() || reloadIfChangedElsewhere()) return source.expiringSoon(days); // Fall back to the service until the index is built, or while it is rebuilt
+        long cutoff = today() + days; // Last day that belongs to the result
+        synchronized (this) { // Read the index under the engine lock
+            List<PantryItem> out = new ArrayList<>(); // Collect copies of the matching rows
+            for (Tracked t : byDay.headMap(key(cutoff + 1, 0), false).values()) out.add(t.item.copy()); // Walk only the rows up to the cutoff
+            return out; // Return the rows in (expiry, id) order
+        } // End synchronized block
+    } // End expiringSoon method
+
+    public synchronized int size() { return byId.size(); } // Number of dated items indexed
+
+    public synchronized boolean isLoaded() { return loaded; } // Report whether the index holds every dated row
+
+    @Override // Implement ChangeListener.saved
+    public void saved(List<PantryItem> items) { // Move saved rows to their new place in the index
+        List<Event> events = new ArrayList<>(); // Crossings caused by the write
+        synchronized (this) { // Update the index under the engine lock
+            if (pending != null) { for (PantryItem p : items) pending.put(p.id, p); return; } // A load is reading; apply the rows once it finishes
+            if (!loaded) return; // Nothing to keep current yet
+            for (PantryItem p : items) { // Apply each saved row
+                Tracked old = unindex(p.id); // Drop the previous version
+                if (p.expiryDay == null) continue; // Items without an expiry are not tracked
+                Tracked t = new Tracked(p); // Index the new version
+                int level = level(p.expiryDay - today); // Thresholds the new date has crossed
+                t.level = old == null ? 0 : Math.min(old.level, level); // Keep reported warnings, unless the date moved later and they should fire again
+                if (level > t.level) { t.level = level; events.add(event(t)); } // A new or earlier date crossed a threshold right away
+                index(t); // Place the row by its expiry
+            } // End loop over saved rows
+        } // End synchronized block
+        deliver(events); // Tell listeners outside the lock
+    } // End saved method
+
+    @Override // Implement ChangeListener.deleted
+    public synchronized void deleted(int id) { // Drop a deleted row from the index
+        if (pending != null) { pending.put(id, null); return; } // A load is reading; drop the row once it finishes
+        unindex(id); // Remove the row if it was tracked
+    } // End deleted method
+
+    @Override // Indicate that we are overriding Object.toString
+    public synchronized String toString() { // Summarize engine state for logs
+        return "ExpiryEngine{items=" + byId.size() + ", loaded=" + loaded + ", day=" + LocalDate.ofEpochDay(today) + ", thresholds=" + Arrays.toString(thresholds) + "}"; // Report size, day and settings
+    } // End toString method
+
+    static String describe(int daysLeft) { // Phrase days left the way the status line shows it
+        if (daysLeft < -1) return "expired " + -daysLeft + " days ago"; // Long expired
+        if (daysLeft == -1) return "expired yesterday"; // Just expired
+        if (daysLeft == 0) return "expires today"; // Last day
+        if (daysLeft == 1) return "expires tomorrow"; // One day left
+        return "expires in " + daysLeft + " days"; // Further out
+    } // End describe method
+
+    private void tick() { // Advance the day and report the items it pushed past a threshold
+        if (!isLoaded()) { reload(); return; } // A failed load is retried on every tick
+        if (watch.changedElsewhere()) { reload(); return; } // Another process wrote the pantry; the reload also scans the current day
+        List<Event> events = new ArrayList<>(); // Crossings caused by the new day
+        synchronized (this) { // Scan under the engine lock
+            long d = today(); // Current day
+            if (d == today) return; // Nothing changes within a day
+            today = d; // Move to the new day
+            scan(events); // Raise levels of the items within reach of a threshold
+        } // End synchronized block
+        deliver(events); // Tell listeners outside the lock
+    } // End tick method
+
+    private boolean reloadIfChangedElsewhere() { // Stop answering from the index and rebuild it when another process wrote the pantry
+        if (!watch.changedElsewhere()) return false; // Still current
+        synchronized (this) { // Hand the rebuild to the tick thread
+            if (ticker == null || !loaded) return true; // Stopped, or a rebuild is already due
+            loaded = false; // Queries fall back to SQLite until the rebuild installs
+            ticker.execute(this::reload); // Rebuild off the caller's thread
+        } // End synchronized block
+        return true; // The caller asks SQLite this time
+    } // End reloadIfChangedElsewhere method
+
+    private void scan(List<Event> events) { // Raise the level of every item that has crossed a new threshold; call with the lock held
+        long horizon = today + thresholds[0]; // Items further out than the most distant threshold cannot have crossed any
+        for (Tracked t : byDay.headMap(key(horizon + 1, 0), false).values()) { // Walk only the items within reach, soonest first
+            int level = level(t.item.expiryDay - today); // Thresholds crossed as of today
+            if (level > t.level) { t.level = level; events.add(event(t)); } // Report each item once per new threshold
+        } // End loop over items within reach
+    } // End scan method
+
+    private int level(long daysLeft) { // Count the thresholds crossed with the given days left
+        int n = 0; // Thresholds are most distant first, so the crossed ones form a prefix
+        while (n < thresholds.length && daysLeft <= thresholds[n]) n++; // Extend the prefix
+        return n; // Number crossed
+    } // End level method
+
+    private Event event(Tracked t) { // Describe the most urgent threshold an item has crossed
+        return new Event(t.item.copy(), (int) (t.item.expiryDay - today), thresholds[t.level - 1]); // Copy the row so listeners cannot change the index
+    } // End event method
+
+    private void index(Tracked t) { // Add an item to both indexes; call with the lock held
+        byDay.put(key(t.item.expiryDay, t.item.id), t); // Place it by expiry
+        byId.put(t.item.id, t); // Find it by id
+    } // End index method
+
+    private Tracked unindex(int id) { // Remove an item from both indexes, returning it or null; call with the lock held
+        Tracked t = byId.remove(id); // Find it by id
+        if (t != null) byDay.remove(key(t.item.expiryDay, t.item.id)); // Remove it from the time index
+        return t; // Hand back the removed entry
+    } // End unindex method
+
+    private void deliver(List<Event> events) { // Hand a batch of crossings to every listener
+        if (events.isEmpty()) return; // Nothing crossed
+        events.sort((a, b) -> Integer.compare(a.daysLeft, b.daysLeft)); // Most urgent first
+        for (Listener l : listeners) { // Notify every listener
+            try { l.crossed(events); } catch (RuntimeException e) { Log.error("Expiry", "listener failed", e); } // A failing listener must not stop the engine
+        } // End loop over listeners
+    } // End deliver method
+
+    private long today() { return LocalDate.now(clock).toEpochDay(); } // Current day number
+
+    private static long key(long day, int id) { return (day << 32) | (id & 0xFFFFFFFFL); } // Pack (expiry day, id) into one sortable key
+
+    private static int[] sortDescending(int[] values) { // Copy thresholds into most-distant-first order without duplicates
+        int[] s = values.clone(); // Leave the caller's array alone
+        Arrays.sort(s); // Ascending
+        int[] out = new int[s.length]; // Descending copy
+        int n = 0; // Distinct values written so far
+        for (int i = s.length - 1; i >= 0; i--) if (n == 0 || s[i] != out[n - 1]) out[n++] = s[i]; // Copy in descending order, skipping repeats
+        return Arrays.copyOf(out, n); // Trim the repeats
+    } // End sortDescending method
+
+    static int[] parseThresholds(String text) { // Parse a comma-separated threshold list such as "3,1,0,-1"
+        String[] parts = text.split(","); // Split on commas
+        int[] out = new int[parts.length]; // One threshold per part
+        try { // Convert each part
+            for (int i = 0; i < parts.length; i++) out[i] = Integer.parseInt(parts[i].trim()); // Parse the days
+        } catch (NumberFormatException e) { // Handle malformed lists
+            throw new IllegalArgumentException("bad expiry thresholds: " + text); // Report the bad setting
+        } // End parsing
+        return out; // Return the thresholds in the given order
+    } // End parseThresholds method
+} // End ExpiryEngine class
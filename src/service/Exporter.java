@@ -0,0 +1,354 @@
+package service; // Define the package for data access services
+
+import app.Db; // Import the database helper that lends pooled connections
+import app.UnitOfWork; // Import UnitOfWork to refuse exports inside a write transaction
+import util.Csv; // Import Csv to encode CSV fields
+import util.Json; // Import Json to encode JSON string literals
+
+import java.io.Closeable; // Import Closeable for the channel sink and binary reader
+import java.io.IOException; // Import IOException for channel failures
+import java.nio.ByteBuffer; // Import ByteBuffer as the staging buffer between rows and the channel
+import java.nio.CharBuffer; // Import CharBuffer to encode text rows without intermediate byte arrays
+import java.nio.channels.FileChannel; // Import FileChannel as the output and binary input channel
+import java.nio.charset.CharsetEncoder; // Import CharsetEncoder to encode text straight into the staging buffer
+import java.nio.charset.CoderResult; // Import CoderResult to detect a full staging buffer
+import java.nio.charset.CodingErrorAction; // Import CodingErrorAction to replace unpaired surrogates
+import java.nio.charset.StandardCharsets; // Import UTF-8 as the text encoding
+import java.nio.file.Files; // Import Files for temporary files, moves and sizes
+import java.nio.file.Path; // Import Path to name output files
+import java.nio.file.StandardCopyOption; // Import copy options for the final atomic rename
+import java.nio.file.StandardOpenOption; // Import open options for the output channel
+import java.sql.Connection; // Import Connection for the export read transaction
+import java.sql.PreparedStatement; // Import PreparedStatement for VACUUM INTO
+import java.sql.ResultSet; // Import ResultSet as the row source
+import java.sql.ResultSetMetaData; // Import ResultSetMetaData to read column names
+import java.sql.SQLException; // Import SQLException for JDBC failures
+import java.sql.Statement; // Import Statement to begin and end the read transaction
+import java.util.ArrayList; // Import ArrayList to collect per-table results
+import java.util.Arrays; // Import Arrays to compare the binary file signature
+import java.util.Base64; // Import Base64 to write BLOB values as JSON text
+import java.util.List; // Import List as the multi-table result type
+import java.util.Locale; // Import Locale for file extensions
+
+public class Exporter { // Stream tables from an open cursor to CSV, JSON Lines or a compact binary file, and take online snapshots
+
+    private static final String DAY = "date($ * 86400, 'unixepoch')"; // SQL turning a day-number column ($) into YYYY-MM-DD, NULL when the column is
+
+    public enum Table { // Tables that can be exported, in an order that restores cleanly
+        PANTRY_ITEMS("pantry_items", "id, name, category, on_hand_qty, unit, " + DAY.replace("$", "expiry_day") + " AS expiry, expiry_text, min_qty, " + // Pantry columns with the expiry as the ISO date BulkImporter reads
+                "strftime('%Y-%m-%dT%H:%M:%fZ', NULLIF(updated_at_ms, 0) / 1000.0, 'unixepoch') AS updated_at, row_version"), // and the last write as an ISO instant, blank when unknown
+        TRIPS("trips", "id, " + DAY.replace("$", "trip_day") + " AS trip_date, store_id, budget_cents, note, subtotal_cents, item_count"), // Trip columns with the day as an ISO date
+        TRIP_ITEMS("trip_items", "*"); // Trip items have no date columns; these three are every user table of the schema
+
+        public final String sql; // Table name in SQL
+        private final String textColumns; // Select list for CSV and JSON Lines, with day numbers and epoch millis written as dates people and importers can read
+
+        Table(String sql, String textColumns) { this.sql = sql; this.textColumns = textColumns; } // Bind the SQL name and the text select list
+
+        String selectSql(Format f) { // Walk the table in primary-key order, which reads the rowid B-tree directly
+            return "SELECT " + (f == Format.BINARY ? "*" : textColumns) + " FROM " + sql + " ORDER BY id"; // Binary keeps the stored values exactly; text formats get ISO dates
+        } // End selectSql method
+    } // End Table enum
+
+    public enum Format { // Output formats
+        CSV("csv"), JSONL("jsonl"), BINARY("bin"); // Spreadsheet text, one JSON object per line, or tagged binary values
+
+        public final String extension; // File extension written by exportAll
+
+        Format(String extension) { this.extension = extension; } // Bind the extension
+
+        public static Format of(String name) { // Look a format up by name or extension, such as "csv", "jsonl" or "bin"
+            for (Format f : values()) if (f.name().equalsIgnoreCase(name) || f.extension.equalsIgnoreCase(name)) return f; // Match either spelling
+            throw new IllegalArgumentException("unknown format: " + name); // Refuse anything else
+        } // End Format.of method
+    } // End Format enum
+
+    public static final class Result { // Throughput of one export or snapshot
+        public final String what; // Table name, or "snapshot"
+        public final Path file; // Where the data was written
+        public final long rows; // Rows written; zero for snapshots
+        public final long bytes; // Size of the output file
+        public final long nanos; // Time taken
+
+        Result(String what, Path file, long rows, long bytes, long nanos) { // Build a result
+            this.what = what; // Remember the subject
+            this.file = file; // Remember the output
+            this.rows = rows; // Remember the row count
+            this.bytes = bytes; // Remember the size
+            this.nanos = nanos; // Remember the time
+        } // End constructor
+
+        public double rowsPerSecond() { return nanos == 0 ? 0 : rows * 1e9 / nanos; } // Rows written per second
+        public double megabytesPerSecond() { return nanos == 0 ? 0 : bytes * 1e9 / nanos / (1 << 20); } // Output megabytes per second
+
+        @Override // Indicate that we are overriding Object.toString
+        public String toString() { // Summarize the result for logs
+            return String.format(Locale.ROOT, "%s -> %s: %d rows, %d bytes in %d ms (%.0f rows/s, %.1f MB/s)", what, file, rows, bytes, nanos / 1_000_000, rowsPerSecond(), megabytesPerSecond()); // One-line summary
+        } // End toString method
+    } // End Result class
+
+    static final byte[] MAGIC = {'G', 'R', 'C', 'X'}; // First bytes of a binary export
+    static final byte VERSION = 1; // Binary layout version
+    static final byte T_NULL = 0, T_INT = 1, T_REAL = 2, T_TEXT = 3, T_BLOB = 4; // Value tags, one per SQLite storage class
+    static final byte ROW = 1, END = 0; // Row marker and end-of-data marker
+
+    public Result export(Table t, Format f, Path out) { // Export one table
+        return exportAll(List.of(t), f, out.toAbsolutePath().getParent(), out).get(0); // Reuse the multi-table path with an explicit file name
+    } // End export method
+
+    public List<Result> exportAll(Format f, Path dir) { // Export every table into a directory, all from the same consistent read snapshot
+        return exportAll(List.of(Table.values()), f, dir, null); // Export each table to dir/<table>.<ext>
+    } // End exportAll method
+
+    private List<Result> exportAll(List<Table> tables, Format f, Path dir, Path single) { // Export tables inside one read transaction so they agree with each other
+        if (UnitOfWork.active()) throw new IllegalStateException("export cannot run inside a unit of work"); // It needs its own read transaction
+        List<Result> out = new ArrayList<>(); // Per-table results
+        try (Connection c = Db.open(); Statement st = c.createStatement()) { // Borrow a pooled connection for the whole export
+            Files.createDirectories(dir); // Make sure the destination exists
+            st.executeUpdate("BEGIN"); // Start a deferred read transaction; under WAL writers keep committing while we read
+            try { // Always end the transaction
+                for (Table t : tables) { // Export each table from the same snapshot
+                    Path file = single != null ? single : dir.resolve(t.sql + "." + f.extension); // Name the output
+                    out.add(exportTable(c, t, f, file)); // Stream the table
+                } // End loop over tables
+            } finally { // End the read transaction, releasing the WAL snapshot so checkpoints can proceed
+                st.executeUpdate("COMMIT"); // A read transaction commits trivially
+            } // End transaction
+        } catch (IOException | SQLException e) { // Handle read and write failures
+            e.printStackTrace(); // Print the stack trace to aid debugging
+            throw new RuntimeException("export failed: " + e.getMessage()); // Signal the failure with context
+        } // End catch block for export errors
+        return out; // Hand back the results
+    } // End exportAll method
+
+    private Result exportTable(Connection c, Table t, Format f, Path file) throws IOException, SQLException { // Stream one table to a temporary file, then move it into place
+        long start = System.nanoTime(); // Time the export
+        Path tmp = file.resolveSibling(file.getFileName() + ".part"); // Write beside the target so a crash never leaves a truncated file under the real name
+        long rows = 0; // Rows written
+        try { // Remove the partial file on every failure, so the next run starts clean
+            try (PreparedStatement ps = c.prepareStatement(t.selectSql(f)); // Prepare the ordered walk
+                 ResultSet rs = ps.executeQuery(); // Open the cursor; rows are produced as they are stepped
+                 ChannelSink sink = new ChannelSink(FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) { // Open the buffered output channel
+
+                ResultSetMetaData md = rs.getMetaData(); // Read the column layout
+                String[] cols = new String[md.getColumnCount()]; // Column names
+                for (int i = 0; i < cols.length; i++) cols[i] = md.getColumnName(i + 1); // Collect them
+                StringBuilder sb = new StringBuilder(256); // Reused text buffer for one row
+                Object[] row = new Object[cols.length]; // Reused value buffer for one row
+
+                writeHeader(sink, sb, f, t, cols); // Write the format's header
+                while (rs.next()) { // Step the cursor
+                    for (int i = 0; i < row.length; i++) row[i] = rs.getObject(i + 1); // Read the values with their storage classes
+                    writeRow(sink, sb, f, cols, row); // Encode and buffer the row
+                    rows++; // Count it
+                } // End cursor loop
+                if (f == Format.BINARY) { sink.ensure(9); sink.buf.put(END).putLong(rows); } // Close the binary stream with the row count, so truncation is detectable
+                sink.force(); // Put the contents on disk before the rename can be, so a power loss never publishes an empty or partial file
+            } // End try-with-resources; closing the sink closes the channel
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); // Publish the finished file in one step
+        } catch (IOException | SQLException | RuntimeException e) { // Handle a failed walk, write, sync or move
+            discard(tmp); // Delete what was written so far
+            throw e; // Report the original failure
+        } // End cleanup
+        return new Result(t.sql, file, rows, Files.size(file), System.nanoTime() - start); // Report throughput
+    } // End exportTable method
+
+    private static void writeHeader(ChannelSink sink, StringBuilder sb, Format f, Table t, String[] cols) throws IOException { // Write the column names in the format's header
+        if (f == Format.CSV) { sb.setLength(0); Csv.writeRow(sb, cols); sink.text(sb); } // CSV header row
+        if (f == Format.BINARY) { // Magic, version, table name and column names
+            sink.ensure(5); // Room for the fixed prefix
+            sink.buf.put(MAGIC).put(VERSION); // Identify the file
+            sink.string(t.sql); // Table name
+            sink.ensure(4); // Room for the column count
+            sink.buf.putInt(cols.length); // Column count
+            for (String col : cols) sink.string(col); // Column names
+        } // End binary header
+    } // End writeHeader method
+
+    private static void writeRow(ChannelSink sink, StringBuilder sb, Format f, String[] cols, Object[] row) throws IOException { // Encode one row in the requested format
+        switch (f) { // Select the encoding
+            case CSV: { // Plain text fields, NULL as empty
+                sb.setLength(0); // Reuse the buffer
+                for (int i = 0; i < row.length; i++) { // Write each field
+                    if (i > 0) sb.append(','); // Separate fields
+                    if (row[i] != null) Csv.writeField(sb, row[i].toString()); // Quote when needed
+                } // End field loop
+                sink.text(sb.append('\n')); // Encode the row into the buffer
+                break; // Done
+            } // End CSV case
+            case JSONL: { // One object per line, numbers unquoted
+                sb.setLength(0); // Reuse the buffer
+                sb.append('{'); // Open the object
+                for (int i = 0; i < row.length; i++) { // Write each member
+                    if (i > 0) sb.append(','); // Separate members
+                    Json.appendString(sb, cols[i]).append(':'); // Member name
+                    Object v = row[i]; // Member value
+                    if (v == null) sb.append("null"); // NULL
+                    else if (v instanceof Integer || v instanceof Long) sb.append(((Number) v).longValue()); // INTEGER
+                    else if (v instanceof Double d && Double.isFinite(d)) sb.append(d.doubleValue()); // REAL
+                    else Json.appendString(sb, v instanceof byte[] b ? Base64.getEncoder().encodeToString(b) : v.toString()); // TEXT, and BLOB as Base64
+                } // End member loop
+                sink.text(sb.append("}\n")); // Close the object and the line
+                break; // Done
+            } // End JSONL case
+            default: { // Tagged binary values
+                sink.ensure(1); // Room for the row marker
+                sink.buf.put(ROW); // Start a row
+                for (Object v : row) { // Write each value with its tag
+                    if (v == null) { sink.ensure(1); sink.buf.put(T_NULL); } // NULL
+                    else if (v instanceof Integer || v instanceof Long) { sink.ensure(9); sink.buf.put(T_INT).putLong(((Number) v).longValue()); } // INTEGER as 8 bytes
+                    else if (v instanceof Double d) { sink.ensure(9); sink.buf.put(T_REAL).putDouble(d); } // REAL as 8 bytes
+                    else if (v instanceof byte[] b) { sink.ensure(5); sink.buf.put(T_BLOB).putInt(b.length); sink.bytes(b); } // BLOB as length and bytes
+                    else { sink.ensure(1); sink.buf.put(T_TEXT); sink.string(v.toString()); } // TEXT as length and UTF-8
+                } // End value loop
+            } // End binary case
+        } // End format switch
+    } // End writeRow method
+
+    public Result snapshot(Path target) { // Write a consistent, compacted copy of the live database with VACUUM INTO; writers are not blocked under WAL
+        long start = System.nanoTime(); // Time the snapshot
+        Path tmp = target.resolveSibling(target.getFileName() + ".part"); // Build beside the target, since VACUUM INTO refuses to overwrite
+        try { // Copy, then publish
+            Path dir = target.toAbsolutePath().getParent(); // Destination directory
+            if (dir != null) Files.createDirectories(dir); // Make sure it exists
+            Files.deleteIfExists(tmp); // Clear a leftover from a run killed before it could clean up
+            try (Connection c = Db.open(); PreparedStatement ps = c.prepareStatement("VACUUM INTO ?")) { // Borrow a pooled connection for the copy
+                ps.setString(1, tmp.toString()); // Name the destination file
+                ps.executeUpdate(); // Copy every page reachable in one read snapshot, dropping free pages
+            } // End copy
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) { ch.force(true); } // Put the copy on disk before the rename can be
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); // Publish the finished snapshot in one step
+            return new Result("snapshot", target, 0, Files.size(target), System.nanoTime() - start); // Report size and time
+        } catch (IOException | SQLException e) { // Handle copy, sync and move failures
+            discard(tmp); // VACUUM INTO will not overwrite, so a partial copy would block the next snapshot
+            e.printStackTrace(); // Print the stack trace to aid debugging
+            throw new RuntimeException("snapshot failed: " + e.getMessage()); // Signal the failure with context
+        } // End catch block for snapshot errors
+    } // End snapshot method
+
+    private static void discard(Path tmp) { // Delete a partial output file, keeping the failure that caused it as the one reported
+        try { Files.deleteIfExists(tmp); } // Remove it if it was created
+        catch (IOException e) { e.printStackTrace(); } // Nothing more can be done; the next run deletes or truncates it
+    } // End discard method
+
+    public static final class BinaryReader implements Closeable { // Read back a binary export one row at a time
+        public final String table; // Table the file was exported from
+        public final String[] columns; // Column names, in value order
+        private final FileChannel ch; // Input channel
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16); // Staging buffer
+        private long rows = 0; // Rows returned so far
+
+        public BinaryReader(Path file) throws IOException { // Open a file and read its header
+            ch = FileChannel.open(file, StandardOpenOption.READ); // Open the channel
+            buf.flip(); // Start with an empty buffer
+            need(5); // Magic and version
+            byte[] magic = new byte[4]; // Expected file signature
+            buf.get(magic); // Read it
+            if (!Arrays.equals(magic, MAGIC) || buf.get() != VERSION) { ch.close(); throw new IOException("not a GrocerEase binary export: " + file); } // Refuse other files
+            table = string(); // Table name
+            need(4); // Column count
+            columns = new String[buf.getInt()]; // Allocate names
+            for (int i = 0; i < columns.length; i++) columns[i] = string(); // Read them
+        } // End constructor
+
+        public Object[] next() throws IOException { // Return the next row's values (Long, Double, String, byte[] or null), or null after the last row
+            need(1); // Row or end marker
+            byte marker = buf.get(); // Read it
+            if (marker == END) { // End of data
+                need(8); // Row count written by the exporter
+                long expected = buf.getLong(); // Read it
+                if (expected != rows) throw new IOException("row count mismatch: file says " + expected + ", read " + rows); // Detect corruption
+                return null; // No more rows
+            } // End end-of-data handling
+            if (marker != ROW) throw new IOException("corrupt export at row " + rows); // Anything else is damage
+            Object[] row = new Object[columns.length]; // Values of this row
+            for (int i = 0; i < row.length; i++) { // Read each value by its tag
+                need(1); // Tag byte
+                byte tag = buf.get(); // Read it
+                switch (tag) { // Decode the value
+                    case T_NULL: row[i] = null; break; // NULL
+                    case T_INT: need(8); row[i] = buf.getLong(); break; // INTEGER
+                    case T_REAL: need(8); row[i] = buf.getDouble(); break; // REAL
+                    case T_TEXT: row[i] = string(); break; // TEXT
+                    case T_BLOB: need(4); row[i] = bytes(buf.getInt()); break; // BLOB
+                    default: throw new IOException("bad value tag " + tag + " at row " + rows); // Damage
+                } // End tag switch
+            } // End value loop
+            rows++; // Count the row
+            return row; // Hand it back
+        } // End next method
+
+        private String string() throws IOException { need(4); return new String(bytes(buf.getInt()), StandardCharsets.UTF_8); } // Read a length-prefixed UTF-8 string
+
+        private byte[] bytes(int n) throws IOException { // Read n bytes, which may exceed the buffer
+            byte[] out = new byte[n]; // Destination
+            int at = 0; // Bytes copied so far
+            while (at < n) { // Copy buffer-sized pieces
+                need(1); // Make sure something is buffered
+                int k = Math.min(n - at, buf.remaining()); // Copy what is available
+                buf.get(out, at, k); // Copy it
+                at += k; // Advance
+            } // End copy loop
+            return out; // Return the bytes
+        } // End bytes method
+
+        private void need(int n) throws IOException { // Make sure at least n bytes are buffered
+            if (buf.remaining() >= n) return; // Already there
+            buf.compact(); // Keep the unread tail
+            while (buf.position() < n) if (ch.read(buf) < 0) throw new IOException("truncated export"); // Refill from the channel
+            buf.flip(); // Switch back to reading
+        } // End need method
+
+        @Override // Implement Closeable.close
+        public void close() throws IOException { ch.close(); } // Close the channel
+    } // End BinaryReader class
+
+    private static final class ChannelSink implements Closeable { // Buffer rows in a direct byte buffer and write it to a channel in large pieces
+        final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16); // Staging buffer
+        private final FileChannel ch; // Output channel
+        private final CharsetEncoder utf8 = StandardCharsets.UTF_8.newEncoder() // Encode text straight into the buffer
+                .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE); // Never fail an export on an unpaired surrogate
+
+        ChannelSink(FileChannel ch) { this.ch = ch; } // Wrap the channel
+
+        void text(CharSequence s) throws IOException { // Encode text as UTF-8 into the buffer, draining as it fills
+            CharBuffer in = CharBuffer.wrap(s); // View the characters without copying
+            while (true) { // Encode until everything fits
+                CoderResult r = utf8.encode(in, buf, true); // Encode as much as fits
+                if (r.isOverflow()) drain(); // Make room and continue
+                else break; // Everything was encoded
+            } // End encode loop
+            utf8.reset(); // Each call is a complete piece of text
+        } // End text method
+
+        void string(String s) throws IOException { byte[] b = s.getBytes(StandardCharsets.UTF_8); ensure(4); buf.putInt(b.length); bytes(b); } // Write a length-prefixed UTF-8 string
+
+        void bytes(byte[] b) throws IOException { // Write bytes, which may exceed the buffer
+            int at = 0; // Bytes written so far
+            while (at < b.length) { // Copy buffer-sized pieces
+                if (!buf.hasRemaining()) drain(); // Make room
+                int k = Math.min(b.length - at, buf.remaining()); // Copy what fits
+                buf.put(b, at, k); // Copy it
+                at += k; // Advance
+            } // End copy loop
+        } // End bytes method
+
+        void ensure(int n) throws IOException { if (buf.remaining() < n) drain(); } // Make room for a fixed-size value
+
+        private void drain() throws IOException { // Write the buffered bytes to the channel
+            buf.flip(); // Switch to reading
+            while (buf.hasRemaining()) ch.write(buf); // Write until empty
+            buf.clear(); // Switch back to filling
+        } // End drain method
+
+        void force() throws IOException { // Write the buffered bytes and wait until the file's contents are on disk
+            drain(); // Hand everything to the channel
+            ch.force(true); // Sync data and metadata such as the length
+        } // End force method
+
+        @Override // Implement Closeable.close
+        public void close() throws IOException { // Flush and close the channel
+            try { drain(); } finally { ch.close(); } // Close even when the final write fails
+        } // End close method
+    } // End ChannelSink class
+} // End Exporter class
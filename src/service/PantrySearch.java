@@ -0,0 +1,430 @@
+package service; // Define the package for pantry-related data access services
+
+import model.PantryItem; // Import the data model representing pantry items
+import util.Log; // Import the asynchronous logger for the load report
+
+import java.text.Normalizer; // Import Normalizer to strip accents before matching
+import java.util.ArrayList; // Import ArrayList to collect rows, words and results
+import java.util.Arrays; // Import Arrays to grow, sort and deduplicate arrays
+import java.util.HashMap; // Import HashMap for the trigram, id and pending-write maps
+import java.util.List; // Import List as the result type
+import java.util.Map; // Import Map as the index types
+import java.util.TreeMap; // Import TreeMap so names and words starting with a prefix form one range
+import java.util.stream.Stream; // Import Stream to read the rows from an open cursor
+
+public class PantrySearch implements SqlitePantryService.ChangeListener { // Keep a word index over pantry names and categories and answer type-ahead queries from memory, forgiving small typos
+
+    private static final int INITIAL = 1024; // Starting slot capacity; doubles as the pantry grows
+    private static final int COMPACT_AFTER = 1024; // Dead slots tolerated before the index is rebuilt
+    private static final int MAX_WORD = 32; // Longest query word compared by edit distance; longer ones must match as typed
+    private static final long SLOT_BITS = 0xFFFFFFL; // Low 24 bits of a rank key hold the slot, inverted so earlier slots win ties
+    private static final long MIX = 0x9E3779B97F4A7C15L; // Odd multiplier: packed trigrams stay distinct but no longer collide in Long.hashCode
+    private static final int TYPOS = 0xFF; // Low bits of a slot's typo counter count typos
+    private static final int CATEGORY = 0x100; // Bit of a slot's typo counter set once a query word matched only its category
+    private static final int MAX_BUDGET = 7; // Most typos a query may be forgiven: rank keys hold 7 - typos in three bits
+
+    private static final class Postings { // A growable list of ints: slots of one word, or words of one trigram
+        int[] ids = new int[2]; // The entries, oldest first
+        int size; // Entries used
+
+        void add(int id) { // Append an entry, growing as needed
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2); // Double the array when full
+            ids[size++] = id; // Store the entry
+        } // End add method
+    } // End Postings class
+
+    private static final class Word { // One distinct folded word of the pantry
+        final String text; // The word
+        final int id; // Position in the word list, used by the trigram postings
+        final Postings slots = new Postings(); // Slots whose text contains it, shifted left one bit with the low bit set when only the category does; may include dead slots until the next compaction
+        int typos; // Typos from the query word being matched, set under the lock
+
+        Word(String text, int id) { this.text = text; this.id = id; } // Build an empty word
+    } // End Word class
+
+    private static volatile PantrySearch shared; // Process-wide index started by the app
+
+    private final SqlitePantryService source; // Where the rows are loaded from, and where queries go until they are
+    private final Map<Integer, Integer> slotOf = new HashMap<>(); // Live slot of each item id
+    private final TreeMap<String, Integer> byName = new TreeMap<>(); // Live slots by folded name and id, so name prefixes are one range
+    private final TreeMap<String, Word> words = new TreeMap<>(); // Distinct words, so word prefixes are one range
+    private final List<Word> wordList = new ArrayList<>(); // The same words by id
+    private final Map<Long, Postings> wordGrams = new HashMap<>(); // Word ids by trigram, three chars packed into a long, for finding words within a few typos
+    private PantryItem[] items = new PantryItem[INITIAL]; // Row of each slot, null once updated or deleted
+    private String[] names = new String[INITIAL]; // Folded name of each slot
+    private String[] texts = new String[INITIAL]; // Folded name and category of each slot
+    private int[] matched = new int[INITIAL]; // Query words a slot has matched so far; all zero between queries
+    private int[] typos = new int[INITIAL]; // Typos a slot needed for those words; all zero between queries
+    private int[] touched = new int[INITIAL]; // Slots that matched the first query word
+    private int[] gramHits = new int[INITIAL]; // Trigrams each word shares with the query word; all zero between queries
+    private final int[][] rows = new int[3][MAX_WORD + 2]; // Edit distance rows, reused under the lock
+    private int slots; // Slots handed out, live or dead
+    private int dead; // Slots freed since the last compaction
+    private Map<Integer, PantryItem> pending; // Writes committed while a load is reading; a null value marks a delete
+    private boolean loaded; // Set once the index holds every row
+    private boolean started; // Set while the index listens for writes
+    private final PantryWatch watch; // Spots pantry writes made by other processes, which no change listener reports
+
+    public PantrySearch() { this(CachedPantryService.shared()); } // Build an index over the shared cached service
+
+    public PantrySearch(SqlitePantryService source) { // Build an index over a caller-supplied service
+        this.source = source; // Remember the row source
+        this.watch = new PantryWatch(source, SqlitePantryService::committedRows); // Every write in this process reaches saved() or deleted()
+    } // End constructor
+
+    public static PantrySearch shared() { // Return the process-wide index, creating it on first use
+        PantrySearch s = shared; // Read the volatile field once on the fast path
+        if (s != null) return s; // Return the existing index without locking
+        synchronized (PantrySearch.class) { // Serialize creation so only one index is ever built
+            if (shared == null) shared = new PantrySearch(); // Build the index if no other thread did it first
+            return shared; // Return the shared index
+        } // End synchronized block
+    } // End shared method
+
+    static PantrySearch running() { // Return the shared index when it is complete, or null
+        PantrySearch s = shared; // Never create the index just to ask
+        return s != null && s.isLoaded() ? s : null; // Only a loaded index can answer queries
+    } // End running method
+
+    public synchronized void start() { // Listen for writes and build the index on a background thread; returns immediately
+        if (started) return; // Already running
+        started = true; // Accept loads from now on
+        SqlitePantryService.addChangeListener(this); // Listen before loading so no committed write is missed
+        reloadInBackground(); // Read the rows off the caller's thread
+    } // End start method
+
+    public synchronized void stop() { // Stop listening and drop the index
+        if (!started) return; // Not running
+        SqlitePantryService.removeChangeListener(this); // Stop receiving writes
+        started = false; // Refuse later loads until start()
+        clear(); // Drop the index
+        pending = null; // Forget a load in progress
+        loaded = false; // Queries fall back to SQLite
+    } // End stop method
+
+    public void reload() { // Rebuild the index from the database, for example after another process changed it
+        synchronized (this) { // Prepare to record writes that commit while the rows are read
+            if (!started) return; // Without start() no writes are seen, so the index would go stale
+            pending = new HashMap<>(); // Collect them from now on
+        } // End synchronized block
+        watch.baseline(); // Rows written elsewhere after this point make the next search reload again
+        long start = System.nanoTime(); // Time the load
+        List<PantryItem> all = new ArrayList<>(); // Every row, in name order
+        try (Stream<PantryItem> s = source.stream(PantryView.all())) { // Walk the name index from an open cursor
+            s.forEach(all::add); // Keep every row
+        } catch (RuntimeException e) { // Handle database failures
+            Log.error("Search", "load failed", e); // Log the stack trace to aid debugging
+            synchronized (this) { pending = null; } // Give up this load; queries keep using full-text search
+            return; // Leave the index unloaded
+        } // End load error handling
+        int distinct; // Distinct words indexed, for the log
+        synchronized (this) { // Install the index under the lock
+            if (pending == null) return; // stop() ran while the rows were read
+            clear(); // Start from an empty index
+            for (PantryItem p : all) index(p); // Index every row
+            for (Map.Entry<Integer, PantryItem> w : pending.entrySet()) { // Apply writes that raced with the read on top
+                unindex(w.getKey()); // Drop the row as read
+                if (w.getValue() != null) index(w.getValue()); // Index the row as written
+            } // End loop over pending writes
+            pending = null; // Later writes go straight to the index
+            loaded = true; // Queries may use the index now
+            distinct = wordList.size(); // Read the size under the lock
+        } // End synchronized block
+        Log.info("Search", "indexed " + all.size() + " items, " + distinct + " words (" + (System.nanoTime() - start) / 1_000_000 + " ms)"); // Log the load cost
+    } // End reload method
+
+    public List<PantryItem> search(String query, int limit) { // Best matches for typed text, at most limit of them; full-text search answers until the index is loaded
+        if (!isLoaded() || reloadIfChangedElsewhere()) return source.search(query, limit); // Cold start or rebuild: let the FTS5 table answer
+        List<PantryItem> out = new ArrayList<>(); // Collect copies of the matches
+        String q = fold(query); // Compare without case, accents or punctuation
+        if (q.isEmpty() || limit <= 0) return out; // Nothing searchable was typed
+
+        synchronized (this) { // Read the index under the lock
+            for (Integer s : byName.subMap(q, q + '\uffff').values()) { // Names starting with the query rank first, already in name order
+                out.add(items[s].copy()); // Copy the row so callers cannot change the index
+                if (out.size() == limit) return out; // The usual type-ahead case ends here, in O(log n + k)
+            } // End loop over name prefixes
+            String[] terms = q.split(" "); // Otherwise every query word must start a word of the item
+            int letters = q.length() - (terms.length - 1); // Characters typed, not counting the spaces
+            int budget = letters <= 3 ? 0 : letters <= 7 ? 1 : 2; // Typos forgiven: none while the query is short, since nearly every short string is a valid prefix
+            rank(q, terms, 0, limit, out); // Word prefixes in the name, then in the category
+            if (out.size() < limit && budget > 0) rank(q, terms, budget, limit, out); // Fill up with matches that need typos
+        } // End synchronized block
+        return out; // Return the matches, best first
+    } // End search method
+
+    private boolean reloadIfChangedElsewhere() { // Stop answering from the index and rebuild it when another process wrote the pantry
+        if (!watch.changedElsewhere()) return false; // Still current
+        synchronized (this) { // Start at most one rebuild
+            if (!started || !loaded) return true; // Stopped, or a load is already running
+            loaded = false; // Queries go to full-text search until the rebuild installs
+        } // End synchronized block
+        reloadInBackground(); // Rebuild off the caller's thread
+        return true; // The caller asks SQLite this time
+    } // End reloadIfChangedElsewhere method
+
+    private void reloadInBackground() { // Run reload() on a daemon thread
+        Thread t = new Thread(this::reload, "grocerease-search"); // Load off the caller's thread
+        t.setDaemon(true); // Never keep the JVM alive just for the load
+        t.start(); // Begin reading the rows
+    } // End reloadInBackground method
+
+    public synchronized int size() { return slotOf.size(); } // Number of items indexed
+
+    public synchronized boolean isLoaded() { return loaded; } // Report whether the index holds every row
+
+    @Override // Implement ChangeListener.saved
+    public synchronized void saved(List<PantryItem> saved) { // Reindex saved rows
+        if (pending != null) { for (PantryItem p : saved) pending.put(p.id, p); return; } // A load is reading; apply the rows once it finishes
+        if (!loaded) return; // Nothing to keep current yet
+        for (PantryItem p : saved) { // Apply each saved row
+            Integer s = slotOf.get(p.id); // Current slot of the item
+            String name = fold(p.name); // Folded new name
+            if (s != null && name.equals(names[s]) && text(name, p).equals(texts[s])) { items[s] = p; continue; } // Same words: keep the postings, refresh the row
+            unindex(p.id); // Free the old slot
+            index(p); // Index the new text in a fresh slot
+        } // End loop over saved rows
+        compactIfSparse(); // Reclaim the freed slots once there are many
+    } // End saved method
+
+    @Override // Implement ChangeListener.deleted
+    public synchronized void deleted(int id) { // Drop a deleted row from the index
+        if (pending != null) { pending.put(id, null); return; } // A load is reading; drop the row once it finishes
+        unindex(id); // Free its slot
+        compactIfSparse(); // Reclaim the freed slots once there are many
+    } // End deleted method
+
+    @Override // Indicate that we are overriding Object.toString
+    public synchronized String toString() { // Summarize index state for logs
+        return "PantrySearch{items=" + slotOf.size() + ", words=" + wordList.size() + ", deadSlots=" + dead + ", loaded=" + loaded + "}"; // Report size and state
+    } // End toString method
+
+    static String fold(String s) { // Lower-case text without accents, with every run of other characters turned into one space and each CJK ideograph a word of its own
+        if (s == null) return ""; // Missing text matches nothing
+        String t = s; // Text to fold
+        for (int i = 0; i < t.length(); i++) { // Decompose only when there is something beyond ASCII
+            if (t.charAt(i) >= 0x80) { t = Normalizer.normalize(t, Normalizer.Form.NFD); break; } // Split accented letters into letter and mark
+        } // End loop over characters
+        StringBuilder sb = new StringBuilder(t.length()); // Build the folded text
+        for (int i = 0; i < t.length(); i++) { // Walk the characters
+            char c = t.charAt(i); // Current character
+            if (c < 0x80) { // ASCII fast path
+                if (c >= 'A' && c <= 'Z') sb.append((char) (c + 32)); // Lower-case letters
+                else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) sb.append(c); // Keep letters and digits
+                else space(sb); // Anything else separates words
+            } // End ASCII fast path
+            else if (Character.getType(c) == Character.NON_SPACING_MARK) continue; // Drop the accents split off above
+            else if (Character.isIdeographic(c)) { space(sb); sb.append(c).append(' '); } // Chinese names have no spaces, so each character starts a word
+            else if (Character.isLetterOrDigit(c)) sb.append(Character.toLowerCase(c)); // Keep other letters and digits, lower-cased
+            else space(sb); // Anything else separates words
+        } // End loop over characters
+        int end = sb.length(); // Trim a trailing separator
+        if (end > 0 && sb.charAt(end - 1) == ' ') sb.setLength(end - 1); // Drop it
+        return sb.toString(); // Return the folded text
+    } // End fold method
+
+    static long[] grams(String word) { // Distinct trigrams of one folded word, padded with two leading spaces so prefixes share their first trigrams
+        long[] out = new long[word.length()]; // One trigram per character
+        long a = ' ', b = ' '; // The two characters before the current one
+        for (int i = 0; i < word.length(); i++) { // Slide over the word
+            char c = word.charAt(i); // Current character
+            out[i] = (a << 32 | b << 16 | c) * MIX; // Pack the three characters, then scramble them so Long.hashCode spreads the keys
+            a = b; // Shift the window
+            b = c; // ...by one character
+        } // End loop over characters
+        Arrays.sort(out); // Group duplicates
+        int m = 0; // Distinct trigrams kept
+        for (int i = 0; i < out.length; i++) if (m == 0 || out[i] != out[m - 1]) out[m++] = out[i]; // Drop repeats
+        return Arrays.copyOf(out, m); // Trim to the distinct trigrams
+    } // End grams method
+
+    private void rank(String q, String[] terms, int budget, int limit, List<PantryItem> out) { // Append the best items whose words start with every query word within the typo budget, until out holds limit rows; skips items listed by earlier passes
+        if (budget > MAX_BUDGET) throw new IllegalArgumentException("typo budget must be <= " + MAX_BUDGET); // Counts must fit the rank key and stay below the CATEGORY bit
+        int n = 0; // Slots that matched the first word
+        for (int j = 0; j < terms.length; j++) { // Narrow the slots word by word
+            for (Word w : closeWords(terms[j], budget)) { // Words close to this query word, fewest typos first, so each slot counts its closest one
+                for (int i = 0; i < w.slots.size; i++) { // Slots containing the word
+                    int s = w.slots.ids[i] >>> 1; // Slot number
+                    if (matched[s] != j || (typos[s] & TYPOS) + w.typos > budget) continue; // Missed an earlier word, already matched this one, or over budget
+                    if (j == 0) touched[n++] = s; // Remember it so the counters can be reset
+                    matched[s] = j + 1; // One more word matched
+                    typos[s] += w.typos; // Add its typos; the budget check above keeps the count below the CATEGORY bit
+                    if ((w.slots.ids[i] & 1) != 0) typos[s] |= CATEGORY; // Note a word found only in the category, as a flag so several such words cannot carry
+                } // End loop over slots
+            } // End loop over close words
+        } // End loop over query words
+
+        long[] heap = new long[Math.max(0, Math.min(limit - out.size(), n))]; // Best rank keys so far, worst at the root
+        int size = 0; // Keys kept
+        for (int i = 0; i < n; i++) { // Rank the slots that matched every word
+            int s = touched[i]; // Slot number
+            boolean all = matched[s] == terms.length; // Matched every query word
+            int t = typos[s] & TYPOS; // Typos needed
+            boolean category = (typos[s] & CATEGORY) != 0; // Some query word matched only the category
+            matched[s] = 0; // Reset for the next pass
+            typos[s] = 0; // Reset for the next pass
+            if (!all || items[s] == null || names[s].startsWith(q) || (budget > 0 && t == 0)) continue; // Missed a word, dead, or listed by an earlier pass
+            int tier = t > 0 ? 0 : category ? 1 : 2; // Name words beat category words, and both beat typos
+            size = offer(heap, size, (long) tier << 60 | (long) (7 - t) << 56 | (SLOT_BITS - s)); // Tier, then fewer typos, then earlier slots, which the load filled in name order
+        } // End loop over candidates
+
+        Long[] best = new Long[size]; // Sort the survivors for display
+        for (int i = 0; i < size; i++) best[i] = heap[i]; // Box the few keys left
+        Arrays.sort(best, (a, b) -> a >>> 24 != b >>> 24 ? Long.compare(b >>> 24, a >>> 24) // Best score first
+                : names[slot(a)].compareTo(names[slot(b)])); // Equal scores in name order
+        for (Long k : best) out.add(items[slot(k)].copy()); // Copy the rows so callers cannot change the index
+    } // End rank method
+
+    private List<Word> closeWords(String term, int budget) { // Words that start with the query word, or with something within budget typos of it, fewest typos first
+        List<Word> out = new ArrayList<>(); // Collect the words
+        for (Word w : words.subMap(term, term + '\uffff').values()) { w.typos = 0; out.add(w); } // Exact prefixes: one range of the sorted words
+        if (budget == 0 || term.length() > MAX_WORD) return out; // No typos forgiven
+        if (gramHits.length < wordList.size()) gramHits = new int[wordList.size() * 2]; // Make room for every word
+        long[] grams = grams(term); // Trigrams of the query word
+        int need = Math.max(1, grams.length - 4 * budget); // One typo breaks at most four trigrams (a transposition), so fewer shared ones cannot be within budget
+        List<Word> candidates = new ArrayList<>(); // Words sharing a trigram
+        for (long g : grams) { // Count shared trigrams per word
+            Postings p = wordGrams.get(g); // Words containing this trigram
+            if (p == null) continue; // No word has it
+            for (int i = 0; i < p.size; i++) if (gramHits[p.ids[i]]++ == 0) candidates.add(wordList.get(p.ids[i])); // Remember each word once
+        } // End loop over trigrams
+        List<List<Word>> byTypos = new ArrayList<>(); // Close words grouped by typos
+        for (int d = 0; d <= budget; d++) byTypos.add(new ArrayList<>()); // One group per typo count
+        for (Word w : candidates) { // Measure the candidates with enough shared trigrams
+            int h = gramHits[w.id]; // Trigrams shared
+            gramHits[w.id] = 0; // Reset for the next query word
+            if (h < need || w.text.startsWith(term)) continue; // Too different, or already listed as a prefix
+            int d = prefixDistance(term, w.text); // Typos to the closest prefix of the word
+            if (d > 0 && d <= budget) { w.typos = d; byTypos.get(d).add(w); } // Keep it in its group
+        } // End loop over candidates
+        for (List<Word> g : byTypos) out.addAll(g); // Fewest typos first
+        return out; // Return the close words
+    } // End closeWords method
+
+    private int prefixDistance(String w, String word) { // Optimal string alignment distance from w to the closest prefix of word
+        int n = w.length(); // Rows: characters of the query word
+        int m = Math.min(word.length(), n + 2); // Columns: prefixes longer than this only cost more than the budget allows
+        int[] prev2 = rows[0], prev = rows[1], cur = rows[2]; // Rows i - 2, i - 1 and i
+        for (int j = 0; j <= m; j++) prev[j] = j; // Turning "" into a prefix of length j takes j insertions
+        for (int i = 1; i <= n; i++) { // Fill the table row by row
+            cur[0] = i; // Deleting i characters
+            for (int j = 1; j <= m; j++) { // Each prefix length
+                char a = w.charAt(i - 1), b = word.charAt(j - 1); // Characters being aligned
+                int d = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + (a == b ? 0 : 1)); // Delete, insert or substitute
+                if (i > 1 && j > 1 && a == word.charAt(j - 2) && w.charAt(i - 2) == b) d = Math.min(d, prev2[j - 2] + 1); // Swap two neighbours, the commonest typo
+                cur[j] = d; // Store the cell
+            } // End loop over columns
+            int[] t = prev2; prev2 = prev; prev = cur; cur = t; // Rotate the rows
+        } // End loop over rows
+        int best = Integer.MAX_VALUE; // Closest prefix of any length
+        for (int j = 0; j <= m; j++) best = Math.min(best, prev[j]); // The last row holds every prefix length
+        return best; // Return the distance
+    } // End prefixDistance method
+
+    private static int slot(long key) { return (int) (SLOT_BITS - (key & SLOT_BITS)); } // Slot of a rank key
+
+    private static int offer(long[] heap, int size, long key) { // Keep the heap.length largest keys in a min-heap and return its new size
+        if (size < heap.length) { // Room left: sift the key up
+            int i = size++; // New leaf
+            while (i > 0 && heap[(i - 1) / 2] > key) { heap[i] = heap[(i - 1) / 2]; i = (i - 1) / 2; } // Move larger parents down
+            heap[i] = key; // Place the key
+            return size; // One more key
+        } // End insert
+        if (size == 0 || key <= heap[0]) return size; // Full, and no better than the worst kept
+        int i = 0; // Replace the root and sift down
+        while (true) { // Until the key is smaller than both children
+            int c = 2 * i + 1; // Left child
+            if (c >= size) break; // No children
+            if (c + 1 < size && heap[c + 1] < heap[c]) c++; // Pick the smaller child
+            if (heap[c] >= key) break; // Heap order holds
+            heap[i] = heap[c]; // Move the child up
+            i = c; // Continue below
+        } // End sift down
+        heap[i] = key; // Place the key
+        return size; // Same size
+    } // End offer method
+
+    private void index(PantryItem p) { // Add a row in a fresh slot; call with the lock held
+        if (slots == items.length) grow(); // Make room
+        int s = slots++; // Take the next slot
+        items[s] = p; // Remember the row
+        names[s] = fold(p.name); // Remember its folded name
+        texts[s] = text(names[s], p); // Remember its folded name and category
+        String[] ws = texts[s].split(" "); // Its words, name words first
+        int inName = names[s].isEmpty() ? 0 : names[s].split(" ").length; // Words that come from the name
+        for (int i = 0; i < ws.length; i++) { // Post the slot under each distinct word
+            boolean repeat = ws[i].isEmpty(); // Skip the empty word of an empty text
+            for (int j = 0; j < i && !repeat; j++) repeat = ws[j].equals(ws[i]); // Texts have a handful of words, so a scan is enough
+            if (!repeat) word(ws[i]).slots.add(s << 1 | (i < inName ? 0 : 1)); // Post the slot once per word, flagged when the word is only in the category
+        } // End loop over words
+        slotOf.put(p.id, s); // Find the slot by id
+        byName.put(nameKey(names[s], p.id), s); // Place it among the names
+    } // End index method
+
+    private Word word(String text) { // Find or create the entry of a word; call with the lock held
+        Word w = words.get(text); // Existing entry
+        if (w != null) return w; // Most words repeat
+        Word created = new Word(text, wordList.size()); // New word with the next id
+        words.put(text, created); // Sorted for prefix ranges
+        wordList.add(created); // Numbered for the trigram postings
+        for (long g : grams(text)) wordGrams.computeIfAbsent(g, k -> new Postings()).add(created.id); // Post it under each trigram
+        return created; // Return the new entry
+    } // End word method
+
+    private void unindex(int id) { // Free the slot of an item; its word postings are dropped at the next compaction; call with the lock held
+        Integer s = slotOf.remove(id); // Find the slot
+        if (s == null) return; // Not indexed
+        byName.remove(nameKey(names[s], id)); // Take it out of the names
+        items[s] = null; // Queries skip dead slots
+        names[s] = null; // Release the folded name
+        texts[s] = null; // Release the folded text
+        dead++; // Count it for compaction
+    } // End unindex method
+
+    private void compactIfSparse() { // Rebuild the index once dead slots outnumber live ones; call with the lock held
+        if (dead < COMPACT_AFTER || dead < slotOf.size()) return; // Not worth it yet
+        List<PantryItem> live = new ArrayList<>(slotOf.size()); // Rows still indexed
+        for (int s = 0; s < slots; s++) if (items[s] != null) live.add(items[s]); // Collect them in slot order
+        clear(); // Drop every posting, word and slot
+        for (PantryItem p : live) index(p); // Index them again, densely
+    } // End compactIfSparse method
+
+    private void clear() { // Empty the index; call with the lock held
+        slotOf.clear(); // Drop the id map
+        byName.clear(); // Drop the names
+        words.clear(); // Drop the words
+        wordList.clear(); // Drop the word numbering
+        wordGrams.clear(); // Drop the trigram postings
+        items = new PantryItem[INITIAL]; // Fresh slot arrays
+        names = new String[INITIAL]; // Fresh folded names
+        texts = new String[INITIAL]; // Fresh folded texts
+        matched = new int[INITIAL]; // Fresh match counters
+        typos = new int[INITIAL]; // Fresh typo counters
+        touched = new int[INITIAL]; // Fresh candidate list
+        slots = 0; // No slots handed out
+        dead = 0; // No dead slots
+    } // End clear method
+
+    private void grow() { // Double every per-slot array; call with the lock held
+        int n = items.length * 2; // New capacity
+        if (n > SLOT_BITS + 1) throw new IllegalStateException("search index full"); // Slots must fit the rank key
+        items = Arrays.copyOf(items, n); // Grow the rows
+        names = Arrays.copyOf(names, n); // Grow the folded names
+        texts = Arrays.copyOf(texts, n); // Grow the folded texts
+        matched = Arrays.copyOf(matched, n); // Grow the match counters
+        typos = Arrays.copyOf(typos, n); // Grow the typo counters
+        touched = Arrays.copyOf(touched, n); // Grow the candidate list
+    } // End grow method
+
+    private static String text(String name, PantryItem p) { // Folded name and category, the text an item is found by
+        String c = fold(p.category); // Folded category, empty when none
+        return c.isEmpty() ? name : name + ' ' + c; // Category words follow the name words
+    } // End text method
+
+    private static String nameKey(String name, int id) { return name + '\u0000' + (char) (id >>> 16) + (char) id; } // Sort by folded name, then id; the separator sorts before any name character
+
+    private static void space(StringBuilder sb) { // Append one separator unless the text is empty or already ends with one
+        int n = sb.length(); // Current length
+        if (n > 0 && sb.charAt(n - 1) != ' ') sb.append(' '); // Avoid leading and doubled separators
+    } // End space method
+} // End PantrySearch class
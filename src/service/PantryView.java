@@ -0,0 +1,61 @@
+package service; // Define the package for pantry-related data access services
+
+import model.PantryItem; // Import the data model representing pantry items
+
+import java.time.LocalDate; // Import LocalDate to compute the expiring-soon cutoff
+import java.util.Comparator; // Import Comparator to describe each view's order
+import java.util.function.Predicate; // Import Predicate to describe each view's membership
+
+public final class PantryView { // A filtered, ordered slice of pantry_items that can be counted, paged by key, paged by offset or streamed
+
+    enum Kind { ALL, LOW_STOCK, EXPIRING } // Which of the pantry queries a view corresponds to
+
+    static final Comparator<PantryItem> BY_NAME = Comparator.comparing((PantryItem p) -> p.name).thenComparing(p -> p.id); // Order of idx_pantry_name and idx_pantry_low_stock; ties follow rowid
+    static final Comparator<PantryItem> BY_EXPIRY = Comparator.comparing((PantryItem p) -> p.expiryDay).thenComparing(p -> p.id); // Order of idx_pantry_expiry; ties follow rowid
+
+    public final String name; // Short label for logs and window titles
+    final Kind kind; // Which pantry query this view pages through
+    public final Predicate<PantryItem> filter; // Same membership rule as the SQL predicate, for checking edited rows
+    public final Comparator<PantryItem> order; // Same order as the SQL ORDER BY, including the id tie-break
+    final String where; // SQL predicate selecting the view's rows; may contain one ? for the cutoff
+    final String key; // Leading sort column, which is also the keyset column
+    final Integer cutoff; // Day number bound to the predicate's ?, or null when it has none
+
+    private PantryView(Kind kind, String name, String where, String key, Integer cutoff, Predicate<PantryItem> filter, Comparator<PantryItem> order) { // Build an immutable view
+        this.kind = kind; // Remember which query this is
+        this.name = name; // Remember the label
+        this.where = where; // Remember the SQL predicate
+        this.key = key; // Remember the sort column
+        this.cutoff = cutoff; // Remember the bound value
+        this.filter = filter; // Remember the in-memory membership rule
+        this.order = order; // Remember the in-memory order
+    } // End constructor
+
+    public static PantryView all() { return new PantryView(Kind.ALL, "all", "1=1", "name", null, p -> true, BY_NAME); } // Every item by name, like listAll()
+
+    public static PantryView lowStock() { return new PantryView(Kind.LOW_STOCK, "low stock", "on_hand_qty <= min_qty", "name", null, p -> p.onHandQty <= p.minQty, BY_NAME); } // Items at or below their minimum by name, like lowStock()
+
+    public static PantryView expiringSoon(int days) { // Items expiring within the given number of days, soonest first, like expiringSoon()
+        int cutoff = (int) LocalDate.now().plusDays(days).toEpochDay(); // Compute the cutoff once so every page of the view agrees
+        return new PantryView(Kind.EXPIRING, "expiring ≤ " + days + " days", "expiry_day IS NOT NULL AND expiry_day <= ?", "expiry_day", cutoff, // Range over the expiry index
+                p -> p.expiryDay != null && p.expiryDay <= cutoff, BY_EXPIRY); // Same rule and order in memory
+    } // End expiringSoon method
+
+    public static PantryView withExpiry() { // Every item that has an expiry date, soonest first
+        return new PantryView(Kind.EXPIRING, "with expiry", "expiry_day IS NOT NULL AND expiry_day <= ?", "expiry_day", Integer.MAX_VALUE, // The expiry view with an open-ended cutoff
+                p -> p.expiryDay != null, BY_EXPIRY); // Same rule and order in memory
+    } // End withExpiry method
+
+    public Object keyOf(PantryItem p) { return key.equals("name") ? p.name : p.expiryDay; } // Read the keyset column of a row: a String name or an Integer day
+
+    String countSql() { return "SELECT COUNT(*) FROM pantry_items WHERE " + where; } // Count the view's rows from its index
+
+    String pageSql() { return "SELECT * FROM pantry_items WHERE " + where + " AND (" + key + ", id) > (?, ?) ORDER BY " + key + ", id LIMIT ?"; } // Seek past the last row of the previous page
+
+    String offsetSql() { return "SELECT * FROM pantry_items WHERE " + where + " ORDER BY " + key + ", id LIMIT ? OFFSET ?"; } // Jump to an arbitrary position, walking the index
+
+    String streamSql() { return "SELECT * FROM pantry_items WHERE " + where + " ORDER BY " + key + ", id"; } // Walk the whole view in order
+
+    @Override // Indicate that we are overriding Object.toString
+    public String toString() { return name; } // Describe the view by its label
+} // End PantryView class
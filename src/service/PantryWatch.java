@@ -0,0 +1,36 @@
+package service; // Define the package for pantry-related data access services
+
+import java.util.function.LongSupplier; // Import LongSupplier for the count of rows the owner saw written
+
+final class PantryWatch { // Notice pantry writes an in-memory index did not see, such as those of another process, so it knows to reload
+
+    private static final long RECHECK_NANOS = Long.getLong("pantryRecheckMs", 100) * 1_000_000; // Checks within this long of the last one are skipped; -DpantryRecheckMs
+
+    private final SqlitePantryService source; // Where the table_versions counter is read
+    private final LongSupplier seen; // Rows written so far that the owner applied itself
+    private long version = -1; // Counter at the last check, or -1 before the first
+    private long own; // Rows the owner had applied at the last check
+    private long checkedAt; // System.nanoTime() of the last check
+
+    PantryWatch(SqlitePantryService source, LongSupplier seen) { // Watch the counter through a service, against the owner's own count of applied rows
+        this.source = source; // Remember the counter source
+        this.seen = seen; // Remember the owner's count
+    } // End constructor
+
+    synchronized boolean changedElsewhere() { // Report whether rows the owner never saw were written since the last check; the first check only takes a baseline
+        long now = System.nanoTime(); // Time of this check
+        if (version >= 0 && now - checkedAt < RECHECK_NANOS) return false; // Checked moments ago; one primary-key read per interval is enough
+        long o = seen.getAsLong(); // Rows the owner applied so far
+        long v = source.version(); // Rows anyone committed so far, as counted by the triggers
+        boolean moved = version >= 0 && v - version != o - own; // The counter moved by more than the owner applied; a write racing with the check costs at most one extra reload
+        version = v; // Take the new baseline
+        own = o; // Take the new baseline
+        checkedAt = now; // Start the next interval
+        return moved; // Report the outside write
+    } // End changedElsewhere method
+
+    synchronized void baseline() { // Force a fresh baseline, for example just before a full reload reads the table
+        version = -1; // Make the next check a baseline
+        changedElsewhere(); // Read the counter now
+    } // End baseline method
+} // End PantryWatch class
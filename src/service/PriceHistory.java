@@ -0,0 +1,234 @@
+package service; // Define the package for trip-related data access services
+
+import app.Db; // Import the database helper responsible for opening JDBC connections
+import app.UnitOfWork; // Import UnitOfWork so the index only learns about committed prices
+import model.TripItem; // Import TripItem as the source of recorded prices
+import util.Log; // Import the asynchronous logger for the load report
+
+import java.sql.Connection; // Import JDBC Connection for interacting with the database
+import java.sql.PreparedStatement; // Import PreparedStatement for parameterized SQL execution
+import java.sql.ResultSet; // Import ResultSet to read the history and the trip row
+import java.sql.Statement; // Import Statement for reading back generated ids
+import java.sql.Types; // Import SQL Types constants to set NULL values appropriately
+import java.util.ArrayList; // Import ArrayList to collect observations for the index
+import java.util.Arrays; // Import Arrays to sort the median window
+import java.util.HashMap; // Import HashMap as the in-memory index
+import java.util.List; // Import List as the observation list type
+import java.util.Locale; // Import Locale for case-insensitive keys
+import java.util.Map; // Import Map as the index type
+import java.util.TreeSet; // Import TreeSet for the ids folded in ahead of the catch-up point
+
+public class PriceHistory { // Record the unit price of every priced trip item and keep rolling statistics per item in memory
+
+    static final String SQL_INSERT = "INSERT INTO price_history(item_name, unit, store_id, day, price_cents) VALUES (?,?,?,?,?)"; // SQL recording one observed price
+    static final String SQL_TRIP = "SELECT store_id, trip_day FROM trips WHERE id=?"; // SQL reading where and when a trip happens
+    static final String SQL_LOAD = "SELECT id, item_name, unit, store_id, day, price_cents FROM price_history ORDER BY day, id"; // SQL replaying the history oldest first along idx_price_history_day
+    static final String SQL_SINCE = "SELECT id, item_name, unit, store_id, day, price_cents FROM price_history WHERE id > ? ORDER BY id"; // SQL reading the rows added after a known id, by primary key
+
+    static final int WINDOW = Integer.getInteger("priceWindow", 15); // Recent prices kept per item for the median
+    static final double ALPHA = Double.parseDouble(System.getProperty("priceEwmaAlpha", "0.3")); // Weight of the newest price in the moving average
+
+    public static final class Estimate { // Rolling statistics of one item, as of one moment
+        public final int count; // Prices observed in total
+        public final int lastCents; // Price on the latest day
+        public final long lastDay; // That day, as days since 1970-01-01
+        public final int medianCents; // Median of the most recent WINDOW prices; the suggested price, since one sale does not move it
+        public final int ewmaCents; // Exponentially weighted moving average, following trends
+
+        Estimate(int count, int lastCents, long lastDay, int medianCents, int ewmaCents) { // Build an immutable snapshot
+            this.count = count; // Remember the count
+            this.lastCents = lastCents; // Remember the last price
+            this.lastDay = lastDay; // Remember its day
+            this.medianCents = medianCents; // Remember the median
+            this.ewmaCents = ewmaCents; // Remember the average
+        } // End constructor
+
+        @Override // Indicate that we are overriding Object.toString
+        public String toString() { return "n=" + count + " last=" + lastCents + " median=" + medianCents + " ewma=" + ewmaCents; } // Summarize for logs
+    } // End Estimate class
+
+    private static final class Stats { // Incrementally maintained statistics of one key; a few dozen bytes each
+        int count; // Prices observed
+        int last; // Price on the latest day
+        long lastDay = Long.MIN_VALUE; // Latest day observed
+        double ewma; // Moving average
+        final int[] recent = new int[WINDOW]; // Ring of the most recent prices
+
+        void add(long day, int cents) { // Fold one price into the statistics in constant time
+            if (day >= lastDay) { lastDay = day; last = cents; } // A later trip replaces the last price; an older one only feeds the averages
+            ewma = count == 0 ? cents : ewma + ALPHA * (cents - ewma); // Start at the first price, then move toward each new one
+            recent[count % WINDOW] = cents; // Overwrite the oldest slot
+            count++; // Count the price
+        } // End add method
+
+        Estimate snapshot() { // Compute the median and copy the statistics
+            int n = Math.min(count, WINDOW); // Prices in the ring
+            int[] sorted = Arrays.copyOf(recent, n); // Sort a copy so the ring order survives
+            Arrays.sort(sorted); // At most WINDOW elements
+            int median = (n % 2 == 1) ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2] + 1) / 2; // Middle value, or the rounded mean of the two middle values
+            return new Estimate(count, last, lastDay, median, (int) Math.round(ewma)); // Hand back the snapshot
+        } // End snapshot method
+    } // End Stats class
+
+    private static volatile PriceHistory shared; // Process-wide index used by the trip service
+
+    private final Map<String, Stats> stats = new HashMap<>(); // Statistics by name, name+unit and name+unit+store
+    private boolean loaded; // Set once the index holds the whole table
+    private long loadedThrough; // Highest history id folded in, so a write committed during the load is not counted twice
+    private final TreeSet<Long> folded = new TreeSet<>(); // Ids above loadedThrough already folded in as this process committed them
+    private long itemsVersion = -1; // trip_items change counter when the table was last read; prices are only recorded with trip items, so other processes' prices move it
+
+    public static PriceHistory shared() { // Return the process-wide index, creating it on first use
+        PriceHistory h = shared; // Read the volatile field once on the fast path
+        if (h != null) return h; // Return the existing index without locking
+        synchronized (PriceHistory.class) { // Serialize creation so only one index is ever built
+            if (shared == null) shared = new PriceHistory(); // Build the index if no other thread did it first
+            return shared; // Return the shared index
+        } // End synchronized block
+    } // End shared method
+
+    public Integer suggest(String itemName, String unit, Integer storeId) { // Suggest a unit price for an item, or null when it was never priced
+        Estimate e = estimate(itemName, unit, storeId); // Look up the closest statistics
+        return e == null ? null : e.medianCents; // Suggest the recent median
+    } // End suggest method
+
+    public synchronized Estimate estimate(String itemName, String unit, Integer storeId) { // Statistics for an item at a store, falling back to every store, then to any unit when none was given
+        if (itemName == null || itemName.isBlank()) return null; // Nothing to look up
+        ensureLoaded(); // Build the index on first use
+        catchUp(); // Fold in prices recorded by other processes
+        String name = name(itemName); // Case-insensitive name key
+        String u = unit(unit); // Case-insensitive unit key
+        Stats s = storeId == null ? null : stats.get(name + '\u0001' + u + '\u0001' + storeId); // Prices at this store
+        if (s == null) s = stats.get(name + '\u0001' + u); // Prices in this unit at any store
+        if (s == null && u.isEmpty()) s = stats.get(name); // Without a unit, any price of the item will do
+        return s == null ? null : s.snapshot(); // Hand back a snapshot
+    } // End estimate method
+
+    public synchronized void reload() { // Forget the index so the next lookup replays the table, for example after another process changed it
+        stats.clear(); // Drop every key
+        loaded = false; // Load again on next use
+        loadedThrough = 0; // Accept every id again
+        folded.clear(); // Forget the ids folded in ahead of the load
+        itemsVersion = -1; // Read the counter again with the table
+    } // End reload method
+
+    void record(int tripId, List<TripItem> items) { // Store the prices of the priced items of a trip; call inside a unit of work so the batch ids stay consecutive
+        List<long[]> seen = new ArrayList<>(); // {id, store or MIN_VALUE, day, price} per recorded row, for the index
+        List<TripItem> priced = new ArrayList<>(); // The rows that were recorded
+        try (Connection c = Db.open(); // Borrow the transaction connection
+             PreparedStatement trip = c.prepareStatement(SQL_TRIP); // Prepare the trip lookup
+             PreparedStatement ps = c.prepareStatement(SQL_INSERT); // Prepare the insert once for every row
+             Statement st = c.createStatement()) { // Create a statement for reading back generated ids
+
+            trip.setInt(1, tripId); // Bind the trip identifier
+            Integer store; long day; // Where and when the prices were seen
+            try (ResultSet rs = trip.executeQuery()) { // Read the trip row
+                if (!rs.next()) return; // Without a trip there is no date to file the prices under
+                int s = rs.getInt(1); // Read the store, zero when NULL
+                store = rs.wasNull() ? null : s; // Keep NULL as null
+                day = rs.getLong(2); // Read the trip day
+            } // End try-with-resources for the trip row
+
+            for (TripItem t : items) { // Queue every priced row
+                if (t.expectedPriceCents == null || t.expectedPriceCents <= 0) continue; // Nothing to learn from unpriced lines
+                ps.setString(1, t.itemName.trim()); // Bind the name as stored on the trip
+                ps.setString(2, t.unit); // Bind the unit as stored on the trip
+                if (store == null) ps.setNull(3, Types.INTEGER); else ps.setInt(3, store); // Bind the store or NULL
+                ps.setLong(4, day); // Bind the trip day
+                ps.setInt(5, t.expectedPriceCents); // Bind the unit price
+                ps.addBatch(); // Queue the row
+                priced.add(t); // Remember it for the index
+                if (priced.size() % Batches.SIZE == 0) ps.executeBatch(); // Flush full chunks to keep memory flat
+            } // End loop over items
+            if (priced.isEmpty()) return; // Nothing was priced
+            ps.executeBatch(); // Flush the last chunk
+            long id = Batches.firstId(st, priced.size()); // Ids are consecutive while the transaction holds the write lock
+            for (TripItem t : priced) seen.add(new long[]{id++, store == null ? Long.MIN_VALUE : store, day, t.expectedPriceCents}); // Describe each row for the index
+
+        } catch (Exception e) { // Handle SQL errors while recording
+            e.printStackTrace(); // Print diagnostic output
+            throw new RuntimeException("record prices failed"); // Signal failure; the caller's unit of work rolls back
+        } // End catch block for record errors
+
+        UnitOfWork.afterCommit(() -> { // Fold the prices in only once they are durable
+            synchronized (this) { // Share the index lock with lookups and the load
+                if (!loaded) return; // The first lookup will read them from the table
+                for (int i = 0; i < priced.size(); i++) { // Fold each row in
+                    long[] r = seen.get(i); // {id, store, day, price}
+                    TripItem t = priced.get(i); // The recorded line
+                    if (r[0] > loadedThrough && folded.add(r[0])) add(t.itemName, t.unit, r[1] == Long.MIN_VALUE ? null : (int) r[1], r[2], (int) r[3]); // Skip rows the load or a catch-up already read, and remember the rest
+                } // End loop over recorded rows
+            } // End synchronized block
+        }); // End after-commit callback
+    } // End record method
+
+    private void ensureLoaded() { // Replay the whole table once, oldest day first; callers hold the lock
+        if (loaded) return; // Already built
+        long start = System.nanoTime(); // Time the load
+        int rows = 0; // Rows replayed
+        try (Connection c = Db.open(); // Borrow a pooled connection
+             PreparedStatement ps = c.prepareStatement(SQL_LOAD)) { // Prepare the scan
+
+            itemsVersion = itemsVersion(c); // Read the counter first, so prices recorded during the scan still trigger a catch-up
+            try (ResultSet rs = ps.executeQuery()) { // Walk the day index
+                while (rs.next()) { // Fold in every row
+                    long id = rs.getLong(1); // History id
+                    int s = rs.getInt(4); // Store, zero when NULL
+                    Integer store = rs.wasNull() ? null : s; // Keep NULL as null
+                    add(rs.getString(2), rs.getString(3), store, rs.getLong(5), rs.getInt(6)); // Update the statistics
+                    loadedThrough = Math.max(loadedThrough, id); // Remember the highest id read
+                    rows++; // Count the row
+                } // End loop over rows
+            } // End try-with-resources for the scan
+            loaded = true; // Later writes are folded in as they commit
+
+        } catch (Exception e) { // Handle SQL errors during the load
+            e.printStackTrace(); // Print diagnostic output
+            stats.clear(); // Never serve a partial index
+            throw new RuntimeException("price history load failed"); // Signal failure; the next lookup tries again
+        } // End catch block for load errors
+        Log.info("Prices", "loaded " + rows + " prices into " + stats.size() + " keys (" + (System.nanoTime() - start) / 1_000_000 + " ms)"); // Log the load cost
+    } // End ensureLoaded method
+
+    private void catchUp() { // Fold in rows other processes added since the last read, once the trip item counter has moved; callers hold the lock
+        try (Connection c = Db.open(); // Borrow a pooled connection
+             PreparedStatement ps = c.prepareStatement(SQL_SINCE)) { // Prepare the primary-key range read
+            long v = itemsVersion(c); // Read the counter before the rows
+            if (v == itemsVersion) return; // No trip item was written anywhere, so no price was either
+            ps.setLong(1, loadedThrough); // Start after the last row read
+            try (ResultSet rs = ps.executeQuery()) { // Walk the new rows in id order
+                while (rs.next()) { // Fold in each one this process has not
+                    long id = rs.getLong(1); // History id
+                    loadedThrough = id; // Later rows follow it
+                    if (folded.contains(id)) continue; // Recorded by this process and already folded in
+                    int s = rs.getInt(4); // Store, zero when NULL
+                    add(rs.getString(2), rs.getString(3), rs.wasNull() ? null : s, rs.getLong(5), rs.getInt(6)); // Update the statistics
+                } // End loop over rows
+            } // End try-with-resources for the rows
+            folded.headSet(loadedThrough, true).clear(); // Ids up to here are covered by loadedThrough now
+            itemsVersion = v; // Caught up as of this counter
+        } catch (Exception e) { // Handle SQL errors during the catch-up
+            Log.error("Prices", "catch-up failed", e); // Log the stack trace to aid debugging
+            throw new RuntimeException("price history catch-up failed"); // Signal failure; the next lookup tries again
+        } // End catch block for catch-up errors
+    } // End catchUp method
+
+    private static long itemsVersion(Connection c) throws Exception { // Read the trip item change counter on a borrowed connection
+        try (PreparedStatement ps = c.prepareStatement(SqliteTripService.SQL_ITEMS_VERSION); // Prepare the primary-key read
+             ResultSet rs = ps.executeQuery()) { // Read the counter
+            return rs.next() ? rs.getLong(1) : 0; // Return the counter
+        } // End try-with-resources
+    } // End itemsVersion method
+
+    private void add(String itemName, String unit, Integer storeId, long day, int cents) { // Fold one price into its three keys
+        String name = name(itemName); // Case-insensitive name key
+        String key = name + '\u0001' + unit(unit); // Name and unit key
+        stats.computeIfAbsent(name, k -> new Stats()).add(day, cents); // Any unit, any store
+        stats.computeIfAbsent(key, k -> new Stats()).add(day, cents); // This unit, any store
+        if (storeId != null) stats.computeIfAbsent(key + '\u0001' + storeId, k -> new Stats()).add(day, cents); // This unit at this store
+    } // End add method
+
+    private static String name(String s) { return s.trim().toLowerCase(Locale.ROOT); } // Names match ignoring case and padding, like idx_trip_items_name
+
+    private static String unit(String s) { return s == null ? "" : s.trim().toLowerCase(Locale.ROOT); } // Units match ignoring case; a missing unit is the empty key
+} // End PriceHistory class
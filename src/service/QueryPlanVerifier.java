@@ -0,0 +1,103 @@
+package service; // Define the package for data access services
+
+import app.DBMigrator; // Import the migrator so plans are checked against the current schema
+import app.Db; // Import the database helper used to borrow connections
+import util.Log; // Import the asynchronous logger for the verification result
+
+import java.sql.Connection; // Import Connection for running EXPLAIN QUERY PLAN
+import java.sql.PreparedStatement; // Import PreparedStatement to bind sample parameters
+import java.sql.ResultSet; // Import ResultSet to read the plan rows
+import java.util.ArrayList; // Import ArrayList to collect problems
+import java.util.LinkedHashMap; // Import LinkedHashMap to keep the checked queries in a stable order
+import java.util.List; // Import List as the problem collection type
+import java.util.Map; // Import Map as the query registry type
+
+public final class QueryPlanVerifier { // Check that service queries use indexes instead of full scans or temporary sorts
+
+    private static final String[] LARGE_TABLES = {"pantry_items", "trips", "trip_items"}; // Tables expected to grow large enough that full scans matter
+
+    private QueryPlanVerifier() {} // Private constructor prevents instantiation because all members are static
+
+    static Map<String, String> queries() { // List every service query that must be index-backed, keyed by a readable name
+        Map<String, String> q = new LinkedHashMap<>(); // Keep insertion order so reports are stable
+        q.put("pantry.listAll", SqlitePantryService.SQL_LIST_ALL); // Full pantry listing ordered by name
+        q.put("pantry.getById", SqlitePantryService.SQL_GET_BY_ID); // Single-row lookup by primary key
+        q.put("pantry.lowStock", SqlitePantryService.SQL_LOW_STOCK); // Low-stock listing ordered by name
+        q.put("pantry.expiringSoon", SqlitePantryService.SQL_EXPIRING); // Expiry range query ordered by expiry
+        for (PantryView v : new PantryView[]{PantryView.all(), PantryView.lowStock(), PantryView.expiringSoon(3)}) { // Paged and streamed variants of each pantry listing
+            q.put("pantry.count[" + v + "]", v.countSql()); // Row count for the virtual table
+            q.put("pantry.page[" + v + "]", v.pageSql()); // Keyset page while scrolling forward
+            q.put("pantry.pageAt[" + v + "]", v.offsetSql()); // Offset page when jumping
+            q.put("pantry.stream[" + v + "]", v.streamSql()); // Cursor walk over the whole view
+        } // End loop over views
+        q.put("pantry.update", SqlitePantryService.SQL_UPDATE); // Update by primary key
+        q.put("pantry.adjustQty", SqlitePantryService.SQL_ADJUST_QTY); // Relative quantity change by primary key
+        q.put("pantry.delete", SqlitePantryService.SQL_DELETE); // Delete by primary key
+        q.put("pantry.search", SqlitePantryService.SQL_SEARCH); // Full-text match joined to rows by primary key
+        q.put("pantry.version", SqlitePantryService.SQL_VERSION); // Change counter by primary key
+        q.put("trip.listItems", SqliteTripService.SQL_LIST_ITEMS); // Items of one trip in insertion order
+        q.put("trip.updateItemQty", SqliteTripService.SQL_UPDATE_QTY); // Quantity change by primary key
+        q.put("trip.updateItemQtyCas", SqliteTripService.SQL_UPDATE_QTY_CAS); // Versioned quantity change by primary key
+        q.put("trip.adjustItemQty", SqliteTripService.SQL_ADJUST_QTY); // Relative quantity change by primary key
+        q.put("trip.getItem", SqliteTripService.SQL_GET_ITEM); // One item by primary key
+        q.put("trip.removeItem", SqliteTripService.SQL_DELETE_ITEM); // Delete by primary key
+        q.put("trip.removeItemCas", SqliteTripService.SQL_DELETE_ITEM_CAS); // Versioned delete by primary key
+        q.put("trip.totals", SqliteTripService.SQL_TOTALS); // Stored totals by primary key
+        q.put("trip.itemTrip", SqliteTripService.SQL_ITEM_TRIP); // Trip of one item by primary key
+        q.put("trip.lastPrices", SqliteTripService.SQL_LAST_PRICES); // Newest priced row of each item name
+        q.put("trip.store", SqliteTripService.SQL_TRIP_STORE); // Store of one trip by primary key
+        q.put("trip.itemsVersion", SqliteTripService.SQL_ITEMS_VERSION); // Change counter by primary key
+        q.put("prices.trip", PriceHistory.SQL_TRIP); // Store and day of one trip by primary key
+        q.put("prices.since", PriceHistory.SQL_SINCE); // Prices added after a known id, by primary key range
+        q.put("history.trips", TripHistoryService.SQL_TRIPS); // Trips in a date range, newest first
+        q.put("history.rollup", TripHistoryService.SQL_ROLLUP); // Rollup rows of one grain in a date range
+        return q; // Return the registry
+    } // End queries method
+
+    public static List<String> check() { // Run EXPLAIN QUERY PLAN on every registered query and return a description of each problem
+        DBMigrator.migrate(); // Make sure the indexes exist before inspecting plans
+        List<String> problems = new ArrayList<>(); // Collect every offending plan step
+
+        try (Connection c = Db.open()) { // Borrow a pooled connection that returns to the pool when the block ends
+            for (Map.Entry<String, String> e : queries().entrySet()) { // Inspect each registered query
+                try (PreparedStatement ps = c.prepareStatement("EXPLAIN QUERY PLAN " + e.getValue())) { // Ask SQLite how it would run the query
+                    int params = ps.getParameterMetaData().getParameterCount(); // Find how many placeholders the query has
+                    for (int i = 1; i <= params; i++) ps.setNull(i, java.sql.Types.NULL); // Bind NULL to each; the plan does not depend on values
+                    try (ResultSet rs = ps.executeQuery()) { // Read the plan rows
+                        while (rs.next()) { // Walk each plan step
+                            String detail = rs.getString("detail"); // Read the human-readable plan description
+                            if (isBad(detail)) problems.add(e.getKey() + ": " + detail); // Record steps that scan or sort a large table
+                        } // End loop over plan steps
+                    } // End try-with-resources for the plan rows
+                } // End try-with-resources for the EXPLAIN statement
+            } // End loop over queries
+        } catch (Exception e) { // Handle SQL errors while explaining queries
+            e.printStackTrace(); // Print the stack trace for debugging
+            throw new RuntimeException("query plan check failed: " + e.getMessage()); // Signal the failure to the caller
+        } // End catch block for explain errors
+        return problems; // Return the list of offending plan steps (empty when every query is index-backed)
+    } // End check method
+
+    public static void verifyOrThrow() { // Fail fast when any service query regresses to a full scan
+        List<String> problems = check(); // Collect the offending plan steps
+        if (!problems.isEmpty()) throw new IllegalStateException("query plans use full scans:\n  " + String.join("\n  ", problems)); // Report every problem at once
+        Log.info("DB", "query plans ok (" + queries().size() + " queries)"); // Log a successful verification
+    } // End verifyOrThrow method
+
+    static boolean isBad(String detail) { // Decide whether a plan step is a full scan or sort over a large table
+        if (detail.startsWith("USE TEMP B-TREE")) return true; // A temporary B-tree means the rows are sorted or grouped after reading
+        if (!detail.startsWith("SCAN ")) return false; // SEARCH steps use an index or the primary key and are fine
+        if (detail.contains(" USING INDEX") || detail.contains(" USING COVERING INDEX")) return false; // An ordered index walk is the cheapest way to list rows
+        for (String t : LARGE_TABLES) { // Compare against each large table name
+            if (detail.equals("SCAN " + t) || detail.startsWith("SCAN " + t + " ")) return true; // A bare table scan reads every row
+        } // End loop over large tables
+        return false; // Scans of small or temporary structures are acceptable
+    } // End isBad method
+
+    public static void main(String[] args) { // Command-line test mode: exit non-zero when any plan regresses
+        List<String> problems = check(); // Inspect every registered query
+        for (String p : problems) System.out.println("[PLAN] " + p); // Print each offending plan step
+        if (!problems.isEmpty()) System.exit(1); // Fail the build or script when any query scans a large table
+        System.out.println("[PLAN] all " + queries().size() + " queries are index-backed"); // Confirm that every plan passed
+    } // End main method
+} // End QueryPlanVerifier class
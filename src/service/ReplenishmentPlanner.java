@@ -0,0 +1,101 @@
+package service; // Define the package for trip-related data access services
+
+import app.UnitOfWork; // Import UnitOfWork so the trip and its items commit together
+import model.PantryItem; // Import PantryItem as the planning input
+import model.Trip; // Import Trip as the created trip
+import model.TripItem; // Import TripItem as the planned lines
+
+import java.time.LocalDate; // Import LocalDate as the trip date type
+import java.util.ArrayList; // Import ArrayList to collect planned lines
+import java.util.LinkedHashMap; // Import LinkedHashMap to merge the two sources in name order
+import java.util.List; // Import List as the line list type
+import java.util.Map; // Import Map as the merge map type
+
+public class ReplenishmentPlanner { // Turn low-stock and soon-expiring pantry items into a shopping trip
+
+    public static final class Options { // Knobs for one planning run
+        public int bufferUnits = Integer.getInteger("replenishBufferUnits", 0); // Extra units bought on top of the shortfall
+        public int bufferPercent = Integer.getInteger("replenishBufferPercent", 0); // Extra units as a percentage of min_qty, rounded up
+        public int expiringDays = Integer.getInteger("replenishExpiringDays", 3); // Replace items expiring within this many days; negative to ignore expiry
+
+        @Override // Indicate that we are overriding Object.toString
+        public String toString() { return "buffer " + bufferUnits + " + " + bufferPercent + "%, expiring ≤ " + expiringDays + " days"; } // Describe the settings for logs
+    } // End Options class
+
+    public static final class Plan { // Lines to buy, not yet written anywhere
+        public final List<TripItem> items; // One line per pantry item, in name order
+        public final int estimatedCents; // Sum of the priced lines
+        public final int unpriced; // Lines without a known price
+        public final long nanos; // Time spent planning
+
+        Plan(List<TripItem> items, int estimatedCents, int unpriced, long nanos) { // Build an immutable plan
+            this.items = items; // Remember the lines
+            this.estimatedCents = estimatedCents; // Remember the estimate
+            this.unpriced = unpriced; // Remember the unpriced count
+            this.nanos = nanos; // Remember the timing
+        } // End constructor
+
+        @Override // Indicate that we are overriding Object.toString
+        public String toString() { return items.size() + " lines, estimated " + estimatedCents + " cents, " + unpriced + " unpriced (" + nanos / 1_000_000 + " ms)"; } // Summarize the plan
+    } // End Plan class
+
+    private final SqlitePantryService pantry; // Source of low-stock and expiring items
+    private final SqliteTripService trips; // Target of the new trip
+    private final PriceHistory prices = PriceHistory.shared(); // Source of the estimated prices
+
+    public ReplenishmentPlanner() { this(CachedPantryService.shared(), new SqliteTripService()); } // Plan from the shared cache so the pantry lists come from memory
+
+    public ReplenishmentPlanner(SqlitePantryService pantry, SqliteTripService trips) { // Plan with caller-supplied services
+        this.pantry = pantry; // Remember the pantry service
+        this.trips = trips; // Remember the trip service
+    } // End constructor
+
+    public Plan plan(Options o) { // Work out what to buy; reads only
+        long start = System.nanoTime(); // Time the whole run
+        Map<Integer, PantryItem> low = new LinkedHashMap<>(); // Low-stock items in name order
+        for (PantryItem p : pantry.lowStock()) low.put(p.id, p); // Index them by id for the merge
+        Map<Integer, PantryItem> expiring = new LinkedHashMap<>(); // Items about to go off
+        if (o.expiringDays >= 0) for (PantryItem p : pantry.expiringSoon(o.expiringDays)) expiring.put(p.id, p); // Index them by id for the merge
+
+        List<PantryItem> picked = new ArrayList<>(low.values()); // Every low-stock item is a candidate
+        for (PantryItem p : expiring.values()) if (!low.containsKey(p.id)) picked.add(p); // Add expiring items not already listed
+        picked.sort(PantryView.BY_NAME); // Plan lines in name order, like the pantry window
+
+        List<TripItem> items = new ArrayList<>(picked.size()); // Lines with a positive quantity
+        for (PantryItem p : picked) { // Size each line
+            int qty = quantity(p, expiring.containsKey(p.id), o); // Units to buy
+            if (qty <= 0) continue; // Nothing to buy for this item
+            TripItem t = new TripItem(); // Build the line
+            t.itemName = p.name; // Buy the pantry item by name
+            t.unit = p.unit; // In the pantry's unit
+            t.plannedQty = qty; // The computed quantity
+            items.add(t); // Keep the line
+        } // End loop over candidates
+
+        int estimate = 0, unpriced = 0; // Totals for the summary
+        for (TripItem t : items) { // Fill in prices
+            t.expectedPriceCents = prices.suggest(t.itemName, t.unit, null); // Recent median price from memory, or null when never priced
+            if (t.expectedPriceCents == null) unpriced++; // Count lines the user has to price
+            else estimate += t.expectedPriceCents * t.plannedQty; // Add the line to the estimate
+        } // End loop over lines
+        return new Plan(items, estimate, unpriced, System.nanoTime() - start); // Hand back the plan
+    } // End plan method
+
+    public Trip createTrip(Plan plan, LocalDate date, Integer budgetCents, String note) { // Write a planned trip and all its lines in one transaction
+        if (plan.items.isEmpty()) throw new IllegalArgumentException("nothing needs restocking"); // Do not create empty trips
+        int budget = budgetCents == null ? plan.estimatedCents : budgetCents; // Budget the estimate unless the caller chose one
+        return UnitOfWork.call(() -> { // Create the trip and insert its lines with a single commit
+            Trip t = trips.create(date, null, budget, note); // Insert the trip row
+            trips.addItems(t.id, plan.items, false); // Insert every line in JDBC batches; the prices are estimates, so they stay out of the history
+            return t; // Hand back the trip
+        }); // End unit of work
+    } // End createTrip method
+
+    static int quantity(PantryItem p, boolean expiring, Options o) { // Units needed to bring an item back to its minimum plus the buffers
+        int onHand = expiring ? 0 : p.onHandQty; // Stock about to expire does not count
+        int target = expiring ? Math.max(p.minQty, 1) : p.minQty; // Replace expiring items even when no minimum is set
+        int shortfall = Math.max(0, target - onHand); // Units below the target; items exactly at their minimum have none
+        int percent = (p.minQty * Math.max(0, o.bufferPercent) + 99) / 100; // Percentage buffer, rounded up
+        return shortfall + Math.max(0, o.bufferUnits) + percent; // Shortfall plus both buffers; zero means nothing to buy
+    } // End quantity method
+} // End ReplenishmentPlanner class
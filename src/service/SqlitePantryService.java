@@ -2,101 +2,160 @@ package service; // Define the package for pantry-related data access services
 
 import app.DBMigrator; // Import the migrator to ensure schema is ready before use
 import app.Db; // Import the database helper used to open JDBC connections
+import app.UnitOfWork; // Import UnitOfWork so batch writes commit once for all rows
 import model.PantryItem; // Import the data model representing pantry items
+import util.Metrics; // Import the metrics registry for per-call latency timers
 
 import java.sql.Connection; // Import Connection for interacting with the database
 import java.sql.PreparedStatement; // Import PreparedStatement for parameterized SQL commands
 import java.sql.ResultSet; // Import ResultSet to iterate over query results
+import java.sql.SQLException; // Import SQLException for the shared binding helpers
 import java.sql.Statement; // Import Statement constants for returning generated keys
 import java.sql.Types; // Import SQL type constants to set NULL values properly
-import java.time.Instant; // Import Instant to record timestamps for updates
+import java.time.LocalDate; // Import LocalDate to compute expiry cutoffs
 import java.util.ArrayList; // Import ArrayList to collect results
 import java.util.List; // Import List as the method return type
+import java.util.Spliterator; // Import Spliterator to adapt a JDBC cursor to a Stream
+import java.util.Spliterators; // Import Spliterators for the sequential spliterator base class
+import java.util.concurrent.CopyOnWriteArrayList; // Import CopyOnWriteArrayList so listeners can register while writes notify them
+import java.util.concurrent.atomic.AtomicLong; // Import AtomicLong to count the rows this process committed
+import java.util.function.Consumer; // Import Consumer as the spliterator callback type
+import java.util.function.UnaryOperator; // Import UnaryOperator as the change applied by modify()
+import java.util.stream.Stream; // Import Stream as the cursor-backed result type
+import java.util.stream.StreamSupport; // Import StreamSupport to build the cursor-backed stream
 
 public class SqlitePantryService { // Declare the service that performs pantry CRUD operations using SQLite
 
+    static final String SQL_LIST_ALL = "SELECT * FROM pantry_items ORDER BY name"; // Define the SQL query used to fetch every row sorted alphabetically
+    static final String SQL_GET_BY_ID = "SELECT * FROM pantry_items WHERE id=?"; // Define the SQL fetching a single row by primary key
+    static final String SQL_LOW_STOCK = "SELECT * FROM pantry_items WHERE on_hand_qty <= min_qty ORDER BY name"; // Define the SQL filtering low-stock items
+    static final String SQL_EXPIRING = "SELECT * FROM pantry_items WHERE expiry_day IS NOT NULL AND expiry_day <= ? ORDER BY expiry_day ASC"; // Define SQL to fetch items with expirations on or before the cutoff day
+    static final String SQL_INSERT = "INSERT INTO pantry_items(name, category, on_hand_qty, unit, expiry_day, min_qty, updated_at_ms) " + // Begin the INSERT statement specifying columns
+            "VALUES (?,?,?,?,?,?,?)"; // Provide placeholders for each value to insert
+    static final String SQL_UPDATE = "UPDATE pantry_items SET name=?, category=?, on_hand_qty=?, unit=?, expiry_day=?, min_qty=?, updated_at_ms=?, " + // Define the update statement covering all mutable columns
+            "expiry_text = CASE WHEN ? IS NULL THEN expiry_text END, row_version = row_version + 1 " + // Keep the unreadable old text until an expiry is saved
+            "WHERE id=? AND row_version=?"; // Compare and set: only the row with the matching ID, and only while it still has the version the caller read
+    static final String SQL_ADJUST_QTY = "UPDATE pantry_items SET on_hand_qty = on_hand_qty + ?, updated_at_ms = ?, row_version = row_version + 1 " + // Add to the stored quantity instead of writing one computed from a read
+            "WHERE id = ? AND on_hand_qty + ? >= 0 RETURNING *"; // Refuse to go below zero, and hand back the stored row in the same statement
+    static final String SQL_DELETE = "DELETE FROM pantry_items WHERE id=?"; // Define the SQL command to remove the row
+    static final String SQL_SEARCH = "SELECT p.* FROM pantry_fts f JOIN pantry_items p ON p.id = f.rowid " + // Define the full-text search, joining each match back to its row by primary key
+            "WHERE pantry_fts MATCH ? AND f.rank MATCH 'bm25(4.0, 1.0)' ORDER BY f.rank LIMIT ?"; // Best matches first, a name hit weighing four times a category hit; ordering by rank lets FTS5 sort instead of a temp B-tree
+    static final String SQL_VERSION = "SELECT version FROM table_versions WHERE name = 'pantry_items'"; // Change counter bumped by triggers on every pantry write
+
+    private static final Metrics.Timer T_LIST_ALL = Metrics.timer("pantry.listAll"); // Latency of listAll()
+    private static final Metrics.Timer T_GET_BY_ID = Metrics.timer("pantry.getById"); // Latency of getById()
+    private static final Metrics.Timer T_LOW_STOCK = Metrics.timer("pantry.lowStock"); // Latency of lowStock()
+    private static final Metrics.Timer T_EXPIRING_SOON = Metrics.timer("pantry.expiringSoon"); // Latency of expiringSoon()
+    private static final Metrics.Timer T_COUNT = Metrics.timer("pantry.count"); // Latency of count()
+    private static final Metrics.Timer T_PAGE = Metrics.timer("pantry.page"); // Latency of page()
+    private static final Metrics.Timer T_PAGE_AT = Metrics.timer("pantry.pageAt"); // Latency of pageAt()
+    private static final Metrics.Timer T_SEARCH = Metrics.timer("pantry.search"); // Latency of search()
+    private static final Metrics.Timer T_STREAM = Metrics.timer("pantry.stream"); // Time stream() takes to open its cursor, not to drain it
+    private static final Metrics.Timer T_ADD = Metrics.timer("pantry.add"); // Latency of add()
+    private static final Metrics.Timer T_UPDATE = Metrics.timer("pantry.update"); // Latency of update()
+    private static final Metrics.Timer T_DELETE = Metrics.timer("pantry.delete"); // Latency of delete()
+    private static final Metrics.Timer T_ADJUST_QTY = Metrics.timer("pantry.adjustQty"); // Latency of adjustQty()
+    private static final Metrics.Timer T_ADD_ALL = Metrics.timer("pantry.addAll"); // Latency of addAll()
+    private static final Metrics.Timer T_UPDATE_ALL = Metrics.timer("pantry.updateAll"); // Latency of updateAll()
+    private static final Metrics.Counter CONFLICTS = Metrics.counter("pantry.conflicts"); // Updates refused because the row had changed
+    private static final Metrics.Counter RETRIES = Metrics.counter("pantry.retries"); // Changes modify() applied again to a newer row
+
+    static final int CAS_ATTEMPTS = 8; // Tries modify() makes before reporting the conflict; each refusal means another writer got through
+
+    public interface ChangeListener { // Told about pantry writes once they are committed, whichever service instance made them
+        void saved(List<PantryItem> items); // Rows inserted or updated, exactly as stored; the list belongs to the listener
+        void deleted(int id); // Row removed by id
+    } // End ChangeListener interface
+
+    private static final List<ChangeListener> LISTENERS = new CopyOnWriteArrayList<>(); // Process-wide listeners, so writes through any instance are seen
+
+    private static final AtomicLong COMMITTED = new AtomicLong(); // Pantry rows written and committed by this process, through any instance
+
+    public static void addChangeListener(ChangeListener l) { LISTENERS.add(l); } // Start receiving committed pantry writes
+
+    public static void removeChangeListener(ChangeListener l) { LISTENERS.remove(l); } // Stop receiving committed pantry writes
+
     public SqlitePantryService() { // Constructor ensures prerequisites are met before use
-        DBMigrator.migrate(); // Run database migrations so required tables exist
+        DBMigrator.migrate(); // Make sure the schema is current; a no-op once App has migrated at startup
     } // End constructor
 
     public List<PantryItem> listAll() { // Retrieve all pantry items ordered by name
-        String sql = "SELECT * FROM pantry_items ORDER BY name"; // Define the SQL query used to fetch every row sorted alphabetically
+        long t0 = T_LIST_ALL.start(); // Start timing the call
         List<PantryItem> out = new ArrayList<>(); // Prepare a mutable list to store the resulting pantry items
 
-        try (Connection c = Db.open(); // Open a database connection that will be closed automatically
-             PreparedStatement ps = c.prepareStatement(sql); // Prepare the SQL statement for execution
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool when the block ends
+             PreparedStatement ps = c.prepareStatement(SQL_LIST_ALL); // Prepare the SQL statement for execution
              ResultSet rs = ps.executeQuery()) { // Execute the query and obtain a result set to iterate over
 
             while (rs.next()) { // Loop through each row returned by the query
-                PantryItem p = new PantryItem(); // Create a new PantryItem instance to hold row data
-                p.id = rs.getInt("id"); // Populate the identifier field from the result set
-                p.name = rs.getString("name"); // Populate the name from the database column
-                p.category = rs.getString("category"); // Populate the optional category value
-                p.onHandQty = rs.getInt("on_hand_qty"); // Populate the quantity currently on hand
-                p.unit = rs.getString("unit"); // Populate the measurement unit if provided
-                p.expiry = rs.getString("expiry"); // Populate the optional expiration date string
-                p.minQty = rs.getInt("min_qty"); // Populate the minimum desired quantity
-                p.updatedAt = rs.getString("updated_at"); // Populate the last update timestamp stored as text
+                PantryItem p = readRow(rs); // Hydrate the row, converting the integer date columns
                 out.add(p); // Add the hydrated pantry item to the results list
             } // End while loop processing all rows
 
         } catch (Exception e) { // Handle any SQL or connection errors encountered during the query
             e.printStackTrace(); // Print the stack trace to aid in debugging issues
             throw new RuntimeException("pantry list failed"); // Throw a runtime exception to signal failure to callers
-        } // End catch block for query errors
+        } finally { // Record the duration however the call ended
+            T_LIST_ALL.stop(t0); // Add it to the pantry.listAll timer
+        } // End timing
         return out; // Return the populated list of pantry items to the caller
     } // End listAll method
 
+    public PantryItem getById(int id) { // Retrieve one pantry item by its identifier, or null when no such row exists
+        long t0 = T_GET_BY_ID.start(); // Start timing the call
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_GET_BY_ID)) { // Prepare the primary-key lookup
+
+            ps.setInt(1, id); // Bind the identifier to the SQL parameter
+            try (ResultSet rs = ps.executeQuery()) { // Execute the lookup
+                if (!rs.next()) return null; // Report a missing row as null
+                PantryItem p = readRow(rs); // Hydrate the row, converting the integer date columns
+                return p; // Return the hydrated item
+            } // End try-with-resources for the ResultSet
+
+        } catch (Exception e) { // Handle SQL errors during the lookup
+            e.printStackTrace(); // Print the stack trace for debugging purposes
+            throw new RuntimeException("get by id failed"); // Signal the failure to the caller
+        } finally { // Record the duration however the call ended
+            T_GET_BY_ID.stop(t0); // Add it to the pantry.getById timer
+        } // End timing
+    } // End getById method
+
     public List<PantryItem> lowStock() { // Retrieve items whose on-hand quantity is at or below the minimum threshold
-        String sql = "SELECT * FROM pantry_items WHERE on_hand_qty <= min_qty ORDER BY name"; // Define the SQL filtering low-stock items
+        long t0 = T_LOW_STOCK.start(); // Start timing the call
         List<PantryItem> out = new ArrayList<>(); // Prepare a list to accumulate the results
 
-        try (Connection c = Db.open(); // Open a database connection
-             PreparedStatement ps = c.prepareStatement(sql); // Prepare the low-stock query
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_LOW_STOCK); // Prepare the low-stock query
              ResultSet rs = ps.executeQuery()) { // Execute the query and obtain the results
 
             while (rs.next()) { // Iterate through each matching row
-                PantryItem p = new PantryItem(); // Create a new pantry item instance for the row
-                p.id = rs.getInt("id"); // Populate the identifier from the database
-                p.name = rs.getString("name"); // Populate the name field
-                p.category = rs.getString("category"); // Populate the optional category value
-                p.onHandQty = rs.getInt("on_hand_qty"); // Populate the current quantity on hand
-                p.unit = rs.getString("unit"); // Populate the unit of measurement
-                p.expiry = rs.getString("expiry"); // Populate the optional expiration value
-                p.minQty = rs.getInt("min_qty"); // Populate the minimum target quantity
-                p.updatedAt = rs.getString("updated_at"); // Populate the timestamp indicating last update
+                PantryItem p = readRow(rs); // Hydrate the row, converting the integer date columns
                 out.add(p); // Append the item to the output list
             } // End while loop processing results
 
         } catch (Exception e) { // Handle exceptions during the low-stock query
             e.printStackTrace(); // Print diagnostic information for troubleshooting
             throw new RuntimeException("low stock query failed"); // Indicate failure to the caller
-        } // End catch block for low-stock query errors
+        } finally { // Record the duration however the call ended
+            T_LOW_STOCK.stop(t0); // Add it to the pantry.lowStock timer
+        } // End timing
         return out; // Return the list of low-stock items
     } // End lowStock method
 
     public List<PantryItem> expiringSoon(int days) { // Retrieve items expiring within the next supplied number of days
-        java.time.LocalDate limit = java.time.LocalDate.now().plusDays(days); // Calculate the cutoff date by adding the requested days to today
-        String limitStr = limit.toString(); // Convert the cutoff date to ISO-8601 text for SQL comparison
+        long t0 = T_EXPIRING_SOON.start(); // Start timing the call
+        long limit = LocalDate.now().plusDays(days).toEpochDay(); // Calculate the cutoff day by adding the requested days to today
 
-        String sql = "SELECT * FROM pantry_items WHERE expiry IS NOT NULL AND expiry <= ? ORDER BY expiry ASC"; // Define SQL to fetch items with expirations on or before the cutoff
         List<PantryItem> out = new ArrayList<>(); // Prepare a list to hold the expiring items
 
-        try (Connection c = Db.open(); // Open a database connection
-             PreparedStatement ps = c.prepareStatement(sql)) { // Prepare the parameterized query for execution
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_EXPIRING)) { // Prepare the parameterized query for execution
 
-            ps.setString(1, limitStr); // Bind the cutoff date string to the SQL parameter
+            ps.setLong(1, limit); // Bind the cutoff day number to the SQL parameter
             try (ResultSet rs = ps.executeQuery()) { // Execute the query and capture the results for iteration
                 while (rs.next()) { // Iterate over each result row
-                    PantryItem p = new PantryItem(); // Instantiate a pantry item to populate from the row
-                    p.id = rs.getInt("id"); // Populate the identifier
-                    p.name = rs.getString("name"); // Populate the name field
-                    p.category = rs.getString("category"); // Populate the optional category
-                    p.onHandQty = rs.getInt("on_hand_qty"); // Populate the quantity on hand
-                    p.unit = rs.getString("unit"); // Populate the unit value
-                    p.expiry = rs.getString("expiry"); // Populate the expiration text
-                    p.minQty = rs.getInt("min_qty"); // Populate the minimum quantity threshold
-                    p.updatedAt = rs.getString("updated_at"); // Populate the update timestamp text
+                    PantryItem p = readRow(rs); // Hydrate the row, converting the integer date columns
                     out.add(p); // Add the expiring item to the list
                 } // End while loop iterating over expiring results
             } // End try-with-resources for the ResultSet
@@ -104,87 +163,431 @@ public class SqlitePantryService { // Declare the service that performs pantry C
         } catch (Exception e) { // Handle any SQL issues during the expiring-soon query
             e.printStackTrace(); // Print the stack trace for debugging purposes
             throw new RuntimeException("expiring soon query failed"); // Signal the failure to the caller
-        } // End catch block for expiring query errors
+        } finally { // Record the duration however the call ended
+            T_EXPIRING_SOON.stop(t0); // Add it to the pantry.expiringSoon timer
+        } // End timing
         return out; // Return the list of items expiring soon
     } // End expiringSoon method
 
-    public PantryItem add(PantryItem p) { // Insert a new pantry item record after basic validation
-        if (p == null) throw new IllegalArgumentException("null item"); // Ensure the caller provided a pantry item instance
-        if (p.name == null || p.name.isBlank()) throw new IllegalArgumentException("name required"); // Enforce that the name is present and non-empty
-        if (p.onHandQty < 0) throw new IllegalArgumentException("qty cannot be negative"); // Prevent negative quantities on hand
-        if (p.minQty < 0) throw new IllegalArgumentException("min cannot be negative"); // Prevent negative minimum threshold values
+    public int count(PantryView v) { // Count the rows of a view, reading only its index
+        long t0 = T_COUNT.start(); // Start timing the call
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(v.countSql())) { // Prepare the count query
+
+            bindCutoff(ps, v); // Bind the view's cutoff, if it has one
+            try (ResultSet rs = ps.executeQuery()) { // Execute the count
+                return rs.next() ? rs.getInt(1) : 0; // Return the number of matching rows
+            } // End try-with-resources for the ResultSet
+
+        } catch (Exception e) { // Handle SQL errors during the count
+            e.printStackTrace(); // Print the stack trace for debugging purposes
+            throw new RuntimeException("pantry count failed"); // Signal the failure to the caller
+        } finally { // Record the duration however the call ended
+            T_COUNT.stop(t0); // Add it to the pantry.count timer
+        } // End timing
+    } // End count method
+
+    static long committedRows() { return COMMITTED.get(); } // Rows this process has committed, as change listeners saw them; the version() counter moving further means another process wrote
+
+    public long version() { // Read the pantry change counter; it moves on every committed insert, update or delete, from any process
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_VERSION); // Prepare the primary-key read
+             ResultSet rs = ps.executeQuery()) { // Read the counter
+            return rs.next() ? rs.getLong(1) : 0; // Return the counter
+        } catch (Exception e) { // Handle SQL errors during the read
+            e.printStackTrace(); // Print the stack trace for debugging purposes
+            throw new RuntimeException("pantry version failed"); // Signal the failure to the caller
+        } // End catch block for version errors
+    } // End version method
+
+    public List<PantryItem> page(PantryView v, Object afterKey, int afterId, int limit) { // Read up to limit rows that follow the row (afterKey, afterId) in the view's order; a null key starts at the top
+        if (afterKey == null) return pageAt(v, 0, limit); // The first page has no key to seek past
+        long t0 = T_PAGE.start(); // Start timing the call
+        List<PantryItem> out = new ArrayList<>(); // Prepare a list to hold the page
+
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(v.pageSql())) { // Prepare the keyset query
+
+            int i = bindCutoff(ps, v); // Bind the view's cutoff, if it has one
+            ps.setObject(i, afterKey); // Bind the sort key of the previous page's last row, text or day number
+            ps.setInt(i + 1, afterId); // Bind its id to break ties between equal keys
+            ps.setInt(i + 2, limit); // Bind the page size
+            try (ResultSet rs = ps.executeQuery()) { // Seek into the index and read the page
+                while (rs.next()) out.add(readRow(rs)); // Hydrate each row
+            } // End try-with-resources for the ResultSet
+
+        } catch (Exception e) { // Handle SQL errors during the page query
+            e.printStackTrace(); // Print the stack trace for debugging purposes
+            throw new RuntimeException("pantry page failed"); // Signal the failure to the caller
+        } finally { // Record the duration however the call ended
+            T_PAGE.stop(t0); // Add it to the pantry.page timer
+        } // End timing
+        return out; // Return the page in view order
+    } // End page method
+
+    public List<PantryItem> pageAt(PantryView v, int offset, int limit) { // Read up to limit rows starting at a position in the view; cost grows with the offset, so prefer page() when scrolling forward
+        long t0 = T_PAGE_AT.start(); // Start timing the call
+        List<PantryItem> out = new ArrayList<>(); // Prepare a list to hold the page
+
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(v.offsetSql())) { // Prepare the offset query
+
+            int i = bindCutoff(ps, v); // Bind the view's cutoff, if it has one
+            ps.setInt(i, limit); // Bind the page size
+            ps.setInt(i + 1, offset); // Bind the number of rows to skip
+            try (ResultSet rs = ps.executeQuery()) { // Walk the index to the offset and read the page
+                while (rs.next()) out.add(readRow(rs)); // Hydrate each row
+            } // End try-with-resources for the ResultSet
+
+        } catch (Exception e) { // Handle SQL errors during the page query
+            e.printStackTrace(); // Print the stack trace for debugging purposes
+            throw new RuntimeException("pantry page failed"); // Signal the failure to the caller
+        } finally { // Record the duration however the call ended
+            T_PAGE_AT.stop(t0); // Add it to the pantry.pageAt timer
+        } // End timing
+        return out; // Return the page in view order
+    } // End pageAt method
+
+    public List<PantryItem> search(String query, int limit) { // Items whose name or category has words starting with every word of the query, best first
+        long t0 = T_SEARCH.start(); // Start timing the call
+        List<PantryItem> out = new ArrayList<>(); // Collect the matches
+        String match = ftsQuery(query); // Translate the typed text into an FTS5 prefix query
+        if (match.isEmpty()) return out; // Nothing searchable was typed
+
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_SEARCH)) { // Prepare the full-text query
+
+            ps.setString(1, match); // Bind the prefix query
+            ps.setInt(2, limit); // Bind the result limit
+            try (ResultSet rs = ps.executeQuery()) { // Execute the search
+                while (rs.next()) out.add(readRow(rs)); // Hydrate each match in rank order
+            } // End try-with-resources for the ResultSet
+
+        } catch (Exception e) { // Handle SQL errors during the search
+            e.printStackTrace(); // Print the stack trace for debugging purposes
+            throw new RuntimeException("pantry search failed"); // Signal the failure to the caller
+        } finally { // Record the duration however the call ended
+            T_SEARCH.stop(t0); // Add it to the pantry.search timer
+        } // End timing
+        return out; // Return the matches
+    } // End search method
+
+    static String ftsQuery(String query) { // Turn typed text into an FTS5 query: every word, as a prefix, must match
+        StringBuilder sb = new StringBuilder(); // Build the query
+        int i = 0, n = query == null ? 0 : query.length(); // Scan position and length
+        while (i < n) { // Walk the words
+            while (i < n && !Character.isLetterOrDigit(query.charAt(i))) i++; // Skip punctuation and spaces, which also strips FTS5 syntax
+            int start = i; // First character of the word
+            while (i < n && Character.isLetterOrDigit(query.charAt(i))) i++; // Find its end
+            if (i > start) sb.append(sb.length() == 0 ? "" : " ").append('"').append(query, start, i).append("\"*"); // Quote it and make it a prefix
+        } // End loop over words
+        return sb.toString(); // Words joined by spaces, which FTS5 reads as AND
+    } // End ftsQuery method
+
+    public Stream<PantryItem> stream(PantryView v) { // Stream a view row by row from an open cursor; the caller must close the stream to release the connection
+        long t0 = T_STREAM.start(); // Start timing the call
+        Connection c = Db.open(); // Borrow a pooled connection held until the stream is closed
+        try { // Release the connection if the query cannot be started
+            PreparedStatement ps = c.prepareStatement(v.streamSql()); // Prepare the ordered walk over the view
+            bindCutoff(ps, v); // Bind the view's cutoff, if it has one
+            ResultSet rs = ps.executeQuery(); // Open the cursor; SQLite produces rows as they are stepped
+            Spliterator<PantryItem> rows = new Spliterators.AbstractSpliterator<PantryItem>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) { // Pull one row per advance
+                @Override // Indicate that we are implementing Spliterator.tryAdvance
+                public boolean tryAdvance(Consumer<? super PantryItem> action) { // Hand the next row to the stream pipeline
+                    try { // Translate cursor errors into the service's unchecked failure
+                        if (!rs.next()) return false; // Stop at the end of the cursor
+                        action.accept(readRow(rs)); // Hydrate and emit the current row
+                        return true; // Report that a row was produced
+                    } catch (SQLException e) { // Handle errors while stepping the cursor
+                        e.printStackTrace(); // Print the stack trace for debugging purposes
+                        throw new RuntimeException("pantry stream failed"); // Signal the failure to the consumer
+                    } // End catch block for cursor errors
+                } // End tryAdvance method
+            }; // End spliterator definition
+            return StreamSupport.stream(rows, false).onClose(() -> closeQuietly(rs, ps, c)); // Release cursor, statement and connection when the caller closes the stream
+        } catch (Exception e) { // Handle SQL errors while opening the cursor
+            try { c.close(); } catch (SQLException ignored) { } // Return the connection before reporting the original failure
+            e.printStackTrace(); // Print the stack trace for debugging purposes
+            throw new RuntimeException("pantry stream failed"); // Signal the failure to the caller
+        } finally { // Record the duration however the call ended
+            T_STREAM.stop(t0); // Add it to the pantry.stream timer
+        } // End timing
+    } // End stream method
 
-        String sql = "INSERT INTO pantry_items(name, category, on_hand_qty, unit, expiry, min_qty, updated_at) " + // Begin the INSERT statement specifying columns
-                "VALUES (?,?,?,?,?,?,?)"; // Provide placeholders for each value to insert
+    public PantryItem add(PantryItem p) { // Insert a new pantry item record after basic validation
+        long t0 = T_ADD.start(); // Start timing the call
+        validateNew(p); // Reject items that break the pantry rules before touching the database
 
-        try (Connection c = Db.open(); // Open a database connection
-             PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) { // Prepare the insert statement and request generated keys
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_INSERT, Statement.RETURN_GENERATED_KEYS)) { // Prepare the insert statement and request generated keys
 
-            ps.setString(1, p.name.trim()); // Bind the trimmed item name to the first parameter
-            ps.setString(2, emptyToNull(p.category)); // Bind the normalized category value, converting blanks to null
-            ps.setInt(3, p.onHandQty); // Bind the quantity on hand to the third parameter
-            ps.setString(4, emptyToNull(p.unit)); // Bind the unit, storing null when the value is blank
-            if (p.expiry == null || p.expiry.isBlank()) ps.setNull(5, Types.VARCHAR); else ps.setString(5, p.expiry); // Bind the expiration string or NULL depending on input
-            ps.setInt(6, p.minQty); // Bind the minimum quantity threshold
-            ps.setString(7, Instant.now().toString()); // Bind the current timestamp as the updated_at value
+            long now = System.currentTimeMillis(); // Capture the modification time once for the row and the returned object
+            bindRow(ps, p, now); // Bind the seven column values shared by INSERT and UPDATE
 
             ps.executeUpdate(); // Execute the insert command to persist the new item
 
             try (ResultSet keys = ps.getGeneratedKeys()) { // Retrieve any generated keys to set the new item ID
                 if (keys.next()) p.id = keys.getInt(1); // Assign the generated primary key back to the object if present
             } // End try-with-resources for generated keys
+            normalize(p, now); // Make the returned object match the stored row exactly
+            fireSaved(List.of(p)); // Tell listeners once the row is committed
             return p; // Return the inserted pantry item with its identifier populated
 
         } catch (Exception e) { // Handle any SQL errors during insertion
             e.printStackTrace(); // Print the stack trace to assist debugging
             throw new RuntimeException("add failed"); // Signal failure to the caller via an unchecked exception
-        } // End catch block for add operation errors
+        } finally { // Record the duration however the call ended
+            T_ADD.stop(t0); // Add it to the pantry.add timer
+        } // End timing
     } // End add method
 
     public PantryItem update(PantryItem p) { // Update an existing pantry item identified by its ID
-        if (p == null || p.id == null || p.id <= 0) throw new IllegalArgumentException("bad id"); // Validate that a positive ID is supplied
-        if (p.name == null || p.name.isBlank()) throw new IllegalArgumentException("name required"); // Ensure the updated item retains a name
-
-        String sql = "UPDATE pantry_items SET name=?, category=?, on_hand_qty=?, unit=?, expiry=?, min_qty=?, updated_at=? " + // Define the update statement covering all mutable columns
-                "WHERE id=?"; // Restrict the update to the row with the matching ID
+        long t0 = T_UPDATE.start(); // Start timing the call
+        validateExisting(p); // Require a positive id and a name before touching the database
 
-        try (Connection c = Db.open(); // Open a database connection
-             PreparedStatement ps = c.prepareStatement(sql)) { // Prepare the parameterized update statement
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_UPDATE)) { // Prepare the parameterized update statement
 
-            ps.setString(1, p.name.trim()); // Bind the trimmed name to the first placeholder
-            ps.setString(2, emptyToNull(p.category)); // Bind the normalized category value or null
-            ps.setInt(3, Math.max(0, p.onHandQty)); // Bind the non-negative on-hand quantity to the third placeholder
-            ps.setString(4, emptyToNull(p.unit)); // Bind the normalized unit value
-            if (p.expiry == null || p.expiry.isBlank()) ps.setNull(5, Types.VARCHAR); else ps.setString(5, p.expiry); // Bind the expiry string or NULL as appropriate
-            ps.setInt(6, Math.max(0, p.minQty)); // Bind the non-negative minimum quantity threshold
-            ps.setString(7, Instant.now().toString()); // Bind the current timestamp for updated_at
-            ps.setInt(8, p.id); // Bind the ID of the row to update
+            long now = System.currentTimeMillis(); // Capture the modification time once for the row and the returned object
+            bindUpdate(ps, p, now); // Bind the new values, the ID and the version the caller's copy was read at
 
             int n = ps.executeUpdate(); // Execute the update and capture the number of affected rows
-            if (n == 0) throw new IllegalArgumentException("no row with id " + p.id); // Throw if no row matched the provided ID
+            if (n == 0) throw refused(c, p); // The row is gone, or someone else changed it first
+            normalize(p, now); // Make the returned object match the stored row exactly
+            p.version++; // The UPDATE bumped the stored version
+            fireSaved(List.of(p)); // Tell listeners once the row is committed
             return p; // Return the updated pantry item
 
+        } catch (ConflictException e) { // Let conflicts through unchanged so callers can merge and retry
+            throw e; // Rethrow with the stored row attached
         } catch (Exception e) { // Handle SQL errors encountered during the update
             e.printStackTrace(); // Print diagnostic information
             throw new RuntimeException("update failed"); // Propagate failure to callers
-        } // End catch block for update errors
+        } finally { // Record the duration however the call ended
+            T_UPDATE.stop(t0); // Add it to the pantry.update timer
+        } // End timing
     } // End update method
 
+    public PantryItem modify(int id, UnaryOperator<PantryItem> change) { // Read an item, apply a change and store it, applying the change again to the newer row whenever another writer got there first; null when no such item
+        PantryItem current = getById(id); // The row to change
+        for (int attempt = 1; current != null; attempt++) { // Until the change lands or the attempts run out
+            try { // Compare and set
+                return update(change.apply(current.copy())); // The change may run more than once, so it must only edit the item it is given
+            } catch (ConflictException e) { // Someone else's write landed first
+                if (attempt == CAS_ATTEMPTS) throw e; // Report the conflict with the row that kept winning
+                RETRIES.increment(); // Count the retry
+                current = (PantryItem) e.current; // Start again from the row as it is stored now, without another read
+            } // End compare and set
+        } // End attempt loop
+        return null; // The item does not exist
+    } // End modify method
+
+    public PantryItem adjustQty(int id, int delta) { // Add delta (negative to use up) to an item's quantity in one statement, with no read-modify-write window; null when no such item
+        long t0 = T_ADJUST_QTY.start(); // Start timing the call
+        PantryItem p; // The stored row after the change, or null when nothing was updated
+        boolean exists; // Whether the item exists, to tell a refused change from a missing row
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_ADJUST_QTY)) { // Prepare the relative update
+
+            ps.setInt(1, delta); // Bind the amount to add
+            ps.setLong(2, System.currentTimeMillis()); // Bind the modification time
+            ps.setInt(3, id); // Bind the identifier of the row to change
+            ps.setInt(4, delta); // Bind the amount again for the lower bound check
+            try (ResultSet rs = ps.executeQuery()) { // Run the update; RETURNING yields the stored row
+                p = rs.next() ? readRow(rs) : null; // Hydrate it, or note that no row changed
+            } // End try-with-resources for the ResultSet
+            exists = p != null || readById(c, id) != null; // Only look again when nothing changed
+
+        } catch (Exception e) { // Handle SQL errors during the update
+            e.printStackTrace(); // Print the stack trace for debugging purposes
+            throw new RuntimeException("adjust qty failed"); // Signal the failure to the caller
+        } finally { // Record the duration however the call ended
+            T_ADJUST_QTY.stop(t0); // Add it to the pantry.adjustQty timer
+        } // End timing
+        if (p == null && exists) throw new IllegalArgumentException("qty cannot be negative"); // The change would take the quantity below zero
+        if (p != null) fireSaved(List.of(p)); // Tell listeners once the row is committed
+        return p; // Return the stored row, or null when no such item
+    } // End adjustQty method
+
+    public List<PantryItem> addAll(List<PantryItem> items) { // Insert many items in one transaction using JDBC batches
+        for (PantryItem p : items) validateNew(p); // Validate everything up front so a bad row never leaves a partial insert
+        if (items.isEmpty()) return items; // Nothing to write
+
+        return UnitOfWork.call(T_ADD_ALL, () -> { // Run every batch in one transaction, or join the caller's unit of work
+            try (Connection c = Db.open(); // Borrow the transaction connection
+                 PreparedStatement ps = c.prepareStatement(SQL_INSERT); // Prepare the insert once for every row
+                 Statement st = c.createStatement()) { // Create a statement for reading back generated ids
+
+                long now = System.currentTimeMillis(); // Use one timestamp for the whole batch
+                for (int from = 0; from < items.size(); from += Batches.SIZE) { // Send the rows in fixed-size chunks
+                    List<PantryItem> chunk = items.subList(from, Math.min(items.size(), from + Batches.SIZE)); // Select the rows of this chunk
+                    for (PantryItem p : chunk) { bindRow(ps, p, now); ps.addBatch(); } // Queue every row of the chunk
+                    ps.executeBatch(); // Insert the chunk in one driver call
+                    long id = Batches.firstId(st, chunk.size()); // Find the id given to the first row of the chunk
+                    for (PantryItem p : chunk) { p.id = (int) id++; normalize(p, now); } // Hand the generated ids back in input order
+                } // End loop over chunks
+                fireSaved(items); // Tell listeners once the whole batch is committed
+                return items; // Return the inserted items with their ids populated
+
+            } catch (Exception e) { // Handle any SQL errors during the batch insert
+                e.printStackTrace(); // Print the stack trace to assist debugging
+                throw new RuntimeException("add all failed"); // Signal failure; the unit of work rolls every row back
+            } // End catch block for batch insert errors
+        }); // End unit of work
+    } // End addAll method
+
+    public List<PantryItem> updateAll(List<PantryItem> items) { // Update many items in one transaction using JDBC batches
+        for (PantryItem p : items) validateExisting(p); // Validate everything up front so a bad row never leaves a partial update
+        if (items.isEmpty()) return items; // Nothing to write
+
+        return UnitOfWork.call(T_UPDATE_ALL, () -> { // Run every batch in one transaction, or join the caller's unit of work
+            try (Connection c = Db.open(); // Borrow the transaction connection
+                 PreparedStatement ps = c.prepareStatement(SQL_UPDATE)) { // Prepare the update once for every row
+
+                long now = System.currentTimeMillis(); // Use one timestamp for the whole batch
+                for (int from = 0; from < items.size(); from += Batches.SIZE) { // Send the rows in fixed-size chunks
+                    List<PantryItem> chunk = items.subList(from, Math.min(items.size(), from + Batches.SIZE)); // Select the rows of this chunk
+                    for (PantryItem p : chunk) { bindUpdate(ps, p, now); ps.addBatch(); } // Queue every row of the chunk
+                    int[] counts = ps.executeBatch(); // Update the chunk in one driver call
+                    for (int i = 0; i < counts.length; i++) { // Check that every row existed and was unchanged
+                        if (counts[i] == 0) throw refused(c, chunk.get(i)); // Abort the whole batch on a missing or changed row
+                    } // End loop over update counts
+                    for (PantryItem p : chunk) { normalize(p, now); p.version++; } // Make the returned objects match the stored rows
+                } // End loop over chunks
+                fireSaved(items); // Tell listeners once the whole batch is committed
+                return items; // Return the updated items
+
+            } catch (ConflictException e) { // Let conflicts through unchanged; the unit of work rolls every row back
+                throw e; // Rethrow with the stored row attached
+            } catch (Exception e) { // Handle SQL errors and missing rows during the batch update
+                e.printStackTrace(); // Print diagnostic information
+                throw new RuntimeException("update all failed"); // Signal failure; the unit of work rolls every row back
+            } // End catch block for batch update errors
+        }); // End unit of work
+    } // End updateAll method
+
     public boolean delete(int id) { // Delete a pantry item row by its identifier
-        String sql = "DELETE FROM pantry_items WHERE id=?"; // Define the SQL command to remove the row
-        try (Connection c = Db.open(); // Open a database connection
-             PreparedStatement ps = c.prepareStatement(sql)) { // Prepare the delete statement
+        long t0 = T_DELETE.start(); // Start timing the call
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_DELETE)) { // Prepare the delete statement
 
             ps.setInt(1, id); // Bind the target identifier to the SQL parameter
             int n = ps.executeUpdate(); // Execute the delete and capture the number of affected rows
+            if (n > 0) fireDeleted(id); // Tell listeners once the delete is committed
             return n > 0; // Return true if a row was deleted, otherwise false
 
         } catch (Exception e) { // Handle exceptions during deletion
             e.printStackTrace(); // Print the stack trace for debugging
             throw new RuntimeException("delete failed"); // Inform callers that the delete operation failed
-        } // End catch block for delete errors
+        } finally { // Record the duration however the call ended
+            T_DELETE.stop(t0); // Add it to the pantry.delete timer
+        } // End timing
     } // End delete method
 
+    static void validateNew(PantryItem p) { // Apply the rules every inserted item must satisfy; shared with BulkImporter so imported rows follow add()'s rules
+        if (p == null) throw new IllegalArgumentException("null item"); // Ensure the caller provided a pantry item instance
+        if (p.name == null || p.name.isBlank()) throw new IllegalArgumentException("name required"); // Enforce that the name is present and non-empty
+        if (p.onHandQty < 0) throw new IllegalArgumentException("qty cannot be negative"); // Prevent negative quantities on hand
+        if (p.minQty < 0) throw new IllegalArgumentException("min cannot be negative"); // Prevent negative minimum threshold values
+    } // End validateNew helper method
+
+    private void validateExisting(PantryItem p) { // Apply the rules every updated item must satisfy
+        if (p == null || p.id == null || p.id <= 0) throw new IllegalArgumentException("bad id"); // Validate that a positive ID is supplied
+        if (p.name == null || p.name.isBlank()) throw new IllegalArgumentException("name required"); // Ensure the updated item retains a name
+    } // End validateExisting helper method
+
+    private static RuntimeException refused(Connection c, PantryItem p) throws SQLException { // Explain why a compare-and-set update matched no row
+        PantryItem current = readById(c, p.id); // Read the row on the same connection, inside the caller's transaction if any
+        if (current == null) return new IllegalArgumentException("no row with id " + p.id); // The row was deleted, or never existed
+        CONFLICTS.increment(); // Count the refused update
+        return new ConflictException("pantry item", p.id, p.version, current, current.version); // The row changed since the caller read it
+    } // End refused helper method
+
+    private static PantryItem readById(Connection c, int id) throws SQLException { // Primary-key read on a connection the caller already holds
+        try (PreparedStatement ps = c.prepareStatement(SQL_GET_BY_ID)) { // Prepare the lookup
+            ps.setInt(1, id); // Bind the identifier
+            try (ResultSet rs = ps.executeQuery()) { return rs.next() ? readRow(rs) : null; } // Hydrate the row, or null when it does not exist
+        } // End try-with-resources for the statement
+    } // End readById helper method
+
+    private static void fireSaved(List<PantryItem> items) { // Queue a saved notification for when the surrounding transaction commits
+        int n = items.size(); // Rows the triggers counted
+        UnitOfWork.afterCommit(() -> COMMITTED.addAndGet(n)); // Count them once committed, so PantryWatch can tell them from other processes' writes
+        if (LISTENERS.isEmpty()) return; // Skip the copies when nobody is listening
+        List<PantryItem> c = new ArrayList<>(items.size()); // Snapshot the stored values before the caller can change them
+        for (PantryItem p : items) c.add(p.copy()); // Copy each row
+        UnitOfWork.afterCommit(() -> { // Run after COMMIT, or right away for autocommit writes
+            for (ChangeListener l : LISTENERS) { // Notify every listener
+                try { l.saved(c); } catch (RuntimeException e) { e.printStackTrace(); } // A failing listener must not make a committed write look failed
+            } // End loop over listeners
+        }); // End after-commit callback
+    } // End fireSaved helper method
+
+    private static void fireDeleted(int id) { // Queue a deleted notification for when the surrounding transaction commits
+        UnitOfWork.afterCommit(COMMITTED::incrementAndGet); // Count the row once committed, like fireSaved
+        if (LISTENERS.isEmpty()) return; // Nothing to do when nobody is listening
+        UnitOfWork.afterCommit(() -> { // Run after COMMIT, or right away for autocommit deletes
+            for (ChangeListener l : LISTENERS) { // Notify every listener
+                try { l.deleted(id); } catch (RuntimeException e) { e.printStackTrace(); } // A failing listener must not make a committed delete look failed
+            } // End loop over listeners
+        }); // End after-commit callback
+    } // End fireDeleted helper method
+
+    private static void closeQuietly(AutoCloseable... resources) { // Close JDBC resources in order, reporting but not throwing failures
+        for (AutoCloseable r : resources) { // Close each resource even if an earlier one failed
+            try { r.close(); } catch (Exception e) { e.printStackTrace(); } // A failed close must not hide the caller's own exception
+        } // End loop over resources
+    } // End closeQuietly helper method
+
+    private static int bindCutoff(PreparedStatement ps, PantryView v) throws SQLException { // Bind a view's cutoff parameter and return the next parameter index
+        if (v.cutoff == null) return 1; // Views without a cutoff have no leading parameter
+        ps.setInt(1, v.cutoff); // Bind the cutoff day number
+        return 2; // Later parameters start after it
+    } // End bindCutoff helper method
+
+    private static PantryItem readRow(ResultSet rs) throws SQLException { // Hydrate the pantry item at the cursor's current row
+        PantryItem p = new PantryItem(); // Create a pantry item to hold the row
+        p.id = rs.getInt("id"); // Populate the identifier
+        p.name = rs.getString("name"); // Populate the name field
+        p.category = rs.getString("category"); // Populate the optional category
+        p.onHandQty = rs.getInt("on_hand_qty"); // Populate the quantity on hand
+        p.unit = rs.getString("unit"); // Populate the unit value
+        int day = rs.getInt("expiry_day"); // Read the expiry day number, zero when NULL
+        p.expiryDay = rs.wasNull() ? null : day; // Keep NULL distinct from 1970-01-01
+        p.minQty = rs.getInt("min_qty"); // Populate the minimum quantity threshold
+        p.updatedAtMillis = rs.getLong("updated_at_ms"); // Populate the update time, zero when unknown
+        p.expiryText = rs.getString("expiry_text"); // Populate the unreadable old expiry text, null for most rows
+        p.version = rs.getLong("row_version"); // Populate the row version checked by update()
+        return p; // Return the hydrated item
+    } // End readRow helper method
+
+    private void bindRow(PreparedStatement ps, PantryItem p, long now) throws SQLException { // Bind the column values shared by SQL_INSERT and SQL_UPDATE
+        ps.setString(1, p.name.trim()); // Bind the trimmed item name to the first parameter
+        ps.setString(2, emptyToNull(p.category)); // Bind the normalized category value, converting blanks to null
+        ps.setInt(3, Math.max(0, p.onHandQty)); // Bind the non-negative quantity on hand
+        ps.setString(4, emptyToNull(p.unit)); // Bind the unit, storing null when the value is blank
+        if (p.expiryDay == null) ps.setNull(5, Types.INTEGER); else ps.setInt(5, p.expiryDay); // Bind the expiry day number or NULL depending on input
+        ps.setInt(6, Math.max(0, p.minQty)); // Bind the non-negative minimum quantity threshold
+        ps.setLong(7, now); // Bind the modification time as the updated_at_ms value
+    } // End bindRow helper method
+
+    private void bindUpdate(PreparedStatement ps, PantryItem p, long now) throws SQLException { // Bind every parameter of SQL_UPDATE
+        bindRow(ps, p, now); // Bind the seven column values shared by INSERT and UPDATE
+        if (p.expiryDay == null) ps.setNull(8, Types.INTEGER); else ps.setInt(8, p.expiryDay); // Bind the expiry again so a saved date clears expiry_text
+        ps.setInt(9, p.id); // Bind the ID of the row to update
+        ps.setLong(10, p.version); // Bind the version the caller's copy was read at
+    } // End bindUpdate helper method
+
+    private void normalize(PantryItem p, long now) { // Apply the same clean-up to the object that was applied to the stored row
+        p.name = p.name.trim(); // Names are stored trimmed
+        p.category = emptyToNull(p.category); // Blank categories are stored as NULL
+        p.onHandQty = Math.max(0, p.onHandQty); // Quantities are stored non-negative
+        p.unit = emptyToNull(p.unit); // Blank units are stored as NULL
+        p.minQty = Math.max(0, p.minQty); // Minimum quantities are stored non-negative
+        if (p.expiryDay != null) p.expiryText = null; // A saved expiry replaces the unreadable old text
+        p.updatedAtMillis = now; // Record the time written to updated_at_ms
+    } // End normalize helper method
+
     private String emptyToNull(String s) { // Convert blank strings to null to avoid storing empty text in the database
         if (s == null) return null; // Immediately return null when the input is already null
         String t = s.trim(); // Trim whitespace from the input string
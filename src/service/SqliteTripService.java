@@ -2,30 +2,112 @@ package service; // Define the package for trip-related data access services
 
 import app.DBMigrator; // Import the migrator to guarantee required tables exist before using them
 import app.Db; // Import the database helper responsible for opening JDBC connections
+import app.UnitOfWork; // Import UnitOfWork so batch inserts commit once for all rows
 import model.Trip; // Import the Trip data model representing shopping trips
 import model.TripItem; // Import the TripItem model representing individual planned purchases
+import util.Json; // Import Json to pass a list of names as one parameter
+import util.Metrics; // Import the metrics registry for per-call latency timers
 
 import java.sql.Connection; // Import JDBC Connection for interacting with the database
 import java.sql.PreparedStatement; // Import PreparedStatement for parameterized SQL execution
 import java.sql.ResultSet; // Import ResultSet to iterate over query results
+import java.sql.SQLException; // Import SQLException for the shared read helpers
 import java.sql.Statement; // Import Statement constants for generated keys
 import java.sql.Types; // Import SQL Types constants to set NULL values appropriately
+import java.time.LocalDate; // Import LocalDate as the trip date type
 import java.util.ArrayList; // Import ArrayList to collect query results
+import java.util.Collection; // Import Collection as the name set type for price lookups
+import java.util.HashMap; // Import HashMap to return prices by name
+import java.util.LinkedHashSet; // Import LinkedHashSet to drop repeated names in input order
 import java.util.List; // Import List as the collection interface for results
+import java.util.Map; // Import Map as the price lookup result type
+import java.util.Set; // Import Set as the unique name type
 
 public class SqliteTripService { // Declare the service providing CRUD operations for trips and trip items
 
+    static final String SQL_CREATE_TRIP = "INSERT INTO trips(trip_day, store_id, budget_cents, note) VALUES (?,?,?,?)"; // SQL insert statement defining columns and placeholders
+    static final String SQL_LIST_ITEMS = "SELECT * FROM trip_items WHERE trip_id=? ORDER BY id"; // SQL query ordering items by insertion order
+    static final String SQL_INSERT_ITEM = "INSERT INTO trip_items(trip_id, item_name, unit, planned_qty, expected_price_cents, line_total_cents, priority, category) " + // Begin insert statement specifying all columns
+            "VALUES (?,?,?,?,?,?,?, COALESCE(?, (SELECT category FROM pantry_items WHERE name = ? LIMIT 1)))"; // Provide placeholders; without a category, take the pantry item's through idx_pantry_name
+    static final String SQL_UPDATE_QTY = "UPDATE trip_items " + // Begin update statement targeting the trip_items table
+            "SET planned_qty=?, line_total_cents = COALESCE(expected_price_cents, 0) * ?, row_version = row_version + 1 " + // Update quantity and recompute line total using expected price or zero
+            "WHERE id=?"; // Apply the update to the row matching the provided identifier
+    static final String SQL_UPDATE_QTY_CAS = SQL_UPDATE_QTY + " AND row_version=?"; // Same, but only while the row still has the version the caller read
+    static final String SQL_ADJUST_QTY = "UPDATE trip_items SET planned_qty = planned_qty + ?, " + // Add to the stored quantity instead of writing one computed from a read
+            "line_total_cents = COALESCE(expected_price_cents, 0) * (planned_qty + ?), row_version = row_version + 1 " + // The right-hand sides all see the old row
+            "WHERE id=? AND planned_qty + ? > 0"; // Refuse to reach zero; removeItem() drops a line
+    static final String SQL_UPDATE_PRIORITY = "UPDATE trip_items SET priority=?, row_version = row_version + 1 WHERE id=?"; // SQL statement changing how much an item matters
+    static final String SQL_GET_ITEM = "SELECT * FROM trip_items WHERE id=?"; // SQL reading one item by primary key
+    static final String SQL_DELETE_ITEM = "DELETE FROM trip_items WHERE id=?"; // SQL statement removing the specified row
+    static final String SQL_DELETE_ITEM_CAS = SQL_DELETE_ITEM + " AND row_version=?"; // Same, but only while the row still has the version the caller read
+    static final String SQL_TOTALS = "SELECT subtotal_cents, item_count FROM trips WHERE id=?"; // SQL reading the totals the triggers keep on the trip row
+    static final String SQL_ITEM_TRIP = "SELECT trip_id FROM trip_items WHERE id=?"; // SQL finding the trip of an item
+    static final String SQL_TRIP_EXISTS = "SELECT 1 FROM trips WHERE id=?"; // SQL primary-key probe for an existing trip
+    static final String SQL_TRIP_STORE = "SELECT store_id FROM trips WHERE id=?"; // SQL reading a trip's store, to suggest that store's prices
+    static final String SQL_ITEMS_VERSION = "SELECT version FROM table_versions WHERE name = 'trip_items'"; // Change counter bumped by triggers on every trip item write
+    static final String SQL_LAST_PRICES = "SELECT j.value, (SELECT t.expected_price_cents FROM trip_items t " + // SQL reading the most recent known price of every name in a JSON array
+            "WHERE t.item_name = j.value COLLATE NOCASE AND t.expected_price_cents IS NOT NULL ORDER BY t.id DESC LIMIT 1) " + // Walk idx_trip_items_name backwards from the newest row of each name
+            "FROM json_each(?) j"; // One statement for the whole list, so the seeks run inside SQLite instead of one JDBC round trip each
+
+    public static final int MIN_PRIORITY = 1; // Lowest priority: nice to have
+    public static final int MAX_PRIORITY = 5; // Highest priority: essential
+    public static final int DEFAULT_PRIORITY = 3; // Priority of items that were never ranked, matching the column default
+
+    private static final Metrics.Timer T_CREATE = Metrics.timer("trip.create"); // Latency of create()
+    private static final Metrics.Timer T_LIST_ITEMS = Metrics.timer("trip.listItems"); // Latency of listItems()
+    private static final Metrics.Timer T_EXISTS = Metrics.timer("trip.exists"); // Latency of exists()
+    private static final Metrics.Timer T_LAST_PRICES = Metrics.timer("trip.lastPrices"); // Latency of lastPrices()
+    private static final Metrics.Timer T_UPDATE_ITEM_PRIORITY = Metrics.timer("trip.updateItemPriority"); // Latency of updateItemPriority()
+    private static final Metrics.Timer T_TOTALS = Metrics.timer("trip.totals"); // Latency of totals()
+    private static final Metrics.Timer T_ADD_ITEM = Metrics.timer("trip.addItem"); // Latency of addItem()
+    private static final Metrics.Timer T_ADD_ITEMS = Metrics.timer("trip.addItems"); // Latency of addItems()
+    private static final Metrics.Timer T_UPDATE_ITEM_QTY = Metrics.timer("trip.updateItemQty"); // Latency of updateItemQty()
+    private static final Metrics.Timer T_REMOVE_ITEM = Metrics.timer("trip.removeItem"); // Latency of removeItem()
+    private static final Metrics.Timer T_ADJUST_ITEM_QTY = Metrics.timer("trip.adjustItemQty"); // Latency of adjustItemQty()
+    private static final Metrics.Counter CONFLICTS = Metrics.counter("trip.conflicts"); // Quantity changes and deletes refused because the item had changed
+    private static final long ANY_VERSION = -1; // Expected version meaning "overwrite whatever is stored"
+
+    private final PriceHistory prices = PriceHistory.shared(); // Records every typed price and suggests prices for new items
+
+    public static final class Totals { // A trip's stored totals right after a change
+        public final int tripId; // The trip
+        public final int subtotalCents; // Sum of its line totals
+        public final int itemCount; // Number of its items
+
+        Totals(int tripId, int subtotalCents, int itemCount) { // Build an immutable snapshot
+            this.tripId = tripId; // Remember the trip
+            this.subtotalCents = subtotalCents; // Remember the subtotal
+            this.itemCount = itemCount; // Remember the count
+        } // End constructor
+
+        @Override // Indicate that we are overriding Object.toString
+        public String toString() { return "trip " + tripId + ": " + itemCount + " items, " + subtotalCents + " cents"; } // Summarize for logs
+    } // End Totals class
+
+    public static final class Added { // Rows just inserted, with their trip's stored totals read in the same transaction
+        public final List<TripItem> items; // The inserted rows with their ids
+        public final Totals totals; // The trip's totals right after the insert, counting rows other clients added
+
+        Added(List<TripItem> items, Totals totals) { // Build an immutable result
+            this.items = items; // Remember the rows
+            this.totals = totals; // Remember the totals
+        } // End constructor
+
+        public TripItem item() { return items.get(0); } // The single row of an addItemWithTotals() call
+    } // End Added class
+
     public SqliteTripService() { // Constructor runs once when the service is instantiated
-        DBMigrator.migrate(); // Ensure database schema is up to date before executing queries
+        DBMigrator.migrate(); // Make sure the schema is current; a no-op once App has migrated at startup
     } // End constructor
 
-    public Trip create(String dateText, Integer storeId, int budgetCents, String note) { // Create a new trip row and return the populated Trip object
-        String sql = "INSERT INTO trips(trip_date, store_id, budget_cents, note) VALUES (?,?,?,?)"; // SQL insert statement defining columns and placeholders
+    public Trip create(LocalDate date, Integer storeId, int budgetCents, String note) { // Create a new trip row and return the populated Trip object
+        long t0 = T_CREATE.start(); // Start timing the call
+        if (date == null) throw new IllegalArgumentException("trip date required"); // The trip_day column is NOT NULL
 
-        try (Connection c = Db.open(); // Open a database connection
-             PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) { // Prepare the insert and request generated keys
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_CREATE_TRIP, Statement.RETURN_GENERATED_KEYS)) { // Prepare the insert and request generated keys
 
-            ps.setString(1, dateText); // Bind the required trip date text to the first placeholder
+            ps.setLong(1, date.toEpochDay()); // Bind the required trip date as a day number
             if (storeId == null) ps.setNull(2, Types.INTEGER); else ps.setInt(2, storeId); // Bind the optional store identifier or NULL
             ps.setInt(3, Math.max(0, budgetCents)); // Bind a non-negative budget value in cents
             ps.setString(4, note == null ? "" : note); // Bind the trip note, defaulting to an empty string when null
@@ -35,7 +117,7 @@ public class SqliteTripService { // Declare the service providing CRUD operation
             try (ResultSet keys = ps.getGeneratedKeys()) { // Retrieve generated keys from the insert operation
                 if (keys.next()) t.id = keys.getInt(1); // Assign the generated trip ID if available
             } // End try-with-resources for generated keys
-            t.tripDateText = dateText; // Set the trip date string on the returned object
+            t.setTripDate(date); // Set the trip date on the returned object
             t.storeId = storeId; // Set the optional store identifier
             t.budgetCents = Math.max(0, budgetCents); // Store the sanitized budget value
             t.note = note == null ? "" : note; // Store the note using an empty string fallback
@@ -44,49 +126,56 @@ public class SqliteTripService { // Declare the service providing CRUD operation
         } catch (Exception e) { // Handle any SQL or connection errors during trip creation
             e.printStackTrace(); // Print diagnostics for troubleshooting
             throw new RuntimeException("create trip failed"); // Inform callers that the create operation failed
-        } // End catch block for create errors
+        } finally { // Record the duration however the call ended
+            T_CREATE.stop(t0); // Add it to the trip.create timer
+        } // End timing
     } // End create method
 
     public List<TripItem> listItems(int tripId) { // Retrieve all items associated with a specific trip
-        String sql = "SELECT * FROM trip_items WHERE trip_id=? ORDER BY id"; // SQL query ordering items by insertion order
+        long t0 = T_LIST_ITEMS.start(); // Start timing the call
         List<TripItem> out = new ArrayList<>(); // Prepare a list to store the resulting trip items
 
-        try (Connection c = Db.open(); // Open a database connection
-             PreparedStatement ps = c.prepareStatement(sql)) { // Prepare the query for execution
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_LIST_ITEMS)) { // Prepare the query for execution
 
             ps.setInt(1, tripId); // Bind the target trip identifier to the statement
             try (ResultSet rs = ps.executeQuery()) { // Execute the query and obtain the result set
-                while (rs.next()) { // Iterate over each row returned for the trip
-                    TripItem ti = new TripItem(); // Instantiate a TripItem model to populate
-                    ti.id = rs.getInt("id"); // Read the unique identifier for the trip item
-                    ti.tripId = rs.getInt("trip_id"); // Read the parent trip identifier
-                    ti.itemName = rs.getString("item_name"); // Read the stored item name
-                    ti.unit = rs.getString("unit"); // Read the optional unit value
-                    ti.plannedQty = rs.getInt("planned_qty"); // Read the planned quantity to purchase
-                    int px = rs.getInt("expected_price_cents"); // Read the expected price in cents, defaulting to zero when NULL
-                    ti.expectedPriceCents = rs.wasNull() ? null : px; // Set expected price to null when the column was NULL
-                    ti.lineTotalCents = rs.getInt("line_total_cents"); // Read the stored line total value
-                    out.add(ti); // Append the populated TripItem to the results list
-                } // End while loop iterating through result rows
+                while (rs.next()) out.add(readItem(rs)); // Append each item of the trip
             } // End try-with-resources managing the ResultSet
 
         } catch (Exception e) { // Handle SQL issues encountered while listing items
             e.printStackTrace(); // Print stack trace information for debugging
             throw new RuntimeException("list items failed"); // Propagate failure information to the caller
-        } // End catch block for list errors
+        } finally { // Record the duration however the call ended
+            T_LIST_ITEMS.stop(t0); // Add it to the trip.listItems timer
+        } // End timing
         return out; // Return the list of trip items for the specified trip
     } // End listItems method
 
-    public TripItem addItem(int tripId, String itemName, String unit, int qty, Integer expectedPriceCents) { // Insert a new trip item row tied to a trip
+    public TripItem addItem(int tripId, String itemName, String unit, int qty, Integer expectedPriceCents) { // Insert a new trip item row tied to a trip; a null price is filled in from the price history
         if (qty <= 0) throw new IllegalArgumentException("qty must be > 0"); // Validate that quantity is positive before inserting
 
-        int lineTotal = (expectedPriceCents == null) ? 0 : expectedPriceCents * qty; // Compute line total in cents using expected price when provided
+        return UnitOfWork.call(T_ADD_ITEM, () -> { // Insert the item and record its price with a single commit
+            boolean typed = expectedPriceCents != null; // Only prices the user gave are history; suggestions would only echo it back
+            Integer price = typed ? expectedPriceCents : prices.suggest(itemName, emptyToNull(unit), storeOf(tripId)); // Suggest the recent median when no price was given
+            TripItem ti = insertItem(tripId, itemName, unit, qty, price); // Insert the row
+            if (typed) prices.record(tripId, List.of(ti)); // Add the typed price to the history
+            return ti; // Return the newly inserted trip item to the caller
+        }); // End unit of work
+    } // End addItem method
 
-        String sql = "INSERT INTO trip_items(trip_id, item_name, unit, planned_qty, expected_price_cents, line_total_cents) " + // Begin insert statement specifying all columns
-                "VALUES (?,?,?,?,?,?)"; // Provide placeholders for each column value
+    public Added addItemWithTotals(int tripId, String itemName, String unit, int qty, Integer expectedPriceCents) { // Same as addItem, also returning the trip's stored totals
+        return UnitOfWork.call(() -> { // Read the totals in the same transaction as the insert
+            TripItem ti = addItem(tripId, itemName, unit, qty, expectedPriceCents); // Insert it, joining this unit of work
+            return new Added(List.of(ti), totals(tripId)); // Hand back the row and the totals the triggers kept
+        }); // End unit of work
+    } // End addItemWithTotals method
 
-        try (Connection c = Db.open(); // Open a database connection
-             PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) { // Prepare the insert and request generated keys
+    private TripItem insertItem(int tripId, String itemName, String unit, int qty, Integer expectedPriceCents) { // Insert one trip item row
+        int lineTotal = (expectedPriceCents == null) ? 0 : expectedPriceCents * qty; // Compute line total in cents using expected price when provided
+
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_INSERT_ITEM, Statement.RETURN_GENERATED_KEYS)) { // Prepare the insert and request generated keys
 
             ps.setInt(1, tripId); // Bind the parent trip identifier
             ps.setString(2, itemName); // Bind the required item name string
@@ -97,6 +186,9 @@ public class SqliteTripService { // Declare the service providing CRUD operation
             else ps.setInt(5, expectedPriceCents); // Otherwise store the provided expected price in cents
 
             ps.setInt(6, lineTotal); // Bind the computed line total for later reporting
+            ps.setInt(7, DEFAULT_PRIORITY); // New items start at normal priority
+            ps.setNull(8, Types.VARCHAR); // No category given; the pantry supplies it
+            ps.setString(9, itemName); // Name to look up in the pantry
             ps.executeUpdate(); // Execute the insert statement
 
             TripItem ti = new TripItem(); // Instantiate a TripItem to return to the caller
@@ -105,7 +197,7 @@ public class SqliteTripService { // Declare the service providing CRUD operation
             } // End try-with-resources for generated keys
             ti.tripId = tripId; // Populate the parent trip identifier on the returned object
             ti.itemName = itemName; // Populate the item name value
-            ti.unit = unit; // Populate the original unit string (may be null or blank)
+            ti.unit = emptyToNull(unit); // Populate the unit exactly as stored (blank becomes null)
             ti.plannedQty = qty; // Populate the planned quantity
             ti.expectedPriceCents = expectedPriceCents; // Populate the expected price as provided
             ti.lineTotalCents = lineTotal; // Populate the computed line total
@@ -116,60 +208,303 @@ public class SqliteTripService { // Declare the service providing CRUD operation
             e.printStackTrace(); // Print diagnostic output
             throw new RuntimeException("add item failed"); // Propagate a runtime exception indicating failure
         } // End catch block for add item errors
-    } // End addItem method
+    } // End insertItem method
+
+    public List<TripItem> addItems(int tripId, List<TripItem> items) { return addItems(tripId, items, true); } // Insert many trip items and record their prices
+
+    public List<TripItem> addItems(int tripId, List<TripItem> items, boolean recordPrices) { // Insert many trip items in one transaction using JDBC batches; pass false when the prices are estimates
+        for (TripItem t : items) { validateItem(t.itemName, t.plannedQty); validatePriority(t.priority); } // Validate everything up front so a bad row never leaves a partial insert
+        if (items.isEmpty()) return items; // Nothing to write
+
+        return UnitOfWork.call(T_ADD_ITEMS, () -> { // Run every batch in one transaction, or join the caller's unit of work
+            try (Connection c = Db.open(); // Borrow the transaction connection
+                 PreparedStatement ps = c.prepareStatement(SQL_INSERT_ITEM); // Prepare the insert once for every row
+                 Statement st = c.createStatement()) { // Create a statement for reading back generated ids
+
+                for (int from = 0; from < items.size(); from += Batches.SIZE) { // Send the rows in fixed-size chunks
+                    List<TripItem> chunk = items.subList(from, Math.min(items.size(), from + Batches.SIZE)); // Select the rows of this chunk
+                    for (TripItem t : chunk) { // Queue every row of the chunk
+                        t.tripId = tripId; // Attach the item to the target trip
+                        t.unit = emptyToNull(t.unit); // Store blank units as NULL, like addItem()
+                        t.lineTotalCents = (t.expectedPriceCents == null) ? 0 : t.expectedPriceCents * t.plannedQty; // Compute the line total like addItem()
+                        ps.setInt(1, tripId); // Bind the parent trip identifier
+                        ps.setString(2, t.itemName); // Bind the item name
+                        ps.setString(3, t.unit); // Bind the normalized unit
+                        ps.setInt(4, t.plannedQty); // Bind the planned quantity
+                        if (t.expectedPriceCents == null) ps.setNull(5, Types.INTEGER); else ps.setInt(5, t.expectedPriceCents); // Bind the expected price or NULL
+                        ps.setInt(6, t.lineTotalCents); // Bind the computed line total
+                        ps.setInt(7, t.priority); // Bind the priority
+                        ps.setString(8, t.category); // Bind the category, or NULL to take the pantry's
+                        ps.setString(9, t.itemName); // Name to look up in the pantry
+                        ps.addBatch(); // Queue the row
+                    } // End loop over the chunk
+                    ps.executeBatch(); // Insert the chunk in one driver call
+                    long id = Batches.firstId(st, chunk.size()); // Find the id given to the first row of the chunk
+                    for (TripItem t : chunk) t.id = (int) id++; // Hand the generated ids back in input order
+                } // End loop over chunks
+                if (recordPrices) prices.record(tripId, items); // Add the prices to the history in the same transaction
+                return items; // Return the inserted items with their ids populated
+
+            } catch (Exception e) { // Handle any SQL errors during the batch insert
+                e.printStackTrace(); // Print diagnostic output
+                throw new RuntimeException("add items failed"); // Signal failure; the unit of work rolls every row back
+            } // End catch block for batch insert errors
+        }); // End unit of work
+    } // End addItems method
+
+    public Added addItemsWithTotals(int tripId, List<TripItem> items) { // Same as addItems, also returning the trip's stored totals
+        return UnitOfWork.call(() -> new Added(addItems(tripId, items), totals(tripId))); // Insert and read the totals in one transaction
+    } // End addItemsWithTotals method
+
+    public boolean exists(int tripId) { // Report whether a trip row with the given id exists
+        long t0 = T_EXISTS.start(); // Start timing the call
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_TRIP_EXISTS)) { // Prepare the primary-key probe
+
+            ps.setInt(1, tripId); // Bind the trip identifier
+            try (ResultSet rs = ps.executeQuery()) { // Execute the probe
+                return rs.next(); // A row means the trip exists
+            } // End try-with-resources for the ResultSet
 
-    public void updateItemQty(int tripItemId, int newQty) { // Update the planned quantity for a specific trip item
-        if (newQty <= 0) throw new IllegalArgumentException("qty must be > 0"); // Validate that the new quantity remains positive
+        } catch (Exception e) { // Handle SQL errors during the probe
+            e.printStackTrace(); // Print diagnostic information
+            throw new RuntimeException("trip lookup failed"); // Signal failure to the caller
+        } finally { // Record the duration however the call ended
+            T_EXISTS.stop(t0); // Add it to the trip.exists timer
+        } // End timing
+    } // End exists method
+
+    public long itemsVersion() { // Read the trip item change counter; it moves on every committed item insert, update or delete, from any process
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_ITEMS_VERSION); // Prepare the primary-key read
+             ResultSet rs = ps.executeQuery()) { // Read the counter
+            return rs.next() ? rs.getLong(1) : 0; // Return the counter
+        } catch (Exception e) { // Handle SQL errors during the read
+            e.printStackTrace(); // Print diagnostic information
+            throw new RuntimeException("trip item version failed"); // Signal failure to the caller
+        } // End catch block for version errors
+    } // End itemsVersion method
+
+    private Integer storeOf(int tripId) { // Read a trip's store, or null when it has none
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_TRIP_STORE)) { // Prepare the primary-key lookup
+
+            ps.setInt(1, tripId); // Bind the trip identifier
+            try (ResultSet rs = ps.executeQuery()) { // Execute the lookup
+                if (!rs.next()) return null; // No such trip
+                int s = rs.getInt(1); // Read the store, zero when NULL
+                return rs.wasNull() ? null : s; // Keep NULL as null
+            } // End try-with-resources for the ResultSet
+
+        } catch (Exception e) { // Handle SQL errors during the lookup
+            e.printStackTrace(); // Print diagnostic information
+            throw new RuntimeException("trip lookup failed"); // Signal failure to the caller
+        } // End catch block for lookup errors
+    } // End storeOf method
+
+    public Map<String, Integer> lastPrices(Collection<String> itemNames) { // Look up the latest expected price of each name, ignoring case; keyed by trimmed name, names never priced are left out
+        long t0 = T_LAST_PRICES.start(); // Start timing the call
+        Map<String, Integer> out = new HashMap<>(); // Prices keyed by trimmed name
+        Set<String> unique = new LinkedHashSet<>(); // Each name once, as stored by addItem()
+        for (String name : itemNames) if (name != null) unique.add(name.trim()); // Drop missing and repeated names
+        if (unique.isEmpty()) return out; // No names to look up
+        StringBuilder json = new StringBuilder("["); // The names as one JSON array parameter
+        for (String name : unique) Json.appendString(json.length() == 1 ? json : json.append(','), name); // Quote and separate each name
+
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_LAST_PRICES)) { // Prepare the lookup
+
+            ps.setString(1, json.append(']').toString()); // Bind every name at once
+            try (ResultSet rs = ps.executeQuery()) { // Seek each name in the name index
+                while (rs.next()) { // Read one row per name
+                    int px = rs.getInt(2); // Read the newest price, zero when none
+                    if (!rs.wasNull()) out.put(rs.getString(1), px); // Keep names that were priced before
+                } // End loop over names
+            } // End try-with-resources for the ResultSet
+            return out; // Return every price found
 
-        String sql = "UPDATE trip_items " + // Begin update statement targeting the trip_items table
-                "SET planned_qty=?, line_total_cents = COALESCE(expected_price_cents, 0) * ? " + // Update quantity and recompute line total using expected price or zero
-                "WHERE id=?"; // Apply the update to the row matching the provided identifier
+        } catch (Exception e) { // Handle SQL errors during the lookups
+            e.printStackTrace(); // Print diagnostic information
+            throw new RuntimeException("price lookup failed"); // Signal failure to the caller
+        } finally { // Record the duration however the call ended
+            T_LAST_PRICES.stop(t0); // Add it to the trip.lastPrices timer
+        } // End timing
+    } // End lastPrices method
 
-        try (Connection c = Db.open(); // Open a database connection
-             PreparedStatement ps = c.prepareStatement(sql)) { // Prepare the update statement for execution
+    public Totals updateItemQty(int tripItemId, int newQty) { return updateItemQty(tripItemId, newQty, ANY_VERSION); } // Set the planned quantity whatever it is now; the trip's new totals, or null when the item does not exist
 
-            ps.setInt(1, newQty); // Bind the new planned quantity
-            ps.setInt(2, newQty); // Bind the same quantity for use in the line total calculation
-            ps.setInt(3, tripItemId); // Bind the identifier of the row to update
-            ps.executeUpdate(); // Execute the update command
+    public Totals updateItemQty(int tripItemId, int newQty, long expectedVersion) { // Set the planned quantity only while the item still has the version the caller read; throws ConflictException otherwise
+        if (newQty <= 0) throw new IllegalArgumentException("qty must be > 0"); // Validate that the new quantity remains positive
 
-        } catch (Exception e) { // Handle SQL issues during the update
-            e.printStackTrace(); // Print troubleshooting information
-            throw new RuntimeException("update qty failed"); // Signal failure to the caller
-        } // End catch block for quantity update errors
+        return UnitOfWork.call(T_UPDATE_ITEM_QTY, () -> { // Read the totals in the same transaction as the change
+            Integer trip = tripOf(tripItemId); // The trip whose totals change
+            if (trip == null) return null; // Nothing to update
+            boolean cas = expectedVersion != ANY_VERSION; // Whether to compare versions
+            try (Connection c = Db.open(); // Borrow the transaction connection
+                 PreparedStatement ps = c.prepareStatement(cas ? SQL_UPDATE_QTY_CAS : SQL_UPDATE_QTY)) { // Prepare the update statement for execution
+
+                ps.setInt(1, newQty); // Bind the new planned quantity
+                ps.setInt(2, newQty); // Bind the same quantity for use in the line total calculation
+                ps.setInt(3, tripItemId); // Bind the identifier of the row to update
+                if (cas) ps.setLong(4, expectedVersion); // Bind the version the caller's copy was read at
+                if (ps.executeUpdate() == 0 && cas) { // Execute the update command; triggers adjust the trip totals
+                    TripItem current = readItem(c, tripItemId); // The item existed, so its version moved on
+                    if (current == null) return null; // Deleted since tripOf() looked
+                    CONFLICTS.increment(); // Count the refused change
+                    throw new ConflictException("trip item", tripItemId, expectedVersion, current, current.version); // Report it with the stored row
+                } // End conflict check
+
+            } catch (ConflictException e) { // Let conflicts through unchanged; the unit of work rolls back
+                throw e; // Rethrow with the stored row attached
+            } catch (Exception e) { // Handle SQL issues during the update
+                e.printStackTrace(); // Print troubleshooting information
+                throw new RuntimeException("update qty failed"); // Signal failure to the caller
+            } // End catch block for quantity update errors
+            return totals(trip); // Read the adjusted totals
+        }); // End unit of work
     } // End updateItemQty method
 
-    public void removeItem(int tripItemId) { // Delete a trip item row from the database
-        String sql = "DELETE FROM trip_items WHERE id=?"; // SQL statement removing the specified row
-        try (Connection c = Db.open(); // Open a database connection
-             PreparedStatement ps = c.prepareStatement(sql)) { // Prepare the delete statement
-
-            ps.setInt(1, tripItemId); // Bind the identifier of the row to delete
-            ps.executeUpdate(); // Execute the delete command
+    public Totals adjustItemQty(int tripItemId, int delta) { // Add delta to an item's planned quantity in one statement and return the trip's new totals, or null when the item does not exist
+        return UnitOfWork.call(T_ADJUST_ITEM_QTY, () -> { // Read the totals in the same transaction as the change
+            Integer trip = tripOf(tripItemId); // The trip whose totals change
+            if (trip == null) return null; // Nothing to update
+            int n; // Rows changed
+            try (Connection c = Db.open(); // Borrow the transaction connection
+                 PreparedStatement ps = c.prepareStatement(SQL_ADJUST_QTY)) { // Prepare the relative update
+
+                ps.setInt(1, delta); // Bind the amount to add
+                ps.setInt(2, delta); // Bind it again for the line total
+                ps.setInt(3, tripItemId); // Bind the identifier of the row to change
+                ps.setInt(4, delta); // Bind it again for the lower bound check
+                n = ps.executeUpdate(); // Execute the update; triggers adjust the trip totals
+
+            } catch (Exception e) { // Handle SQL issues during the update
+                e.printStackTrace(); // Print troubleshooting information
+                throw new RuntimeException("adjust qty failed"); // Signal failure to the caller
+            } // End catch block for adjustment errors
+            if (n == 0) throw new IllegalArgumentException("qty must be > 0"); // The item exists, so the change would leave nothing to buy
+            return totals(trip); // Read the adjusted totals
+        }); // End unit of work
+    } // End adjustItemQty method
+
+    public void updateItemPriority(int tripItemId, int priority) { // Change how much a trip item matters
+        long t0 = T_UPDATE_ITEM_PRIORITY.start(); // Start timing the call
+        validatePriority(priority); // Keep priorities within the scale the optimizer understands
+
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_UPDATE_PRIORITY)) { // Prepare the update statement
+
+            ps.setInt(1, priority); // Bind the new priority
+            ps.setInt(2, tripItemId); // Bind the identifier of the row to update
+            ps.executeUpdate(); // Execute the update command
 
-        } catch (Exception e) { // Handle SQL errors encountered during deletion
-            e.printStackTrace(); // Print diagnostic information
-            throw new RuntimeException("remove item failed"); // Propagate a runtime exception to the caller
-        } // End catch block for remove errors
+        } catch (Exception e) { // Handle SQL issues during the update
+            e.printStackTrace(); // Print troubleshooting information
+            throw new RuntimeException("update priority failed"); // Signal failure to the caller
+        } finally { // Record the duration however the call ended
+            T_UPDATE_ITEM_PRIORITY.stop(t0); // Add it to the trip.updateItemPriority timer
+        } // End timing
+    } // End updateItemPriority method
+
+    public Totals removeItem(int tripItemId) { return removeItem(tripItemId, ANY_VERSION); } // Delete a trip item whatever it holds now; the trip's new totals, or null when the item does not exist
+
+    public Totals removeItem(int tripItemId, long expectedVersion) { // Delete a trip item only while it still has the version the caller read; throws ConflictException otherwise
+        return UnitOfWork.call(T_REMOVE_ITEM, () -> { // Read the totals in the same transaction as the delete
+            Integer trip = tripOf(tripItemId); // The trip whose totals change
+            if (trip == null) return null; // Nothing to delete
+            boolean cas = expectedVersion != ANY_VERSION; // Whether to compare versions
+            try (Connection c = Db.open(); // Borrow the transaction connection
+                 PreparedStatement ps = c.prepareStatement(cas ? SQL_DELETE_ITEM_CAS : SQL_DELETE_ITEM)) { // Prepare the delete statement
+
+                ps.setInt(1, tripItemId); // Bind the identifier of the row to delete
+                if (cas) ps.setLong(2, expectedVersion); // Bind the version the caller's copy was read at
+                if (ps.executeUpdate() == 0) { // Execute the delete command; triggers adjust the trip totals
+                    TripItem current = readItem(c, tripItemId); // Still there means its version moved on
+                    if (current == null) return null; // Deleted since tripOf() looked
+                    CONFLICTS.increment(); // Count the refused delete
+                    throw new ConflictException("trip item", tripItemId, expectedVersion, current, current.version); // Report it with the stored row
+                } // End conflict check
+
+            } catch (ConflictException e) { // Let conflicts through unchanged; the unit of work rolls back
+                throw e; // Rethrow with the stored row attached
+            } catch (Exception e) { // Handle SQL errors encountered during deletion
+                e.printStackTrace(); // Print diagnostic information
+                throw new RuntimeException("remove item failed"); // Propagate a runtime exception to the caller
+            } // End catch block for remove errors
+            return totals(trip); // Read the adjusted totals
+        }); // End unit of work
     } // End removeItem method
 
-    public int computeSubtotalCents(int tripId) { // Compute the subtotal for a trip by summing line totals
-        String sql = "SELECT COALESCE(SUM(line_total_cents), 0) FROM trip_items WHERE trip_id=?"; // SQL query summing line totals with a zero fallback
-        try (Connection c = Db.open(); // Open a database connection
-             PreparedStatement ps = c.prepareStatement(sql)) { // Prepare the aggregate query
+    public Totals totals(int tripId) { // Read a trip's stored subtotal and item count, or null when the trip does not exist
+        long t0 = T_TOTALS.start(); // Start timing the call
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_TOTALS)) { // Prepare the primary-key read
 
-            ps.setInt(1, tripId); // Bind the trip identifier used to filter rows
-            try (ResultSet rs = ps.executeQuery()) { // Execute the query and obtain the aggregate result
-                if (rs.next()) return rs.getInt(1); // Return the computed subtotal if a result row exists
-                return 0; // Fallback to zero if no row is present, though aggregate queries should return one
+            ps.setInt(1, tripId); // Bind the trip identifier
+            try (ResultSet rs = ps.executeQuery()) { // Read the trip row
+                return rs.next() ? new Totals(tripId, rs.getInt(1), rs.getInt(2)) : null; // Copy both totals
             } // End try-with-resources for the ResultSet
 
-        } catch (Exception e) { // Handle SQL errors during subtotal computation
+        } catch (Exception e) { // Handle SQL errors during the read
             e.printStackTrace(); // Print stack trace information for debugging
-            throw new RuntimeException("subtotal failed"); // Inform callers that subtotal computation failed
-        } // End catch block for subtotal errors
+            throw new RuntimeException("totals failed"); // Inform callers that the read failed
+        } finally { // Record the duration however the call ended
+            T_TOTALS.stop(t0); // Add it to the trip.totals timer
+        } // End timing
+    } // End totals method
+
+    private Integer tripOf(int tripItemId) { // Find the trip an item belongs to, or null when the item does not exist
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_ITEM_TRIP)) { // Prepare the primary-key read
+
+            ps.setInt(1, tripItemId); // Bind the item identifier
+            try (ResultSet rs = ps.executeQuery()) { // Read the item row
+                return rs.next() ? rs.getInt(1) : null; // The trip, if the item exists
+            } // End try-with-resources for the ResultSet
+
+        } catch (Exception e) { // Handle SQL errors during the read
+            e.printStackTrace(); // Print diagnostic information
+            throw new RuntimeException("item lookup failed"); // Signal failure to the caller
+        } // End catch block for lookup errors
+    } // End tripOf method
+
+    private static TripItem readItem(Connection c, int tripItemId) throws SQLException { // Primary-key read on a connection the caller already holds, or null when the item does not exist
+        try (PreparedStatement ps = c.prepareStatement(SQL_GET_ITEM)) { // Prepare the lookup
+            ps.setInt(1, tripItemId); // Bind the identifier
+            try (ResultSet rs = ps.executeQuery()) { return rs.next() ? readItem(rs) : null; } // Hydrate the row
+        } // End try-with-resources for the statement
+    } // End readItem helper method
+
+    private static TripItem readItem(ResultSet rs) throws SQLException { // Hydrate the trip item at the cursor's current row
+        TripItem ti = new TripItem(); // Instantiate a TripItem model to populate
+        ti.id = rs.getInt("id"); // Read the unique identifier for the trip item
+        ti.tripId = rs.getInt("trip_id"); // Read the parent trip identifier
+        ti.itemName = rs.getString("item_name"); // Read the stored item name
+        ti.unit = rs.getString("unit"); // Read the optional unit value
+        ti.plannedQty = rs.getInt("planned_qty"); // Read the planned quantity to purchase
+        int px = rs.getInt("expected_price_cents"); // Read the expected price in cents, defaulting to zero when NULL
+        ti.expectedPriceCents = rs.wasNull() ? null : px; // Set expected price to null when the column was NULL
+        ti.lineTotalCents = rs.getInt("line_total_cents"); // Read the stored line total value
+        ti.priority = rs.getInt("priority"); // Read how much the item matters
+        ti.category = rs.getString("category"); // Read the spending category
+        ti.version = rs.getLong("row_version"); // Read the row version checked by the compare-and-set update
+        return ti; // Return the hydrated item
+    } // End readItem helper method
+
+    public int computeSubtotalCents(int tripId) { // Read a trip's subtotal, kept on the trip row by triggers instead of summed on every call
+        Totals t = totals(tripId); // One primary-key read
+        return t == null ? 0 : t.subtotalCents; // Zero for trips that do not exist, like the old SUM over no rows
     } // End computeSubtotalCents method
 
+    static void validateItem(String itemName, int qty) { // Apply the rules every batch-inserted trip item must satisfy; shared with BulkImporter
+        if (qty <= 0) throw new IllegalArgumentException("qty must be > 0"); // Same quantity rule as addItem()
+        if (itemName == null || itemName.isBlank()) throw new IllegalArgumentException("item name required"); // The item_name column is NOT NULL
+    } // End validateItem helper method
+
+    static void validatePriority(int priority) { // Apply the priority scale shared by every writer
+        if (priority < MIN_PRIORITY || priority > MAX_PRIORITY) throw new IllegalArgumentException("priority must be " + MIN_PRIORITY + ".." + MAX_PRIORITY); // Reject values outside the scale
+    } // End validatePriority helper method
+
     private String emptyToNull(String s) { // Helper to convert blank strings to null values
         if (s == null) return null; // Immediately return null if the input is already null
         String t = s.trim(); // Trim surrounding whitespace from the input string
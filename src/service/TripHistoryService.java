@@ -0,0 +1,121 @@
+package service; // Define the package for trip-related data access services
+
+import app.DBMigrator; // Import the migrator to guarantee the rollup tables exist
+import app.Db; // Import the database helper responsible for opening JDBC connections
+import model.Trip; // Import Trip as the listed row type
+
+import java.sql.Connection; // Import JDBC Connection for interacting with the database
+import java.sql.PreparedStatement; // Import PreparedStatement for parameterized SQL execution
+import java.sql.ResultSet; // Import ResultSet to read trips and rollup rows
+import java.time.LocalDate; // Import LocalDate as the range and period type
+import java.util.ArrayList; // Import ArrayList to collect trips
+import java.util.HashMap; // Import HashMap for the category and store totals
+import java.util.List; // Import List as the trip list type
+import java.util.Map; // Import Map as the report table type
+import java.util.TreeMap; // Import TreeMap so periods come out in date order
+
+public class TripHistoryService { // List past trips and report spending from the trigger-maintained spend_rollup table
+
+    static final String SQL_TRIPS = "SELECT id, trip_day, store_id, budget_cents, note, subtotal_cents, item_count " + // SQL listing trips with their stored totals
+            "FROM trips WHERE trip_day BETWEEN ? AND ? ORDER BY trip_day DESC, id DESC LIMIT ?"; // Walk idx_trips_day backwards; no trip_items access at all
+    static final String SQL_ROLLUP = "SELECT bucket, store_key, category, cents, lines FROM spend_rollup " + // SQL reading the rollup rows of one grain
+            "WHERE grain = ? AND bucket BETWEEN ? AND ?"; // One primary-key range; a few rows per period however many items were bought
+
+    public enum Grain { // Period length of a spending report
+        WEEK("W"), MONTH("M"); // ISO weeks starting on Monday, and calendar months
+
+        final String code; // Value of the grain column
+
+        Grain(String code) { this.code = code; } // Remember the column value
+
+        public LocalDate start(LocalDate d) { // First day of the period containing a date, computed the way the triggers do
+            return this == WEEK ? d.minusDays(d.getDayOfWeek().getValue() - 1) : d.withDayOfMonth(1); // Back to Monday, or to the 1st
+        } // End start method
+    } // End Grain enum
+
+    public static final class Totals { // Spending of one period, category or store
+        public long cents; // Sum of line totals
+        public int lines; // Number of trip items
+
+        void add(long cents, int lines) { this.cents += cents; this.lines += lines; } // Fold in one rollup row
+    } // End Totals class
+
+    public static final class Report { // Spending in a date range, three ways
+        public final Grain grain; // Period length
+        public final Map<LocalDate, Totals> byPeriod = new TreeMap<>(); // Keyed by the first day of each period, oldest first
+        public final Map<String, Totals> byCategory = new HashMap<>(); // Keyed by category, "" when unknown
+        public final Map<Integer, Totals> byStore = new HashMap<>(); // Keyed by store id, 0 for trips without a store
+        public final Totals total = new Totals(); // The whole range
+        public int rows; // Rollup rows read
+        public long nanos; // Time spent
+
+        Report(Grain grain) { this.grain = grain; } // Start an empty report
+
+        @Override // Indicate that we are overriding Object.toString
+        public String toString() { return byPeriod.size() + " periods, " + total.cents + " cents over " + total.lines + " items from " + rows + " rollup rows (" + nanos / 1000 + " µs)"; } // Summarize for logs
+    } // End Report class
+
+    public TripHistoryService() { // Constructor runs once when the service is instantiated
+        DBMigrator.migrate(); // Make sure the schema is current; a no-op once App has migrated at startup
+    } // End constructor
+
+    public List<Trip> listTrips(LocalDate from, LocalDate to, int limit) { // Trips dated from..to inclusive with their totals, newest first, at most limit of them
+        List<Trip> out = new ArrayList<>(); // Collect the trips
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_TRIPS)) { // Prepare the range query
+
+            ps.setLong(1, from.toEpochDay()); // Bind the first day
+            ps.setLong(2, to.toEpochDay()); // Bind the last day
+            ps.setInt(3, limit); // Bind the row limit
+            try (ResultSet rs = ps.executeQuery()) { // Execute the query
+                while (rs.next()) { // Read each trip
+                    Trip t = new Trip(); // Build the trip
+                    t.id = rs.getInt(1); // Read the identifier
+                    t.tripDay = rs.getInt(2); // Read the day number
+                    int store = rs.getInt(3); // Read the store, zero when NULL
+                    t.storeId = rs.wasNull() ? null : store; // Keep NULL as null
+                    t.budgetCents = rs.getInt(4); // Read the budget
+                    t.note = rs.getString(5); // Read the note
+                    t.subtotalCents = rs.getInt(6); // Read the stored subtotal
+                    t.itemCount = rs.getInt(7); // Read the stored item count
+                    out.add(t); // Keep the trip
+                } // End loop over rows
+            } // End try-with-resources for the ResultSet
+
+        } catch (Exception e) { // Handle SQL errors while listing
+            e.printStackTrace(); // Print diagnostic output
+            throw new RuntimeException("list trips failed"); // Signal failure to the caller
+        } // End catch block for list errors
+        return out; // Return the trips
+    } // End listTrips method
+
+    public Report report(Grain grain, LocalDate from, LocalDate to) { // Spending of every period touching from..to, by period, category and store
+        long start = System.nanoTime(); // Time the report
+        Report r = new Report(grain); // Collect the totals
+        try (Connection c = Db.open(); // Borrow a pooled connection that returns to the pool on close
+             PreparedStatement ps = c.prepareStatement(SQL_ROLLUP)) { // Prepare the range read
+
+            ps.setString(1, grain.code); // Bind the grain
+            ps.setLong(2, grain.start(from).toEpochDay()); // Whole periods: start at the one containing from
+            ps.setLong(3, grain.start(to).toEpochDay()); // ...and end at the one containing to
+            try (ResultSet rs = ps.executeQuery()) { // Read the rollup rows
+                while (rs.next()) { // Fold each row into the three tables
+                    long cents = rs.getLong(4); // Spend of the row
+                    int lines = rs.getInt(5); // Items of the row
+                    if (lines == 0) continue; // Rows left at zero by deletes
+                    r.byPeriod.computeIfAbsent(LocalDate.ofEpochDay(rs.getLong(1)), k -> new Totals()).add(cents, lines); // Per period
+                    r.byStore.computeIfAbsent(rs.getInt(2), k -> new Totals()).add(cents, lines); // Per store
+                    r.byCategory.computeIfAbsent(rs.getString(3), k -> new Totals()).add(cents, lines); // Per category
+                    r.total.add(cents, lines); // Whole range
+                    r.rows++; // Count the row
+                } // End loop over rows
+            } // End try-with-resources for the ResultSet
+
+        } catch (Exception e) { // Handle SQL errors while reporting
+            e.printStackTrace(); // Print diagnostic output
+            throw new RuntimeException("spending report failed"); // Signal failure to the caller
+        } // End catch block for report errors
+        r.nanos = System.nanoTime() - start; // Record the timing
+        return r; // Hand back the report
+    } // End report method
+} // End TripHistoryService class
@@ -0,0 +1,36 @@
+package ui; // Define the package containing Swing UI classes for the application
+
+import service.ConflictException; // Import ConflictException to route refused edits to their own handler
+
+import javax.swing.JOptionPane; // Import JOptionPane to report background failures to the user
+import javax.swing.SwingUtilities; // Import SwingUtilities to hop back onto the Event Dispatch Thread
+import java.awt.Component; // Import Component as the parent for error dialogs
+import java.util.concurrent.CancellationException; // Import CancellationException to ignore superseded loads
+import java.util.concurrent.CompletableFuture; // Import CompletableFuture as the async result type
+import java.util.concurrent.CompletionException; // Import CompletionException to unwrap failures from dependent stages
+import java.util.function.Consumer; // Import Consumer for the success callback
+
+final class Edt { // Small helper that delivers background service results on the Swing EDT
+
+    private Edt() {} // Private constructor prevents instantiation because all members are static
+
+    static <T> void then(Component owner, CompletableFuture<T> f, Consumer<T> onOk, String failMsg) { // Run onOk on the EDT, or show failMsg there if the work failed
+        then(owner, f, onOk, null, failMsg); // Conflicts are reported like any other failure
+    } // End then method
+
+    static <T> void then(Component owner, CompletableFuture<T> f, Consumer<T> onOk, Consumer<ConflictException> onConflict, String failMsg) { // Same, but hand edits refused by a compare-and-set update to onConflict
+        f.whenComplete((value, error) -> SwingUtilities.invokeLater(() -> { // Marshal the outcome back onto the EDT
+            if (error == null) { onOk.accept(value); return; } // Hand successful results to the UI code
+            Throwable cause = unwrap(error); // Find the exception the service actually threw
+            if (cause instanceof CancellationException) return; // A newer request replaced this one, so stay silent
+            if (cause instanceof ConflictException && onConflict != null) { onConflict.accept((ConflictException) cause); return; } // Someone else changed the row; let the window show it
+            cause.printStackTrace(); // Print the stack trace to help diagnose the issue
+            JOptionPane.showMessageDialog(owner, failMsg + (cause.getMessage() == null ? "" : ": " + cause.getMessage())); // Tell the user what failed
+        })); // End EDT callback
+    } // End then method
+
+    static Throwable unwrap(Throwable t) { // Strip the CompletionException wrapper added by dependent stages
+        while (t instanceof CompletionException && t.getCause() != null) t = t.getCause(); // Walk down to the original exception
+        return t; // Return the underlying failure
+    } // End unwrap method
+} // End Edt class
@@ -0,0 +1,56 @@
+package ui; // Define the package containing Swing UI classes for the application
+
+import util.Log; // Import the asynchronous logger for slow-dispatch warnings
+import util.Metrics; // Import the metrics registry that holds the dispatch timers
+
+import java.awt.AWTEvent; // Import AWTEvent as the dispatched event type
+import java.awt.EventQueue; // Import EventQueue as the base of the timing queue
+import java.awt.Toolkit; // Import Toolkit to reach the system event queue
+import java.awt.event.ActionListener; // Import ActionListener as the type of the timed button handlers
+import java.util.HashMap; // Import HashMap to cache timers by event kind
+import java.util.Map; // Import Map as the cache type
+
+public final class EdtMonitor extends EventQueue { // Event queue that times every event the EDT dispatches, plus helpers that time individual handlers, so slow ones show up in the metrics
+
+    private static final long SLOW_NANOS = Long.getLong("edtSlowMs", 100L) * 1_000_000L; // Dispatches longer than -DedtSlowMs are logged as warnings
+    private static boolean installed; // Set once the queue is pushed
+
+    private final Map<String, Metrics.Timer> timers = new HashMap<>(); // Timers by event kind; only the EDT touches it
+    private static final Map<String, Metrics.Timer> HANDLERS = new HashMap<>(); // Timers by handler name; only the EDT touches it
+
+    private EdtMonitor() {} // Created through install()
+
+    public static synchronized void install() { // Replace the system event queue with a timing one; later calls do nothing
+        if (installed) return; // Already timing
+        installed = true; // Remember it
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new EdtMonitor()); // Every later event is dispatched through this queue
+    } // End install method
+
+    @Override // Wrap EventQueue.dispatchEvent
+    protected void dispatchEvent(AWTEvent event) { // Dispatch one event and record how long its handlers took
+        long start = System.nanoTime(); // Read the clock before the handlers run
+        try { // Always record, even when a handler throws
+            super.dispatchEvent(event); // Run the listeners
+        } finally { // Record the dispatch
+            long nanos = System.nanoTime() - start; // Time the handlers held the EDT
+            String kind = event.getClass().getSimpleName(); // Mouse, key, paint and invokeLater events; button handlers run inside the mouse and key ones
+            timers.computeIfAbsent(kind, k -> Metrics.timer("edt." + k)).record(nanos); // One timer per kind
+            if (nanos >= SLOW_NANOS) Log.warn("EDT", kind + " held the event thread for " + nanos / 1_000_000 + " ms"); // Point at the event that froze the UI
+        } // End finally block
+    } // End dispatchEvent method
+
+    static ActionListener timed(String name, ActionListener l) { // Wrap a button handler so it records edt.action.<name>; Swing calls these from inside the mouse or key dispatch, never through the queue
+        return e -> time(name, () -> l.actionPerformed(e)); // Time each call
+    } // End timed method
+
+    static void time(String name, Runnable handler) { // Run one handler on the EDT and record how long it took
+        long start = System.nanoTime(); // Read the clock before the handler runs
+        try { // Always record, even when the handler throws
+            handler.run(); // Run it
+        } finally { // Record the call
+            long nanos = System.nanoTime() - start; // Time the handler held the EDT
+            HANDLERS.computeIfAbsent(name, k -> Metrics.timer("edt.action." + k)).record(nanos); // One timer per handler
+            if (nanos >= SLOW_NANOS) Log.warn("EDT", name + " held the event thread for " + nanos / 1_000_000 + " ms"); // Point at the handler that froze the UI
+        } // End finally block
+    } // End time method
+} // End EdtMonitor class
@@ -0,0 +1,70 @@
+package ui; // Define the package containing Swing UI classes for the application
+
+import service.BulkImporter; // Import the importer whose progress the dialog shows
+
+import javax.swing.BorderFactory; // Import BorderFactory to pad the dialog content
+import javax.swing.JDialog; // Import JDialog as the progress window
+import javax.swing.JFileChooser; // Import JFileChooser to pick the input file
+import javax.swing.JLabel; // Import JLabel for the running totals
+import javax.swing.JOptionPane; // Import JOptionPane for the final summary
+import javax.swing.JProgressBar; // Import JProgressBar as the busy indicator
+import javax.swing.JScrollPane; // Import JScrollPane to scroll long reject lists
+import javax.swing.JTextArea; // Import JTextArea to list rejected rows
+import javax.swing.SwingUtilities; // Import SwingUtilities to hop back onto the EDT
+import javax.swing.filechooser.FileNameExtensionFilter; // Import FileNameExtensionFilter to offer CSV and JSON Lines files
+import java.awt.BorderLayout; // Import BorderLayout to arrange the dialog
+import java.awt.Window; // Import Window as the dialog owner
+import java.nio.file.Path; // Import Path to name the chosen file
+import java.util.function.BiFunction; // Import BiFunction to describe the import job
+
+final class ImportDialog { // Runs a bulk import off the EDT while showing its progress, then summarizes the result
+
+    private ImportDialog() {} // Private constructor prevents instantiation because all members are static
+
+    static Path chooseFile(Window owner) { // Ask for a CSV or JSON Lines file, or return null when cancelled
+        JFileChooser fc = new JFileChooser(); // Create the chooser
+        fc.setFileFilter(new FileNameExtensionFilter("CSV or JSON Lines", "csv", "jsonl", "ndjson", "json")); // Offer the supported formats
+        return fc.showOpenDialog(owner) == JFileChooser.APPROVE_OPTION ? fc.getSelectedFile().toPath() : null; // Return the choice
+    } // End chooseFile method
+
+    static void run(Window owner, Path file, BiFunction<Path, BulkImporter.Listener, BulkImporter.Report> job, Runnable onDone) { // Import on a background thread; onDone runs on the EDT whether or not it succeeded
+        JDialog dlg = new JDialog(owner, "Importing " + file.getFileName()); // Create a modeless progress window
+        JLabel status = new JLabel("starting…"); // Running totals
+        JProgressBar bar = new JProgressBar(); // Busy indicator; the row count is unknown until the end
+        bar.setIndeterminate(true); // Animate without a known total
+        dlg.getRootPane().setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12)); // Pad the content
+        dlg.add(status, BorderLayout.NORTH); // Totals on top
+        dlg.add(bar, BorderLayout.CENTER); // Indicator below
+        dlg.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE); // The import cannot be abandoned half way through a batch
+        dlg.setSize(460, 110); // Wide enough for the totals line
+        dlg.setLocationRelativeTo(owner); // Center over the window that started it
+        dlg.setVisible(true); // Show it; the owner stays usable
+
+        BulkImporter.Listener l = r -> { // Copy the totals onto the label
+            String text = r.toString(); // Format off the EDT
+            SwingUtilities.invokeLater(() -> status.setText(text)); // Update on the EDT
+        }; // End listener
+
+        Thread.ofVirtual().name("grocerease-import").start(() -> { // Parse on a background thread; batches commit on the DB writer thread
+            try { // Capture the outcome for the EDT
+                BulkImporter.Report r = job.apply(file, l); // Run the import
+                SwingUtilities.invokeLater(() -> { dlg.dispose(); showSummary(owner, r); onDone.run(); }); // Summarize and refresh
+            } catch (RuntimeException e) { // Handle aborted imports
+                e.printStackTrace(); // Print the stack trace to help diagnose the issue
+                SwingUtilities.invokeLater(() -> { dlg.dispose(); JOptionPane.showMessageDialog(owner, e.getMessage()); onDone.run(); }); // Report the failure and show what did commit
+            } // End outcome handling
+        }); // End background thread
+    } // End run method
+
+    private static void showSummary(Window owner, BulkImporter.Report r) { // Show the totals and the first rejected rows
+        if (r.rejected == 0) { JOptionPane.showMessageDialog(owner, "Imported " + r.written + " rows.\n" + r); return; } // Clean import
+        StringBuilder sb = new StringBuilder(); // List of rejections
+        for (BulkImporter.Rejection x : r.sample) sb.append(x).append('\n'); // One per line
+        if (r.rejected > r.sample.size()) sb.append("… ").append(r.rejected - r.sample.size()).append(" more\n"); // Say how many were not kept
+        JTextArea area = new JTextArea(sb.toString(), 12, 60); // Show the list read-only
+        area.setEditable(false); // Prevent edits
+        JScrollPane scroll = new JScrollPane(area); // Scroll long lists
+        JOptionPane.showMessageDialog(owner, new Object[]{"Imported " + r.written + " rows; " + r.rejected + " rows were rejected:", scroll, r.toString()}, // Totals and rejects
+                "Import finished with rejected rows", JOptionPane.WARNING_MESSAGE); // Flag the partial import
+    } // End showSummary method
+} // End ImportDialog class
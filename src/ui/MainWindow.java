@@ -1,22 +1,40 @@
 package ui; // Define the package containing Swing user interface classes
 
+import service.DbExecutors; // Import DbExecutors to take backups off the EDT
+import service.ExpiryEngine; // Import ExpiryEngine to show expiry warnings as they happen
+import service.Exporter; // Import Exporter to write database snapshots
+import util.Log; // Import the asynchronous logger for expiry and backup reports
+
 import javax.swing.JButton; // Import JButton for clickable actions
+import javax.swing.JFileChooser; // Import JFileChooser to choose where a backup is written
 import javax.swing.JFrame; // Import JFrame as the base window class
+import javax.swing.JLabel; // Import JLabel for the expiry status line
 import javax.swing.JOptionPane; // Import JOptionPane for simple dialogs
+import javax.swing.SwingUtilities; // Import SwingUtilities to show engine events on the EDT
 import java.awt.GridBagConstraints; // Import GridBagConstraints to configure GridBagLayout
 import java.awt.GridBagLayout; // Import GridBagLayout to arrange buttons vertically with spacing
 import java.awt.Insets; // Import Insets to add padding around components
+import java.nio.file.Path; // Import Path to name the backup file
+import java.time.LocalDate; // Import LocalDate to suggest a dated backup name
+import java.util.List; // Import List as the event batch type
 
 public class MainWindow extends JFrame { // Define the primary navigation window for the application
 
+    private static final int STATUS_NAMES = 3; // Items named in the status line before summarizing the rest
+    private static final int TOOLTIP_LINES = 20; // Items listed in the status tooltip
+
+    private final JLabel expiryStatus = new JLabel(" "); // Latest expiry warnings, blank until the engine reports any
+
     public MainWindow() { // Construct and initialize the main menu window
         setTitle("GrocerEase - Main Menu"); // Set the window title shown in the frame header
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // Close the entire application when this window exits
-        setSize(520, 300); // Configure the initial window size
+        setSize(520, 360); // Configure the initial window size
         setLocationRelativeTo(null); // Center the window on the screen
 
         JButton btnPantry = new JButton("Pantry"); // Create a button to open the pantry management window
         JButton btnTrip = new JButton("Plan a Trip"); // Create a button to open the trip planning window
+        JButton btnHistory = new JButton("Trip History"); // Create a button to browse past trips and spending
+        JButton btnBackup = new JButton("Back Up…"); // Create a button to save a snapshot of the database
         JButton btnAbout = new JButton("About"); // Create a button to show an about dialog
 
         setLayout(new GridBagLayout()); // Use GridBagLayout for flexible component placement
@@ -25,9 +43,14 @@ public class MainWindow extends JFrame { // Define the primary navigation window
 
         c.gridx = 0; c.gridy = 0; add(btnPantry, c); // Place the pantry button in the first row
         c.gridx = 0; c.gridy = 1; add(btnTrip, c); // Place the trip button beneath the pantry button
-        c.gridx = 0; c.gridy = 2; add(btnAbout, c); // Place the about button at the bottom of the column
+        c.gridx = 0; c.gridy = 2; add(btnHistory, c); // Place the history button beneath the trip button
+        c.gridx = 0; c.gridy = 3; add(btnBackup, c); // Place the backup button beneath the history button
+        c.gridx = 0; c.gridy = 4; add(btnAbout, c); // Place the about button beneath the backup button
+        c.gridx = 0; c.gridy = 5; add(expiryStatus, c); // Place the expiry status line at the bottom of the column
 
-        btnPantry.addActionListener(e -> { // Register a listener to handle pantry button clicks
+        ExpiryEngine.shared().addListener(events -> SwingUtilities.invokeLater(() -> showExpiry(events))); // Show each batch of threshold crossings as it arrives
+
+        btnPantry.addActionListener(EdtMonitor.timed("main.pantry", e -> { // Register a listener to handle pantry button clicks
             try { // Attempt to construct and show the pantry window
                 PantryWindow pw = new PantryWindow(); // Create a new pantry management window instance
                 pw.setVisible(true); // Display the pantry window to the user
@@ -35,9 +58,9 @@ public class MainWindow extends JFrame { // Define the primary navigation window
                 ex.printStackTrace(); // Print details about the failure for debugging
                 JOptionPane.showMessageDialog(this, "couldn't open pantry window"); // Inform the user that the window could not be opened
             } // End catch block for pantry window errors
-        }); // End pantry button listener registration
+        })); // End pantry button listener registration
 
-        btnTrip.addActionListener(e -> { // Register a listener for the trip planning button
+        btnTrip.addActionListener(EdtMonitor.timed("main.trip", e -> { // Register a listener for the trip planning button
             try { // Attempt to construct and show the trip planning window
                 TripWindow tw = new TripWindow(); // Create a new trip planning window instance
                 tw.setVisible(true); // Display the trip planning window
@@ -45,14 +68,48 @@ public class MainWindow extends JFrame { // Define the primary navigation window
                 ex.printStackTrace(); // Print the exception stack trace for debugging
                 JOptionPane.showMessageDialog(this, "couldn't open trip window"); // Show an error message to the user
             } // End catch block for trip window errors
-        }); // End trip button listener registration
+        })); // End trip button listener registration
 
-        btnAbout.addActionListener(e -> { // Register a listener for the about button
+        btnHistory.addActionListener(EdtMonitor.timed("main.history", e -> { // Register a listener for the history button
+            try { // Attempt to construct and show the history window
+                new TripHistoryWindow().setVisible(true); // Create and display the history window
+            } catch (Exception ex) { // Handle failures while opening the history window
+                ex.printStackTrace(); // Print the exception stack trace for debugging
+                JOptionPane.showMessageDialog(this, "couldn't open trip history"); // Show an error message to the user
+            } // End catch block for history window errors
+        })); // End history button listener registration
+
+        btnBackup.addActionListener(EdtMonitor.timed("main.backup", e -> backUp())); // Register a listener that saves a database snapshot
+
+        btnAbout.addActionListener(EdtMonitor.timed("main.about", e -> { // Register a listener for the about button
             JOptionPane.showMessageDialog(this, // Show a simple message dialog anchored to this window
                     "GrocerEase (practice IA)\n" + // Provide the application name and context
                     "- Apache Netbeans + SQLite\n" + // Describe the tooling used to build the project
                     "- Pantry + Trip planning\n" + // Highlight the main features available
                     "- Created to ease grocery shopping"); // Explain the goal of the application
-        }); // End about button listener registration
+        })); // End about button listener registration
     } // End MainWindow constructor
+
+    private void showExpiry(List<ExpiryEngine.Event> events) { // Summarize a batch of expiry warnings in the status line
+        StringBuilder text = new StringBuilder("⚠ "); // Short summary shown in the window
+        for (int i = 0; i < Math.min(STATUS_NAMES, events.size()); i++) text.append(i == 0 ? "" : ", ").append(events.get(i)); // Name the most urgent items
+        if (events.size() > STATUS_NAMES) text.append(" and ").append(events.size() - STATUS_NAMES).append(" more"); // Count the rest
+        StringBuilder tip = new StringBuilder("<html>"); // Longer list shown on hover
+        for (int i = 0; i < Math.min(TOOLTIP_LINES, events.size()); i++) tip.append(events.get(i)).append("<br>"); // One item per line
+        if (events.size() > TOOLTIP_LINES) tip.append("… ").append(events.size() - TOOLTIP_LINES).append(" more"); // Say how many were not listed
+        expiryStatus.setText(text.toString()); // Replace the previous warning
+        expiryStatus.setToolTipText(tip.toString()); // Replace the previous list
+        Log.info("Expiry", events.size() + " items crossed a threshold, first: " + events.get(0)); // Log the batch
+    } // End showExpiry method
+
+    private void backUp() { // Save a consistent copy of the database while the application keeps running
+        JFileChooser fc = new JFileChooser(); // Ask where to write the copy
+        fc.setSelectedFile(new java.io.File("GrocerEase-" + LocalDate.now() + ".db")); // Suggest a dated name
+        if (fc.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return; // Abort if the user cancelled
+        Path target = fc.getSelectedFile().toPath(); // Chosen file
+        Edt.then(this, DbExecutors.read(() -> new Exporter().snapshot(target)), r -> { // Copy on a background reader; writers keep going under WAL
+            Log.info("Backup", r.toString()); // Log size and time
+            JOptionPane.showMessageDialog(this, "Backup saved to " + r.file + " (" + r.bytes / 1024 + " KB)"); // Confirm to the user
+        }, "backup failed"); // Report failures
+    } // End backUp method
 } // End MainWindow class definition
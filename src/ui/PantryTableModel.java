@@ -0,0 +1,173 @@
+package ui; // Define the package containing Swing UI classes for the application
+
+import model.PantryItem; // Import the data model representing pantry records
+import service.AsyncPantryService; // Import the async service that loads pages off the EDT
+import service.PantryView; // Import PantryView to describe which rows the table shows
+import util.Log; // Import the asynchronous logger for view sizes
+
+import javax.swing.JOptionPane; // Import JOptionPane to report a page that failed to load
+import javax.swing.SwingUtilities; // Import SwingUtilities to settle page requests on the EDT
+import javax.swing.table.AbstractTableModel; // Import AbstractTableModel as the base for a model backed by PantryItem pages
+import java.awt.Component; // Import Component as the parent for load error dialogs
+import java.util.HashSet; // Import HashSet to track pages being loaded
+import java.util.LinkedHashMap; // Import LinkedHashMap as the access-ordered page cache
+import java.util.List; // Import List as the page type
+import java.util.Map; // Import Map as the page cache type
+import java.util.Objects; // Import Objects to compare search texts that may be null
+import java.util.Set; // Import Set as the in-flight page type
+import java.util.concurrent.CancellationException; // Import CancellationException to ignore superseded loads
+import java.util.concurrent.CompletableFuture; // Import CompletableFuture as the page load result type
+
+class PantryTableModel extends AbstractTableModel { // Virtual table model that knows the row count up front and loads pages only when they are displayed
+
+    static final int PAGE_SIZE = 200; // Rows fetched per query, a few screens' worth
+    private static final int MAX_PAGES = 50; // Pages kept in memory, so at most 10,000 rows are held however large the pantry is
+    private static final int MAX_ANCHORS = 10_000; // Page boundaries remembered for keyset seeks
+    static final int MAX_MATCHES = PAGE_SIZE; // Search matches shown, best first; exactly one page, so scrolling never loads more
+
+    private static final String[] COLUMNS = {"ID", "Name", "Category", "On-hand", "Unit", "Min", "Expiry"}; // Column headers shown by the pantry table
+
+    private final Component owner; // Parent for error dialogs
+    private final AsyncPantryService service; // Loads counts and pages in the background
+    private PantryView view = PantryView.all(); // Which rows the table shows, and in what order
+    private String query; // Search text whose matches are shown instead of the view, or null to page through the view
+    private int rowCount = 0; // Number of rows in the view, from the last count
+    private int generation = 0; // Incremented on every reload so results of an older view or count are dropped
+    private final Map<Integer, List<PantryItem>> pages = lru(MAX_PAGES); // Loaded pages by page number, least recently shown first
+    private final Map<Integer, PantryItem> anchors = lru(MAX_ANCHORS); // Last row of each loaded page, used to seek to the next page by key
+    private final Set<Integer> loading = new HashSet<>(); // Pages requested but not yet delivered
+    private int reportedGeneration = -1; // Last reload whose page failure was shown, so repaints that retry a failing page do not stack dialogs
+
+    PantryTableModel(Component owner, AsyncPantryService service) { // Build an empty model; call setView to start loading
+        this.owner = owner; // Remember the dialog parent
+        this.service = service; // Remember the service used for loads
+    } // End constructor
+
+    void setView(PantryView v) { // Switch to another view and load it from the top
+        view = v; // Remember the new view
+        query = null; // Leave search mode
+        refresh(); // Count it and show the first pages as they are displayed
+    } // End setView method
+
+    void search(String text) { // Show the best matches for typed text, or go back to the view when it is blank
+        String q = text == null || text.isBlank() ? null : text.trim(); // Blank text ends the search
+        if (Objects.equals(q, query)) return; // Nothing changed
+        query = q; // Remember the text
+        refresh(); // Run it, or reload the view
+    } // End search method
+
+    void refresh() { // Recount the current view and drop every cached page, keeping the old rows on screen until the count arrives
+        int gen = ++generation; // Invalidate every load still in flight
+        if (query != null) { searchPage(gen); return; } // Searches are re-run instead of counted
+        Edt.then(owner, service.count(view), n -> { // Count in the background, then reset the table on the EDT
+            if (gen != generation) return; // A newer reload has started
+            pages.clear(); // Drop rows of the previous count
+            anchors.clear(); // Page boundaries may have moved
+            loading.clear(); // Let visible pages be requested again
+            rowCount = n; // Size the table from the count; rows are fetched as the table paints them
+            fireTableDataChanged(); // Tell the table that everything changed
+            Log.debug("Pantry", () -> view + ": " + n + " rows"); // Log the view size for debugging
+        }, "load failed"); // Report failures to count
+    } // End refresh method
+
+    private void searchPage(int gen) { // Run the search and show its matches as the only page
+        String q = query; // Text being searched
+        Edt.then(owner, service.search(q, MAX_MATCHES), rows -> { // Search in the background, then show the matches on the EDT
+            if (gen != generation) return; // A newer keystroke or reload has started
+            pages.clear(); // Drop the previous rows
+            anchors.clear(); // Matches are not paged by key
+            loading.clear(); // Nothing is being loaded
+            pages.put(0, rows); // The matches are page 0
+            rowCount = rows.size(); // One row per match
+            fireTableDataChanged(); // Tell the table that everything changed
+        }, "search failed"); // Report failures to search
+    } // End searchPage method
+
+    void added(PantryItem p) { // Show a newly inserted item
+        if (query != null || view.filter.test(p)) refresh(); // Rows after it shift down by one, or it may match the search, so reload what is visible
+    } // End added method
+
+    void updated(PantryItem p) { // Show an edited item, repainting a single row when it stays in place
+        int at = rowOf(p.id); // Find the row if its page is loaded
+        if (query == null && at >= 0 && view.filter.test(p) && view.order.compare(itemAt(at), p) == 0) { // Same view and same sort position; a search may rank the edit elsewhere
+            pages.get(at / PAGE_SIZE).set(at % PAGE_SIZE, p); // Replace the row in its page
+            fireTableRowsUpdated(at, at); // Repaint just that row
+            return; // Done without touching SQLite
+        } // End in-place update
+        refresh(); // The row moved, left or joined the view, so recount and reload what is visible
+    } // End updated method
+
+    void removed(int id) { refresh(); } // Rows after the deleted one shift up by one, so recount and reload what is visible
+
+    PantryItem itemAt(int row) { // Return the item displayed on a row, or null while its page is still loading
+        List<PantryItem> page = pages.get(row / PAGE_SIZE); // Look up the page, marking it recently used
+        if (page == null) { request(row / PAGE_SIZE); return null; } // Start loading it; the table repaints when it arrives
+        int i = row % PAGE_SIZE; // Position inside the page
+        return i < page.size() ? page.get(i) : null; // Rows past the end of a short page were deleted since the count
+    } // End itemAt method
+
+    private void request(int page) { // Start loading a page unless it is already on its way
+        if (!loading.add(page)) return; // Only one request per page
+        int gen = generation; // Remember which reload this request belongs to
+        PantryItem prev = page == 0 ? null : anchors.get(page - 1); // Last row of the previous page, if known
+        CompletableFuture<List<PantryItem>> f = prev != null // Prefer seeking by key, which costs the same at any depth
+                ? service.page(view, view.keyOf(prev), prev.id, PAGE_SIZE) // Continue right after the previous page
+                : service.pageAt(view, page * PAGE_SIZE, PAGE_SIZE); // First page, or a jump the keyset cannot reach
+        f.whenComplete((rows, error) -> SwingUtilities.invokeLater(() -> { // Settle the request on the EDT, whether it loaded or failed
+            if (gen != generation) return; // The view changed or was recounted meanwhile
+            loading.remove(page); // Allow the page to be requested again after eviction, or by the next repaint after a failure
+            if (error != null) { loadFailed(gen, error); return; } // Keep the placeholders; itemAt() asks again when they are painted
+            pages.put(page, rows); // Cache the page
+            if (!rows.isEmpty()) anchors.put(page, rows.get(rows.size() - 1)); // Remember where the next page starts
+            int first = page * PAGE_SIZE; // First table row covered by the page
+            int last = Math.min(rowCount, first + PAGE_SIZE) - 1; // Last table row covered by the page
+            if (last >= first) fireTableRowsUpdated(first, last); // Repaint the rows that showed placeholders
+        })); // End EDT callback
+    } // End request method
+
+    private void loadFailed(int gen, Throwable error) { // Report a page that failed to load, once per reload
+        Throwable cause = Edt.unwrap(error); // Find the exception the service actually threw
+        if (cause instanceof CancellationException) return; // A newer request replaced this one, so stay silent
+        Log.warn("Pantry", "page load failed: " + cause); // Log every failure, including retries
+        if (reportedGeneration == gen) return; // Already shown for this reload
+        reportedGeneration = gen; // Remember that it was shown
+        cause.printStackTrace(); // Print the stack trace to help diagnose the issue
+        JOptionPane.showMessageDialog(owner, "load failed" + (cause.getMessage() == null ? "" : ": " + cause.getMessage())); // Tell the user what failed
+    } // End loadFailed method
+
+    private int rowOf(int id) { // Locate the row showing an item id among the loaded pages, or -1
+        for (Map.Entry<Integer, List<PantryItem>> e : pages.entrySet()) { // Check every loaded page
+            List<PantryItem> rows = e.getValue(); // Rows of this page
+            for (int i = 0; i < rows.size(); i++) if (rows.get(i).id == id) return e.getKey() * PAGE_SIZE + i; // Convert the page position to a table row
+        } // End loop over pages
+        return -1; // The item is not loaded
+    } // End rowOf method
+
+    private static <V> Map<Integer, V> lru(int max) { // Build an access-ordered map that drops its least recently used entry past max
+        return new LinkedHashMap<>(16, 0.75f, true) { // Access order makes get() refresh an entry
+            @Override // Indicate that we are overriding LinkedHashMap.removeEldestEntry
+            protected boolean removeEldestEntry(Map.Entry<Integer, V> eldest) { return size() > max; } // Evict once over the bound
+        }; // End map definition
+    } // End lru method
+
+    @Override public int getRowCount() { return rowCount; } // Report the counted size, so the scrollbar is right before any rows are loaded
+    @Override public int getColumnCount() { return COLUMNS.length; } // Report the number of columns
+    @Override public String getColumnName(int c) { return COLUMNS[c]; } // Provide the header text for a column
+    @Override public boolean isCellEditable(int r, int c) { return false; } // Prevent direct editing of cells within the table
+    @Override public Class<?> getColumnClass(int c) { return (c == 0 || c == 3 || c == 5) ? Integer.class : String.class; } // Provide column classes so sorting and rendering behave correctly
+
+    @Override // Implement AbstractTableModel.getValueAt
+    public Object getValueAt(int r, int c) { // Read a cell from the row's page, loading the page on first sight
+        PantryItem p = itemAt(r); // Look up the item displayed on the row
+        if (p == null) return c == 1 ? "…" : null; // Placeholder while the page loads
+        switch (c) { // Select the field for the requested column
+            case 0: return p.id; // Identifier column
+            case 1: return p.name; // Name column
+            case 2: return p.category; // Category column
+            case 3: return p.onHandQty; // On-hand quantity column
+            case 4: return p.unit; // Unit column
+            case 5: return p.minQty; // Minimum quantity column
+            default: return p.expiryDay != null ? p.expiry().toString() : p.expiryText != null ? "? " + p.expiryText : ""; // Expiry column as YYYY-MM-DD, the unreadable old text marked with "?", blank when no expiry is set
+        } // End column switch
+    } // End getValueAt method
+} // End PantryTableModel class
@@ -1,7 +1,10 @@
 package ui; // Define the package containing Swing UI classes for the application
 
-import service.SqlitePantryService; // Import the service responsible for pantry CRUD operations
+import service.AsyncPantryService; // Import the non-blocking pantry service so JDBC work stays off the EDT
+import service.BulkImporter; // Import the bulk importer behind the Import button
+import service.PantryView; // Import PantryView to choose which rows the table pages through
 import model.PantryItem; // Import the data model representing pantry records
+import util.Log; // Import the asynchronous logger for edits
 
 import javax.swing.JButton; // Import JButton for toolbar actions
 import javax.swing.JFrame; // Import JFrame as the base class for the window
@@ -12,25 +15,24 @@ import javax.swing.JScrollPane; // Import JScrollPane to provide scrolling for t
 import javax.swing.JTable; // Import JTable to display pantry data in tabular form
 import javax.swing.JTextField; // Import JTextField for simple input fields
 import javax.swing.ListSelectionModel; // Import ListSelectionModel to control selection mode
-import javax.swing.table.DefaultTableModel; // Import DefaultTableModel to manage table data
+import javax.swing.event.DocumentEvent; // Import DocumentEvent for the search field listener
+import javax.swing.event.DocumentListener; // Import DocumentListener to search as the user types
 import java.awt.BorderLayout; // Import BorderLayout to arrange toolbar and table
 import java.awt.FlowLayout; // Import FlowLayout for the toolbar panel
 import java.awt.GridLayout; // Import GridLayout for the add/edit forms
-import java.util.List; // Import List to work with collections of PantryItem
+import java.nio.file.Path; // Import Path to name the file chosen for import
+import java.time.LocalDate; // Import LocalDate to parse expiry dates typed by the user
 
 public class PantryWindow extends JFrame { // Define the window used to manage pantry items
 
-    private final SqlitePantryService service = new SqlitePantryService(); // Instantiate the SQLite-backed pantry service used by this window
+    private final AsyncPantryService service = new AsyncPantryService(); // Instantiate the async pantry service that runs SQLite work in the background
 
-    private final DefaultTableModel model = new DefaultTableModel( // Create a table model describing the pantry columns
-            new Object[]{"ID", "Name", "Category", "On-hand", "Unit", "Min", "Expiry"}, 0 // Define the column headers and initial row count of zero
-    ) { // Begin anonymous subclass customizing the table model
-        @Override public boolean isCellEditable(int r, int c) { return false; } // Prevent direct editing of cells within the table
-        @Override public Class<?> getColumnClass(int c) { return (c == 0 || c == 3 || c == 5) ? Integer.class : String.class; } // Provide column classes so sorting and rendering behave correctly
-    }; // End of the customized DefaultTableModel definition
+    private final PantryTableModel model = new PantryTableModel(this, service); // Virtual table model that loads pages as they scroll into view
 
     private final JTable table = new JTable(model); // Create a JTable bound to the defined model to display pantry items
 
+    private final JTextField searchField = new JTextField(16); // Search names and categories as the user types
+
     public PantryWindow() { // Construct and initialize the pantry management window
         setTitle("Pantry"); // Set the window title shown in the frame header
         setDefaultCloseOperation(DISPOSE_ON_CLOSE); // Dispose only this window when closed, keeping the application running
@@ -43,6 +45,7 @@ public class PantryWindow extends JFrame { // Define the window used to manage p
         JButton btnLow = new JButton("Low Stock"); // Create a button for filtering items at or below minimum quantity
         JButton btnSoon = new JButton("Expiring ≤ 3 days"); // Create a button for filtering items expiring soon
         JButton btnAll = new JButton("Show All"); // Create a button to reload the full list of items
+        JButton btnImport = new JButton("Import…"); // Create a button for loading items from a CSV or JSON Lines file
 
         JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT)); // Create a top toolbar panel with left-aligned buttons
         top.add(new JLabel("Pantry actions: ")); // Add a label describing the toolbar purpose
@@ -52,37 +55,43 @@ public class PantryWindow extends JFrame { // Define the window used to manage p
         top.add(btnLow); // Add the low-stock button to the toolbar
         top.add(btnSoon); // Add the expiring-soon button to the toolbar
         top.add(btnAll); // Add the show-all button to the toolbar
+        top.add(btnImport); // Add the import button to the toolbar
+        top.add(new JLabel("Search:")); // Label the search field
+        top.add(searchField); // Add the search field to the toolbar
 
         add(top, BorderLayout.NORTH); // Place the toolbar panel at the top of the window
         add(new JScrollPane(table), BorderLayout.CENTER); // Place the table in the center wrapped with a scroll pane
 
-        btnAdd.addActionListener(e -> onAdd()); // Wire the add button to the onAdd handler method
-        btnEdit.addActionListener(e -> onEdit()); // Wire the edit button to the onEdit handler
-        btnDel.addActionListener(e -> onDelete()); // Wire the delete button to the onDelete handler
-        btnLow.addActionListener(e -> load(service.lowStock())); // Load low-stock items when the low button is pressed
-        btnSoon.addActionListener(e -> load(service.expiringSoon(3))); // Load items expiring within three days when requested
-        btnAll.addActionListener(e -> load(service.listAll())); // Reload all items when the show-all button is pressed
+        btnAdd.addActionListener(EdtMonitor.timed("pantry.add", e -> onAdd())); // Wire the add button to the onAdd handler method
+        btnEdit.addActionListener(EdtMonitor.timed("pantry.edit", e -> onEdit())); // Wire the edit button to the onEdit handler
+        btnDel.addActionListener(EdtMonitor.timed("pantry.delete", e -> onDelete())); // Wire the delete button to the onDelete handler
+        btnLow.addActionListener(EdtMonitor.timed("pantry.low", e -> show(PantryView.lowStock()))); // Page through low-stock items when the low button is pressed
+        btnSoon.addActionListener(EdtMonitor.timed("pantry.soon", e -> show(PantryView.expiringSoon(3)))); // Page through items expiring within three days when requested
+        btnAll.addActionListener(EdtMonitor.timed("pantry.all", e -> showAll())); // Reload all items when the show-all button is pressed
+        btnImport.addActionListener(EdtMonitor.timed("pantry.import", e -> onImport())); // Wire the import button to the onImport handler
+        searchField.getDocument().addDocumentListener(new DocumentListener() { // Search on every keystroke; the model drops results of older keystrokes
+            @Override public void insertUpdate(DocumentEvent e) { EdtMonitor.time("pantry.search", () -> model.search(searchField.getText())); } // Text typed or pasted
+            @Override public void removeUpdate(DocumentEvent e) { EdtMonitor.time("pantry.search", () -> model.search(searchField.getText())); } // Text deleted
+            @Override public void changedUpdate(DocumentEvent e) { } // Attribute changes do not alter the text
+        }); // End document listener
 
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION); // Restrict selection to a single row for clarity
 
-        load(service.listAll()); // Populate the table initially with all pantry items
+        showAll(); // Populate the table initially with all pantry items
     } // End PantryWindow constructor
 
-    private void load(List<PantryItem> items) { // Replace the table contents with the provided list of pantry items
-        model.setRowCount(0); // Clear any existing rows from the table model
-        for (PantryItem p : items) { // Iterate over each pantry item to add to the table
-            model.addRow(new Object[]{ // Append a new row containing the pantry item fields of interest
-                    p.id, p.name, p.category, p.onHandQty, p.unit, p.minQty, // Insert identifier, name, category, quantity, unit, and minimum values
-                    (p.expiry == null ? "" : p.expiry) // Display an empty string when no expiry is set, otherwise show the text value
-            }); // End row addition
-        } // End loop over pantry items
-        System.out.println("[Pantry] loaded rows = " + items.size()); // Log how many rows were loaded for debugging
-    } // End load method
+    private void showAll() { show(PantryView.all()); } // Explicitly reload the full, name-ordered list
+
+    private void show(PantryView v) { // Leave any search and page through a view
+        searchField.setText(""); // Clear the search text so the field matches what the table shows
+        model.setView(v); // Load the view from the top
+    } // End show method
 
     private Integer selectedId() { // Obtain the ID of the currently selected table row, or null when nothing is selected
         int r = table.getSelectedRow(); // Retrieve the index of the selected row from the table
         if (r < 0) return null; // Return null when no row is selected
-        return (Integer) model.getValueAt(r, 0); // Return the ID stored in the first column of the selected row
+        PantryItem p = model.itemAt(r); // Look up the item on that row
+        return p == null ? null : p.id; // Return its ID, or null while its page is still loading
     } // End selectedId helper
 
     private void onAdd() { // Display a form to add a new pantry item and persist it when confirmed
@@ -99,7 +108,7 @@ public class PantryWindow extends JFrame { // Define the window used to manage p
         p.add(new JLabel("On-hand:")); p.add(qty); // Add the on-hand quantity label and field
         p.add(new JLabel("Unit:")); p.add(unit); // Add the unit label and field
         p.add(new JLabel("Min qty:")); p.add(min); // Add the minimum quantity label and field
-        p.add(new JLabel("Expiry:")); p.add(exp); // Add the expiry label and field
+        p.add(new JLabel("Expiry (YYYY-MM-DD):")); p.add(exp); // Add the expiry label and field, naming the accepted date format
 
         int ok = JOptionPane.showConfirmDialog(this, p, "Add Pantry Item", // Show a confirmation dialog containing the form
                 JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE); // Present OK and Cancel buttons with a plain style
@@ -113,11 +122,12 @@ public class PantryWindow extends JFrame { // Define the window used to manage p
             x.unit = unit.getText().trim(); // Capture the unit text trimmed of whitespace
             x.minQty = Integer.parseInt(min.getText().trim()); // Parse the minimum quantity as an integer
             String ex = exp.getText().trim(); // Retrieve the expiry text for later processing
-            x.expiry = ex.isEmpty() ? null : ex; // Store null when expiry is blank, otherwise keep the provided text
+            x.setExpiry(ex.isEmpty() ? null : LocalDate.parse(ex)); // Store null when expiry is blank, otherwise parse the ISO date
 
-            service.add(x); // Persist the new pantry item using the service
-            load(service.listAll()); // Refresh the table to include the new item
-            System.out.println("[Pantry] added: " + x.name); // Log the addition for debugging
+            Edt.then(this, service.add(x), added -> { // Persist the new pantry item in the background
+                model.added(added); // Recount the view and reload the visible page
+                Log.debug("Pantry", () -> "added: " + added.name); // Log the addition for debugging
+            }, "check inputs: qty/min must be whole numbers; date as YYYY-MM-DD"); // Reuse the input hint when the service rejects the item
 
         } catch (Exception ex2) { // Handle validation or persistence errors during addition
             ex2.printStackTrace(); // Print the stack trace to help diagnose the issue
@@ -129,16 +139,20 @@ public class PantryWindow extends JFrame { // Define the window used to manage p
         Integer id = selectedId(); // Determine which row is selected
         if (id == null) { JOptionPane.showMessageDialog(this, "select a row first"); return; } // Require the user to choose a row before editing
 
-        PantryItem curr = service.listAll().stream() // Retrieve the full list and stream over it to locate the selected item
-                .filter(p -> p.id.equals(id)).findFirst().orElse(null); // Find the first item whose ID matches the selection
-        if (curr == null) return; // Abort if the item could not be found (unlikely but defensive)
+        Edt.then(this, service.getById(id), curr -> { // Look the item up by id in the background, then show the dialog on the EDT
+            if (curr != null) showEditDialog(curr); // Open the edit form unless the item vanished in the meantime
+        }, "load failed"); // Report failures to read the item
+    } // End onEdit method
 
+    private void showEditDialog(PantryItem curr) { // Display a form prepopulated with the item's current values
+        int id = curr.id; // Keep the identifier of the row being edited
         JTextField name = new JTextField(curr.name, 16); // Prepopulate the name field with the existing value
         JTextField cat = new JTextField(curr.category, 12); // Prepopulate the category field
         JTextField qty = new JTextField(String.valueOf(curr.onHandQty), 6); // Prepopulate the quantity field
         JTextField unit = new JTextField(curr.unit, 8); // Prepopulate the unit field
         JTextField min = new JTextField(String.valueOf(curr.minQty), 6); // Prepopulate the minimum quantity field
-        JTextField exp = new JTextField(curr.expiry == null ? "" : curr.expiry, 10); // Prepopulate the expiry field with empty text when null
+        String oldText = curr.expiryDay == null ? curr.expiryText : null; // Expiry text from an older database that could not be read as a date
+        JTextField exp = new JTextField(curr.expiryDay != null ? curr.expiry().toString() : oldText != null ? oldText : "", 10); // Prepopulate the expiry field, showing unreadable old text so it can be re-entered
 
         JPanel p = new JPanel(new GridLayout(0, 2, 8, 6)); // Create the edit form panel similar to the add form
         p.add(new JLabel("Name:")); p.add(name); // Add the name label and field
@@ -146,7 +160,8 @@ public class PantryWindow extends JFrame { // Define the window used to manage p
         p.add(new JLabel("On-hand:")); p.add(qty); // Add the on-hand label and field
         p.add(new JLabel("Unit:")); p.add(unit); // Add the unit label and field
         p.add(new JLabel("Min qty:")); p.add(min); // Add the minimum label and field
-        p.add(new JLabel("Expiry:")); p.add(exp); // Add the expiry label and field
+        p.add(new JLabel("Expiry (YYYY-MM-DD):")); p.add(exp); // Add the expiry label and field, naming the accepted date format
+        if (oldText != null) { p.add(new JLabel("Unreadable old expiry:")); p.add(new JLabel(oldText)); } // Point out text that needs re-entering as a date
 
         int ok = JOptionPane.showConfirmDialog(this, p, "Edit Pantry Item", // Display the edit dialog for confirmation
                 JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE); // Use the same options and styling as the add dialog
@@ -155,23 +170,37 @@ public class PantryWindow extends JFrame { // Define the window used to manage p
         try { // Attempt to update the pantry item with the new values
             PantryItem x = new PantryItem(); // Instantiate a PantryItem to send to the service
             x.id = id; // Preserve the existing ID so the service updates the correct row
+            x.version = curr.version; // Only overwrite the row as it was when the dialog opened
             x.name = name.getText().trim(); // Capture the updated name
             x.category = cat.getText().trim(); // Capture the updated category
             x.onHandQty = Integer.parseInt(qty.getText().trim()); // Parse the updated quantity
             x.unit = unit.getText().trim(); // Capture the updated unit
             x.minQty = Integer.parseInt(min.getText().trim()); // Parse the updated minimum quantity
             String ex = exp.getText().trim(); // Retrieve the updated expiry text
-            x.expiry = ex.isEmpty() ? null : ex; // Store null when blank, otherwise keep the provided text
-
-            service.update(x); // Persist the changes via the service
-            load(service.listAll()); // Refresh the table to reflect updates
-            System.out.println("[Pantry] updated: " + x.name); // Log the update for debugging
+            x.setExpiry(ex.isEmpty() || ex.equals(oldText) ? null : LocalDate.parse(ex)); // Store null when blank or still the unreadable old text, otherwise parse the ISO date
+
+            Edt.then(this, service.update(x), updated -> { // Persist the changes in the background
+                model.updated(updated); // Repaint just the edited row when it stays in place
+                Log.debug("Pantry", () -> "updated: " + updated.name); // Log the update for debugging
+            }, conflict -> { // Someone else saved this item while the dialog was open
+                PantryItem now = (PantryItem) conflict.current; // The row as stored now
+                model.updated(now); // Show their values
+                Log.info("Pantry", conflict.getMessage()); // Log the refused edit
+                JOptionPane.showMessageDialog(this, "\"" + now.name + "\" was changed elsewhere while you were editing (on hand now " + now.onHandQty + // Explain what happened
+                        ").\nYour changes were not saved; edit it again to apply them to the current values."); // Nothing was overwritten
+            }, "check inputs: qty/min must be whole numbers; date as YYYY-MM-DD"); // Reuse the input hint when the service rejects the change
 
         } catch (Exception ex2) { // Handle validation or persistence errors during update
             ex2.printStackTrace(); // Print the stack trace to diagnose the error
             JOptionPane.showMessageDialog(this, "check inputs: qty/min must be whole numbers; date as YYYY-MM-DD"); // Notify the user of invalid input
         } // End catch block for edit errors
-    } // End onEdit method
+    } // End showEditDialog method
+
+    private void onImport() { // Bulk-load pantry items from a file chosen by the user
+        Path file = ImportDialog.chooseFile(this); // Ask for the file
+        if (file == null) return; // Abort if the user cancelled the chooser
+        ImportDialog.run(this, file, (f, l) -> new BulkImporter().importPantry(f, l), model::refresh); // Import in the background, then recount the current view
+    } // End onImport method
 
     private void onDelete() { // Delete the currently selected pantry item after confirmation
         Integer id = selectedId(); // Determine which row is selected for deletion
@@ -179,14 +208,10 @@ public class PantryWindow extends JFrame { // Define the window used to manage p
 
         if (JOptionPane.showConfirmDialog(this, "delete this item?", "confirm", // Ask the user to confirm the deletion
                 JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) { // Proceed only if the user selects Yes
-            try { // Attempt to remove the item via the service
-                service.delete(id); // Delete the pantry item from the database
-                load(service.listAll()); // Refresh the table to remove the deleted row
-                System.out.println("[Pantry] deleted id=" + id); // Log the deletion for auditing
-            } catch (RuntimeException ex) { // Catch runtime exceptions thrown by the service
-                ex.printStackTrace(); // Print diagnostic information
-                JOptionPane.showMessageDialog(this, "delete failed: " + ex.getMessage()); // Inform the user that deletion failed
-            } // End catch block for delete errors
+            Edt.then(this, service.delete(id), deleted -> { // Delete the pantry item in the background
+                if (deleted) model.removed(id); // Recount the view and reload the visible page
+                Log.info("Pantry", "deleted id=" + id); // Log the deletion for auditing
+            }, "delete failed"); // Inform the user if deletion failed
         } // End conditional handling the user's confirmation choice
     } // End onDelete method
 } // End PantryWindow class definition
@@ -0,0 +1,160 @@
+package ui; // Define the package containing Swing UI components for the application
+
+import model.Trip; // Import Trip to reopen a past trip
+import service.DbExecutors; // Import DbExecutors to query off the EDT
+import service.TripHistoryService; // Import the history and spending service
+import util.Money; // Import money helper utilities for formatting amounts
+import util.Log; // Import the asynchronous logger for report costs
+
+import javax.swing.JButton; // Import JButton for user-triggered actions
+import javax.swing.JComboBox; // Import JComboBox to choose weekly or monthly periods
+import javax.swing.JFrame; // Import JFrame as the base window class
+import javax.swing.JLabel; // Import JLabel for field labels and the status line
+import javax.swing.JOptionPane; // Import JOptionPane for validation messages
+import javax.swing.JPanel; // Import JPanel for grouping UI controls
+import javax.swing.JScrollPane; // Import JScrollPane to scroll the tables
+import javax.swing.JSplitPane; // Import JSplitPane to show trips beside the spending tables
+import javax.swing.JTabbedPane; // Import JTabbedPane for the three spending breakdowns
+import javax.swing.JTable; // Import JTable to display trips and totals
+import javax.swing.JTextField; // Import JTextField for the date range
+import javax.swing.ListSelectionModel; // Import ListSelectionModel to configure selection behavior
+import javax.swing.table.AbstractTableModel; // Import AbstractTableModel as the base of the read-only models
+import java.awt.BorderLayout; // Import BorderLayout to arrange header, tables and status
+import java.awt.FlowLayout; // Import FlowLayout to align the header controls
+import java.awt.event.MouseAdapter; // Import MouseAdapter to open trips on double-click
+import java.awt.event.MouseEvent; // Import MouseEvent for the click count
+import java.time.LocalDate; // Import LocalDate for the date range
+import java.time.format.DateTimeParseException; // Import DateTimeParseException to detect malformed dates
+import java.util.ArrayList; // Import ArrayList to build table rows
+import java.util.List; // Import List as the row list type
+import java.util.Map; // Import Map to read the report tables
+import java.util.concurrent.CompletableFuture; // Import CompletableFuture to track the in-flight query
+
+public class TripHistoryWindow extends JFrame { // Window listing past trips and spending per period, category and store
+
+    private static final int MAX_TRIPS = 1000; // Trips listed per range; narrow the range to see older ones
+
+    private final TripHistoryService service = new TripHistoryService(); // Reads trips and rollups
+
+    private final JTextField fromField = new JTextField(10); // First day of the range
+    private final JTextField toField = new JTextField(10); // Last day of the range
+    private final JComboBox<TripHistoryService.Grain> grainBox = new JComboBox<>(TripHistoryService.Grain.values()); // Weekly or monthly periods
+
+    private final RowsModel trips = new RowsModel("ID", "Date", "Note", "Items", "Spent", "Budget"); // Trips in the range, newest first
+    private final RowsModel periods = new RowsModel("Period", "Items", "Spent"); // Spending per period
+    private final RowsModel categories = new RowsModel("Category", "Items", "Spent"); // Spending per category
+    private final RowsModel stores = new RowsModel("Store", "Items", "Spent"); // Spending per store
+    private final JTable tripTable = new JTable(trips); // Table of trips
+    private final JLabel status = new JLabel(" "); // Range total and timing
+
+    private final List<Trip> shown = new ArrayList<>(); // Trips behind the rows of the trip table
+    private CompletableFuture<?> pending; // The query still in flight, cancelled when a newer one starts
+
+    public TripHistoryWindow() { // Construct and initialize the history window
+        setTitle("Trip History"); // Set the window title shown in the frame decoration
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE); // Dispose this window without terminating the whole application
+        setSize(1000, 580); // Room for the trips and the spending tables side by side
+        setLocationRelativeTo(null); // Center the window on screen
+
+        LocalDate today = LocalDate.now(); // Default range: the last twelve months
+        fromField.setText(today.minusYears(1).plusDays(1).toString()); // First day of the default range
+        toField.setText(today.toString()); // Last day of the default range
+        grainBox.setSelectedItem(TripHistoryService.Grain.MONTH); // Monthly periods by default
+
+        JPanel header = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 6)); // Header with the range controls
+        header.add(new JLabel("From:")); header.add(fromField); // First day
+        header.add(new JLabel("To:")); header.add(toField); // Last day
+        header.add(new JLabel("Per:")); header.add(grainBox); // Period length
+        JButton btnShow = new JButton("Show"); // Run the queries
+        JButton btnOpen = new JButton("Open Trip"); // Reopen the selected trip for editing
+        header.add(btnShow); header.add(btnOpen); // Add both buttons
+        add(header, BorderLayout.NORTH); // Place the header at the top
+
+        tripTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION); // One trip at a time
+        JTabbedPane spending = new JTabbedPane(); // The three breakdowns
+        spending.addTab("By period", new JScrollPane(new JTable(periods))); // Per week or month
+        spending.addTab("By category", new JScrollPane(new JTable(categories))); // Per category
+        spending.addTab("By store", new JScrollPane(new JTable(stores))); // Per store
+        JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(tripTable), spending); // Trips on the left, spending on the right
+        split.setResizeWeight(0.6); // Give the trips most of the width
+        add(split, BorderLayout.CENTER); // Place the tables in the middle
+        add(status, BorderLayout.SOUTH); // Place the status line at the bottom
+
+        btnShow.addActionListener(EdtMonitor.timed("history.show", e -> reload())); // Wire the show button to reload
+        grainBox.addActionListener(EdtMonitor.timed("history.grain", e -> reload())); // Re-run when the period length changes
+        btnOpen.addActionListener(EdtMonitor.timed("history.open", e -> openSelected())); // Wire the open button
+        tripTable.addMouseListener(new MouseAdapter() { // Open a trip on double-click as well
+            @Override // Implement MouseAdapter.mouseClicked
+            public void mouseClicked(MouseEvent e) { if (e.getClickCount() == 2) EdtMonitor.time("history.open", () -> openSelected()); } // React to double-clicks only, timed like the open button
+        }); // End mouse listener
+
+        reload(); // Show the default range
+    } // End TripHistoryWindow constructor
+
+    private void reload() { // Query the trips and the rollups for the range in the background
+        LocalDate from, to; // Parsed range
+        try { from = LocalDate.parse(fromField.getText().trim()); to = LocalDate.parse(toField.getText().trim()); } // Accept ISO dates only
+        catch (DateTimeParseException bad) { JOptionPane.showMessageDialog(this, "enter dates like YYYY-MM-DD"); return; } // Prompt for valid dates
+        if (to.isBefore(from)) { JOptionPane.showMessageDialog(this, "the range ends before it starts"); return; } // Reject reversed ranges
+        TripHistoryService.Grain grain = (TripHistoryService.Grain) grainBox.getSelectedItem(); // Chosen period length
+
+        if (pending != null) pending.cancel(true); // Abandon a query still in flight
+        CompletableFuture<List<Trip>> list = DbExecutors.read(() -> service.listTrips(from, to, MAX_TRIPS)); // Trips, on one reader
+        CompletableFuture<TripHistoryService.Report> report = DbExecutors.read(() -> service.report(grain, from, to)); // Rollups, on another
+        CompletableFuture<Void> both = CompletableFuture.allOf(list, report); // Show both together
+        pending = both; // Remember it as the current query
+        Edt.then(this, both, v -> { if (both == pending) show(list.join(), report.join()); }, "history failed"); // Fill the tables unless a newer query has started
+    } // End reload method
+
+    private void show(List<Trip> list, TripHistoryService.Report r) { // Fill every table from the query results
+        shown.clear(); // Forget the previous trips
+        List<Object[]> rows = new ArrayList<>(list.size()); // Rows of the trip table
+        for (Trip t : list) { // One row per trip
+            shown.add(t); // Keep the trip for reopening
+            rows.add(new Object[]{t.id, t.tripDate(), t.note, t.itemCount, Money.formatNTD(t.subtotalCents), Money.formatNTD(t.budgetCents)}); // Describe it
+        } // End loop over trips
+        trips.setRows(rows); // Replace the trip rows
+
+        List<Object[]> p = new ArrayList<>(); // Rows of the period table
+        for (Map.Entry<LocalDate, TripHistoryService.Totals> e : r.byPeriod.entrySet()) p.add(totalsRow(e.getKey(), e.getValue())); // Oldest period first
+        periods.setRows(p); // Replace the period rows
+        List<Object[]> c = new ArrayList<>(); // Rows of the category table
+        for (Map.Entry<String, TripHistoryService.Totals> e : r.byCategory.entrySet()) c.add(totalsRow(e.getKey().isEmpty() ? "(none)" : e.getKey(), e.getValue())); // Name unknown categories
+        categories.setRows(c); // Replace the category rows
+        List<Object[]> s = new ArrayList<>(); // Rows of the store table
+        for (Map.Entry<Integer, TripHistoryService.Totals> e : r.byStore.entrySet()) s.add(totalsRow(e.getKey() == 0 ? "(none)" : "store " + e.getKey(), e.getValue())); // Name trips without a store
+        stores.setRows(s); // Replace the store rows
+
+        String more = list.size() == MAX_TRIPS ? " (first " + MAX_TRIPS + " trips shown)" : ""; // Say when the list was cut
+        status.setText(list.size() + " trips" + more + ", " + money(r.total.cents) + " over " + r.total.lines + " items"); // Summarize the range
+        Log.debug("History", () -> list.size() + " trips, " + r); // Log the report cost
+    } // End show method
+
+    private static Object[] totalsRow(Object key, TripHistoryService.Totals t) { // One row of a spending table
+        return new Object[]{key, t.lines, money(t.cents)}; // Key, item count and amount
+    } // End totalsRow method
+
+    private static String money(long cents) { return Money.appendNTD(new StringBuilder(24), cents).toString(); } // Format totals that may exceed an int
+
+    private void openSelected() { // Reopen the selected trip in a trip window
+        int r = tripTable.getSelectedRow(); // Selected row
+        if (r < 0) { JOptionPane.showMessageDialog(this, "select a trip"); return; } // Require a selection
+        TripWindow tw = new TripWindow(); // New trip window
+        tw.open(shown.get(tripTable.convertRowIndexToModel(r))); // Load the chosen trip into it
+        tw.setVisible(true); // Show it
+    } // End openSelected method
+
+    private static final class RowsModel extends AbstractTableModel { // Read-only table model over prepared rows
+        private final String[] columns; // Column headers
+        private List<Object[]> rows = new ArrayList<>(); // Cell values, one array per row
+
+        RowsModel(String... columns) { this.columns = columns; } // Remember the headers
+
+        void setRows(List<Object[]> rows) { this.rows = rows; fireTableDataChanged(); } // Replace every row
+
+        @Override public int getRowCount() { return rows.size(); } // Number of rows
+        @Override public int getColumnCount() { return columns.length; } // Number of columns
+        @Override public String getColumnName(int c) { return columns[c]; } // Header text
+        @Override public Object getValueAt(int r, int c) { return rows.get(r)[c]; } // Cell value
+    } // End RowsModel class
+} // End TripHistoryWindow class
@@ -0,0 +1,99 @@
+package ui; // Define the package containing Swing UI classes for the application
+
+import model.TripItem; // Import the TripItem model representing items planned for purchase
+import util.Money; // Import money helper utilities for formatting currency values
+
+import javax.swing.table.AbstractTableModel; // Import AbstractTableModel as the base for a model backed by TripItem objects
+import java.util.ArrayList; // Import ArrayList as the row storage
+import java.util.List; // Import List for bulk loads
+
+class TripItemTableModel extends AbstractTableModel { // Table model that keeps TripItem rows and a running subtotal
+
+    private static final String[] COLUMNS = {"ID", "Item", "Unit", "Qty", "Expected", "Line Total", "Priority"}; // Column headers shown by the trip table
+
+    private final List<TripItem> rows = new ArrayList<>(); // Items currently displayed, in insertion order like listItems()
+    private int subtotalCents = 0; // Sum of line totals, kept in step with every row change
+    private final StringBuilder money = new StringBuilder(24); // Reused for every price cell; the model is only touched on the EDT
+
+    void setRows(List<TripItem> items) { // Replace every row after an explicit reload
+        rows.clear(); // Drop the previous rows
+        rows.addAll(items); // Keep the freshly loaded items
+        subtotalCents = 0; // Restart the running subtotal
+        for (TripItem t : items) subtotalCents += t.lineTotalCents; // Sum the loaded line totals
+        fireTableDataChanged(); // Tell the table that everything changed
+    } // End setRows method
+
+    void add(TripItem t) { // Append a newly inserted item with a single-row event
+        rows.add(t); // New items have the highest id, so they go last
+        subtotalCents += t.lineTotalCents; // Add the new line to the subtotal
+        int at = rows.size() - 1; // Row index of the appended item
+        fireTableRowsInserted(at, at); // Tell the table about the single new row
+    } // End add method
+
+    void setQty(int id, int qty) { // Apply a quantity change the same way SqliteTripService.updateItemQty does
+        int at = indexOf(id); // Find the row to update
+        if (at < 0) return; // Nothing to do if the item is not displayed
+        TripItem t = rows.get(at); // Look up the displayed item
+        subtotalCents -= t.lineTotalCents; // Remove the old line total from the subtotal
+        t.plannedQty = qty; // Store the new quantity
+        t.version++; // The UPDATE bumped the stored version
+        t.lineTotalCents = (t.expectedPriceCents == null ? 0 : t.expectedPriceCents) * qty; // Recompute the line total like the UPDATE statement
+        subtotalCents += t.lineTotalCents; // Add the new line total to the subtotal
+        fireTableRowsUpdated(at, at); // Repaint just that row
+    } // End setQty method
+
+    void setPriority(int id, int priority) { // Apply a priority change made through SqliteTripService.updateItemPriority
+        int at = indexOf(id); // Find the row to update
+        if (at < 0) return; // Nothing to do if the item is not displayed
+        rows.get(at).priority = priority; // Store the new priority
+        rows.get(at).version++; // The UPDATE bumped the stored version
+        fireTableRowsUpdated(at, at); // Repaint just that row
+    } // End setPriority method
+
+    List<TripItem> snapshot() { // Copy the displayed rows so a background job can read them while the table keeps changing
+        List<TripItem> out = new ArrayList<>(rows.size()); // Size the copy up front
+        for (TripItem t : rows) out.add(t.copy()); // Copy each row
+        return out; // Return the independent copies
+    } // End snapshot method
+
+    void remove(int id) { // Remove the row showing the given item, if any
+        int at = indexOf(id); // Find the row to delete
+        if (at < 0) return; // Nothing to do if the item is not displayed
+        subtotalCents -= rows.remove(at).lineTotalCents; // Drop the row and its line total
+        fireTableRowsDeleted(at, at); // Tell the table about the single removed row
+    } // End remove method
+
+    TripItem itemAt(int row) { return rows.get(row); } // Return the item displayed on a given row
+
+    int subtotalCents() { return subtotalCents; } // Return the subtotal of the displayed items
+
+    private String money(int cents) { // Format a price cell through the shared builder
+        money.setLength(0); // Reuse the builder's buffer
+        return Money.appendNTD(money, cents).toString(); // Append the amount and copy out the cell text
+    } // End money method
+
+    private int indexOf(int id) { // Locate the row showing an item id
+        for (int i = 0; i < rows.size(); i++) if (rows.get(i).id == id) return i; // Compare ids row by row
+        return -1; // Report that the item is not displayed
+    } // End indexOf method
+
+    @Override public int getRowCount() { return rows.size(); } // Report how many items are displayed
+    @Override public int getColumnCount() { return COLUMNS.length; } // Report the number of columns
+    @Override public String getColumnName(int c) { return COLUMNS[c]; } // Provide the header text for a column
+    @Override public boolean isCellEditable(int r, int c) { return false; } // Prevent direct editing of table cells by the user
+    @Override public Class<?> getColumnClass(int c) { return (c == 0 || c == 3 || c == 6) ? Integer.class : String.class; } // Provide column classes so sorting works appropriately
+
+    @Override // Implement AbstractTableModel.getValueAt
+    public Object getValueAt(int r, int c) { // Read a cell straight from the backing TripItem
+        TripItem t = rows.get(r); // Look up the item displayed on the row
+        switch (c) { // Select the field for the requested column
+            case 0: return t.id; // Identifier column
+            case 1: return t.itemName; // Item name column
+            case 2: return t.unit; // Unit column
+            case 3: return t.plannedQty; // Planned quantity column
+            case 4: return t.expectedPriceCents == null ? "-" : money(t.expectedPriceCents); // Expected price, or a dash when unknown
+            case 5: return money(t.lineTotalCents); // Line total column
+            default: return t.priority; // Priority column, 1 (nice to have) to 5 (essential)
+        } // End column switch
+    } // End getValueAt method
+} // End TripItemTableModel class
@@ -1,7 +1,13 @@
 package ui; // Define the package containing Swing UI components for the application
 
-import service.SqliteTripService; // Import the SQLite-backed service managing trips and trip items
+import service.AsyncTripService; // Import the non-blocking trip service so JDBC work stays off the EDT
+import service.BudgetOptimizer; // Import the optimizer behind the Fit to Budget button
+import service.BulkImporter; // Import the bulk importer behind the Import button
+import service.DbExecutors; // Import DbExecutors to plan and write restock trips off the EDT
+import service.ReplenishmentPlanner; // Import the planner behind the Restock button
+import service.SqliteTripService; // Import SqliteTripService for the priority range
 import util.Money; // Import money helper utilities for parsing and formatting currency values
+import util.Log; // Import the asynchronous logger for action details
 import model.Trip; // Import the Trip data model representing a shopping trip
 import model.TripItem; // Import the TripItem model representing items planned for purchase
 
@@ -14,15 +20,23 @@ import javax.swing.JScrollPane; // Import JScrollPane to provide scrolling for t
 import javax.swing.JTable; // Import JTable to display trip items in tabular form
 import javax.swing.JTextField; // Import JTextField for user input fields
 import javax.swing.ListSelectionModel; // Import ListSelectionModel to configure selection behavior
-import javax.swing.table.DefaultTableModel; // Import DefaultTableModel as the backing store for the table
 import java.awt.BorderLayout; // Import BorderLayout to arrange header, table, and footer
 import java.awt.Color; // Import Color to adjust label colors based on budget status
 import java.awt.FlowLayout; // Import FlowLayout to align groups of controls
+import java.nio.file.Path; // Import Path to name the file chosen for import
+import java.time.LocalDate; // Import LocalDate to parse the trip date
+import java.time.format.DateTimeParseException; // Import DateTimeParseException to detect malformed dates
 import java.util.List; // Import List for handling collections of TripItem
+import java.util.concurrent.CompletableFuture; // Import CompletableFuture to track the in-flight reload
 
 public class TripWindow extends JFrame { // Define the window used to plan grocery trips
 
-    private final SqliteTripService service = new SqliteTripService(); // Instantiate the SQLite service responsible for trip persistence
+    private final AsyncTripService service = new AsyncTripService(); // Instantiate the async trip service that runs SQLite work in the background
+
+    private CompletableFuture<List<TripItem>> pendingLoad; // The reload still in flight, cancelled when a newer reload starts
+    private CompletableFuture<BudgetOptimizer.Solution> pendingFit; // The budget solve still in flight, superseded by every change to the rows
+
+    private final BudgetOptimizer optimizer = new BudgetOptimizer(); // Chooses what to drop when the trip is over budget
 
     private Trip currentTrip = null; // Track the currently active trip, remaining null until created by the user
 
@@ -30,16 +44,13 @@ public class TripWindow extends JFrame { // Define the window used to plan groce
     private final JTextField budgetField = new JTextField(8); // Input field capturing the trip budget as currency text
     private final JTextField noteField = new JTextField(16); // Input field capturing an optional note for the trip
 
-    private final DefaultTableModel model = new DefaultTableModel( // Create a table model describing the trip item columns
-            new Object[]{"ID", "Item", "Unit", "Qty", "Expected", "Line Total"}, 0 // Define table headers with zero initial rows
-    ) { // Begin anonymous subclass customizing table behavior
-        @Override public boolean isCellEditable(int r, int c) { return false; } // Prevent direct editing of table cells by the user
-        @Override public Class<?> getColumnClass(int c) { return (c == 0 || c == 3) ? Integer.class : String.class; } // Provide column classes so sorting works appropriately
-    }; // End customized table model
+    private final TripItemTableModel model = new TripItemTableModel(); // Table model backed by TripItem objects that keeps a running subtotal
     private final JTable table = new JTable(model); // Create the JTable that will render trip items using the model
 
     private final JLabel subtotalLabel = new JLabel("Subtotal: NT$0.00"); // Label displaying the current subtotal for the trip
     private final JLabel remainingLabel = new JLabel("Remaining: NT$0.00"); // Label displaying remaining budget or overspend amount
+    private final JLabel fitLabel = new JLabel(" "); // Label suggesting what to drop when the trip is over budget
+    private final JButton btnFit = new JButton("Fit to Budget"); // Button that applies the suggested quantities
 
     public TripWindow() { // Construct and initialize the trip planning window
         setTitle("Plan a Trip"); // Set the window title shown in the frame decoration
@@ -55,14 +66,18 @@ public class TripWindow extends JFrame { // Define the window used to plan groce
         header.add(new JLabel("Budget (NT$):")); header.add(budgetField); // Add the budget label and field to the header
         header.add(new JLabel("Note:")); header.add(noteField); // Add the note label and field to the header
         JButton btnCreate = new JButton("Create Trip"); // Create a button to submit trip details and create a trip
+        JButton btnRestock = new JButton("Plan Restock…"); // Create a button that builds a trip from low-stock and expiring pantry items
         header.add(btnCreate); // Add the create button to the header panel
+        header.add(btnRestock); // Add the restock button next to it
 
         JPanel bar = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 6)); // Create a toolbar panel for item operations
         JButton btnAdd = new JButton("Add Item"); // Button to add an item to the current trip
         JButton btnQty = new JButton("Change Qty"); // Button to adjust the quantity of a selected item
         JButton btnDel = new JButton("Remove Item"); // Button to remove the selected item from the trip
+        JButton btnPriority = new JButton("Priority…"); // Button to set how essential the selected item is
         JButton btnRef = new JButton("Refresh"); // Button to reload data from the database
-        bar.add(btnAdd); bar.add(btnQty); bar.add(btnDel); bar.add(btnRef); // Add all toolbar buttons to the panel in order
+        JButton btnImport = new JButton("Import Items…"); // Button to load items into the current trip from a CSV or JSON Lines file
+        bar.add(btnAdd); bar.add(btnQty); bar.add(btnPriority); bar.add(btnDel); bar.add(btnRef); bar.add(btnImport); // Add all toolbar buttons to the panel in order
 
         JPanel north = new JPanel(new BorderLayout()); // Create a container panel combining header and toolbar for the north region
         north.add(header, BorderLayout.NORTH); // Place the header panel at the top of the container
@@ -74,38 +89,57 @@ public class TripWindow extends JFrame { // Define the window used to plan groce
         JPanel footer = new JPanel(new FlowLayout(FlowLayout.LEFT, 16, 6)); // Create a footer panel for subtotal and remaining labels
         footer.add(subtotalLabel); // Add the subtotal label to the footer
         footer.add(remainingLabel); // Add the remaining label to the footer
+        footer.add(fitLabel); // Add the over-budget suggestion to the footer
+        footer.add(btnFit); // Add the button that applies it
+        btnFit.setVisible(false); // Show the button only while there is something to apply
         add(footer, BorderLayout.SOUTH); // Place the footer panel at the bottom of the window
 
-        btnCreate.addActionListener(e -> createTrip()); // Wire the create button to the createTrip handler
-        btnAdd.addActionListener(e -> addItem()); // Wire the add item button to the addItem handler
-        btnQty.addActionListener(e -> changeQty()); // Wire the change quantity button to the changeQty handler
-        btnDel.addActionListener(e -> removeItem()); // Wire the remove item button to the removeItem handler
-        btnRef.addActionListener(e -> { refreshTable(); updateTotals(); }); // Refresh data and totals when the refresh button is pressed
+        btnCreate.addActionListener(EdtMonitor.timed("trip.create", e -> createTrip())); // Wire the create button to the createTrip handler
+        btnRestock.addActionListener(EdtMonitor.timed("trip.restock", e -> planRestock())); // Wire the restock button to the planRestock handler
+        btnAdd.addActionListener(EdtMonitor.timed("trip.add", e -> addItem())); // Wire the add item button to the addItem handler
+        btnQty.addActionListener(EdtMonitor.timed("trip.qty", e -> changeQty())); // Wire the change quantity button to the changeQty handler
+        btnDel.addActionListener(EdtMonitor.timed("trip.remove", e -> removeItem())); // Wire the remove item button to the removeItem handler
+        btnPriority.addActionListener(EdtMonitor.timed("trip.priority", e -> changePriority())); // Wire the priority button to the changePriority handler
+        btnFit.addActionListener(EdtMonitor.timed("trip.fit", e -> fitBudget())); // Wire the fit button to the fitBudget handler
+        btnRef.addActionListener(EdtMonitor.timed("trip.refresh", e -> reload())); // Refresh data and totals when the refresh button is pressed
+        btnImport.addActionListener(EdtMonitor.timed("trip.import", e -> importItems())); // Wire the import button to the importItems handler
     } // End TripWindow constructor
 
+    public void open(Trip trip) { // Continue editing an existing trip, for example one chosen in the history window
+        currentTrip = trip; // Make it the active trip
+        dateField.setText(trip.tripDate().toString()); // Show its date
+        budgetField.setText(trip.budgetCents == 0 ? "" : Money.formatNTD(trip.budgetCents)); // Show its budget, blank when none
+        noteField.setText(trip.note == null ? "" : trip.note); // Show its note
+        setTitle("Plan a Trip - " + trip.tripDate()); // Say which trip is open
+        reload(); // Load its items and totals
+    } // End open method
+
     private void createTrip() { // Create a new trip using data from the header fields
         try { // Attempt to parse and validate the input values
             String dateText = dateField.getText().trim(); // Retrieve the trip date string entered by the user
             int budgetCents = Money.parseCents(budgetField.getText().trim()); // Convert the budget text into cents for storage
             String note = noteField.getText().trim(); // Retrieve the optional note text
 
-            if (dateText.isEmpty()) { // Ensure the user provided a date value
+            LocalDate date; // Parsed trip date
+            try { date = LocalDate.parse(dateText); } // Accept only ISO dates, so every stored date compares correctly
+            catch (DateTimeParseException bad) { // Handle missing or malformed dates
                 JOptionPane.showMessageDialog(this, "enter a date like YYYY-MM-DD"); // Prompt the user to enter a valid date
-                return; // Abort creation when the date is missing
-            } // End empty date check
+                return; // Abort creation when the date is missing or malformed
+            } // End date parsing
             if (budgetCents < 0) { // Validate that the parsed budget is not negative
                 JOptionPane.showMessageDialog(this, "budget must be >= 0"); // Inform the user about the invalid budget value
                 return; // Abort creation when budget is invalid
             } // End negative budget check
 
-            currentTrip = service.create(dateText, null, budgetCents, note); // Persist the trip using the service (storeId unused so pass null)
-            JOptionPane.showMessageDialog(this, "trip created. now add items."); // Notify the user that the trip is ready for items
+            Edt.then(this, service.create(date, null, budgetCents, note), trip -> { // Persist the trip in the background (storeId unused so pass null)
+                currentTrip = trip; // Make the new trip the active one
+                JOptionPane.showMessageDialog(this, "trip created. now add items."); // Notify the user that the trip is ready for items
 
-            refreshTable(); // Clear any previous items and load the empty state for the new trip
-            updateTotals(); // Recalculate subtotal and remaining budget for the new trip
+                reload(); // Clear any previous items and recalculate totals for the new trip
 
-            System.out.println("[Trip] created id=" + currentTrip.id + " date=" + currentTrip.tripDateText + // Log trip creation for debugging
-                    " budgetCents=" + currentTrip.budgetCents); // Continue the log message with budget information
+                Log.debug("Trip", () -> "created id=" + currentTrip.id + " date=" + currentTrip.tripDate() + // Log trip creation for debugging
+                        " budgetCents=" + currentTrip.budgetCents); // Continue the log message with budget information
+            }, "check date and budget format"); // Inform the user if the trip could not be stored
 
         } catch (Exception ex) { // Handle parsing or persistence errors
             ex.printStackTrace(); // Print the stack trace to aid debugging
@@ -113,6 +147,30 @@ public class TripWindow extends JFrame { // Define the window used to plan groce
         } // End catch block for createTrip
     } // End createTrip method
 
+    private void planRestock() { // Build a trip from the pantry: plan in the background, confirm, then write it in one transaction
+        LocalDate date; // Parsed trip date
+        try { date = LocalDate.parse(dateField.getText().trim()); } // Accept only ISO dates, like createTrip()
+        catch (DateTimeParseException bad) { JOptionPane.showMessageDialog(this, "enter a date like YYYY-MM-DD"); return; } // Prompt for a valid date
+        Integer budget; // Budget in cents, or null to use the plan's estimate
+        try { String b = budgetField.getText().trim(); budget = b.isEmpty() ? null : Money.parseCents(b); } // Parse the optional budget
+        catch (RuntimeException bad) { JOptionPane.showMessageDialog(this, "check budget format"); return; } // Prompt for a valid amount
+        String note = noteField.getText().trim().isEmpty() ? "restock" : noteField.getText().trim(); // Label the trip when no note was typed
+
+        ReplenishmentPlanner planner = new ReplenishmentPlanner(); // Plan from the shared pantry cache
+        Edt.then(this, DbExecutors.read(() -> planner.plan(new ReplenishmentPlanner.Options())), plan -> { // Work out the lines off the EDT
+            Log.debug("Trip", () -> "restock plan: " + plan); // Log size, estimate and timing
+            if (plan.items.isEmpty()) { JOptionPane.showMessageDialog(this, "nothing needs restocking"); return; } // Nothing to buy
+            String msg = "Create a trip with " + plan.items.size() + " items, estimated " + Money.formatNTD(plan.estimatedCents) + // Summarize the plan
+                    (plan.unpriced == 0 ? "?" : " (" + plan.unpriced + " items have no known price)?"); // Mention lines without a price
+            if (JOptionPane.showConfirmDialog(this, msg, "Plan Restock", JOptionPane.OK_CANCEL_OPTION) != JOptionPane.OK_OPTION) return; // Let the user back out
+            Edt.then(this, DbExecutors.write(() -> planner.createTrip(plan, date, budget, note)), trip -> { // Write the trip and all lines in one transaction
+                currentTrip = trip; // Make the new trip the active one
+                reload(); // Show its items and totals
+                Log.debug("Trip", () -> "restock trip id=" + trip.id + " items=" + plan.items.size()); // Log the new trip
+            }, "restock failed"); // Report failures
+        }, "restock planning failed"); // Report failures
+    } // End planRestock method
+
     private void addItem() { // Prompt the user to add a new trip item
         if (currentTrip == null) { JOptionPane.showMessageDialog(this, "create a trip first"); return; } // Require an active trip before adding items
 
@@ -125,7 +183,7 @@ public class TripWindow extends JFrame { // Define the window used to plan groce
         p.add(new JLabel("Item:")); p.add(name); // Add the item label and field to the panel
         p.add(new JLabel("Unit:")); p.add(unit); // Add the unit label and field to the panel
         p.add(new JLabel("Qty:")); p.add(qty); // Add the quantity label and field to the panel
-        p.add(new JLabel("Expected price (NT$):")); p.add(px); // Add the expected price label and field to the panel
+        p.add(new JLabel("Expected price (NT$, blank to suggest):")); p.add(px); // Add the expected price label and field to the panel; a blank price is filled in from earlier trips
 
         int ok = JOptionPane.showConfirmDialog(this, p, "Add Item", JOptionPane.OK_CANCEL_OPTION); // Display the item entry dialog with OK/Cancel options
         if (ok != JOptionPane.OK_OPTION) return; // Abort if the user canceled the dialog
@@ -146,14 +204,16 @@ public class TripWindow extends JFrame { // Define the window used to plan groce
             String pxText = px.getText().trim(); // Retrieve the expected price text entered by the user
             Integer priceCents = pxText.isEmpty() ? null : Money.parseCents(pxText); // Convert the expected price to cents or null when empty
 
-            service.addItem(currentTrip.id, itemName, unitTxt, q, priceCents); // Persist the trip item associated with the current trip
-
-            refreshTable(); // Reload table data to include the new item
-            updateTotals(); // Update subtotal and remaining budget to reflect the new item
+            int tripId = currentTrip.id; // Capture the trip the item belongs to
+            Edt.then(this, service.addItem(tripId, itemName, unitTxt, q, priceCents), result -> { // Persist the trip item in the background
+                TripItem added = result.item(); // The stored row
+                model.add(added); // Append just the new row, using the id returned by the service
+                updateTotals(result.totals == null ? model.subtotalCents() : result.totals.subtotalCents); // Show the stored subtotal returned by the insert, which also counts rows added elsewhere
 
-            System.out.println("[Trip] added item '" + itemName + "' q=" + q + // Log the addition for debugging purposes
-                    " priceCents=" + (priceCents == null ? "null" : priceCents) + // Include expected price information in the log
-                    " tripId=" + currentTrip.id); // Include the associated trip ID in the log message
+                Log.debug("Trip", () -> "added item '" + itemName + "' q=" + q + // Log the addition for debugging purposes
+                        " priceCents=" + (added.expectedPriceCents == null ? "null" : added.expectedPriceCents) + (priceCents == null ? " (suggested)" : "") + // Include the stored price and whether it was suggested
+                        " tripId=" + tripId); // Include the associated trip ID in the log message
+            }, "add failed"); // Display the failure reason to the user
 
         } catch (NumberFormatException nfe) { // Handle invalid numeric input for quantity or price
             JOptionPane.showMessageDialog(this, "qty must be a whole number"); // Inform the user about the numeric parsing issue
@@ -169,19 +229,27 @@ public class TripWindow extends JFrame { // Define the window used to plan groce
         int r = table.getSelectedRow(); // Determine the currently selected row in the table
         if (r < 0) { JOptionPane.showMessageDialog(this, "select a row"); return; } // Require the user to select a row before changing quantity
 
-        Integer id = (Integer) model.getValueAt(r, 0); // Retrieve the item ID from the first column of the selected row
-        String s = JOptionPane.showInputDialog(this, "new qty:", "1"); // Prompt the user for a new quantity value
+        TripItem item = model.itemAt(r); // The item displayed on the selected row
+        Integer id = item.id; // Its ID
+        long version = item.version; // The version the user is looking at
+        String s = JOptionPane.showInputDialog(this, "new qty:", item.plannedQty); // Prompt the user for a new quantity value, starting from the current one
         if (s == null) return; // Abort if the user cancelled the input dialog
 
         try { // Attempt to parse and apply the new quantity
             int q = Integer.parseInt(s.trim()); // Parse the entered quantity string into an integer
             if (q <= 0) { JOptionPane.showMessageDialog(this, "qty must be > 0"); return; } // Validate the quantity remains positive
 
-            service.updateItemQty(id, q); // Persist the new quantity using the service
-            refreshTable(); // Reload table data to show updated totals
-            updateTotals(); // Update subtotal and remaining budget to reflect the new quantity
+            Edt.then(this, service.updateItemQty(id, q, version), totals -> { // Persist the new quantity in the background, unless the item changed since it was shown
+                if (totals == null) { reload(); return; } // The item was deleted elsewhere; show the stored rows instead of one that no longer exists
+                model.setQty(id, q); // Update just the changed row and its line total
+                updateTotals(totals.subtotalCents); // Show the stored subtotal returned by the update, which also counts rows added elsewhere
 
-            System.out.println("[Trip] changed qty id=" + id + " -> " + q); // Log the quantity change for debugging
+                Log.debug("Trip", () -> "changed qty id=" + id + " -> " + q); // Log the quantity change for debugging
+            }, conflict -> { // Someone else changed the item first
+                Log.info("Trip", conflict.getMessage()); // Log the refused change
+                JOptionPane.showMessageDialog(this, "This item was changed elsewhere (qty now " + ((TripItem) conflict.current).plannedQty + "); your change was not saved."); // Explain what happened
+                reload(); // Show the stored rows
+            }, "invalid qty"); // Inform the user that the quantity change failed
 
         } catch (Exception e) { // Handle parsing or service errors
             e.printStackTrace(); // Print the stack trace to diagnose the issue
@@ -189,52 +257,125 @@ public class TripWindow extends JFrame { // Define the window used to plan groce
         } // End catch block for changeQty
     } // End changeQty method
 
+    private void changePriority() { // Prompt for a new priority of the selected item
+        if (currentTrip == null) { JOptionPane.showMessageDialog(this, "create a trip first"); return; } // Ensure a trip exists before modifying items
+
+        int r = table.getSelectedRow(); // Determine the currently selected row in the table
+        if (r < 0) { JOptionPane.showMessageDialog(this, "select a row"); return; } // Require the user to select a row before changing priority
+
+        TripItem item = model.itemAt(r); // The item displayed on the selected row
+        Integer id = item.id; // Its ID
+        String s = JOptionPane.showInputDialog(this, "priority (" + SqliteTripService.MIN_PRIORITY + " = nice to have … " + SqliteTripService.MAX_PRIORITY + " = essential):", item.priority); // Prompt for the new priority
+        if (s == null) return; // Abort if the user cancelled the input dialog
+
+        try { // Attempt to parse and apply the new priority
+            int pr = Integer.parseInt(s.trim()); // Parse the entered priority
+            if (pr < SqliteTripService.MIN_PRIORITY || pr > SqliteTripService.MAX_PRIORITY) { JOptionPane.showMessageDialog(this, "priority must be 1..5"); return; } // Validate the range
+
+            Edt.then(this, service.updateItemPriority(id, pr), v -> { // Persist the new priority in the background
+                model.setPriority(id, pr); // Update just the changed row
+                updateTotals(model.subtotalCents()); // Re-solve the budget suggestion with the new weight
+                Log.debug("Trip", () -> "changed priority id=" + id + " -> " + pr); // Log the change for debugging
+            }, "invalid priority"); // Inform the user that the change failed
+
+        } catch (NumberFormatException e) { // Handle non-numeric input
+            JOptionPane.showMessageDialog(this, "priority must be a whole number"); // Inform the user about the parsing issue
+        } // End catch block for changePriority
+    } // End changePriority method
+
+    private void fitBudget() { // Lower or drop the least valuable items so the trip fits its budget, in one transaction
+        if (currentTrip == null) return; // Nothing to fit without a trip
+        List<TripItem> items = model.snapshot(); // The rows as shown, copied for the background solve
+        int budget = currentTrip.budgetCents; // The trip budget
+        Edt.then(this, DbExecutors.write(() -> { // Solve and write on the writer thread so no other write slips in between
+            BudgetOptimizer.Solution s = optimizer.solve(items, budget); // Re-solve against exactly these rows
+            optimizer.apply(items, s); // Write every changed quantity together
+            return s; // Report what was applied
+        }), s -> { // Back on the EDT
+            Log.debug("Trip", () -> "fit to budget: " + s); // Log value, cost and timing
+            reload(); // Show the new quantities and totals
+        }, conflict -> { // A line changed elsewhere after it was shown; nothing was written
+            JOptionPane.showMessageDialog(this, "The trip was changed elsewhere; reloaded it, try again."); // Explain why nothing changed
+            reload(); // Solve against the stored rows next time
+        }, "fit to budget failed"); // Report failures
+    } // End fitBudget method
+
+    private void suggestFit(int subtotal) { // Solve the budget in the background and describe what would be dropped
+        if (pendingFit != null) pendingFit.cancel(true); // Abandon any solve for older rows
+        if (currentTrip == null || currentTrip.budgetCents <= 0 || subtotal <= currentTrip.budgetCents) { // No budget, or nothing to fix
+            fitLabel.setText(" "); // Clear the suggestion
+            btnFit.setVisible(false); // Hide the button
+            return; // Nothing to solve
+        } // End within-budget check
+        List<TripItem> items = model.snapshot(); // Copy the rows while on the EDT
+        int budget = currentTrip.budgetCents; // The trip budget
+        CompletableFuture<BudgetOptimizer.Solution> f = DbExecutors.read(() -> optimizer.solve(items, budget)); // Solve off the EDT; no database access is needed
+        pendingFit = f; // Remember it as the current solve
+        Edt.then(this, f, s -> { // Show the result on the EDT
+            if (f != pendingFit) return; // A newer solve has started
+            fitLabel.setText("Fit to budget: drop " + s.unitsDropped(items) + " units (value " + s.fullValue + " → " + s.value + ")"); // Summarize the suggestion
+            btnFit.setVisible(true); // Offer to apply it
+        }, "budget solve failed"); // Report failures
+    } // End suggestFit method
+
     private void removeItem() { // Remove the currently selected item from the trip
         if (currentTrip == null) { JOptionPane.showMessageDialog(this, "create a trip first"); return; } // Require an active trip before removing items
 
         int r = table.getSelectedRow(); // Determine the selected row in the table
         if (r < 0) { JOptionPane.showMessageDialog(this, "select a row"); return; } // Require selection before attempting removal
-        Integer id = (Integer) model.getValueAt(r, 0); // Retrieve the item ID to remove
+        TripItem item = model.itemAt(r); // The item displayed on the selected row
+        Integer id = item.id; // Retrieve the item ID to remove
+        long version = item.version; // The version the user is looking at
 
         if (JOptionPane.showConfirmDialog(this, "remove this item?") == JOptionPane.YES_OPTION) { // Confirm removal with the user
-            try { // Attempt to delete the item using the service
-                service.removeItem(id); // Remove the item from the database
-                refreshTable(); // Reload table data to reflect the removal
-                updateTotals(); // Update totals since the subtotal likely changed
-                System.out.println("[Trip] removed id=" + id); // Log the removal for debugging
-            } catch (RuntimeException ex) { // Handle service-level failures
-                ex.printStackTrace(); // Print stack trace for troubleshooting
-                JOptionPane.showMessageDialog(this, "remove failed: " + ex.getMessage()); // Inform the user about the failure
-            } // End catch block for removal errors
+            Edt.then(this, service.removeItem(id, version), totals -> { // Remove the item in the background, unless it changed since it was shown
+                model.remove(id); // Remove just the deleted row
+                updateTotals(totals == null ? model.subtotalCents() : totals.subtotalCents); // Show the stored subtotal returned by the delete
+                Log.debug("Trip", () -> "removed id=" + id); // Log the removal for debugging
+            }, conflict -> { // Someone else changed the item first
+                Log.info("Trip", conflict.getMessage()); // Log the refused delete
+                JOptionPane.showMessageDialog(this, "This item was changed elsewhere (qty now " + ((TripItem) conflict.current).plannedQty + "); it was not removed."); // Explain what happened
+                reload(); // Show the stored rows
+            }, "remove failed"); // Inform the user about the failure
         } // End conditional triggered when the user confirms removal
     } // End removeItem method
 
-    private void refreshTable() { // Reload trip items from the database into the table model
-        model.setRowCount(0); // Clear existing rows from the table model
-        if (currentTrip == null) return; // Do nothing if no trip is active
-
-        List<TripItem> items = service.listItems(currentTrip.id); // Retrieve the current trip's items from the service
-        for (TripItem t : items) { // Iterate through each trip item to display
-            String exp = (t.expectedPriceCents == null) ? "-" : Money.formatNTD(t.expectedPriceCents); // Format expected price or show a dash when unknown
-            model.addRow(new Object[]{ // Append a row containing trip item details and formatted values
-                    t.id, t.itemName, t.unit, t.plannedQty, exp, Money.formatNTD(t.lineTotalCents) // Insert ID, name, unit, quantity, expected price, and line total
-            }); // End row addition
-        } // End loop over trip items
-        System.out.println("[Trip] refreshTable -> " + items.size() + " rows"); // Log the number of items loaded into the table
+    private void importItems() { // Bulk-load items into the current trip from a file chosen by the user
+        if (currentTrip == null) { JOptionPane.showMessageDialog(this, "create a trip first"); return; } // Require an active trip to receive the rows
+        Path file = ImportDialog.chooseFile(this); // Ask for the file
+        if (file == null) return; // Abort if the user cancelled the chooser
+        int tripId = currentTrip.id; // Rows without a trip_id column go to the current trip
+        ImportDialog.run(this, file, (f, l) -> new BulkImporter().importTripItems(f, tripId, l), this::reload); // Import in the background, then reload the rows and totals
+    } // End importItems method
+
+    private void reload() { // Explicitly reload the current trip's items in the background, then show them on the EDT
+        if (pendingLoad != null) pendingLoad.cancel(true); // Abandon any reload still in flight
+        if (currentTrip == null) { refreshTable(List.of()); return; } // Reset the view when no trip is active
+
+        CompletableFuture<List<TripItem>> f = service.listItems(currentTrip.id); // Start loading the items
+        pendingLoad = f; // Remember it as the current reload
+        Edt.then(this, f, items -> { if (f == pendingLoad) refreshTable(items); }, "refresh failed"); // Show the rows unless a newer reload has started
+    } // End reload method
+
+    private void refreshTable(List<TripItem> items) { // Replace the table rows with the given trip items and show their totals
+        model.setRows(items); // Swap in the new rows in one table event and recompute the running subtotal
+        updateTotals(model.subtotalCents()); // Show totals derived from the loaded rows, without a separate SUM query
+        Log.debug("Trip", () -> "refreshTable -> " + items.size() + " rows"); // Log the number of items loaded into the table
     } // End refreshTable method
 
-    private void updateTotals() { // Recalculate subtotal and remaining budget labels
+    private void updateTotals(int subtotal) { // Show the given subtotal and the remaining budget
         if (currentTrip == null) { // When no trip exists, reset labels to zero
             subtotalLabel.setText("Subtotal: NT$0.00"); // Display zero subtotal for clarity
             remainingLabel.setText("Remaining: NT$0.00"); // Display zero remaining budget
             remainingLabel.setForeground(Color.BLACK); // Reset label color to neutral
+            suggestFit(0); // Clear any budget suggestion
             return; // Exit early since no further computation is needed
         } // End null trip check
-        int subtotal = service.computeSubtotalCents(currentTrip.id); // Calculate the subtotal in cents via the service
         subtotalLabel.setText("Subtotal: " + Money.formatNTD(subtotal)); // Display the formatted subtotal value
 
         int remaining = currentTrip.budgetCents - subtotal; // Determine remaining budget by subtracting subtotal from planned budget
         remainingLabel.setText("Remaining: " + Money.formatNTD(remaining)); // Display the formatted remaining amount (negative indicates overspend)
         remainingLabel.setForeground(remaining < 0 ? new Color(180, 0, 0) : new Color(0, 130, 0)); // Use red when overspent and green otherwise
+        suggestFit(subtotal); // Suggest what to drop when overspent
     } // End updateTotals method
 } // End TripWindow class definition
@@ -0,0 +1,109 @@
+package util; // Define the package containing text format helper utilities
+
+import java.io.Closeable; // Import Closeable so readers work with try-with-resources
+import java.io.IOException; // Import IOException for underlying stream failures
+import java.util.ArrayList; // Import ArrayList to collect the fields of a record
+import java.util.List; // Import List as the field collection type
+
+public final class Csv { // Streaming RFC 4180 CSV reading and writing without loading whole files
+    private Csv() {} // Private constructor prevents instantiation because all members are static
+
+    public static final class Reader implements Closeable { // Pull one record at a time from a character stream
+        private final java.io.Reader in; // Source of characters
+        private final char[] buf = new char[1 << 16]; // Read buffer so the source is not called per character
+        private int pos = 0; // Next unread position in the buffer
+        private int len = 0; // Number of valid characters in the buffer
+        private long line = 1; // Current physical line number
+        private long recordLine = 1; // Line on which the last returned record started
+        private boolean first = true; // Whether the next character is the first of the stream, to skip a byte order mark
+
+        public Reader(java.io.Reader in) { this.in = in; } // Wrap a character stream
+
+        public String[] next() throws IOException { // Read the next record, or return null at end of input; blank lines are skipped
+            while (true) { // Loop only to skip blank lines
+                recordLine = line; // Remember where this record starts, for error reports
+                List<String> fields = new ArrayList<>(); // Fields of the record
+                StringBuilder field = new StringBuilder(); // Characters of the current field
+                boolean quoted = false; // Whether the current field started with a quote
+                boolean inQuotes = false; // Whether we are between a field's opening and closing quotes
+                int c = read(); // Read the first character of the record
+                if (c < 0) return null; // End of input
+                while (true) { // Consume characters until the end of the record
+                    if (inQuotes) { // Inside a quoted field every character is data except the closing quote
+                        if (c < 0) throw new IllegalArgumentException("unterminated quoted field starting on line " + recordLine); // The file ended inside quotes
+                        if (c == '"') { // Either an escaped quote or the closing quote
+                            if (peek() == '"') { read(); field.append('"'); } // A doubled quote stands for one quote character
+                            else inQuotes = false; // The field's closing quote
+                        } else { // Ordinary data, including separators and line breaks
+                            if (c == '\n') line++; // Keep line numbers right across embedded line breaks
+                            field.append((char) c); // Keep the character
+                        } // End quoted character handling
+                    } else if (c == ',') { // Field separator
+                        fields.add(field.toString()); // Finish the field
+                        field.setLength(0); // Start the next one
+                        quoted = false; // The next field has not started with a quote yet
+                    } else if (c == '\r' || c == '\n' || c < 0) { // End of record
+                        if (c == '\r' && peek() == '\n') read(); // Treat CRLF as one line break
+                        if (c >= 0) line++; // Count the line break
+                        if (fields.isEmpty() && field.length() == 0 && !quoted) break; // A blank line: read the next record instead
+                        fields.add(field.toString()); // Finish the last field
+                        return fields.toArray(new String[0]); // Hand the record to the caller
+                    } else if (c == '"' && field.length() == 0 && !quoted) { // Opening quote at the start of a field
+                        quoted = true; // Remember the field was quoted
+                        inQuotes = true; // Switch to quoted mode
+                    } else { // Ordinary unquoted data
+                        field.append((char) c); // Keep the character
+                    } // End character handling
+                    c = read(); // Move to the next character
+                } // End record loop
+            } // End blank-line loop
+        } // End next method
+
+        public long line() { return recordLine; } // Line on which the last returned record started
+
+        @Override // Indicate that we are implementing Closeable.close
+        public void close() throws IOException { in.close(); } // Close the underlying stream
+
+        private int read() throws IOException { // Return the next character, or -1 at end of input
+            if (pos == len) { // Refill the buffer when it is exhausted
+                len = in.read(buf, 0, buf.length); // Read the next block
+                pos = 0; // Restart at the beginning of the buffer
+                if (len <= 0) { len = 0; return -1; } // Report end of input
+            } // End refill
+            char c = buf[pos++]; // Take the next character
+            if (first) { first = false; if (c == '\uFEFF') return read(); } // Skip a byte order mark written by spreadsheet programs
+            return c; // Return the character
+        } // End read method
+
+        private int peek() throws IOException { // Return the next character without consuming it, or -1 at end of input
+            int c = read(); // Read it
+            if (c >= 0) pos--; // Step back; read() always leaves the character in the buffer
+            return c; // Return it
+        } // End peek method
+    } // End Reader class
+
+    public static void writeRow(Appendable out, String... fields) throws IOException { // Write one record, quoting fields only when needed
+        for (int i = 0; i < fields.length; i++) { // Write each field
+            if (i > 0) out.append(','); // Separate fields
+            writeField(out, fields[i]); // Write the field text
+        } // End loop over fields
+        out.append('\n'); // End the record
+    } // End writeRow method
+
+    public static void writeField(Appendable out, String f) throws IOException { // Write one field, quoting it if it contains a separator, quote or line break
+        if (f == null) return; // NULL is written as an empty field
+        boolean quote = false; // Whether the field needs quotes
+        for (int i = 0; i < f.length() && !quote; i++) { // Look for characters that need quoting
+            char c = f.charAt(i); // Inspect the character
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r'; // Separators, quotes and line breaks must be quoted
+        } // End scan
+        if (!quote) { out.append(f); return; } // Plain fields are written as they are
+        out.append('"'); // Open the quoted field
+        for (int i = 0; i < f.length(); i++) { // Copy the text, doubling quotes
+            char c = f.charAt(i); // Read the character
+            if (c == '"') out.append('"'); // Escape a quote by doubling it
+            out.append(c); // Write the character
+        } // End copy
+        out.append('"'); // Close the quoted field
+    } // End writeField method
+} // End Csv class
@@ -0,0 +1,75 @@
+package util; // Define the package containing shared helper utilities
+
+import java.util.concurrent.atomic.AtomicLong; // Import AtomicLong to track the largest value
+import java.util.concurrent.atomic.AtomicLongArray; // Import AtomicLongArray for lock-free bucket counts
+import java.util.concurrent.atomic.LongAdder; // Import LongAdder for contended count and sum
+
+public final class Histogram { // Log-linear histogram of non-negative longs in the style of HdrHistogram: constant-time, lock-free recording with about 3% relative error
+
+    private static final int SUB_BITS = 5; // Each power of two is split into 32 linear sub-buckets
+    private static final int SUB = 1 << SUB_BITS; // Sub-buckets per power of two
+    private static final int MAX_EXP = 40; // Values of 2^41 and above (about 36 minutes in nanoseconds) share the last bucket
+    static final int BUCKETS = (MAX_EXP - SUB_BITS + 2) * SUB; // Values below 32 get a bucket each, then 32 per power of two
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS); // Values recorded per bucket
+    private final LongAdder count = new LongAdder(); // Values recorded
+    private final LongAdder sum = new LongAdder(); // Sum of the values, for the mean
+    private final AtomicLong max = new AtomicLong(); // Largest value, exact
+
+    public void record(long value) { // Add one value; negative values count as zero
+        long v = Math.max(0, value); // Clamp clock skew
+        counts.incrementAndGet(index(v)); // Count it in its bucket
+        count.increment(); // Count it overall
+        sum.add(v); // Add it to the sum
+        long m = max.get(); // Current maximum
+        while (v > m && !max.compareAndSet(m, v)) m = max.get(); // Raise it without a lock
+    } // End record method
+
+    public Snapshot snapshot() { // Copy the counts so percentiles can be read without blocking writers
+        long[] c = new long[BUCKETS]; // Copied counts
+        long total = 0; // Values in the copy, which may be a few ahead of count
+        for (int i = 0; i < BUCKETS; i++) { c[i] = counts.get(i); total += c[i]; } // Copy each bucket
+        return new Snapshot(c, total, sum.sum(), max.get()); // Hand back the copy
+    } // End snapshot method
+
+    static int index(long v) { // Bucket of a non-negative value
+        if (v < SUB) return (int) v; // Small values are exact
+        int e = 63 - Long.numberOfLeadingZeros(v); // Position of the highest set bit, at least SUB_BITS
+        if (e > MAX_EXP) return BUCKETS - 1; // Clamp huge values
+        return ((e - SUB_BITS + 1) << SUB_BITS) + (int) ((v >>> (e - SUB_BITS)) - SUB); // Power of two, then the next five bits
+    } // End index method
+
+    static long highest(int i) { // Largest value that falls in bucket i
+        if (i < SUB) return i; // Small values are exact
+        int e = (i >> SUB_BITS) + SUB_BITS - 1; // Power of two of the bucket
+        long m = SUB + (i & (SUB - 1)); // Its five leading bits
+        return ((m + 1) << (e - SUB_BITS)) - 1; // Just below the next bucket
+    } // End highest method
+
+    public static final class Snapshot { // Histogram contents at one moment
+        private final long[] counts; // Values per bucket
+        public final long count; // Values recorded
+        public final long sum; // Sum of the values
+        public final long max; // Largest value
+
+        Snapshot(long[] counts, long count, long sum, long max) { // Build an immutable snapshot
+            this.counts = counts; // Remember the counts
+            this.count = count; // Remember the total
+            this.sum = sum; // Remember the sum
+            this.max = max; // Remember the maximum
+        } // End constructor
+
+        public double mean() { return count == 0 ? 0 : (double) sum / count; } // Average value
+
+        public long percentile(double p) { // Smallest bucket bound that at least p percent of the values do not exceed, capped at the exact maximum
+            if (count == 0) return 0; // Nothing recorded
+            long rank = Math.max(1, (long) Math.ceil(p / 100.0 * count)); // Position of the wanted value
+            long seen = 0; // Values in the buckets walked so far
+            for (int i = 0; i < counts.length; i++) { // Walk the buckets upwards
+                seen += counts[i]; // Add this bucket
+                if (seen >= rank) return Math.min(highest(i), max); // Report the bucket's upper bound
+            } // End loop over buckets
+            return max; // Rounding left the rank past the end
+        } // End percentile method
+    } // End Snapshot class
+} // End Histogram class
@@ -0,0 +1,155 @@
+package util; // Define the package containing text format helper utilities
+
+import java.util.ArrayList; // Import ArrayList to hold parsed arrays
+import java.util.LinkedHashMap; // Import LinkedHashMap so parsed objects keep their key order
+import java.util.List; // Import List as the parsed array type
+import java.util.Map; // Import Map as the parsed object type
+
+public final class Json { // Minimal JSON reading and writing for one value per line (JSON Lines), with no third-party dependency
+    private final CharSequence s; // Text being parsed
+    private int i = 0; // Current position in the text
+
+    private Json(CharSequence s) { this.s = s; } // Parsers are created per value by the static entry points
+
+    public static Map<String, Object> parseObject(CharSequence text) { // Parse text holding a single JSON object; numbers become Long or Double
+        Json p = new Json(text); // Create a parser over the text
+        p.skipSpace(); // Allow leading whitespace
+        if (p.peek() != '{') throw p.error("expected an object"); // Each line must hold an object
+        Map<String, Object> out = p.object(); // Parse the object
+        p.skipSpace(); // Allow trailing whitespace
+        if (p.i < p.s.length()) throw p.error("unexpected text after the object"); // Reject trailing garbage
+        return out; // Return the parsed object
+    } // End parseObject method
+
+    public static StringBuilder appendString(StringBuilder sb, String v) { // Append a string as a quoted JSON literal, escaping as RFC 8259 requires
+        sb.append('"'); // Open the literal
+        for (int k = 0; k < v.length(); k++) { // Copy each character
+            char c = v.charAt(k); // Read it
+            switch (c) { // Escape the characters JSON does not allow raw
+                case '"': sb.append("\\\""); break; // Quote
+                case '\\': sb.append("\\\\"); break; // Backslash
+                case '\n': sb.append("\\n"); break; // Line feed
+                case '\r': sb.append("\\r"); break; // Carriage return
+                case '\t': sb.append("\\t"); break; // Tab
+                default: // Everything else
+                    if (c < 0x20) { sb.append("\\u00"); sb.append(HEX[c >> 4]).append(HEX[c & 15]); } // Other control characters as four-digit hex escapes
+                    else sb.append(c); // Printable characters as they are
+            } // End escape switch
+        } // End copy
+        return sb.append('"'); // Close the literal
+    } // End appendString method
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray(); // Digits for hex escapes
+
+    private Object value() { // Parse any JSON value at the current position
+        skipSpace(); // Skip whitespace before the value
+        char c = peek(); // Decide the value type by its first character
+        if (c == '{') return object(); // Nested object
+        if (c == '[') return array(); // Array
+        if (c == '"') return string(); // String
+        if (c == '-' || (c >= '0' && c <= '9')) return number(); // Number
+        if (word("true")) return Boolean.TRUE; // Literal true
+        if (word("false")) return Boolean.FALSE; // Literal false
+        if (word("null")) return null; // Literal null
+        throw error("unexpected character"); // Anything else is malformed
+    } // End value method
+
+    private Map<String, Object> object() { // Parse an object starting at '{'
+        Map<String, Object> out = new LinkedHashMap<>(); // Collect members in input order
+        i++; // Consume '{'
+        skipSpace(); // Allow whitespace before the first member
+        if (peek() == '}') { i++; return out; } // Empty object
+        while (true) { // Read members until '}'
+            skipSpace(); // Allow whitespace before the key
+            if (peek() != '"') throw error("expected a member name"); // Keys must be strings
+            String key = string(); // Read the key
+            skipSpace(); // Allow whitespace before ':'
+            expect(':'); // Keys and values are separated by a colon
+            out.put(key, value()); // Read and store the value
+            skipSpace(); // Allow whitespace after the value
+            char c = next(); // Read the separator
+            if (c == '}') return out; // End of object
+            if (c != ',') throw error("expected ',' or '}'"); // Members are comma separated
+        } // End member loop
+    } // End object method
+
+    private List<Object> array() { // Parse an array starting at '['
+        List<Object> out = new ArrayList<>(); // Collect elements in order
+        i++; // Consume '['
+        skipSpace(); // Allow whitespace before the first element
+        if (peek() == ']') { i++; return out; } // Empty array
+        while (true) { // Read elements until ']'
+            out.add(value()); // Read the element
+            skipSpace(); // Allow whitespace after it
+            char c = next(); // Read the separator
+            if (c == ']') return out; // End of array
+            if (c != ',') throw error("expected ',' or ']'"); // Elements are comma separated
+        } // End element loop
+    } // End array method
+
+    private String string() { // Parse a string starting at '"', decoding escapes
+        i++; // Consume the opening quote
+        StringBuilder sb = new StringBuilder(); // Collect the decoded characters
+        while (true) { // Read until the closing quote
+            char c = next(); // Read a character
+            if (c == '"') return sb.toString(); // End of string
+            if (c != '\\') { sb.append(c); continue; } // Ordinary character
+            char e = next(); // Read the escape letter
+            switch (e) { // Decode the escape
+                case '"': case '\\': case '/': sb.append(e); break; // Characters escaped as themselves
+                case 'b': sb.append('\b'); break; // Backspace
+                case 'f': sb.append('\f'); break; // Form feed
+                case 'n': sb.append('\n'); break; // Line feed
+                case 'r': sb.append('\r'); break; // Carriage return
+                case 't': sb.append('\t'); break; // Tab
+                case 'u': // Four hex digits follow
+                    if (i + 4 > s.length()) throw error("short unicode escape"); // Refuse a truncated escape
+                    try { sb.append((char) Integer.parseInt(s.subSequence(i, i + 4).toString(), 16)); } // Decode the code unit
+                    catch (NumberFormatException ex) { throw error("bad unicode escape"); } // Report bad hex digits as a syntax error
+                    i += 4; // Skip the digits
+                    break; // Done with this escape
+                default: throw error("bad escape"); // Unknown escapes are malformed
+            } // End escape switch
+        } // End character loop
+    } // End string method
+
+    private Object number() { // Parse a number, as Long when it is integral and fits, otherwise as Double
+        int start = i; // Remember where the number starts
+        boolean integral = true; // Whether the number has no fraction or exponent
+        if (peek() == '-') i++; // Optional sign
+        while (i < s.length()) { // Consume the characters a number may contain
+            char c = s.charAt(i); // Inspect the character
+            if (c >= '0' && c <= '9') { i++; continue; } // Digit
+            if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') { integral = false; i++; continue; } // Fraction or exponent
+            break; // End of the number
+        } // End scan
+        String t = s.subSequence(start, i).toString(); // Text of the number
+        try { // Convert the text
+            if (integral && t.length() < 19) return Long.parseLong(t); // Integers that certainly fit in a long
+            return Double.parseDouble(t); // Everything else
+        } catch (NumberFormatException e) { // Handle malformed numbers such as "-" or "1e"
+            throw error("bad number " + t); // Report a syntax error
+        } // End conversion
+    } // End number method
+
+    private boolean word(String w) { // Consume a literal if it appears at the current position
+        if (i + w.length() > s.length() || !s.subSequence(i, i + w.length()).toString().equals(w)) return false; // Not this literal
+        i += w.length(); // Consume it
+        return true; // Report the match
+    } // End word method
+
+    private void expect(char c) { if (next() != c) throw error("expected '" + c + "'"); } // Consume a required character
+
+    private void skipSpace() { // Skip JSON whitespace
+        while (i < s.length() && (s.charAt(i) == ' ' || s.charAt(i) == '\t' || s.charAt(i) == '\n' || s.charAt(i) == '\r')) i++; // Advance past blanks
+    } // End skipSpace method
+
+    private char peek() { return i < s.length() ? s.charAt(i) : '\0'; } // Look at the current character, or NUL at the end
+
+    private char next() { // Consume and return the current character
+        if (i >= s.length()) throw error("unexpected end of input"); // The value is truncated
+        return s.charAt(i++); // Advance past the character
+    } // End next method
+
+    private IllegalArgumentException error(String msg) { return new IllegalArgumentException("bad JSON at column " + (i + 1) + ": " + msg); } // Build a syntax error naming the position
+} // End Json class
@@ -0,0 +1,109 @@
+package util; // Define the package containing shared helper utilities
+
+import java.io.PrintStream; // Import PrintStream as the console the writer thread prints to
+import java.io.PrintWriter; // Import PrintWriter to capture stack traces as text
+import java.io.StringWriter; // Import StringWriter as the stack trace buffer
+import java.time.Instant; // Import Instant to turn the captured time into a local time of day
+import java.time.ZoneId; // Import ZoneId to format times in the local zone
+import java.time.format.DateTimeFormatter; // Import DateTimeFormatter for the time column
+import java.util.ArrayList; // Import ArrayList to drain the queue in batches
+import java.util.List; // Import List as the batch type
+import java.util.Locale; // Import Locale to parse level names case-insensitively
+import java.util.concurrent.ArrayBlockingQueue; // Import ArrayBlockingQueue as the bounded hand-off to the writer
+import java.util.concurrent.BlockingQueue; // Import BlockingQueue as the queue type
+import java.util.function.Supplier; // Import Supplier so disabled messages are never built
+
+public final class Log { // Level-filtered logger that formats and prints on a background thread, so callers never wait for the console
+
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF } // Severities in increasing order; OFF silences everything
+
+    private static final Level LEVEL = level(System.getProperty("logLevel", "INFO")); // Lowest level printed, from -DlogLevel
+    private static final BlockingQueue<Entry> QUEUE = new ArrayBlockingQueue<>(Integer.getInteger("logQueue", 8192)); // Lines waiting for the writer
+    private static final Metrics.Counter DROPPED = Metrics.counter("log.dropped"); // DEBUG and INFO lines dropped because the queue was full
+    private static final PrintStream OUT = Boolean.getBoolean("logStderr") ? System.err : System.out; // Console captured once; -DlogStderr=true keeps stdout for command output
+    private static volatile boolean closed; // Set by the shutdown hook; later lines are printed directly
+
+    private static final class Clock { // Holder so the time zone database is only read once a line is actually printed
+        static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault()); // Time column format
+    } // End Clock class
+
+    private static final class Entry { // One line waiting to be printed
+        final long millis; // When it was logged, captured by the caller
+        final Level level; // Its severity
+        final String tag; // Subsystem, printed in brackets
+        final String message; // The text
+
+        Entry(long millis, Level level, String tag, String message) { // Build an entry
+            this.millis = millis; // Remember the time
+            this.level = level; // Remember the severity
+            this.tag = tag; // Remember the subsystem
+            this.message = message; // Remember the text
+        } // End constructor
+    } // End Entry class
+
+    static { // Start the writer and flush it at exit
+        Thread writer = new Thread(Log::drainForever, "grocerease-log"); // Print off the callers' threads
+        writer.setDaemon(true); // Never keep the JVM alive just for logging
+        writer.start(); // Begin printing
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> { closed = true; flush(); }, "grocerease-log-flush")); // Print what is still queued before the JVM exits
+    } // End static initializer
+
+    private Log() {} // Private constructor prevents instantiation because all members are static
+
+    public static boolean enabled(Level level) { return level != Level.OFF && level.compareTo(LEVEL) >= 0; } // Whether lines at this level are printed
+
+    public static void debug(String tag, String message) { log(Level.DEBUG, tag, message); } // Detail for diagnosing a problem
+    public static void debug(String tag, Supplier<String> message) { if (enabled(Level.DEBUG)) log(Level.DEBUG, tag, message.get()); } // Same, building the text only when printed
+    public static void info(String tag, String message) { log(Level.INFO, tag, message); } // Normal operation: startup, loads, reports
+    public static void info(String tag, Supplier<String> message) { if (enabled(Level.INFO)) log(Level.INFO, tag, message.get()); } // Same, building the text only when printed
+    public static void warn(String tag, String message) { log(Level.WARN, tag, message); } // Something slow or degraded
+    public static void error(String tag, String message) { log(Level.ERROR, tag, message); } // Something failed
+    public static void error(String tag, String message, Throwable t) { // Something failed with an exception; prints its stack trace after the message
+        if (!enabled(Level.ERROR)) return; // Filtered out: skip formatting the trace
+        StringWriter trace = new StringWriter(); // Collect the stack trace as text
+        t.printStackTrace(new PrintWriter(trace)); // Same text printStackTrace() writes to the console
+        log(Level.ERROR, tag, message + System.lineSeparator() + trace.toString().stripTrailing()); // One entry, so the trace stays with its line
+    } // End error method
+
+    public static synchronized void flush() { // Print every queued line now, for example before a command-line tool exits
+        List<Entry> batch = new ArrayList<>(); // Lines still queued
+        QUEUE.drainTo(batch); // Take them all
+        print(batch); // Print them in order
+    } // End flush method
+
+    private static void log(Level level, String tag, String message) { // Queue one line if its level is enabled
+        if (!enabled(level)) return; // Filtered out: costs one comparison
+        Entry e = new Entry(System.currentTimeMillis(), level, tag, message); // Capture the time now; formatting happens on the writer
+        if (closed) { synchronized (Log.class) { flush(); print(List.of(e)); } return; } // After the exit flush, print directly
+        if (QUEUE.offer(e)) return; // The usual case: hand it to the writer
+        if (level.compareTo(Level.WARN) < 0) { DROPPED.increment(); return; } // A flood of detail lines must not stall the caller
+        try { QUEUE.put(e); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); } // Warnings and errors wait for room
+    } // End log method
+
+    private static void drainForever() { // Writer loop: block for a line, then print everything queued behind it
+        List<Entry> batch = new ArrayList<>(); // Reused batch
+        while (true) { // Until the JVM exits
+            try { batch.add(QUEUE.take()); } catch (InterruptedException e) { return; } // Wait for a line
+            QUEUE.drainTo(batch); // Take the rest of the burst
+            synchronized (Log.class) { print(batch); } // Keep order with flush()
+            batch.clear(); // Reuse the list
+        } // End writer loop
+    } // End drainForever method
+
+    private static void print(List<Entry> batch) { // Format and print lines, flushing once per batch
+        if (batch.isEmpty()) return; // Nothing to print
+        StringBuilder sb = new StringBuilder(128 * batch.size()); // One write for the whole batch
+        for (Entry e : batch) { // Format each line
+            Clock.TIME.formatTo(Instant.ofEpochMilli(e.millis), sb); // Time of day the line was logged
+            sb.append(' ').append(e.level == Level.DEBUG ? "DEBUG" : e.level == Level.INFO ? "INFO " : e.level == Level.WARN ? "WARN " : "ERROR"); // Fixed-width level
+            sb.append(" [").append(e.tag).append("] ").append(e.message).append(System.lineSeparator()); // Subsystem and text
+        } // End loop over lines
+        OUT.print(sb); // Print the batch
+        OUT.flush(); // Make it visible at once
+    } // End print method
+
+    private static Level level(String name) { // Parse -DlogLevel, falling back to INFO for unknown names
+        try { return Level.valueOf(name.trim().toUpperCase(Locale.ROOT)); } // DEBUG, INFO, WARN, ERROR or OFF
+        catch (IllegalArgumentException e) { return Level.INFO; } // A typo must not silence the log
+    } // End level method
+} // End Log class
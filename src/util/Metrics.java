@@ -0,0 +1,130 @@
+package util; // Define the package containing shared helper utilities
+
+import jdk.jfr.Category; // Import Category to group the JFR events
+import jdk.jfr.Event; // Import Event as the base of the optional JFR event
+import jdk.jfr.Label; // Import Label to name the JFR event and its fields
+import jdk.jfr.Name; // Import Name to give the JFR event a stable id
+import jdk.jfr.Timespan; // Import Timespan so JFR shows the elapsed field as a duration
+
+import java.nio.charset.StandardCharsets; // Import StandardCharsets to write the dump as UTF-8
+import java.nio.file.Files; // Import Files to write the dump
+import java.nio.file.Path; // Import Path to name the dump file
+import java.nio.file.StandardCopyOption; // Import StandardCopyOption to replace the dump atomically
+import java.util.Map; // Import Map as the registry type
+import java.util.TreeMap; // Import TreeMap to dump names in order
+import java.util.concurrent.ConcurrentHashMap; // Import ConcurrentHashMap so any thread can register and look up metrics
+import java.util.concurrent.atomic.LongAdder; // Import LongAdder for contended counters
+import java.util.function.LongSupplier; // Import LongSupplier for gauges read at dump time
+
+public final class Metrics { // Process-wide registry of counters, timers and gauges, dumped as JSON
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>(); // Counters by name
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>(); // Timers by name
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>(); // Values owned elsewhere, read when dumped
+    private static final long STARTED = System.currentTimeMillis(); // When the registry was created, for the uptime field
+    private static final boolean JFR = Boolean.getBoolean("metricsJfr"); // Also emit a JFR event per timed operation when -DmetricsJfr=true
+
+    static { // Dump on exit when -DmetricsFile names a file
+        String file = System.getProperty("metricsFile"); // Target of the exit dump
+        if (file != null) Runtime.getRuntime().addShutdownHook(new Thread(() -> { // Write it as the JVM exits
+            try { dump(Path.of(file)); } catch (RuntimeException e) { Log.error("Metrics", "exit dump failed", e); } // A failed dump must not hide the exit status
+        }, "grocerease-metrics-dump")); // End shutdown hook
+    } // End static initializer
+
+    private Metrics() {} // Private constructor prevents instantiation because all members are static
+
+    public static Counter counter(String name) { return COUNTERS.computeIfAbsent(name, Counter::new); } // Find or create a counter
+
+    public static Timer timer(String name) { return TIMERS.computeIfAbsent(name, Timer::new); } // Find or create a timer
+
+    public static void gauge(String name, LongSupplier value) { GAUGES.put(name, value); } // Publish a value owned elsewhere; a later call with the same name replaces it
+
+    public static final class Counter { // Monotonic count of events
+        public final String name; // Registered name
+        private final LongAdder n = new LongAdder(); // Striped so contended increments stay cheap
+
+        Counter(String name) { this.name = name; } // Created through counter()
+
+        public void increment() { n.increment(); } // Count one event
+        public void add(long delta) { n.add(delta); } // Count several events
+        public long get() { return n.sum(); } // Events counted so far
+    } // End Counter class
+
+    public static final class Timer { // Latency histogram of one operation, in nanoseconds
+        public final String name; // Registered name
+        private final Histogram histogram = new Histogram(); // Recorded durations
+
+        Timer(String name) { this.name = name; } // Created through timer()
+
+        public long start() { return System.nanoTime(); } // Read the clock at the start of the operation
+
+        public long stop(long start) { // Record the time since start() and return it
+            long nanos = System.nanoTime() - start; // Elapsed time
+            record(nanos); // Record it
+            return nanos; // Hand it back for logging
+        } // End stop method
+
+        public void record(long nanos) { // Record a duration measured elsewhere
+            histogram.record(nanos); // Add it to the histogram
+            if (JFR) emit(name, nanos); // Mirror it into a flight recording
+        } // End record method
+
+        public Histogram.Snapshot snapshot() { return histogram.snapshot(); } // Current distribution
+    } // End Timer class
+
+    public static String toJson() { // Every metric as one JSON object; timer values in microseconds
+        StringBuilder sb = new StringBuilder(4096); // Build the document
+        sb.append("{\"uptimeMs\":").append(System.currentTimeMillis() - STARTED); // Time covered by the numbers
+        sb.append(",\"counters\":{"); // Open the counters
+        String sep = ""; // No comma before the first member
+        for (Counter c : new TreeMap<>(COUNTERS).values()) { Json.appendString(sb.append(sep), c.name).append(':').append(c.get()); sep = ","; } // One member per counter, by name
+        sb.append("},\"gauges\":{"); // Open the gauges
+        sep = ""; // Reset the separator
+        for (Map.Entry<String, LongSupplier> g : new TreeMap<>(GAUGES).entrySet()) { Json.appendString(sb.append(sep), g.getKey()).append(':').append(g.getValue().getAsLong()); sep = ","; } // Read each gauge now
+        sb.append("},\"timers\":{"); // Open the timers
+        sep = ""; // Reset the separator
+        for (Timer t : new TreeMap<>(TIMERS).values()) { // One object per timer, by name
+            Histogram.Snapshot s = t.snapshot(); // Copy its histogram
+            if (s.count == 0) continue; // Skip timers that never ran
+            Json.appendString(sb.append(sep), t.name).append(":{\"count\":").append(s.count); // Name and count
+            sb.append(",\"meanUs\":").append(micros((long) s.mean())); // Average
+            sb.append(",\"p50Us\":").append(micros(s.percentile(50))); // Median
+            sb.append(",\"p90Us\":").append(micros(s.percentile(90))); // 90th percentile
+            sb.append(",\"p99Us\":").append(micros(s.percentile(99))); // 99th percentile
+            sb.append(",\"p999Us\":").append(micros(s.percentile(99.9))); // 99.9th percentile
+            sb.append(",\"maxUs\":").append(micros(s.max)); // Worst case, exact
+            sb.append(",\"totalMs\":").append(s.sum / 1_000_000).append('}'); // Time spent overall
+            sep = ","; // Comma before the next timer
+        } // End loop over timers
+        return sb.append("}}").toString(); // Close timers and the document
+    } // End toJson method
+
+    public static void dump(Path file) { // Write toJson() to a file, replacing it atomically
+        try { // Write next to the target, then rename
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp"); // Temporary file in the same directory
+            Files.writeString(tmp, toJson() + "\n", StandardCharsets.UTF_8); // Write the document
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); // Readers never see half a file
+        } catch (Exception e) { // Handle I/O failures
+            Log.error("Metrics", "dump to " + file + " failed", e); // Log the stack trace for debugging
+            throw new RuntimeException("metrics dump failed: " + e.getMessage()); // Signal the failure to the caller
+        } // End catch block for dump errors
+    } // End dump method
+
+    private static String micros(long nanos) { return Long.toString(nanos / 1000) + '.' + (nanos / 100 % 10); } // Microseconds with one decimal
+
+    private static void emit(String name, long nanos) { // Commit one JFR event; costs a flag check when no recording wants it
+        OperationEvent e = new OperationEvent(); // Event for this operation
+        if (!e.isEnabled()) return; // No recording is listening
+        e.operation = name; // Which timer
+        e.elapsed = nanos; // How long it took
+        e.commit(); // Write it into the recording
+    } // End emit method
+
+    @Name("grocerease.Operation") // Stable event id for jfr print --events
+    @Label("GrocerEase Operation") // Display name in Mission Control
+    @Category("GrocerEase") // Group with other application events
+    static final class OperationEvent extends Event { // One timed service call or EDT dispatch
+        @Label("Operation") String operation; // Timer name
+        @Label("Elapsed") @Timespan(Timespan.NANOSECONDS) long elapsed; // Duration of the operation
+    } // End OperationEvent class
+} // End Metrics class
@@ -3,15 +3,64 @@ package util; // Define the package containing monetary helper utilities
 public final class Money { // Provide a static utility class for parsing and formatting money values
     private Money() {} // Private constructor prevents instantiation because all members are static
 
+    private static final String PREFIX = "NT$"; // Currency prefix written before every formatted amount
+    private static final long MAX_WHOLE = (Long.MAX_VALUE - 100) / 100; // Largest dollar amount whose cents, plus a rounding carry, still fit in a long
+
     public static int parseCents(String s) { // Convert a textual amount into an integer number of cents
-        if (s == null || s.isBlank()) return 0; // Treat null or blank input as zero value
-        String t = s.replaceAll("[^0-9.]", ""); // Remove any non-numeric or non-decimal characters such as currency symbols
-        if (t.isEmpty()) return 0; // Return zero if nothing remains after stripping characters
-        double d = Double.parseDouble(t); // Parse the cleaned text as a floating-point number of dollars
-        return (int) Math.round(d * 100.0); // Convert dollars to cents by multiplying and rounding to the nearest integer
+        long cents = parseCentsLong(s); // Parse exactly as a long first
+        if (cents > Integer.MAX_VALUE) throw new NumberFormatException("amount too large: " + s); // Refuse amounts that would wrap around instead of silently corrupting them
+        return (int) cents; // Narrow the value, which is known to fit
     } // End parseCents method
 
+    public static long parseCentsLong(CharSequence s) { // Convert a textual amount into cents by scanning characters, without regex or floating point
+        if (s == null) return 0; // Treat null input as zero value
+        long whole = 0; // Digits before the decimal point
+        int frac = 0; // Up to two digits after the decimal point
+        int fracDigits = 0; // Number of fractional digits read so far
+        int roundDigit = 0; // Third fractional digit, which decides rounding; later digits cannot change the result
+        boolean dot = false; // Whether a decimal point has been seen
+        boolean digits = false; // Whether any digit has been seen
+
+        for (int i = 0, n = s.length(); i < n; i++) { // Scan every character once
+            char ch = s.charAt(i); // Read the current character
+            if (ch >= '0' && ch <= '9') { // Accumulate digits
+                int d = ch - '0'; // Convert the character to its numeric value
+                digits = true; // Remember that the amount is not empty
+                if (!dot) { // Integer part
+                    if (whole > (MAX_WHOLE - d) / 10) throw new NumberFormatException("amount too large: " + s); // Stop before the cents value could overflow a long
+                    whole = whole * 10 + d; // Shift in the new digit
+                } else if (fracDigits < 2) { // Tenths and hundredths
+                    frac = frac * 10 + d; // Shift in the new digit
+                    fracDigits++; // Count it
+                } else if (fracDigits == 2) { // Thousandths decide half-up rounding
+                    roundDigit = d; // Remember the digit
+                    fracDigits++; // Ignore every digit after this one
+                } // End digit placement
+            } else if (ch == '.') { // Decimal point
+                if (dot) throw new NumberFormatException("more than one decimal point: " + s); // Reject ambiguous input such as "1.2.3"
+                dot = true; // Switch to the fractional part
+            } // Any other character (currency symbols, commas, spaces, signs) is skipped, as the original regex did
+        } // End character scan
+
+        if (!digits) { // Nothing numeric was typed
+            if (dot) throw new NumberFormatException("no digits: " + s); // A lone decimal point is an error, as it always was
+            return 0; // Blank or purely decorative input counts as zero
+        } // End empty check
+        if (fracDigits == 1) frac *= 10; // A single fractional digit means tenths
+        return whole * 100 + frac + (roundDigit >= 5 ? 1 : 0); // Round half up on the exact decimal value
+    } // End parseCentsLong method
+
     public static String formatNTD(int cents) { // Format an integer number of cents as an NT$ currency string
-        return String.format("NT$%.2f", cents / 100.0); // Divide by 100 to get dollars and format with two decimal places
+        return appendNTD(new StringBuilder(24), cents).toString(); // Build the text without going through String.format
     } // End formatNTD method
+
+    public static StringBuilder appendNTD(StringBuilder sb, long cents) { // Append cents as NT$ text to a caller-owned builder, allocating nothing
+        sb.append(PREFIX); // Write the currency prefix
+        long whole = cents / 100; // Dollars, truncated toward zero
+        int frac = (int) (cents % 100); // Remaining cents, with the sign of the amount
+        if (cents < 0) { sb.append('-'); whole = -whole; frac = -frac; } // Write the sign after the prefix, as String.format did; safe even for Long.MIN_VALUE
+        sb.append(whole).append('.'); // Write the dollars and the decimal point
+        if (frac < 10) sb.append('0'); // Pad single-digit cents
+        return sb.append(frac); // Write the cents and return the builder for chaining
+    } // End appendNTD method
 } // End Money utility class definition